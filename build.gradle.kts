@@ -1,5 +1,6 @@
 plugins {
     id("java")
+    id("me.champeau.jmh") version "0.7.2"
 }
 private val lombokDependency = "org.projectlombok:lombok:${project.property("lombokVersion")}"
 private val validationApiVersion = project.property("validationApiVersion")
@@ -36,3 +37,24 @@ dependencies {
 tasks.test {
     useJUnitPlatform()
 }
+
+// Benchmarks can be narrowed and loaded from the command line, e.g.
+// ./gradlew jmh -PjmhIncludes=SchedulingBenchmark -PjmhThreads=8 -PjmhParams=daysOfHistory=365,practitioners=16
+private val jmhThreads = providers.gradleProperty("jmhThreads").getOrElse("1")
+
+jmh {
+    warmupIterations.set(2)
+    iterations.set(5)
+    fork.set(1)
+    threads.set(jmhThreads.toInt())
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes.set(it.split(",")) }
+    providers.gradleProperty("jmhParams").orNull?.let { params ->
+        params.split(",").map { it.split("=", limit = 2) }.forEach { (name, value) ->
+            benchmarkParameters.put(name, objects.listProperty(String::class.java).value(value.split("|")))
+        }
+    }
+    // JSON so results can be collected and compared across releases
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("reports/jmh/results-$version-t$jmhThreads.json"))
+    humanOutputFile.set(layout.buildDirectory.file("reports/jmh/human-$version-t$jmhThreads.txt"))
+}
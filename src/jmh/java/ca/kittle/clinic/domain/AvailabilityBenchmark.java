@@ -0,0 +1,91 @@
+package ca.kittle.clinic.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the occupancy mask behind {@link Practitioner#availabileTimes} with walking the day's shifts and
+ * checking every candidate start time against every booking on the day. The mask side only looks up the clinic
+ * hours' start slot template, so split shifts should cost it nothing extra.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AvailabilityBenchmark {
+
+    @Param({"0", "4", "8"})
+    public int bookingsPerDay;
+
+    @Param({"CHECK_IN", "CONSULTATION"})
+    public Appointment.AppointmentType appointmentType;
+
+    @Param({"false", "true"})
+    public boolean splitShifts;
+
+    // 30 minutes fits a day in one occupancy word, 10 minutes takes three
+    @Param({"30", "10"})
+    public int slotMinutes;
+
+    private Clinic clinic;
+    private Practitioner practitioner;
+    private LocalDate date;
+
+    @Setup
+    public void setUp() {
+        Duration startInterval = Duration.ofMinutes(slotMinutes);
+        ClinicHours hours = new ClinicHours(LocalTime.of(9, 0), LocalTime.of(17, 0), startInterval);
+        if (splitShifts) {
+            Map<DayOfWeek, List<ClinicHours.Shift>> shifts = new EnumMap<>(DayOfWeek.class);
+            for (DayOfWeek day : DayOfWeek.values())
+                shifts.put(day, List.of(new ClinicHours.Shift(LocalTime.of(9, 0), LocalTime.of(12, 0)),
+                        new ClinicHours.Shift(LocalTime.of(13, 0), LocalTime.of(17, 0))));
+            hours = new ClinicHours(shifts, startInterval);
+        }
+        clinic = new Clinic("Benchmark Clinic", "416-555-0000", "bench@clinic.com", hours);
+        Patient patient = new Patient("Bench", "Mark", "416-555-0001", "bench.mark@email.com");
+        practitioner = new Practitioner("Prac", "Titioner", "416-555-0002", "prac@clinic.com");
+        clinic.addPractitioner(practitioner);
+        date = LocalDate.now().plusDays(1);
+        for (int booking = 0; booking < bookingsPerDay; booking++)
+            practitioner.addBooking(
+                    patient, clinic, Appointment.AppointmentType.CHECK_IN, date, LocalTime.of(9, 0).plusHours(booking));
+    }
+
+    @Benchmark
+    public List<LocalTime> occupancyMask() {
+        return practitioner.availabileTimes(date, appointmentType);
+    }
+
+    @Benchmark
+    public List<LocalTime> pairwiseOverlap() {
+        List<LocalTime> times = new ArrayList<>();
+        List<Booking> bookings = practitioner.listBookings(date);
+        for (ClinicHours.Shift shift : clinic.getHours().getShifts(date.getDayOfWeek())) {
+            LocalTime startTime = shift.openingTime();
+            LocalTime endTime = startTime.plus(appointmentType.getDuration());
+            while (!endTime.isAfter(shift.closingTime()) && endTime.isAfter(startTime)) {
+                if (!Booking.doAppointmentTimesOverlapOtherBookings(startTime, endTime, bookings))
+                    times.add(startTime);
+                startTime = startTime.plusMinutes(slotMinutes);
+                endTime = startTime.plus(appointmentType.getDuration());
+            }
+        }
+        return times;
+    }
+}
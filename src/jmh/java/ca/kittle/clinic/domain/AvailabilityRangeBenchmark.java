@@ -0,0 +1,56 @@
+package ca.kittle.clinic.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A patient browsing a practitioner's availability over a horizon, streamed in one pass compared with asking
+ * for each day separately.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AvailabilityRangeBenchmark {
+
+    @Param({"7", "90"})
+    public int horizonDays;
+
+    @Benchmark
+    public List<AvailableSlot> streamRange(ScheduleState state) {
+        LocalDate from = state.firstDay;
+        return state.practitionerList[0]
+                .availabileTimes(from, from.plusDays(horizonDays - 1), Appointment.AppointmentType.STANDARD)
+                .toList();
+    }
+
+    @Benchmark
+    public Optional<AvailableSlot> streamRangeFirstMatch(ScheduleState state) {
+        LocalDate from = state.firstDay;
+        return state.practitionerList[0]
+                .availabileTimes(from, from.plusDays(horizonDays - 1), Appointment.AppointmentType.CONSULTATION)
+                .findFirst();
+    }
+
+    @Benchmark
+    public List<AvailableSlot> dayByDay(ScheduleState state) {
+        Practitioner practitioner = state.practitionerList[0];
+        List<AvailableSlot> slots = new ArrayList<>();
+        for (LocalDate date = state.firstDay; date.isBefore(state.firstDay.plusDays(horizonDays)); date = date.plusDays(1)) {
+            for (LocalTime startTime : practitioner.availabileTimes(date, Appointment.AppointmentType.STANDARD))
+                slots.add(new AvailableSlot(practitioner, date, startTime));
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,67 @@
+package ca.kittle.clinic.domain;
+
+import ca.kittle.clinic.domain.validation.BookingValidationError;
+import ca.kittle.clinic.domain.validation.ValidationMode;
+import io.jbock.util.Either;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validating a booking that passes and one that fails, in each {@link ValidationMode}. Run with
+ * {@code -prof gc}: {@code validate} should allocate nothing either way, while {@code createBooking} only
+ * allocates the booking and its result. The invalid booking is too soon and runs past closing, like most of
+ * the bad requests a booking API gets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BookingValidationBenchmark {
+
+    @Param({"COLLECT_ALL", "FAIL_FAST"})
+    public ValidationMode mode;
+
+    private final Clinic clinic = new Clinic("Benchmark Clinic", "416-555-0000", "bench@clinic.com");
+    private final Patient patient = new Patient("Bench", "Mark", "416-555-0001", "bench.mark@email.com");
+    private final Practitioner practitioner =
+            new Practitioner("Prac", "Titioner", "416-555-0002", "prac@clinic.com");
+    private final LocalDateTime now = LocalDate.now().atTime(15, 0);
+    private final LocalDate date = now.toLocalDate().plusDays(1);
+    private final LocalDate today = now.toLocalDate();
+    private final LocalTime validStart = LocalTime.of(10, 0);
+    private final LocalTime invalidStart = LocalTime.of(16, 30);
+
+    @Benchmark
+    public long validateValid() {
+        return Booking.validate(mode, now, clinic.getHours(), Appointment.AppointmentType.STANDARD, date,
+                validStart, patient, practitioner);
+    }
+
+    @Benchmark
+    public long validateInvalid() {
+        return Booking.validate(mode, now, clinic.getHours(), Appointment.AppointmentType.STANDARD, today,
+                invalidStart, patient, practitioner);
+    }
+
+    @Benchmark
+    public Either<List<BookingValidationError>, Booking> createBookingValid() {
+        return Booking.createBooking(mode, now, clinic.getHours(), Appointment.AppointmentType.STANDARD, date,
+                validStart, patient, practitioner);
+    }
+
+    @Benchmark
+    public Either<List<BookingValidationError>, Booking> createBookingInvalid() {
+        return Booking.createBooking(mode, now, clinic.getHours(), Appointment.AppointmentType.STANDARD, today,
+                invalidStart, patient, practitioner);
+    }
+}
@@ -0,0 +1,81 @@
+package ca.kittle.clinic.domain;
+
+import ca.kittle.clinic.domain.validation.BookingValidationError;
+import io.jbock.util.Either;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A shuffled batch of half hour bookings, with one in ten overlapping another, added through
+ * {@link Clinic#addBookings} compared with calling {@link Practitioner#addBooking} for each.
+ * Divide the batch size by the time per operation for bookings per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BulkBookingBenchmark {
+
+    private static final int SLOTS_PER_DAY = 16;
+
+    @Param({"1000", "100000"})
+    public int batchSize;
+
+    @Param({"4"})
+    public int practitioners;
+
+    private Clinic clinic;
+    private List<BookingRequest> requests;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        clinic = new Clinic("Benchmark Clinic", "416-555-0000", "bench@clinic.com");
+        Patient patient = new Patient("Bench", "Mark", "416-555-0001", "bench.mark@email.com");
+        List<Practitioner> practitionerList = new ArrayList<>();
+        for (int p = 0; p < practitioners; p++)
+            practitionerList.add(new Practitioner("Prac", "Titioner" + p, "416-555-0002", "prac" + p + "@clinic.com"));
+        LocalDate firstDay = LocalDate.now().plusDays(1);
+        requests = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            // Every tenth request repeats the slot before it
+            int slot = i % 10 == 9 ? i - 1 : i;
+            Practitioner practitioner = practitionerList.get(slot % practitioners);
+            int perPractitioner = slot / practitioners;
+            requests.add(new BookingRequest(
+                    practitioner,
+                    patient,
+                    Appointment.AppointmentType.CHECK_IN,
+                    firstDay.plusDays(perPractitioner / SLOTS_PER_DAY),
+                    LocalTime.of(9, 0).plusMinutes(30L * (perPractitioner % SLOTS_PER_DAY))));
+        }
+        Collections.shuffle(requests, new Random(42));
+    }
+
+    @Benchmark
+    public List<Either<List<BookingValidationError>, Booking>> addBookings() {
+        return clinic.addBookings(requests);
+    }
+
+    @Benchmark
+    public List<Either<List<BookingValidationError>, Booking>> addBookingOneAtATime() {
+        List<Either<List<BookingValidationError>, Booking>> results = new ArrayList<>(requests.size());
+        for (BookingRequest request : requests)
+            results.add(request.practitioner().addBooking(
+                    request.patient(), clinic, request.appointmentType(), request.date(), request.startTime()));
+        return results;
+    }
+}
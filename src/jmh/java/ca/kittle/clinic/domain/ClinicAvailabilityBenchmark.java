@@ -0,0 +1,71 @@
+package ca.kittle.clinic.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clinic-wide availability searched in parallel by {@link Clinic#availableTimes} compared with asking each
+ * practitioner in turn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ClinicAvailabilityBenchmark {
+
+    @Param({"10", "100", "500"})
+    public int practitioners;
+
+    @Param({"1", "7"})
+    public int days;
+
+    private Clinic clinic;
+    private LocalDate firstDay;
+    private LocalDate lastDay;
+
+    @Setup
+    public void setUp() {
+        clinic = new Clinic("Benchmark Clinic", "416-555-0000", "bench@clinic.com");
+        Patient patient = new Patient("Bench", "Mark", "416-555-0001", "bench.mark@email.com");
+        firstDay = LocalDate.now().plusDays(1);
+        lastDay = firstDay.plusDays(days - 1);
+        for (int p = 0; p < practitioners; p++) {
+            Practitioner practitioner =
+                    new Practitioner("Prac", "Titioner" + p, "416-555-0002", "prac" + p + "@clinic.com");
+            for (int day = 0; day < days; day++) {
+                LocalDate date = firstDay.plusDays(day);
+                for (int hour = 9 + p % 2; hour < 17; hour += 2)
+                    practitioner.addBooking(patient, clinic, Appointment.AppointmentType.STANDARD, date, LocalTime.of(hour, 0));
+            }
+            clinic.addPractitioner(practitioner);
+        }
+    }
+
+    @Benchmark
+    public List<AvailableSlot> clinicSearch() {
+        return clinic.availableTimes(firstDay, lastDay, Appointment.AppointmentType.CONSULTATION);
+    }
+
+    @Benchmark
+    public List<AvailableSlot> practitionerByPractitioner() {
+        List<AvailableSlot> slots = new ArrayList<>();
+        for (Practitioner practitioner : clinic.getPractitioners()) {
+            for (LocalDate date = firstDay; !date.isAfter(lastDay); date = date.plusDays(1)) {
+                for (LocalTime startTime : practitioner.availabileTimes(date, Appointment.AppointmentType.CONSULTATION))
+                    slots.add(new AvailableSlot(practitioner, date, startTime));
+            }
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,105 @@
+package ca.kittle.clinic.domain;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many threads booking random slots across a set of practitioners and days, cancelling each booking they win so
+ * the calendars never fill up and contention stays constant through the run. Bookings made and requests turned
+ * away are reported separately as {@code booked} and {@code rejected}. Run with different {@code -PjmhThreads}
+ * values to see how throughput scales; every iteration ends by checking that no practitioner was double-booked.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConcurrentBookingBenchmark {
+
+    private static final int SLOTS_PER_DAY = 16;
+
+    @Param({"8", "64"})
+    public int practitioners;
+
+    @Param({"30"})
+    public int days;
+
+    private Clinic clinic;
+    private Patient patient;
+    private LocalDate firstDay;
+    private Practitioner[] practitionerList;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        clinic = new Clinic("Benchmark Clinic", "416-555-0000", "bench@clinic.com");
+        patient = new Patient("Bench", "Mark", "416-555-0001", "bench.mark@email.com");
+        firstDay = LocalDate.now().plusDays(1);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        practitionerList = new Practitioner[practitioners];
+        for (int i = 0; i < practitioners; i++)
+            practitionerList[i] = new Practitioner("Prac", "Titioner" + i, "416-555-0002", "prac" + i + "@clinic.com");
+    }
+
+    @TearDown(Level.Iteration)
+    public void verifyNoDoubleBookings() {
+        for (Practitioner practitioner : practitionerList) {
+            for (int day = 0; day < days; day++) {
+                List<Booking> bookings = practitioner.listBookings(firstDay.plusDays(day));
+                for (int i = 1; i < bookings.size(); i++) {
+                    if (bookings.get(i).getStartTime().isBefore(bookings.get(i - 1).getEndTime()))
+                        throw new IllegalStateException("Double booking detected for " + practitioner.getLastName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Each thread's count of bookings made and requests turned away in an iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+
+        public long booked;
+        public long rejected;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            booked = 0;
+            rejected = 0;
+        }
+    }
+
+    @Benchmark
+    public void addBooking(Outcomes outcomes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Practitioner practitioner = practitionerList[random.nextInt(practitioners)];
+        LocalDate date = firstDay.plusDays(random.nextInt(days));
+        LocalTime startTime = LocalTime.of(9, 0).plusMinutes(30L * random.nextInt(SLOTS_PER_DAY - 1));
+        Optional<Booking> booked = practitioner.addBooking(patient, clinic, Appointment.AppointmentType.STANDARD,
+                date, startTime).getRight();
+        if (booked.isPresent()) {
+            practitioner.cancelBooking(booked.get());
+            outcomes.booked++;
+        } else {
+            outcomes.rejected++;
+        }
+    }
+}
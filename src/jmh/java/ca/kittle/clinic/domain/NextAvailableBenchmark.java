@@ -0,0 +1,57 @@
+package ca.kittle.clinic.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Practitioner#nextAvailableTime}, which skips fully booked weeks, compared with taking the first slot
+ * from a day by day scan of the practitioner's availability.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NextAvailableBenchmark {
+
+    @Param({"0", "4", "52"})
+    public int fullWeeks;
+
+    private Practitioner practitioner;
+    private LocalDateTime now;
+
+    @Setup
+    public void setUp() {
+        Clinic clinic = new Clinic("Benchmark Clinic", "416-555-0000", "bench@clinic.com");
+        Patient patient = new Patient("Bench", "Mark", "416-555-0001", "bench.mark@email.com");
+        practitioner = new Practitioner("Prac", "Titioner", "416-555-0002", "prac@clinic.com");
+        now = LocalDateTime.of(LocalDate.now(), LocalTime.of(20, 0));
+        LocalDate firstDay = now.toLocalDate().plusDays(1);
+        for (int day = 0; day < fullWeeks * 7; day++) {
+            for (int hour = 9; hour < 17; hour++)
+                practitioner.addBooking(patient, clinic, Appointment.AppointmentType.STANDARD, firstDay.plusDays(day), LocalTime.of(hour, 0));
+        }
+    }
+
+    @Benchmark
+    public Optional<AvailableSlot> nextAvailableTime() {
+        return practitioner.nextAvailableTime(now, Appointment.AppointmentType.STANDARD);
+    }
+
+    @Benchmark
+    public Optional<AvailableSlot> firstOfDayByDayScan() {
+        LocalDate firstDay = now.toLocalDate().plusDays(1);
+        return practitioner.availabileTimes(firstDay, firstDay.plusYears(2), Appointment.AppointmentType.STANDARD)
+                .findFirst();
+    }
+}
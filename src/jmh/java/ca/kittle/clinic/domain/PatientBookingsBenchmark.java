@@ -0,0 +1,84 @@
+package ca.kittle.clinic.domain;
+
+import ca.kittle.clinic.domain.calendar.ReservationStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A patient portal's "my upcoming appointments" page: one patient's bookings out of a whole clinic's. Compares
+ * the clinic's per-patient index with walking every practitioner's bookings, which grows with the clinic.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PatientBookingsBenchmark {
+
+    private static final int PRACTITIONERS = 50;
+    private static final int SLOTS_PER_DAY = 16;
+    private static final int PATIENTS = 10_000;
+    private static final LocalTime FIRST_START = LocalTime.of(9, 0);
+
+    @Param({"30", "365"})
+    public int days;
+
+    private Clinic clinic;
+    private Patient[] patients;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        clinic = new Clinic("Benchmark Clinic", "416-555-0000", "bench@clinic.com");
+        patients = new Patient[PATIENTS];
+        for (int i = 0; i < PATIENTS; i++)
+            patients[i] = new Patient("Patient", "Number" + i, "416-555-0001", "patient" + i + "@email.com");
+        LocalDate firstDay = LocalDate.now().plusDays(1);
+        int booking = 0;
+        for (int p = 0; p < PRACTITIONERS; p++) {
+            Practitioner practitioner = new Practitioner(new UUID(0L, p + 1), "Prac", "Titioner" + p,
+                    "416-555-0002", "prac" + p + "@clinic.com", ReservationStrategy.LOCKING);
+            clinic.addPractitioner(practitioner);
+            for (int day = 0; day < days; day++) {
+                for (int slot = 0; slot < SLOTS_PER_DAY; slot++)
+                    practitioner.restoreBooking(patients[booking++ % PATIENTS], clinic,
+                            Appointment.AppointmentType.CHECK_IN, firstDay.plusDays(day),
+                            FIRST_START.plusMinutes(30L * slot));
+            }
+        }
+    }
+
+    private Patient anyPatient() {
+        return patients[ThreadLocalRandom.current().nextInt(PATIENTS)];
+    }
+
+    @Benchmark
+    public List<Booking> indexed() {
+        return clinic.upcomingBookings(anyPatient());
+    }
+
+    @Benchmark
+    public List<Booking> scanEveryPractitioner() {
+        Patient patient = anyPatient();
+        List<Booking> bookings = new ArrayList<>();
+        for (Practitioner practitioner : clinic.getPractitioners()) {
+            for (Booking booking : practitioner.getBookings()) {
+                if (booking.getPatient() == patient)
+                    bookings.add(booking);
+            }
+        }
+        return bookings;
+    }
+}
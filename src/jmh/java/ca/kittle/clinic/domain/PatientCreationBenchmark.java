@@ -0,0 +1,42 @@
+package ca.kittle.clinic.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk-creating patients, e.g. an import. Run with different {@code -PjmhThreads} values: random ids all draw
+ * from one shared {@link java.security.SecureRandom}, so their throughput stops growing with threads while
+ * time-ordered ids keep scaling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PatientCreationBenchmark {
+
+    public enum Generator {
+        RANDOM, TIME_ORDERED
+    }
+
+    @Param({"RANDOM", "TIME_ORDERED"})
+    public Generator generator;
+
+    private IdGenerator idGenerator;
+
+    @Setup
+    public void setUp() {
+        idGenerator = generator == Generator.RANDOM ? IdGenerator.RANDOM : IdGenerator.TIME_ORDERED;
+    }
+
+    @Benchmark
+    public Patient createPatient() {
+        return Patient.createPatient(idGenerator, "Bench", "Mark", "416-555-0001", "bench.mark@email.com");
+    }
+}
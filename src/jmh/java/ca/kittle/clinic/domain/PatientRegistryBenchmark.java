@@ -0,0 +1,62 @@
+package ca.kittle.clinic.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Front-desk lookups against a registry of a few million patients. Run with different {@code -PjmhThreads}
+ * values to see that lookups scale with readers, and with {@code -prof gc} for the registry's footprint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PatientRegistryBenchmark {
+
+    @Param({"1000000", "4000000"})
+    public int patients;
+
+    private PatientRegistry registry;
+    private Patient[] registered;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        registry = new PatientRegistry(patients);
+        registered = new Patient[patients];
+        for (int i = 0; i < patients; i++) {
+            registered[i] = new Patient("Patient", "Number" + i,
+                    String.format("%03d-%03d-%04d", 200 + i / 10_000_000, i / 10_000 % 1_000, i % 10_000),
+                    "patient" + i + "@email.com");
+            registry.register(registered[i]);
+        }
+    }
+
+    private Patient anyPatient() {
+        return registered[ThreadLocalRandom.current().nextInt(patients)];
+    }
+
+    @Benchmark
+    public Optional<Patient> findById() {
+        return registry.findById(anyPatient().getId());
+    }
+
+    @Benchmark
+    public Optional<Patient> findByEmail() {
+        return registry.findByEmail(anyPatient().getEmail());
+    }
+
+    @Benchmark
+    public Optional<Patient> findByPhoneNumber() {
+        return registry.findByPhoneNumber(anyPatient().getPhoneNumber());
+    }
+}
@@ -0,0 +1,72 @@
+package ca.kittle.clinic.domain;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A clinic full of practitioners with pre-booked days, shared by the scheduling benchmarks.
+ * <p>
+ * The booked days start tomorrow rather than in the past because {@link Practitioner#addBooking} only accepts
+ * future dates. Bookings are CHECK_INs spread over the first {@link #BOOKABLE_SLOTS} slots of the day, which
+ * leaves the last hour free for benchmarks that need to add and cancel a booking. Cancelled bookings are kept,
+ * so the clinic is rebuilt for every iteration to stop them piling up over a run.
+ */
+@State(Scope.Benchmark)
+public class ScheduleState {
+
+    static final int BOOKABLE_SLOTS = 14;
+    static final LocalTime OPENING_TIME = LocalTime.of(9, 0);
+    static final LocalTime FREE_START_TIME = OPENING_TIME.plusMinutes(30L * BOOKABLE_SLOTS);
+
+    @Param({"2", "8", "14"})
+    public int bookingsPerDay;
+
+    @Param({"30", "365"})
+    public int daysOfHistory;
+
+    @Param({"1", "16"})
+    public int practitioners;
+
+    Clinic clinic;
+    Patient patient;
+    Practitioner[] practitionerList;
+    LocalDateTime now;
+    LocalDate firstDay;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        clinic = new Clinic("Benchmark Clinic", "416-555-0000", "bench@clinic.com");
+        patient = new Patient("Bench", "Mark", "416-555-0001", "bench.mark@email.com");
+        now = LocalDateTime.now();
+        firstDay = now.toLocalDate().plusDays(1);
+        practitionerList = new Practitioner[practitioners];
+        for (int p = 0; p < practitioners; p++) {
+            Practitioner practitioner =
+                    new Practitioner("Prac", "Titioner" + p, "416-555-0002", "prac" + p + "@clinic.com");
+            for (int day = 0; day < daysOfHistory; day++) {
+                LocalDate date = firstDay.plusDays(day);
+                for (int booking = 0; booking < bookingsPerDay; booking++) {
+                    LocalTime startTime = OPENING_TIME.plusMinutes(30L * (booking * BOOKABLE_SLOTS / bookingsPerDay));
+                    practitioner.addBooking(patient, clinic, Appointment.AppointmentType.CHECK_IN, date, startTime);
+                }
+            }
+            practitionerList[p] = practitioner;
+        }
+    }
+
+    Practitioner randomPractitioner() {
+        return practitionerList[ThreadLocalRandom.current().nextInt(practitioners)];
+    }
+
+    LocalDate randomDay() {
+        return firstDay.plusDays(ThreadLocalRandom.current().nextInt(daysOfHistory));
+    }
+}
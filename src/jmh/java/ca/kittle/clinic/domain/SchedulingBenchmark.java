@@ -0,0 +1,95 @@
+package ca.kittle.clinic.domain;
+
+import ca.kittle.clinic.domain.validation.BookingValidationError;
+import io.jbock.util.Either;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The core scheduling operations against a {@link ScheduleState}. Run with {@code -PjmhThreads=n} to measure
+ * them under concurrent load.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SchedulingBenchmark {
+
+    @Benchmark
+    public Either<List<BookingValidationError>, Booking> createBooking(ScheduleState state) {
+        return Booking.createBooking(
+                state.now,
+                state.clinic.getHours(),
+                Appointment.AppointmentType.STANDARD,
+                state.randomDay(),
+                ScheduleState.FREE_START_TIME,
+                state.patient,
+                state.randomPractitioner());
+    }
+
+    @Benchmark
+    public boolean doesBookingOverlap(ScheduleState state) {
+        Practitioner practitioner = state.randomPractitioner();
+        LocalDate date = state.randomDay();
+        Booking candidate = Booking.createBooking(
+                state.now,
+                state.clinic.getHours(),
+                Appointment.AppointmentType.STANDARD,
+                date,
+                ScheduleState.OPENING_TIME,
+                state.patient,
+                practitioner).getRight().orElseThrow();
+        return candidate.doesBookingOverlap(practitioner.listBookings(date));
+    }
+
+    @Benchmark
+    public List<LocalTime> availableTimes(ScheduleState state) {
+        return state.randomPractitioner().availabileTimes(state.randomDay(), Appointment.AppointmentType.STANDARD);
+    }
+
+    @Benchmark
+    public List<Booking> listBookingsForOneDay(ScheduleState state) {
+        return state.randomPractitioner().listBookings(state.randomDay());
+    }
+
+    @Benchmark
+    public List<Booking> listBookingsForOneWeek(ScheduleState state) {
+        LocalDate from = state.randomDay();
+        return state.randomPractitioner().listBookings(from, from.plusDays(6));
+    }
+
+    @Benchmark
+    public List<Booking> listConfirmedBookingsForOneDay(ScheduleState state) {
+        return state.randomPractitioner().listBookings(state.randomDay(), Booking.BookingStatus.CONFIRMED);
+    }
+
+    /**
+     * The same question answered by filtering the day's bookings rather than reading the status index.
+     */
+    @Benchmark
+    public List<Booking> filterConfirmedBookingsForOneDay(ScheduleState state) {
+        return state.randomPractitioner().listBookings(state.randomDay()).stream()
+                .filter(booking -> booking.getStatus() == Booking.BookingStatus.CONFIRMED)
+                .toList();
+    }
+
+    /**
+     * Books the free last hour of a random day and cancels it again so the calendar doesn't fill up.
+     */
+    @Benchmark
+    public boolean addAndCancelBooking(ScheduleState state) {
+        Practitioner practitioner = state.randomPractitioner();
+        Either<List<BookingValidationError>, Booking> result = practitioner.addBooking(
+                state.patient,
+                state.clinic,
+                Appointment.AppointmentType.STANDARD,
+                state.randomDay(),
+                ScheduleState.FREE_START_TIME);
+        return result.getRight().map(practitioner::cancelBooking).orElse(false);
+    }
+}
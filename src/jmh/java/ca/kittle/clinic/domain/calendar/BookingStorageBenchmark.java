@@ -0,0 +1,141 @@
+package ca.kittle.clinic.domain.calendar;
+
+import ca.kittle.clinic.domain.Appointment;
+import ca.kittle.clinic.domain.Clinic;
+import ca.kittle.clinic.domain.Patient;
+import ca.kittle.clinic.domain.Practitioner;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Booking history kept as {@link ca.kittle.clinic.domain.Booking} objects on the heap compared with the same
+ * history in a {@link ColumnarBookingStore}. Run with {@code -prof gc} to compare collection counts and times,
+ * which grow with the live heap:
+ * <ul>
+ *     <li>{@code footprint} reports the heap each backend keeps live and the store's native memory as the
+ *     {@code liveHeapBytes} and {@code offHeapBytes} secondary results</li>
+ *     <li>{@code fullCollection} times a full collection, i.e. the worst pause the history causes</li>
+ *     <li>{@code availability} is the everyday query load, answered from either backend</li>
+ * </ul>
+ * The 10M booking heap backend needs a few GB of heap.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BookingStorageBenchmark {
+
+    private static final int PRACTITIONERS = 100;
+    private static final int SLOTS_PER_DAY = 16;
+    private static final LocalTime FIRST_START = LocalTime.of(9, 0);
+    private static final Patient PATIENT = new Patient("Bench", "Mark", "416-555-0001", "bench.mark@email.com");
+
+    public enum Backend {
+        HEAP, OFF_HEAP
+    }
+
+    @Param({"HEAP", "OFF_HEAP"})
+    public Backend backend;
+
+    @Param({"1000000", "10000000"})
+    public int bookings;
+
+    private List<Practitioner> practitioners;
+    private LocalDate firstDay;
+    private int days;
+    private ColumnarBookingStore store;
+    private long baseline;
+
+    /**
+     * Bytes rather than counts of events; {@link #footprint} runs once on one thread so they are reported as is.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public long liveHeapBytes;
+        public long offHeapBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        baseline = liveHeap();
+        Clinic clinic = new Clinic("Benchmark Clinic", "416-555-0000", "bench@clinic.com");
+        practitioners = new ArrayList<>(PRACTITIONERS);
+        for (int i = 0; i < PRACTITIONERS; i++)
+            practitioners.add(practitioner(i));
+        firstDay = LocalDate.now().plusDays(1);
+        days = Math.max(1, bookings / (SLOTS_PER_DAY * PRACTITIONERS));
+        for (int i = 0; i < bookings; i++) {
+            practitioners.get(i / SLOTS_PER_DAY % PRACTITIONERS).restoreBooking(PATIENT, clinic,
+                    Appointment.AppointmentType.CHECK_IN, firstDay.plusDays(i / (SLOTS_PER_DAY * PRACTITIONERS)),
+                    FIRST_START.plusMinutes(30L * (i % SLOTS_PER_DAY)));
+        }
+
+        if (backend == Backend.OFF_HEAP) {
+            ColumnarBookingStore.Builder builder = ColumnarBookingStore.builder();
+            practitioners.forEach(builder::addAll);
+            store = builder.build();
+            List<Practitioner> restored = new ArrayList<>(PRACTITIONERS);
+            for (int i = 0; i < PRACTITIONERS; i++) {
+                Practitioner practitioner = practitioner(i);
+                practitioner.restoreCalendar(store.archiveFor(practitioner, id -> PATIENT));
+                restored.add(practitioner);
+            }
+            practitioners = restored;
+        }
+    }
+
+    private static Practitioner practitioner(int i) {
+        return new Practitioner(new UUID(0L, i + 1), "Prac", "Titioner" + i, "416-555-0002",
+                "prac" + i + "@clinic.com", ReservationStrategy.LOCKING);
+    }
+
+    private static long liveHeap() {
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Threads(1)
+    public void footprint(Footprint footprint) {
+        footprint.liveHeapBytes = liveHeap() - baseline;
+        footprint.offHeapBytes = store == null ? 0 : store.offHeapBytes();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public void fullCollection() {
+        System.gc();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public List<LocalTime> availability() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return practitioners.get(random.nextInt(PRACTITIONERS))
+                .availabileTimes(firstDay.plusDays(random.nextInt(days)), Appointment.AppointmentType.CHECK_IN);
+    }
+}
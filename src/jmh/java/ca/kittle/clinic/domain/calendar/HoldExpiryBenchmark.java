@@ -0,0 +1,73 @@
+package ca.kittle.clinic.domain.calendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hold lifecycle at peak: schedule an expiry for every hold, confirm (cancel) most of them and let the rest
+ * expire. The {@link TimingWheel} used for holds is compared with a {@link ScheduledFuture} per hold.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HoldExpiryBenchmark {
+
+    private static final long HOLD_MILLIS = 10 * 60 * 1000;
+
+    @Param({"10000", "50000"})
+    public int holds;
+
+    private ScheduledThreadPoolExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void timingWheel(Blackhole blackhole) {
+        TimingWheel<Integer> wheel = new TimingWheel<>(1000, 1024);
+        long now = System.currentTimeMillis();
+        wheel.advance(now, blackhole::consume);
+        @SuppressWarnings("unchecked")
+        TimingWheel.Timeout<Integer>[] timeouts = new TimingWheel.Timeout[holds];
+        for (int i = 0; i < holds; i++)
+            timeouts[i] = wheel.schedule(i, now + HOLD_MILLIS + i);
+        for (int i = 0; i < holds; i++) {
+            if (i % 4 != 0)
+                timeouts[i].cancel();
+        }
+        wheel.advance(now + 2 * HOLD_MILLIS, blackhole::consume);
+    }
+
+    @Benchmark
+    public void scheduledFuturePerHold(Blackhole blackhole) {
+        ScheduledFuture<?>[] futures = new ScheduledFuture[holds];
+        for (int i = 0; i < holds; i++) {
+            int hold = i;
+            futures[i] = executor.schedule(() -> blackhole.consume(hold), HOLD_MILLIS + i, TimeUnit.MILLISECONDS);
+        }
+        // Every future is cancelled here since the executor can't be moved on to expire the rest
+        for (ScheduledFuture<?> future : futures)
+            future.cancel(false);
+    }
+}
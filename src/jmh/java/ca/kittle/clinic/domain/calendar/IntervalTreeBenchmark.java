@@ -0,0 +1,80 @@
+package ca.kittle.clinic.domain.calendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overlap checks against a day of free-form intervals, e.g. a room or a piece of equipment booked for any length
+ * of time, answered by the pairwise scan the booking overlap helpers use and by an {@link IntervalTree}:
+ * <ul>
+ *     <li>{@code scan} and {@code tree} ask whether a short interval overlaps anything</li>
+ *     <li>{@code containing} is a stabbing query, everything in use at a moment</li>
+ * </ul>
+ * Intervals are spread over the day and mostly short, so most queries find only a few of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IntervalTreeBenchmark {
+
+    private static final long MINUTE = 60_000_000_000L;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    @Param({"10", "100", "1000"})
+    public int intervals;
+
+    private long[] starts;
+    private long[] ends;
+    private IntervalTree<Integer> tree;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(25);
+        starts = new long[intervals];
+        ends = new long[intervals];
+        tree = new IntervalTree<>();
+        for (int i = 0; i < intervals; i++) {
+            starts[i] = random.nextInt(MINUTES_PER_DAY) * MINUTE;
+            ends[i] = starts[i] + (1 + random.nextInt(20)) * MINUTE;
+            tree.add(starts[i], ends[i], i);
+        }
+    }
+
+    @Benchmark
+    public boolean scan() {
+        long start = randomStart();
+        long end = start + MINUTE;
+        for (int i = 0; i < starts.length; i++) {
+            if (starts[i] < end && ends[i] > start)
+                return true;
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean tree() {
+        long start = randomStart();
+        return tree.overlaps(start, start + MINUTE);
+    }
+
+    @Benchmark
+    public List<Integer> containing() {
+        return tree.containing(randomStart());
+    }
+
+    private static long randomStart() {
+        return ThreadLocalRandom.current().nextInt(MINUTES_PER_DAY) * MINUTE;
+    }
+}
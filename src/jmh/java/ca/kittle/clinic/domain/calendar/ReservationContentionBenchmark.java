@@ -0,0 +1,79 @@
+package ca.kittle.clinic.domain.calendar;
+
+import ca.kittle.clinic.domain.Appointment;
+import ca.kittle.clinic.domain.Booking;
+import ca.kittle.clinic.domain.ClinicHours;
+import ca.kittle.clinic.domain.Patient;
+import ca.kittle.clinic.domain.Practitioner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A booking storm on a handful of popular practitioners' newly released day: every thread tries to reserve a
+ * random slot and cancels it again when it wins, so contention stays constant through the run. Compares the
+ * locking and lock-free {@link ReservationStrategy} directly against the calendar to leave validation out.
+ * Run with several {@code -PjmhThreads} values to see how each behaves as contention grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReservationContentionBenchmark {
+
+    private static final int SLOTS = 15;
+
+    @Param({"LOCKING", "LOCK_FREE"})
+    public ReservationStrategy strategy;
+
+    @Param({"1", "4"})
+    public int practitioners;
+
+    private BookingCalendar[] calendars;
+    private Booking[][] requests;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate releasedDay = now.toLocalDate().plusDays(28);
+        ClinicHours hours = new ClinicHours(LocalTime.of(9, 0), LocalTime.of(17, 0));
+        Patient patient = new Patient("Bench", "Mark", "416-555-0001", "bench.mark@email.com");
+        calendars = new BookingCalendar[practitioners];
+        requests = new Booking[practitioners][SLOTS];
+        for (int p = 0; p < practitioners; p++) {
+            Practitioner practitioner = new Practitioner("Prac", "Titioner", "416-555-0002", "prac@clinic.com");
+            calendars[p] = new BookingCalendar(strategy);
+            for (int slot = 0; slot < SLOTS; slot++) {
+                requests[p][slot] = Booking.createBooking(
+                        now,
+                        hours,
+                        Appointment.AppointmentType.STANDARD,
+                        releasedDay,
+                        LocalTime.of(9, 0).plusMinutes(30L * slot),
+                        patient,
+                        practitioner).getRight().orElseThrow();
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean reserveAndRelease() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int p = random.nextInt(practitioners);
+        Booking request = requests[p][random.nextInt(SLOTS)];
+        if (!calendars[p].addIfFree(request))
+            return false;
+        calendars[p].remove(request);
+        return true;
+    }
+}
@@ -0,0 +1,156 @@
+package ca.kittle.clinic.journal;
+
+import ca.kittle.clinic.domain.Appointment;
+import ca.kittle.clinic.domain.Clinic;
+import ca.kittle.clinic.domain.IdGenerator;
+import ca.kittle.clinic.domain.Patient;
+import ca.kittle.clinic.domain.Practitioner;
+import ca.kittle.clinic.domain.calendar.ReservationStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Journal write throughput and replay time.
+ * <p>
+ * {@link Append} measures records per second under each {@link BookingJournal.SyncPolicy}; run it with
+ * {@code -PjmhThreads=8} or more to see group commit spread one fsync over many concurrent bookings.
+ * {@link Replay} times a single replay of a journal of 1M or 10M bookings (give the JVM a few GB of heap for
+ * 10M), both into practitioners' calendars and as a raw scan into a clinic that matches no records, which is
+ * the cost of reading and checking the file alone.
+ */
+public class BookingJournalBenchmark {
+
+    private static final int PRACTITIONERS = 100;
+    private static final LocalTime FIRST_START = LocalTime.of(9, 0);
+    private static final int SLOTS_PER_DAY = 16;
+    private static final UUID[] PRACTITIONER_IDS = new UUID[PRACTITIONERS];
+
+    static {
+        for (int i = 0; i < PRACTITIONERS; i++)
+            PRACTITIONER_IDS[i] = new UUID(0L, i + 1);
+    }
+
+    private static final Patient PATIENT = new Patient("Bench", "Mark", "416-555-0001", "bench.mark@email.com");
+
+    private static Clinic newClinic(int practitioners) {
+        Clinic clinic = new Clinic("Benchmark Clinic", "416-555-0000", "bench@clinic.com");
+        for (int i = 0; i < practitioners; i++)
+            clinic.addPractitioner(new Practitioner(PRACTITIONER_IDS[i], "Prac", "Titioner" + i, "416-555-0002",
+                    "prac" + i + "@clinic.com", ReservationStrategy.LOCKING));
+        return clinic;
+    }
+
+    @State(Scope.Benchmark)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public static class Append {
+
+        @Param({"GROUP_COMMIT", "ON_FLUSH"})
+        public BookingJournal.SyncPolicy syncPolicy;
+
+        private Path path;
+        private BookingJournal journal;
+        private Practitioner[] practitioners;
+        private LocalDate firstDay;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException {
+            path = Files.createTempFile("bookings", ".journal");
+            Files.delete(path);
+            journal = BookingJournal.open(path, syncPolicy);
+            practitioners = newClinic(PRACTITIONERS).getPractitioners().toArray(new Practitioner[0]);
+            firstDay = LocalDate.now().plusDays(1);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            journal.close();
+            Files.deleteIfExists(path);
+        }
+
+        @Benchmark
+        public void bookingAdded() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            journal.append(BookingJournal.RecordType.BOOKING_ADDED,
+                    practitioners[random.nextInt(PRACTITIONERS)], PATIENT, Appointment.AppointmentType.CHECK_IN,
+                    firstDay.plusDays(random.nextInt(365)),
+                    FIRST_START.plusMinutes(30L * random.nextInt(SLOTS_PER_DAY)), IdGenerator.TIME_ORDERED.nextId());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public static class Replay {
+
+        @Param({"1000000", "10000000"})
+        public int records;
+
+        private Path path;
+        private Clinic clinic;
+        private Clinic emptyClinic;
+
+        /**
+         * Every practitioner fully booked with check-ins, day after day, for as many days as the records need.
+         */
+        @Setup(Level.Trial)
+        public void writeJournal() throws IOException {
+            path = Files.createTempFile("bookings", ".journal");
+            Files.delete(path);
+            Practitioner[] practitioners = newClinic(PRACTITIONERS).getPractitioners().toArray(new Practitioner[0]);
+            LocalDate firstDay = LocalDate.now().plusDays(1);
+            try (BookingJournal journal = BookingJournal.open(path, BookingJournal.SyncPolicy.ON_FLUSH)) {
+                for (int i = 0; i < records; i++) {
+                    int slot = i % SLOTS_PER_DAY;
+                    int practitioner = i / SLOTS_PER_DAY % PRACTITIONERS;
+                    int day = i / (SLOTS_PER_DAY * PRACTITIONERS);
+                    journal.append(BookingJournal.RecordType.BOOKING_ADDED, practitioners[practitioner], PATIENT,
+                            Appointment.AppointmentType.CHECK_IN, firstDay.plusDays(day),
+                            FIRST_START.plusMinutes(30L * slot), IdGenerator.TIME_ORDERED.nextId());
+                }
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void newClinics() {
+            clinic = newClinic(PRACTITIONERS);
+            emptyClinic = newClinic(0);
+        }
+
+        @TearDown(Level.Trial)
+        public void deleteJournal() throws IOException {
+            Files.deleteIfExists(path);
+        }
+
+        @Benchmark
+        public JournalReplay rebuildCalendars() {
+            return BookingJournal.replay(path, clinic, id -> PATIENT);
+        }
+
+        @Benchmark
+        public JournalReplay scanOnly() {
+            return BookingJournal.replay(path, emptyClinic, id -> PATIENT);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package ca.kittle.clinic.journal;
+
+import ca.kittle.clinic.domain.Appointment;
+import ca.kittle.clinic.domain.Clinic;
+import ca.kittle.clinic.domain.Patient;
+import ca.kittle.clinic.domain.Practitioner;
+import ca.kittle.clinic.domain.calendar.ReservationStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup from a {@link CalendarSnapshot}: mapping it and answering the first availability question. Both should
+ * take about as long for 10M bookings as for 100K; compare with {@link BookingJournalBenchmark.Replay} for the
+ * cost of rebuilding the same calendars from the journal. Writing the 10M booking snapshot needs a few GB of heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class CalendarSnapshotBenchmark {
+
+    private static final int PRACTITIONERS = 100;
+    private static final int SLOTS_PER_DAY = 16;
+    private static final LocalTime FIRST_START = LocalTime.of(9, 0);
+    private static final Patient PATIENT = new Patient("Bench", "Mark", "416-555-0001", "bench.mark@email.com");
+
+    @Param({"100000", "1000000", "10000000"})
+    public int bookings;
+
+    private Path directory;
+    private Path snapshot;
+    private LocalDate lastDay;
+    private Clinic clinic;
+
+    private static Clinic clinicWithPractitioners() {
+        Clinic clinic = new Clinic("Benchmark Clinic", "416-555-0000", "bench@clinic.com");
+        for (int i = 0; i < PRACTITIONERS; i++)
+            clinic.addPractitioner(new Practitioner(new UUID(0L, i + 1), "Prac", "Titioner" + i, "416-555-0002",
+                    "prac" + i + "@clinic.com", ReservationStrategy.LOCKING));
+        return clinic;
+    }
+
+    /**
+     * Every practitioner fully booked with check-ins, day after day, for as many days as the bookings need.
+     */
+    @Setup(Level.Trial)
+    public void writeSnapshot() throws IOException {
+        directory = Files.createTempDirectory("snapshot");
+        snapshot = directory.resolve("calendar.snapshot");
+        Clinic source = clinicWithPractitioners();
+        List<Practitioner> practitioners = source.getPractitioners();
+        LocalDate firstDay = LocalDate.now().plusDays(1);
+        for (int i = 0; i < bookings; i++) {
+            int practitioner = i / SLOTS_PER_DAY % PRACTITIONERS;
+            LocalDate date = firstDay.plusDays(i / (SLOTS_PER_DAY * PRACTITIONERS));
+            practitioners.get(practitioner).restoreBooking(PATIENT, source, Appointment.AppointmentType.CHECK_IN,
+                    date, FIRST_START.plusMinutes(30L * (i % SLOTS_PER_DAY)));
+            lastDay = date;
+        }
+        try (BookingJournal journal = BookingJournal.open(directory.resolve("bookings.journal"),
+                BookingJournal.SyncPolicy.ON_FLUSH)) {
+            CalendarSnapshot.write(snapshot, source, journal);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void newClinic() {
+        clinic = clinicWithPractitioners();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSnapshot() throws IOException {
+        Files.deleteIfExists(snapshot);
+        Files.deleteIfExists(directory.resolve("bookings.journal"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public SnapshotLoad load() {
+        return CalendarSnapshot.load(snapshot, clinic, id -> PATIENT);
+    }
+
+    @Benchmark
+    public List<LocalTime> loadAndFindAvailability() {
+        CalendarSnapshot.load(snapshot, clinic, id -> PATIENT);
+        return clinic.getPractitioners().get(PRACTITIONERS - 1)
+                .availabileTimes(lastDay, Appointment.AppointmentType.CHECK_IN);
+    }
+}
@@ -0,0 +1,64 @@
+package ca.kittle.clinic.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import util.CustomValidator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the {@link CustomValidator} scanners with the regular expressions they replaced, both compiled on
+ * every call (as the validator used to) and precompiled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CustomValidatorBenchmark {
+
+    private static final String PHONE_REGEX = "^\\d{3}-\\d{3}-\\d{4}$";
+    private static final String EMAIL_REGEX = "^[^@]+@[^@]+\\.[^@]+$";
+    private static final Pattern PHONE_PATTERN = Pattern.compile(PHONE_REGEX);
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(EMAIL_REGEX);
+
+    @Param({"416-555-1111", "416-555-111l"})
+    public String phoneNumber;
+
+    @Param({"hinfan.rose@email.com", "clinic[at]email.com"})
+    public String email;
+
+    @Benchmark
+    public boolean isValidPhoneNumber() {
+        return CustomValidator.isValidPhoneNumber(phoneNumber);
+    }
+
+    @Benchmark
+    public boolean isValidPhoneNumberRegex() {
+        return Pattern.compile(PHONE_REGEX).matcher(phoneNumber).matches();
+    }
+
+    @Benchmark
+    public boolean isValidPhoneNumberPrecompiledRegex() {
+        return PHONE_PATTERN.matcher(phoneNumber).matches();
+    }
+
+    @Benchmark
+    public boolean isValidEmail() {
+        return CustomValidator.isValidEmail(email);
+    }
+
+    @Benchmark
+    public boolean isValidEmailRegex() {
+        return Pattern.compile(EMAIL_REGEX).matcher(email).matches();
+    }
+
+    @Benchmark
+    public boolean isValidEmailPrecompiledRegex() {
+        return EMAIL_PATTERN.matcher(email).matches();
+    }
+}
@@ -1,6 +1,7 @@
 package ca.kittle.clinic.domain;
 
 import ca.kittle.clinic.domain.validation.AppointmentValidationError;
+import ca.kittle.clinic.domain.validation.AppointmentValidationErrors;
 import ca.kittle.clinic.domain.validation.BookingValidationError;
 import io.jbock.util.Either;
 import lombok.AllArgsConstructor;
@@ -11,7 +12,6 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.ArrayList;
 import java.util.List;
 
 @Getter
@@ -40,7 +40,7 @@ public class Appointment {
      * @param practitioner the practitioner associated with the appointment; must not be null
      * @throws IllegalArgumentException if any parameter is null or invalid
      */
-    private Appointment(AppointmentType type, LocalDate date, LocalTime startTime, Patient patient, Practitioner practitioner) {
+    Appointment(AppointmentType type, LocalDate date, LocalTime startTime, Patient patient, Practitioner practitioner) {
         if (type == null)
             throw new IllegalArgumentException(TYPE_NULL_ERROR);
         if (date == null)
@@ -79,19 +79,42 @@ public class Appointment {
             Patient patient,
             Practitioner practitioner) {
 
-        // Do basic validation on parameters for the Booking
-        List<AppointmentValidationError> errors =
-                checkAppointmentParamsForNulls(
-                        earliestDateTime,
-                        type,
-                        date,
-                        startTime,
-                        patient,
-                        practitioner);
-
-        return errors.isEmpty() ?
+        long errors = validate(earliestDateTime, type, date, startTime, patient, practitioner);
+        return errors == AppointmentValidationErrors.NONE ?
                 Either.right(new Appointment(type, date, startTime, patient, practitioner)) :
-                Either.left(errors);
+                Either.left(AppointmentValidationErrors.toList(errors));
+    }
+
+    /**
+     * Check that an appointment could be created, without creating it. Nothing is allocated whether it passes
+     * or not.
+     *
+     * @param earliestDateTime  the date that the appointment must start after; must not be null
+     * @param type              the type of appointment (from the enumerated set)
+     * @param date              the date of the appointment; must not be null or in the past
+     * @param startTime         the start time of the appointment; must not be null or in the past
+     * @param patient           the patient associated with the appointment; must not be null
+     * @param practitioner      the practitioner associated with the appointment; must not be null
+     *
+     * @return the errors found as a bitset, see {@link AppointmentValidationErrors}, or
+     * {@link AppointmentValidationErrors#NONE} if the appointment can be created
+     */
+    public static long validate(
+            LocalDateTime earliestDateTime,
+            Appointment.AppointmentType type,
+            LocalDate date,
+            LocalTime startTime,
+            Patient patient,
+            Practitioner practitioner) {
+
+        // Do basic validation on parameters for the Appointment
+        return checkAppointmentParamsForNulls(
+                earliestDateTime,
+                type,
+                date,
+                startTime,
+                patient,
+                practitioner);
     }
 
     /**
@@ -103,30 +126,30 @@ public class Appointment {
      * @param startTime         the start time of the appointment; must not be null or in the past
      * @param patient           the patient associated with the appointment; must not be null
      * @param practitioner      the practitioner associated with the appointment; must not be null
-     * @return Optional List<AppointmentValidationError> a list of any errors found
+     * @return the errors found as a bitset, see {@link AppointmentValidationErrors}
      */
     // TODO hmmm, duplication with Booking property validation errors - need to clean this up
-    private static List<AppointmentValidationError> checkAppointmentParamsForNulls(
+    private static long checkAppointmentParamsForNulls(
             LocalDateTime afterThisDateTime,
             Appointment.AppointmentType appointmentType,
             LocalDate date,
             LocalTime startTime,
             Patient patient,
             Practitioner practitioner) {
-        List<AppointmentValidationError> errors = new ArrayList<>();
+        long errors = AppointmentValidationErrors.NONE;
 
         if (afterThisDateTime == null)
-            errors.add(new AppointmentValidationError.EarliestDateNullError());
+            errors |= AppointmentValidationErrors.EARLIEST_DATE_NULL;
         if (appointmentType == null)
-            errors.add(new AppointmentValidationError.TypeNullError());
+            errors |= AppointmentValidationErrors.TYPE_NULL;
         if (date == null)
-            errors.add(new AppointmentValidationError.DateNullError());
+            errors |= AppointmentValidationErrors.DATE_NULL;
         if (startTime == null)
-            errors.add(new AppointmentValidationError.StartTimeNullError());
+            errors |= AppointmentValidationErrors.START_TIME_NULL;
         if (patient == null)
-            errors.add(new AppointmentValidationError.PatientNullError());
+            errors |= AppointmentValidationErrors.PATIENT_NULL;
         if (practitioner == null)
-            errors.add(new AppointmentValidationError.PractitionerNullError());
+            errors |= AppointmentValidationErrors.PRACTITIONER_NULL;
         return errors;
     }
 
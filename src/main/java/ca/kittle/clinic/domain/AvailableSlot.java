@@ -0,0 +1,14 @@
+package ca.kittle.clinic.domain;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * A start time at which a practitioner can see a patient.
+ *
+ * @param practitioner The practitioner who is available
+ * @param date         The date of the available slot
+ * @param startTime    The time the appointment could start
+ */
+public record AvailableSlot(Practitioner practitioner, LocalDate date, LocalTime startTime) {
+}
@@ -1,33 +1,55 @@
 package ca.kittle.clinic.domain;
 
+import ca.kittle.clinic.domain.calendar.IntervalTree;
 import ca.kittle.clinic.domain.validation.BookingValidationError;
+import ca.kittle.clinic.domain.validation.BookingValidationErrors;
+import ca.kittle.clinic.domain.validation.ValidationMode;
 import io.jbock.util.Either;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.UUID;
 
 @Getter
 public class Booking {
 
+    // Bookings cannot be made within this long of the appointment start time
+    public static final Duration MINIMUM_LEAD_TIME = Duration.ofHours(2);
+    // How long a date and time is held for a patient who is still completing their booking
+    public static final Duration HOLD_TIME = Duration.ofMinutes(10);
+    private static final long LEAD_TIME_NANOS = MINIMUM_LEAD_TIME.toNanos();
+    private static final long LEAD_TIME_DAYS = MINIMUM_LEAD_TIME.toDays() + 1;
+    private static final long NANOS_PER_DAY = Duration.ofDays(1).toNanos();
+
+    private static final String ID_NULL_ERROR = "Booking ID cannot be null";
     private static final String TYPE_NULL_ERROR = "Appointment type cannot be null";
     private static final String DATE_NULL_ERROR = "Booking date cannot be null";
     private static final String TIME_NULL_ERROR = "Booking start time cannot be null";
     private static final String PATIENT_NULL_ERROR = "Booking patient cannot be null";
     private static final String PRACTITIONER_NULL_ERROR = "Booking practitioner cannot be null";
+    private static final String STATUS_NULL_ERROR = "Booking status cannot be null";
+    private static final String MODE_NULL_ERROR = "Validation mode cannot be null";
+    private static final String BOOKINGS_NULL_ERROR = "Bookings cannot be null";
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
 
+    // The reference a booking is found by, e.g. when the patient cancels it, kept as long as the booking is
+    private final UUID id;
     private final Appointment.AppointmentType appointmentType;
     private final LocalDate date;
     private final LocalTime startTime;
     private final Patient patient;
     private final Practitioner practitioner;
+    // Changed only through the practitioner so their calendar's indexes follow, see moveTo
+    private volatile BookingStatus status = BookingStatus.PENDING;
 
     /**
      * Create a new Booking.
+     * New bookings are {@link BookingStatus#PENDING} until the practitioner confirms them.
      *
      * @param appointmentType the type of appointment (from the enumerated set)
      * @param date            the date of the booking; must not be null or in the past
@@ -36,7 +58,25 @@ public class Booking {
      * @param practitioner    the practitioner associated with the booking; must not be null
      * @throws IllegalArgumentException if any parameter is null or invalid
      */
-    private Booking(Appointment.AppointmentType appointmentType, LocalDate date, LocalTime startTime, Patient patient, Practitioner practitioner) {
+    Booking(Appointment.AppointmentType appointmentType, LocalDate date, LocalTime startTime, Patient patient, Practitioner practitioner) {
+        this(IdGenerator.TIME_ORDERED.nextId(), appointmentType, date, startTime, patient, practitioner);
+    }
+
+    /**
+     * Create a new Booking with the id it was given when it was first made, e.g. when it is restored.
+     *
+     * @param id              the booking's id; must not be null
+     * @param appointmentType the type of appointment (from the enumerated set)
+     * @param date            the date of the booking; must not be null
+     * @param startTime       the start time of the booking; must not be null
+     * @param patient         the patient associated with the booking; must not be null
+     * @param practitioner    the practitioner associated with the booking; must not be null
+     * @throws IllegalArgumentException if any parameter is null
+     */
+    Booking(UUID id, Appointment.AppointmentType appointmentType, LocalDate date, LocalTime startTime, Patient patient,
+            Practitioner practitioner) {
+        if (id == null)
+            throw new IllegalArgumentException(ID_NULL_ERROR);
         if (appointmentType == null)
             throw new IllegalArgumentException(TYPE_NULL_ERROR);
         if (date == null)
@@ -47,6 +87,7 @@ public class Booking {
             throw new IllegalArgumentException(PATIENT_NULL_ERROR);
         if (practitioner == null)
             throw new IllegalArgumentException(PRACTITIONER_NULL_ERROR);
+        this.id = id;
         this.date = date;
         this.appointmentType = appointmentType;
         this.startTime = startTime;
@@ -76,8 +117,93 @@ public class Booking {
             Patient patient,
             Practitioner practitioner) {
 
+        return createBooking(ValidationMode.COLLECT_ALL, earliestDateTime, clinicHours, appointmentType, date,
+                startTime, patient, practitioner);
+    }
+
+    /**
+     * Create a new Booking, checking its rules in the given mode, e.g. {@link ValidationMode#FAIL_FAST} for
+     * callers that only report the first error.
+     *
+     * @param mode             whether to find every error or stop at the first
+     * @param earliestDateTime the date that the booking must start after; must not be null
+     * @param clinicHours      the hours that the clinic opens and closes; must not be null
+     * @param appointmentType  the type of appointment (from the enumerated set)
+     * @param date             the date of the booking; must not be null or in the past
+     * @param startTime        the start time of the booking; must not be null or in the past
+     * @param patient          the patient associated with the booking; must not be null
+     * @param practitioner     the practitioner associated with the booking; must not be null
+     *
+     * @return Either<List<BookingValidationError>, Booking> a list of validate errors or a Booking
+     */
+    public static Either<List<BookingValidationError>, Booking> createBooking(
+            ValidationMode mode,
+            LocalDateTime earliestDateTime,
+            ClinicHours clinicHours,
+            Appointment.AppointmentType appointmentType,
+            LocalDate date,
+            LocalTime startTime,
+            Patient patient,
+            Practitioner practitioner) {
+
+        long errors = validate(mode, earliestDateTime, clinicHours, appointmentType, date, startTime, patient,
+                practitioner);
+        return errors == BookingValidationErrors.NONE ?
+                Either.right(new Booking(appointmentType, date, startTime, patient, practitioner)) :
+                Either.left(BookingValidationErrors.toList(errors));
+
+    }
+
+    /**
+     * Check that a booking could be made, without making it. Nothing is allocated whether it passes or not, so
+     * callers making bookings in bulk only pay for a list of errors when they need one.
+     *
+     * @param earliestDateTime the date that the booking must start after; must not be null
+     * @param clinicHours      the hours that the clinic opens and closes; must not be null
+     * @param appointmentType  the type of appointment (from the enumerated set)
+     * @param date             the date of the booking; must not be null or in the past
+     * @param startTime        the start time of the booking; must not be null or in the past
+     * @param patient          the patient associated with the booking; must not be null
+     * @param practitioner     the practitioner associated with the booking; must not be null
+     *
+     * @return the errors found as a bitset, see {@link BookingValidationErrors}, or
+     * {@link BookingValidationErrors#NONE} if the booking can be made
+     */
+    public static long validate(
+            LocalDateTime earliestDateTime,
+            ClinicHours clinicHours,
+            Appointment.AppointmentType appointmentType,
+            LocalDate date,
+            LocalTime startTime,
+            Patient patient,
+            Practitioner practitioner) {
+        return validate(ValidationMode.COLLECT_ALL, earliestDateTime, clinicHours, appointmentType, date, startTime,
+                patient, practitioner);
+    }
+
+    /**
+     * Check that a booking could be made in the given mode, see {@link #validate(LocalDateTime, ClinicHours,
+     * Appointment.AppointmentType, LocalDate, LocalTime, Patient, Practitioner)}. In
+     * {@link ValidationMode#FAIL_FAST} at most one error is returned.
+     *
+     * @param mode whether to find every error or stop at the first
+     * @return the errors found as a bitset, see {@link BookingValidationErrors}, or
+     * {@link BookingValidationErrors#NONE} if the booking can be made
+     */
+    public static long validate(
+            ValidationMode mode,
+            LocalDateTime earliestDateTime,
+            ClinicHours clinicHours,
+            Appointment.AppointmentType appointmentType,
+            LocalDate date,
+            LocalTime startTime,
+            Patient patient,
+            Practitioner practitioner) {
+        if (mode == null)
+            throw new IllegalArgumentException(MODE_NULL_ERROR);
+
         // Do basic validation on parameters for the Booking
-        List<BookingValidationError> errors =
+        long errors =
                 checkBookingParamsForNulls(
                         earliestDateTime,
                         clinicHours,
@@ -86,6 +212,9 @@ public class Booking {
                         startTime,
                         patient,
                         practitioner);
+        // Null checks are the cheapest rules, so the first of them is the first error
+        if (mode == ValidationMode.FAIL_FAST && errors != BookingValidationErrors.NONE)
+            return Long.lowestOneBit(errors);
 
         // Validate Booking business rules
         if (date != null &&
@@ -93,22 +222,51 @@ public class Booking {
                 earliestDateTime != null &&
                 clinicHours != null &&
                 appointmentType != null) {
-            LocalTime endTime = startTime.plus(appointmentType.getDuration());
-            Optional<List<BookingValidationError>> businessRuleErrors =
+            errors |= mode == ValidationMode.FAIL_FAST ?
+                    firstBookingStartDateTimeError(
+                            earliestDateTime,
+                            clinicHours,
+                            date,
+                            startTime,
+                            appointmentType.getDuration()) :
                     validateBookingStartDateTimeRules(
                             earliestDateTime,
                             clinicHours,
                             date,
                             startTime,
-                            endTime
+                            appointmentType.getDuration()
                     );
-            businessRuleErrors.ifPresent(errors::addAll);
         }
+        return errors;
+    }
 
-        return errors.isEmpty() ?
-                Either.right(new Booking(appointmentType, date, startTime, patient, practitioner)) :
-                Either.left(errors);
-
+    /**
+     * Recreate a booking made earlier, e.g. from a calendar snapshot, in the status it had. The rules about when
+     * a booking can be made were checked when it was first made, so they aren't checked again.
+     *
+     * @param id              the id the booking was given when it was made; must not be null
+     * @param appointmentType the type of appointment (from the enumerated set)
+     * @param date            the date of the booking; must not be null
+     * @param startTime       the start time of the booking; must not be null
+     * @param patient         the patient associated with the booking; must not be null
+     * @param practitioner    the practitioner associated with the booking; must not be null
+     * @param status          the status the booking had; must not be null
+     * @return the booking
+     * @throws IllegalArgumentException if any parameter is null
+     */
+    public static Booking restoreBooking(
+            UUID id,
+            Appointment.AppointmentType appointmentType,
+            LocalDate date,
+            LocalTime startTime,
+            Patient patient,
+            Practitioner practitioner,
+            BookingStatus status) {
+        if (status == null)
+            throw new IllegalArgumentException(STATUS_NULL_ERROR);
+        Booking booking = new Booking(id, appointmentType, date, startTime, patient, practitioner);
+        booking.status = status;
+        return booking;
     }
 
     /**
@@ -121,9 +279,9 @@ public class Booking {
      * @param startTime         the start time of the booking; must not be null or in the past
      * @param patient           the patient associated with the booking; must not be null
      * @param practitioner      the practitioner associated with the booking; must not be null
-     * @return Optional List<BookingValidationError> a list of any errors found
+     * @return the errors found as a bitset, see {@link BookingValidationErrors}
      */
-    private static List<BookingValidationError> checkBookingParamsForNulls(
+    private static long checkBookingParamsForNulls(
             LocalDateTime earliestDateTime,
             ClinicHours clinicHours,
             Appointment.AppointmentType appointmentType,
@@ -131,64 +289,153 @@ public class Booking {
             LocalTime startTime,
             Patient patient,
             Practitioner practitioner) {
-        List<BookingValidationError> errors = new ArrayList<>();
+        long errors = BookingValidationErrors.NONE;
 
         if (earliestDateTime == null)
-            errors.add(new BookingValidationError.EarliestDateNullError());
+            errors |= BookingValidationErrors.EARLIEST_DATE_NULL;
         if (clinicHours == null)
-            errors.add(new BookingValidationError.ClinicHoursNullError());
+            errors |= BookingValidationErrors.CLINIC_HOURS_NULL;
         if (appointmentType == null)
-            errors.add(new BookingValidationError.TypeNullError());
+            errors |= BookingValidationErrors.TYPE_NULL;
         if (date == null)
-            errors.add(new BookingValidationError.DateNullError());
+            errors |= BookingValidationErrors.DATE_NULL;
         if (startTime == null)
-            errors.add(new BookingValidationError.StartTimeNullError());
+            errors |= BookingValidationErrors.START_TIME_NULL;
         if (patient == null)
-            errors.add(new BookingValidationError.PatientNullError());
+            errors |= BookingValidationErrors.PATIENT_NULL;
         if (practitioner == null)
-            errors.add(new BookingValidationError.PractitionerNullError());
+            errors |= BookingValidationErrors.PRACTITIONER_NULL;
         return errors;
     }
 
     /**
      * Ensure that the desired booking date and start time meets the following business rules:
      * - Bookings must be in the future: DateInPastError
-     * - Bookings start on the hour or on the half hour: DesiredStartTimeError
+     * - Bookings start on the clinic's slot grid, e.g. on the hour or on the half hour: DesiredStartTimeError
      * - Bookings cannot be made within 2 hours of the appointment start time: TooSoonToAppointmentError
      * - Bookings can only be made for appointments that start and
-     * end within the clinic hours: OutsideBusinessHoursError
+     * end within one of the clinic's shifts on that day: OutsideBusinessHoursError
      *
-     * @return Optional List<BookingValidationError> a list of any errors found
+     * Times are compared as nanoseconds of the day rather than through {@link LocalDateTime} so nothing is
+     * allocated, and an appointment running past midnight counts as ending after closing.
+     *
+     * @return the errors found as a bitset, see {@link BookingValidationErrors}
      */
-    private static Optional<List<BookingValidationError>> validateBookingStartDateTimeRules(
+    private static long validateBookingStartDateTimeRules(
             LocalDateTime earliestDateTime,
             ClinicHours clinicHours,
             LocalDate bookingDate,
             LocalTime bookingStartTime,
-            LocalTime bookingEndTime
+            Duration duration
     ) {
-        List<BookingValidationError> errors = new ArrayList<>();
+        long errors = BookingValidationErrors.NONE;
         // Booking date must be in the future
-        if (bookingDate.isBefore(earliestDateTime.toLocalDate()))
-            errors.add(new BookingValidationError.DateInPastError());
+        if (isDateInPast(earliestDateTime, bookingDate))
+            errors |= BookingValidationErrors.DATE_IN_PAST;
         // Booking date and time must be in the future
-        if (bookingDate.isEqual(earliestDateTime.toLocalDate()) &&
-                bookingStartTime.isBefore(earliestDateTime.toLocalTime()))
-            errors.add(new BookingValidationError.TimeInPastError());
-        // Bookings start on the hour or on the half hour
-        if (bookingStartTime.getMinute() % Clinic.BOOKING_START_TIME_INTERVAL.toMinutes() != 0)
-            errors.add(new BookingValidationError.DesiredStartTimeError());
+        if (isTimeInPast(earliestDateTime, bookingDate, bookingStartTime))
+            errors |= BookingValidationErrors.TIME_IN_PAST;
+        // Bookings start on the clinic's slot grid, e.g. on the hour or on the half hour
+        if (!isOnStartInterval(clinicHours, bookingStartTime))
+            errors |= BookingValidationErrors.DESIRED_START_TIME;
         // Bookings cannot be made within 2 hours of the appointment start time
-        if (!earliestDateTime.plusHours(2).isBefore(LocalDateTime.of(bookingDate, bookingStartTime)))
-            errors.add(new BookingValidationError.TooSoonToAppointmentError());
-        // Bookings can only be made for appointments that start within the clinic hours
-        if (bookingStartTime.isBefore(clinicHours.getOpeningTime()) ||
-                bookingStartTime.isAfter(clinicHours.getClosingTime()))
-            errors.add(new BookingValidationError.OutsideBusinessHoursError());
-        // Bookings can only be made for appointments that end within the clinic hours
-        if (bookingEndTime.isAfter(clinicHours.getClosingTime()))
-            errors.add(new BookingValidationError.OutsideBusinessHoursError());
-        return errors.isEmpty() ? Optional.empty() : Optional.of(errors);
+        if (isWithinLeadTime(earliestDateTime, bookingDate, bookingStartTime))
+            errors |= BookingValidationErrors.TOO_SOON;
+        // Bookings can only be made for appointments that start within a shift on that day
+        if (startsOutsideHours(clinicHours, bookingDate, bookingStartTime))
+            errors |= BookingValidationErrors.OUTSIDE_BUSINESS_HOURS;
+        // Bookings can only be made for appointments that end before that shift closes
+        if (endsAfterClosing(clinicHours, bookingDate, bookingStartTime, duration))
+            errors |= BookingValidationErrors.OUTSIDE_BUSINESS_HOURS;
+        return errors;
+    }
+
+    /**
+     * The same rules as {@link #validateBookingStartDateTimeRules}, cheapest first: a field read and a
+     * remainder, then time comparisons, then date comparisons, then the lead time, which needs epoch days.
+     *
+     * @return the first error found, see {@link BookingValidationErrors}
+     */
+    private static long firstBookingStartDateTimeError(
+            LocalDateTime earliestDateTime,
+            ClinicHours clinicHours,
+            LocalDate bookingDate,
+            LocalTime bookingStartTime,
+            Duration duration
+    ) {
+        if (!isOnStartInterval(clinicHours, bookingStartTime))
+            return BookingValidationErrors.DESIRED_START_TIME;
+        if (startsOutsideHours(clinicHours, bookingDate, bookingStartTime) ||
+                endsAfterClosing(clinicHours, bookingDate, bookingStartTime, duration))
+            return BookingValidationErrors.OUTSIDE_BUSINESS_HOURS;
+        if (isDateInPast(earliestDateTime, bookingDate))
+            return BookingValidationErrors.DATE_IN_PAST;
+        if (isTimeInPast(earliestDateTime, bookingDate, bookingStartTime))
+            return BookingValidationErrors.TIME_IN_PAST;
+        if (isWithinLeadTime(earliestDateTime, bookingDate, bookingStartTime))
+            return BookingValidationErrors.TOO_SOON;
+        return BookingValidationErrors.NONE;
+    }
+
+    private static boolean isDateInPast(LocalDateTime earliestDateTime, LocalDate bookingDate) {
+        return bookingDate.isBefore(earliestDateTime.toLocalDate());
+    }
+
+    private static boolean isTimeInPast(LocalDateTime earliestDateTime, LocalDate bookingDate, LocalTime startTime) {
+        return bookingDate.isEqual(earliestDateTime.toLocalDate()) &&
+                startTime.isBefore(earliestDateTime.toLocalTime());
+    }
+
+    private static boolean isOnStartInterval(ClinicHours clinicHours, LocalTime startTime) {
+        return clinicHours.getSlotGrid().isSlotStart(startTime);
+    }
+
+    private static boolean startsOutsideHours(ClinicHours clinicHours, LocalDate bookingDate, LocalTime startTime) {
+        return clinicHours.closingNanosAt(bookingDate.getDayOfWeek(), startTime.toNanoOfDay()) < 0;
+    }
+
+    /**
+     * Also {@code true} when the booking doesn't start in a shift, as there is then no closing time to end by.
+     */
+    private static boolean endsAfterClosing(
+            ClinicHours clinicHours,
+            LocalDate bookingDate,
+            LocalTime startTime,
+            Duration duration) {
+        long start = startTime.toNanoOfDay();
+        return start + duration.toNanos() > clinicHours.closingNanosAt(bookingDate.getDayOfWeek(), start);
+    }
+
+    /**
+     * @return {@code true} unless the booking starts more than {@link #MINIMUM_LEAD_TIME} after the earliest time.
+     */
+    private static boolean isWithinLeadTime(
+            LocalDateTime earliestDateTime,
+            LocalDate bookingDate,
+            LocalTime startTime) {
+        long days = bookingDate.toEpochDay() - earliestDateTime.toLocalDate().toEpochDay();
+        // Far enough ahead whatever the times of day, which also keeps the nanosecond sum below from overflowing
+        if (days > LEAD_TIME_DAYS)
+            return false;
+        if (days < 0)
+            return true;
+        long leadNanos = days * NANOS_PER_DAY + startTime.toNanoOfDay() - earliestDateTime.toLocalTime().toNanoOfDay();
+        return leadNanos <= LEAD_TIME_NANOS;
+    }
+
+    /**
+     * Move the booking on to its next status if the lifecycle allows it, see {@link BookingStatus#canMoveTo}.
+     * Once the booking is in a calendar, callers must hold the booking's monitor so the check and the change
+     * are one step.
+     *
+     * @param next The status to move to.
+     * @return {@code true} if the status changed, {@code false} if the move isn't allowed from the current status.
+     */
+    boolean moveTo(BookingStatus next) {
+        if (!status.canMoveTo(next))
+            return false;
+        status = next;
+        return true;
     }
 
     public LocalTime getEndTime() {
@@ -198,6 +445,8 @@ public class Booking {
     
     /**
      * Checks if the current booking overlaps with any of the bookings in the provided list.
+     * Bookings whose status no longer occupies their time, i.e. cancelled ones, never overlap. A booking only
+     * counts on its own date, so one running past midnight is in the way until midnight.
      *
      * @param otherBookings A list of bookings to check against; may be null or empty.
      * @return {@code true} if at least one booking overlaps with the current booking; {@code false} otherwise.
@@ -207,23 +456,24 @@ public class Booking {
         if (otherBookings == null || otherBookings.isEmpty())
             return false;
 
-        LocalTime myEndTime = this.startTime.plus(this.appointmentType.getDuration());
+        long myStart = this.startTime.toSecondOfDay();
+        long myEnd = endSecondOfDay(this.startTime, getEndTime());
 
         // Do any other bookings start before my end time and end after my start time
         return otherBookings.stream().anyMatch(
                 otherBooking ->
-                        (this.date.isEqual(otherBooking.date) &&
-                                doAppointmentTimesOverlap(
-                                        this.startTime,
-                                        myEndTime,
-                                        otherBooking.startTime,
-                                        otherBooking.getEndTime()))
+                        (otherBooking.status.isOccupyingTime() &&
+                                this.date.isEqual(otherBooking.date) &&
+                                otherBooking.startTime.toSecondOfDay() < myEnd &&
+                                endSecondOfDay(otherBooking.startTime, otherBooking.getEndTime()) > myStart)
         );
     }
 
     
     /**
      * Checks if the given start and end time overlaps with any bookings in the provided list.
+     * Bookings whose status no longer occupies their time, i.e. cancelled ones, never overlap. An end time
+     * before the start time, e.g. midnight, runs to the end of the day, and so does a booking running past it.
      *
      * @param startTime     The start time of the appointment to check for overlap.
      * @param endTime       The end time of the appointment to check for overlap.
@@ -239,17 +489,84 @@ public class Booking {
         if (otherBookings == null || otherBookings.isEmpty())
             return false;
 
+        long start = startTime.toSecondOfDay();
+        long end = endSecondOfDay(startTime, endTime);
+
         // Do any other bookings start before my end time and end after my start time
         return otherBookings.stream().anyMatch(
                 otherBooking ->
-                        doAppointmentTimesOverlap(
-                                startTime,
-                                endTime,
-                                otherBooking.startTime,
-                                otherBooking.getEndTime())
+                        otherBooking.status.isOccupyingTime() &&
+                                otherBooking.startTime.toSecondOfDay() < end &&
+                                endSecondOfDay(otherBooking.startTime, otherBooking.getEndTime()) > start
         );
     }
 
+    /**
+     * Checks if the current booking overlaps any of the bookings in an interval tree, see {@link #intervalsOf}.
+     * The same answer as {@link #doesBookingOverlap(List)} in O(log n) rather than a look at every booking, even
+     * when the tree holds many dates.
+     *
+     * @param otherBookings The bookings to check against; may be null or empty.
+     * @return {@code true} if at least one booking overlaps with the current booking; {@code false} otherwise.
+     */
+    public boolean doesBookingOverlap(IntervalTree<Booking> otherBookings) {
+        return doAppointmentTimesOverlapOtherBookings(date, startTime, getEndTime(), otherBookings);
+    }
+
+    /**
+     * Checks if the given start and end time on a date overlaps any of the bookings in an interval tree, see
+     * {@link #intervalsOf}. For a tree of the date's bookings, the same answer as
+     * {@link #doAppointmentTimesOverlapOtherBookings(LocalTime, LocalTime, List)} in O(log n).
+     *
+     * @param date          The date of the appointment to check for overlap.
+     * @param startTime     The start time of the appointment to check for overlap.
+     * @param endTime       The end time of the appointment to check for overlap.
+     * @param otherBookings The bookings to compare against; may be null or empty.
+     * @return {@code true} if at least one booking overlaps with the provided time range; {@code false} otherwise.
+     */
+    public static boolean doAppointmentTimesOverlapOtherBookings(
+            LocalDate date,
+            LocalTime startTime,
+            LocalTime endTime,
+            IntervalTree<Booking> otherBookings
+    ) {
+        if (otherBookings == null || otherBookings.isEmpty())
+            return false;
+        long day = date.toEpochDay() * SECONDS_PER_DAY;
+        return otherBookings.overlaps(day + startTime.toSecondOfDay(), day + endSecondOfDay(startTime, endTime),
+                otherBooking -> otherBooking.status.isOccupyingTime());
+    }
+
+    /**
+     * Builds an interval tree over bookings for the overlap checks above, keyed on seconds since the epoch so
+     * bookings on different dates never overlap. Each booking ends at midnight at the latest, like in the list
+     * checks. Bookings that no longer occupy their time are left out; any cancelled after the tree is built are
+     * still skipped by the checks, but cost a little more until they are removed from it.
+     *
+     * @param bookings The bookings, on one date or many.
+     * @return A tree of the bookings that occupy time.
+     */
+    public static IntervalTree<Booking> intervalsOf(List<Booking> bookings) {
+        if (bookings == null)
+            throw new IllegalArgumentException(BOOKINGS_NULL_ERROR);
+        IntervalTree<Booking> intervals = new IntervalTree<>();
+        for (Booking booking : bookings) {
+            if (booking.status.isOccupyingTime()) {
+                long day = booking.date.toEpochDay() * SECONDS_PER_DAY;
+                intervals.add(day + booking.startTime.toSecondOfDay(),
+                        day + endSecondOfDay(booking.startTime, booking.getEndTime()), booking);
+            }
+        }
+        return intervals;
+    }
+
+    /**
+     * An end time before the start time has run past midnight, so the appointment takes the rest of the day.
+     */
+    private static long endSecondOfDay(LocalTime startTime, LocalTime endTime) {
+        return endTime.isBefore(startTime) ? SECONDS_PER_DAY : endTime.toSecondOfDay();
+    }
+
 
     /**
      * Determines if two time intervals overlap. The intervals are defined by a start and end time for each.
@@ -268,4 +585,30 @@ public class Booking {
             LocalTime secondEndTime) {
         return secondStartTime.isBefore(firstEndTime) && secondEndTime.isAfter(firstStartTime);
     }
+
+    /**
+     * Where a booking is in its lifecycle. Bookings start out PENDING while the patient completes them, then
+     * are CONFIRMED. A confirmed booking ends up COMPLETED, or NO_SHOW if the patient didn't come, and a booking
+     * can be CANCELLED at any point until then. The last three are final.
+     */
+    @Getter
+    @AllArgsConstructor
+    public enum BookingStatus {
+        PENDING(true),
+        CONFIRMED(true),
+        CANCELLED(false),
+        NO_SHOW(true),
+        COMPLETED(true);
+
+        // Whether the booking's time is taken, so it can't be booked by anyone else
+        private final boolean isOccupyingTime;
+
+        public boolean canMoveTo(BookingStatus next) {
+            return switch (this) {
+                case PENDING -> next == CONFIRMED || next == CANCELLED;
+                case CONFIRMED -> next == CANCELLED || next == NO_SHOW || next == COMPLETED;
+                case CANCELLED, NO_SHOW, COMPLETED -> false;
+            };
+        }
+    }
 }
@@ -0,0 +1,33 @@
+package ca.kittle.clinic.domain;
+
+/**
+ * Told about every change to a practitioner's bookings that has to outlive the process, e.g. to write it to a
+ * journal. Each call is made once the change has taken effect and before the method that made it returns.
+ * Calls about the same booking are never made concurrently and always arrive in the order the changes were made.
+ */
+public interface BookingEvents {
+
+    BookingEvents NONE = new BookingEvents() {
+    };
+
+    /**
+     * A booking was confirmed, whether added directly, in a batch or by confirming a hold.
+     */
+    default void bookingAdded(Booking booking) {
+    }
+
+    /**
+     * A confirmed booking was cancelled.
+     */
+    default void bookingCancelled(Booking booking) {
+    }
+
+    /**
+     * A confirmed booking was marked as a no-show or as completed; its status is the one it moved to.
+     */
+    default void bookingStatusChanged(Booking booking) {
+    }
+
+    default void appointmentCreated(Appointment appointment) {
+    }
+}
@@ -0,0 +1,21 @@
+package ca.kittle.clinic.domain;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * One booking in a batch, e.g. a row migrated from another system or a front-desk edit.
+ *
+ * @param practitioner    The practitioner the booking is with
+ * @param patient         The patient the booking is for
+ * @param appointmentType The type of appointment, which determines its duration
+ * @param date            The date of the booking
+ * @param startTime       The time the appointment starts
+ */
+public record BookingRequest(
+        Practitioner practitioner,
+        Patient patient,
+        Appointment.AppointmentType appointmentType,
+        LocalDate date,
+        LocalTime startTime) {
+}
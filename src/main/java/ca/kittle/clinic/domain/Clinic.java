@@ -1,28 +1,65 @@
 package ca.kittle.clinic.domain;
 
+import ca.kittle.clinic.domain.calendar.SlotGrid;
+import ca.kittle.clinic.domain.validation.BookingValidationError;
+import ca.kittle.clinic.domain.validation.BookingValidationErrors;
+import io.jbock.util.Either;
+import lombok.AccessLevel;
 import lombok.Getter;
 import util.CustomValidator;
 
 import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
 
 @Getter
 public class Clinic {
 
-    // TODO hardcoding opening and closing times for MVP, this should be externalized
-    private static final LocalTime OPENING_TIME = LocalTime.of(9, 0);
-    private static final LocalTime CLOSING_TIME = LocalTime.of(17, 0);
-    public static final Duration BOOKING_START_TIME_INTERVAL = Duration.ofMinutes(30);
+    // How often appointments start at a clinic that isn't given a grid of its own, see ClinicHours
+    public static final Duration BOOKING_START_TIME_INTERVAL = SlotGrid.DEFAULT.getSlotLength();
+    // The hours of a clinic that isn't given any, 9:00 to 17:00 every day
+    static final ClinicHours DEFAULT_HOURS = new ClinicHours(LocalTime.of(9, 0), LocalTime.of(17, 0));
+    // Below this many practitioners the cost of forking outweighs searching them one after another
+    private static final int PARALLEL_SEARCH_THRESHOLD = 8;
+    private static final Comparator<AvailableSlot> BY_DATE_AND_TIME =
+            Comparator.comparing(AvailableSlot::date).thenComparing(AvailableSlot::startTime);
 
     private static final String NAME_NULL_ERROR = "Clinic name cannot be null or blank";
     private static final String PHONE_NULL_ERROR = "Clinic phone number cannot be null or blank";
     private static final String PHONE_INVALID_ERROR = "Clinic phone number cannot be in the form ###-###-####";
     private static final String EMAIL_NULL_ERROR = "Clinic email cannot be null or blank";
     private static final String EMAIL_INVALID_ERROR = "Clinic email is invalid";
-    private final ClinicHours hours = new ClinicHours(OPENING_TIME, CLOSING_TIME);
+    private static final String PRACTITIONER_NULL_ERROR = "Practitioner cannot be null";
+    private static final String TYPE_NULL_ERROR = "Appointment type cannot be null";
+    private static final String DATE_NULL_ERROR = "Date cannot be null";
+    private static final String DATE_RANGE_ERROR = "End date cannot be before start date";
+    private static final String REQUESTS_NULL_ERROR = "Booking requests cannot be null";
+    private static final String EVENTS_NULL_ERROR = "Booking events cannot be null";
+    private static final String PATIENT_NULL_ERROR = "Patient cannot be null";
+    private static final String HOURS_NULL_ERROR = "Clinic hours cannot be null";
+    private static final String BOOKING_ID_NULL_ERROR = "Booking ID cannot be null";
+    private final ClinicHours hours;
     private final String name;
     private final String phoneNumber;
     private final String email;
+    private final PatientRegistry patientRegistry = new PatientRegistry();
+    @Getter(AccessLevel.NONE)
+    private final List<Practitioner> practitioners = new CopyOnWriteArrayList<>();
+    @Getter(AccessLevel.NONE)
+    private volatile BookingEvents bookingEvents = BookingEvents.NONE;
+    @Getter(AccessLevel.NONE)
+    private final PatientBookingIndex patientBookings = new PatientBookingIndex();
 
     /**
      * Create an instance of a Clinic
@@ -32,6 +69,18 @@ public class Clinic {
      * @param email       The email address of the clinic
      */
     public Clinic(String name, String phoneNumber, String email) {
+        this(name, phoneNumber, email, DEFAULT_HOURS);
+    }
+
+    /**
+     * Create an instance of a Clinic with its own opening hours
+     *
+     * @param name        The name of the clinic
+     * @param phoneNumber The phone number of the clinic
+     * @param email       The email address of the clinic
+     * @param hours       When the clinic is open on each day of the week
+     */
+    public Clinic(String name, String phoneNumber, String email, ClinicHours hours) {
         if (name == null || name.isBlank())
             throw new IllegalArgumentException(NAME_NULL_ERROR);
         if (phoneNumber == null || phoneNumber.isBlank())
@@ -42,8 +91,221 @@ public class Clinic {
             throw new IllegalArgumentException(EMAIL_NULL_ERROR);
         if (!CustomValidator.isValidEmail(email))
             throw new IllegalArgumentException(EMAIL_INVALID_ERROR);
+        if (hours == null)
+            throw new IllegalArgumentException(HOURS_NULL_ERROR);
+        this.hours = hours;
         this.name = name;
         this.phoneNumber = phoneNumber;
         this.email = email;
     }
+
+    /**
+     * Add a practitioner who works at this clinic, before they take any more bookings. Their availability is
+     * offered in the clinic's hours from now on.
+     *
+     * @param practitioner The practitioner
+     * @throws IllegalStateException if the practitioner already has bookings on a different slot grid.
+     */
+    public void addPractitioner(Practitioner practitioner) {
+        if (practitioner == null)
+            throw new IllegalArgumentException(PRACTITIONER_NULL_ERROR);
+        practitioner.setHours(hours);
+        practitioner.setBookingEvents(bookingEvents);
+        practitioner.setPatientBookings(patientBookings);
+        practitioners.add(practitioner);
+    }
+
+    /**
+     * Report every change to the bookings of the clinic's practitioners from now on, including practitioners
+     * added later, see {@link Practitioner#setBookingEvents}.
+     *
+     * @param bookingEvents Where changes are reported, or {@link BookingEvents#NONE} to stop reporting them.
+     */
+    public void setBookingEvents(BookingEvents bookingEvents) {
+        if (bookingEvents == null)
+            throw new IllegalArgumentException(EVENTS_NULL_ERROR);
+        this.bookingEvents = bookingEvents;
+        practitioners.forEach(practitioner -> practitioner.setBookingEvents(bookingEvents));
+    }
+
+    /**
+     * @return An unmodifiable view of the practitioners working at this clinic, in the order they were added.
+     */
+    public List<Practitioner> getPractitioners() {
+        return Collections.unmodifiableList(practitioners);
+    }
+
+    /**
+     * Find a patient's bookings that haven't started yet with any of the clinic's practitioners, e.g. for
+     * "my upcoming appointments". Cancelled bookings are left out.
+     *
+     * @param patient The patient.
+     * @return The bookings in date and start time order.
+     */
+    public List<Booking> upcomingBookings(Patient patient) {
+        if (patient == null)
+            throw new IllegalArgumentException(PATIENT_NULL_ERROR);
+        LocalDateTime now = LocalDateTime.now();
+        readArchivedDays(patient, now.toLocalDate(), LocalDate.MAX);
+        return patientBookings.between(patient, now.toLocalDate(), now.toLocalTime(), LocalDate.MAX, LocalTime.MAX);
+    }
+
+    /**
+     * Find a patient's bookings that have already started with any of the clinic's practitioners, whatever
+     * became of them. Cancelled bookings are left out.
+     *
+     * @param patient The patient.
+     * @return The bookings in date and start time order.
+     */
+    public List<Booking> pastBookings(Patient patient) {
+        if (patient == null)
+            throw new IllegalArgumentException(PATIENT_NULL_ERROR);
+        LocalDateTime now = LocalDateTime.now();
+        readArchivedDays(patient, LocalDate.MIN, now.toLocalDate());
+        return patientBookings.between(patient, LocalDate.MIN, LocalTime.MIN, now.toLocalDate(), now.toLocalTime());
+    }
+
+    /**
+     * Find a patient's bookings between two dates (inclusive) with any of the clinic's practitioners. Cancelled
+     * bookings are left out.
+     *
+     * @param patient  The patient.
+     * @param fromDate The first date of bookings to find.
+     * @param toDate   The last date of bookings to find.
+     * @return The bookings in date and start time order.
+     */
+    public List<Booking> listBookings(Patient patient, LocalDate fromDate, LocalDate toDate) {
+        if (patient == null)
+            throw new IllegalArgumentException(PATIENT_NULL_ERROR);
+        if (fromDate == null || toDate == null)
+            throw new IllegalArgumentException(DATE_NULL_ERROR);
+        if (toDate.isBefore(fromDate))
+            throw new IllegalArgumentException(DATE_RANGE_ERROR);
+        readArchivedDays(patient, fromDate, toDate);
+        return patientBookings.between(patient, fromDate, LocalTime.MIN, toDate, LocalTime.MAX);
+    }
+
+    /**
+     * Restored days are only read when something needs them, so a patient's bookings on them reach the index of
+     * each patient's bookings the first time a period they fall in is asked about. Each practitioner's archive
+     * knows which days the patient is on, so only those days are read.
+     */
+    private void readArchivedDays(Patient patient, LocalDate fromDate, LocalDate toDate) {
+        practitioners.forEach(practitioner -> practitioner.readArchivedDays(patient, fromDate, toDate));
+    }
+
+    /**
+     * Find a booking with any of the clinic's practitioners by its id, e.g. the reference number a patient gives.
+     * Bookings are found in O(1) from the clinic's own index whatever their status; only bookings on restored
+     * days that haven't been read yet are looked for in each practitioner's archive, a binary search each.
+     *
+     * @param bookingId The id of the booking.
+     * @return The booking, or empty if no practitioner has a booking with the id.
+     */
+    public Optional<Booking> findBooking(UUID bookingId) {
+        if (bookingId == null)
+            throw new IllegalArgumentException(BOOKING_ID_NULL_ERROR);
+        Booking booking = patientBookings.find(bookingId);
+        if (booking != null)
+            return Optional.of(booking);
+        for (Practitioner practitioner : practitioners) {
+            Optional<Booking> found = practitioner.findBooking(bookingId);
+            if (found.isPresent())
+                return found;
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Cancel a booking with any of the clinic's practitioners by its id, see {@link Practitioner#cancelBooking}.
+     *
+     * @param bookingId The id of the booking to be cancelled.
+     * @return {@code true} if the booking was cancelled, {@code false} if there is no booking with the id or it
+     * had already been cancelled, completed or missed.
+     */
+    public boolean cancelBooking(UUID bookingId) {
+        return findBooking(bookingId)
+                .map(booking -> booking.getPractitioner().cancelBooking(booking))
+                .orElse(false);
+    }
+
+    /**
+     * Find every practitioner's available start times on a date, e.g. "who can see me Tuesday for a consultation".
+     *
+     * @param forDate         The date to search.
+     * @param appointmentType The appointment type, which determines the duration of the appointment.
+     * @return The available slots ordered by start time, then by the order practitioners were added.
+     */
+    public List<AvailableSlot> availableTimes(LocalDate forDate, Appointment.AppointmentType appointmentType) {
+        return availableTimes(forDate, forDate, appointmentType);
+    }
+
+    /**
+     * Find every practitioner's available start times between two dates (inclusive). Practitioners are searched
+     * in parallel on the common fork-join pool once the clinic is big enough for that to pay off.
+     *
+     * @param fromDate        The first date to search.
+     * @param toDate          The last date to search.
+     * @param appointmentType The appointment type, which determines the duration of the appointment.
+     * @return The available slots ordered by date and start time, then by the order practitioners were added.
+     */
+    public List<AvailableSlot> availableTimes(
+            LocalDate fromDate,
+            LocalDate toDate,
+            Appointment.AppointmentType appointmentType) {
+        if (fromDate == null || toDate == null)
+            throw new IllegalArgumentException(DATE_NULL_ERROR);
+        if (toDate.isBefore(fromDate))
+            throw new IllegalArgumentException(DATE_RANGE_ERROR);
+        if (appointmentType == null)
+            throw new IllegalArgumentException(TYPE_NULL_ERROR);
+
+        Stream<Practitioner> search = practitioners.size() < PARALLEL_SEARCH_THRESHOLD ?
+                practitioners.stream() :
+                practitioners.parallelStream();
+        // Encounter order is kept by the parallel stream and the sort is stable, so ties stay in practitioner order
+        List<AvailableSlot> slots = search
+                .flatMap(practitioner -> practitioner.availabileTimes(fromDate, toDate, appointmentType))
+                .toList();
+        return slots.stream().sorted(BY_DATE_AND_TIME).toList();
+    }
+
+    /**
+     * Attempts to add a batch of bookings at this clinic, e.g. front-desk edits or a migration from another
+     * system. Requests are grouped by practitioner and each practitioner's bookings are added together,
+     * see {@link Practitioner#addBookings}.
+     *
+     * @param requests The bookings to add, for any practitioners and in any order.
+     * @return Either a list of validation errors or a Booking for each request, in the same order as the requests.
+     * @throws IllegalArgumentException if any request is null.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Either<List<BookingValidationError>, Booking>> addBookings(List<BookingRequest> requests) {
+        if (requests == null)
+            throw new IllegalArgumentException(REQUESTS_NULL_ERROR);
+
+        Either<List<BookingValidationError>, Booking>[] results = new Either[requests.size()];
+        // Practitioners have no equality of their own, so group them by identity
+        Map<Practitioner, List<Integer>> positionsByPractitioner = new IdentityHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (requests.get(i) == null)
+                throw new IllegalArgumentException(REQUESTS_NULL_ERROR);
+            Practitioner practitioner = requests.get(i).practitioner();
+            if (practitioner == null)
+                results[i] = Either.left(BookingValidationErrors.toList(BookingValidationErrors.PRACTITIONER_NULL));
+            else
+                positionsByPractitioner.computeIfAbsent(practitioner, key -> new ArrayList<>()).add(i);
+        }
+
+        positionsByPractitioner.forEach((practitioner, positions) -> {
+            List<BookingRequest> practitionerRequests = new ArrayList<>(positions.size());
+            for (int position : positions)
+                practitionerRequests.add(requests.get(position));
+            List<Either<List<BookingValidationError>, Booking>> added =
+                    practitioner.addBookings(this, practitionerRequests);
+            for (int i = 0; i < positions.size(); i++)
+                results[positions.get(i)] = added.get(i);
+        });
+        return List.of(results);
+    }
 }
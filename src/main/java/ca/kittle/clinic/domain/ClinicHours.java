@@ -1,23 +1,230 @@
 package ca.kittle.clinic.domain;
 
+import ca.kittle.clinic.domain.calendar.SlotGrid;
+import lombok.AccessLevel;
 import lombok.Getter;
 
+import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * When a clinic is open, as one or more shifts on each day of the week, e.g. 9:00 to 12:00 and 13:00 to 17:00
+ * on weekdays and closed on Sundays. An appointment has to start and end within a single shift.
+ * <p>
+ * Appointments start on the clinic's {@link SlotGrid}, every 30 minutes unless the clinic has a finer grid, e.g.
+ * every 10 or 15 minutes. The slots each appointment type may start in on each day of the week are worked out
+ * once, when the hours are created, so availability is a template masked against a day's occupancy.
+ */
 @Getter
 public class ClinicHours {
 
+    private static final int DAYS_PER_WEEK = DayOfWeek.values().length;
+
+    private static final String SHIFTS_NULL_ERROR = "Clinic shifts cannot be null";
+    private static final String DAY_NULL_ERROR = "Day of week cannot be null";
+    private static final String SHIFTS_OVERLAP_ERROR = "Clinic shifts on the same day cannot overlap";
+    private static final String NEVER_OPEN_ERROR = "Clinic must be open for at least one shift a week";
+    private static final String TYPE_NULL_ERROR = "Appointment type cannot be null";
+
+    // The earliest opening and latest closing on any day of the week
     private final LocalTime openingTime;
     private final LocalTime closingTime;
+    // When appointments may start, and how a day's occupancy is recorded
+    private final SlotGrid slotGrid;
+    @Getter(AccessLevel.NONE)
+    private final Map<DayOfWeek, List<Shift>> shifts;
+    // Opening and closing nanoseconds of the day of each shift, by day of the week
+    @Getter(AccessLevel.NONE)
+    private final long[][] shiftNanos = new long[DAYS_PER_WEEK][];
+    // Every slot touched by a shift, by day of the week
+    @Getter(AccessLevel.NONE)
+    private final long[][] openSlots = new long[DAYS_PER_WEEK][];
+    // The slots each appointment type may start in, by appointment type and then day of the week
+    @Getter(AccessLevel.NONE)
+    private final long[][][] startSlots = new long[Appointment.AppointmentType.values().length][DAYS_PER_WEEK][];
 
+    /**
+     * Create hours that are the same every day of the week
+     *
+     * @param openingTime The time the clinic opens
+     * @param closingTime The time the clinic closes
+     */
     public ClinicHours(LocalTime openingTime, LocalTime closingTime) {
-        if (openingTime == null)
-            throw new IllegalArgumentException("Opening time cannot be null ");
-        if (closingTime == null)
-            throw new IllegalArgumentException("Closing time cannot be null");
-        if (!closingTime.isAfter(openingTime))
-            throw new IllegalArgumentException("Closing time must be after opening time");
-        this.openingTime = openingTime;
-        this.closingTime = closingTime;
+        this(everyDay(new Shift(openingTime, closingTime)));
+    }
+
+    /**
+     * Create hours that are the same every day of the week, with appointments starting on a grid of their own
+     *
+     * @param openingTime   The time the clinic opens
+     * @param closingTime   The time the clinic closes
+     * @param startInterval How often appointments may start, e.g. every 15 minutes
+     */
+    public ClinicHours(LocalTime openingTime, LocalTime closingTime, Duration startInterval) {
+        this(everyDay(new Shift(openingTime, closingTime)), startInterval);
+    }
+
+    /**
+     * Create hours that differ by day of the week, including days split into several shifts
+     *
+     * @param shiftsByDay The shifts on each day of the week; days that are missing or have no shifts are closed
+     */
+    public ClinicHours(Map<DayOfWeek, List<Shift>> shiftsByDay) {
+        this(shiftsByDay, SlotGrid.DEFAULT.getSlotLength());
+    }
+
+    /**
+     * Create hours that differ by day of the week, with appointments starting on a grid of their own
+     *
+     * @param shiftsByDay   The shifts on each day of the week; days that are missing or have no shifts are closed
+     * @param startInterval How often appointments may start, e.g. every 15 minutes, see {@link SlotGrid#of}
+     */
+    public ClinicHours(Map<DayOfWeek, List<Shift>> shiftsByDay, Duration startInterval) {
+        this.slotGrid = SlotGrid.of(startInterval);
+        if (shiftsByDay == null)
+            throw new IllegalArgumentException(SHIFTS_NULL_ERROR);
+        Map<DayOfWeek, List<Shift>> sortedShifts = new EnumMap<>(DayOfWeek.class);
+        LocalTime earliestOpening = null;
+        LocalTime latestClosing = null;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            List<Shift> dayShifts = new ArrayList<>(shiftsByDay.getOrDefault(day, List.of()));
+            if (dayShifts.contains(null))
+                throw new IllegalArgumentException(SHIFTS_NULL_ERROR);
+            dayShifts.sort(Comparator.comparing(Shift::openingTime));
+            for (int i = 1; i < dayShifts.size(); i++) {
+                if (dayShifts.get(i).openingTime().isBefore(dayShifts.get(i - 1).closingTime()))
+                    throw new IllegalArgumentException(SHIFTS_OVERLAP_ERROR);
+            }
+            if (!dayShifts.isEmpty()) {
+                LocalTime opening = dayShifts.get(0).openingTime();
+                LocalTime closing = dayShifts.get(dayShifts.size() - 1).closingTime();
+                if (earliestOpening == null || opening.isBefore(earliestOpening))
+                    earliestOpening = opening;
+                if (latestClosing == null || closing.isAfter(latestClosing))
+                    latestClosing = closing;
+            }
+            sortedShifts.put(day, List.copyOf(dayShifts));
+        }
+        if (earliestOpening == null)
+            throw new IllegalArgumentException(NEVER_OPEN_ERROR);
+        this.openingTime = earliestOpening;
+        this.closingTime = latestClosing;
+        this.shifts = sortedShifts;
+        for (DayOfWeek day : DayOfWeek.values())
+            precompute(day, sortedShifts.get(day));
+    }
+
+    /**
+     * @param day The day of the week
+     * @return The day's shifts in opening time order, or an empty list if the clinic is closed that day.
+     */
+    public List<Shift> getShifts(DayOfWeek day) {
+        if (day == null)
+            throw new IllegalArgumentException(DAY_NULL_ERROR);
+        return shifts.get(day);
+    }
+
+    /**
+     * @return {@code true} if the clinic has at least one shift on the day.
+     */
+    public boolean isOpenOn(DayOfWeek day) {
+        return !getShifts(day).isEmpty();
+    }
+
+    /**
+     * The slots an appointment of the type may start in on each day of the week: slots starting within a
+     * shift with room for the whole appointment before that shift closes. The array is shared, so must not be
+     * changed.
+     *
+     * @return A mask of start slots for each day of the week, indexed by {@link DayOfWeek#ordinal()}.
+     */
+    long[][] startSlots(Appointment.AppointmentType appointmentType) {
+        if (appointmentType == null)
+            throw new IllegalArgumentException(TYPE_NULL_ERROR);
+        return startSlots[appointmentType.ordinal()];
+    }
+
+    /**
+     * @return A mask of every slot the clinic is open for at least part of, for each day of the week, indexed by
+     * {@link DayOfWeek#ordinal()}.
+     */
+    long[][] openSlots() {
+        long[][] copy = new long[DAYS_PER_WEEK][];
+        for (int day = 0; day < DAYS_PER_WEEK; day++)
+            copy[day] = openSlots[day].clone();
+        return copy;
+    }
+
+    /**
+     * Finds the shift a time falls in without allocating, for validating bookings.
+     *
+     * @param day       The day of the week
+     * @param nanoOfDay The time as nanoseconds of the day
+     * @return The nanosecond of the day the shift open at the time closes, or -1 if the clinic is closed then.
+     */
+    long closingNanosAt(DayOfWeek day, long nanoOfDay) {
+        long[] dayShifts = shiftNanos[day.ordinal()];
+        for (int i = 0; i < dayShifts.length; i += 2) {
+            if (nanoOfDay >= dayShifts[i] && nanoOfDay < dayShifts[i + 1])
+                return dayShifts[i + 1];
+        }
+        return -1;
+    }
+
+    private void precompute(DayOfWeek day, List<Shift> dayShifts) {
+        long[] nanos = new long[dayShifts.size() * 2];
+        long[] open = slotGrid.empty();
+        for (int i = 0; i < dayShifts.size(); i++) {
+            Shift shift = dayShifts.get(i);
+            nanos[i * 2] = shift.openingTime().toNanoOfDay();
+            nanos[i * 2 + 1] = shift.closingTime().toNanoOfDay();
+            slotGrid.include(open, shift.openingTime(), shift.closingTime());
+        }
+        shiftNanos[day.ordinal()] = nanos;
+        openSlots[day.ordinal()] = open;
+
+        long nanosPerSlot = slotGrid.getSlotLength().toNanos();
+        for (Appointment.AppointmentType type : Appointment.AppointmentType.values()) {
+            long duration = type.getDuration().toNanos();
+            long[] starts = slotGrid.empty();
+            for (int slot = 0; slot < slotGrid.getSlotsPerDay(); slot++) {
+                long start = slot * nanosPerSlot;
+                long closing = closingNanosAt(day, start);
+                if (closing >= 0 && start + duration <= closing)
+                    starts[slot >>> 6] |= 1L << slot;
+            }
+            startSlots[type.ordinal()][day.ordinal()] = starts;
+        }
+    }
+
+    private static Map<DayOfWeek, List<Shift>> everyDay(Shift shift) {
+        Map<DayOfWeek, List<Shift>> shiftsByDay = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values())
+            shiftsByDay.put(day, List.of(shift));
+        return shiftsByDay;
+    }
+
+    /**
+     * A continuous stretch of time the clinic is open on a day.
+     *
+     * @param openingTime The time the shift starts
+     * @param closingTime The time the shift ends
+     */
+    public record Shift(LocalTime openingTime, LocalTime closingTime) {
+
+        public Shift {
+            if (openingTime == null)
+                throw new IllegalArgumentException("Opening time cannot be null ");
+            if (closingTime == null)
+                throw new IllegalArgumentException("Closing time cannot be null");
+            if (!closingTime.isAfter(openingTime))
+                throw new IllegalArgumentException("Closing time must be after opening time");
+        }
     }
 }
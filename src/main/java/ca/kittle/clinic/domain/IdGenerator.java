@@ -0,0 +1,24 @@
+package ca.kittle.clinic.domain;
+
+import java.util.UUID;
+
+/**
+ * Where new patients, practitioners and bookings get their ids from.
+ */
+@FunctionalInterface
+public interface IdGenerator {
+
+    /**
+     * Ids that sort in the order they were made, see {@link TimeOrderedIdGenerator}. Used unless another
+     * generator is given.
+     */
+    IdGenerator TIME_ORDERED = new TimeOrderedIdGenerator();
+
+    /**
+     * Random (version 4) ids from a shared {@link java.security.SecureRandom}, for ids that mustn't reveal when
+     * they were made. Threads making many ids at once contend for it.
+     */
+    IdGenerator RANDOM = UUID::randomUUID;
+
+    UUID nextId();
+}
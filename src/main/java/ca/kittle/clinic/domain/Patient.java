@@ -9,6 +9,7 @@ import java.util.UUID;
 public class Patient {
 
     private static final String ID_NULL_ERROR = "Patient ID cannot be null";
+    private static final String ID_GENERATOR_NULL_ERROR = "Patient ID generator cannot be null";
     private static final String FIRST_NAME_NULL_ERROR = "Patient first name cannot be null or blank";
     private static final String LAST_NAME_NULL_ERROR = "Patient last name cannot be null or blank";
     private static final String PHONE_NULL_ERROR = "Patient phone number cannot be null or blank";
@@ -31,23 +32,7 @@ public class Patient {
      * @param email       The email address of the patient
      */
     public Patient(String firstName, String lastName, String phoneNumber, String email) {
-        if (firstName == null || firstName.isBlank())
-            throw new IllegalArgumentException(FIRST_NAME_NULL_ERROR);
-        if (lastName == null || lastName.isBlank())
-            throw new IllegalArgumentException(LAST_NAME_NULL_ERROR);
-        if (phoneNumber == null || phoneNumber.isBlank())
-            throw new IllegalArgumentException(PHONE_NULL_ERROR);
-        if (!CustomValidator.isValidPhoneNumber(phoneNumber))
-            throw new IllegalArgumentException(PHONE_INVALID_ERROR);
-        if (email == null || email.isBlank())
-            throw new IllegalArgumentException(EMAIL_NULL_ERROR);
-        if (!CustomValidator.isValidEmail(email))
-            throw new IllegalArgumentException(EMAIL_INVALID_ERROR);
-        this.id = UUID.randomUUID();
-        this.firstName = firstName;
-        this.lastName = lastName;
-        this.phoneNumber = phoneNumber;
-        this.email = email;
+        this(IdGenerator.TIME_ORDERED.nextId(), firstName, lastName, phoneNumber, email);
     }
 
     /**
@@ -80,4 +65,25 @@ public class Patient {
         this.phoneNumber = phoneNumber;
         this.email = email;
     }
+
+    /**
+     * Create a patient with an id from a specific generator, e.g. {@link IdGenerator#RANDOM}
+     *
+     * @param idGenerator Where the patient's id comes from
+     * @param firstName   The first name of the patient
+     * @param lastName    The last name of the patient
+     * @param phoneNumber The phone number of the patient
+     * @param email       The email address of the patient
+     * @return The new patient
+     */
+    public static Patient createPatient(
+            IdGenerator idGenerator,
+            String firstName,
+            String lastName,
+            String phoneNumber,
+            String email) {
+        if (idGenerator == null)
+            throw new IllegalArgumentException(ID_GENERATOR_NULL_ERROR);
+        return new Patient(idGenerator.nextId(), firstName, lastName, phoneNumber, email);
+    }
 }
\ No newline at end of file
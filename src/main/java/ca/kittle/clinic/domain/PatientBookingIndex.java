@@ -0,0 +1,107 @@
+package ca.kittle.clinic.domain;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Each patient's bookings with every practitioner at a clinic, in date and start time order, so a patient's
+ * bookings in a period are found with a binary search instead of by walking every practitioner's calendar.
+ * Every booking is also held by id whatever its status, so a booking can be found from its reference alone.
+ * <p>
+ * Cancelled bookings are dropped from their patient's bookings but can still be found by id. A patient's bookings
+ * are held in a copy-on-write array, like a day's bookings in a calendar: a patient has few bookings, so copying
+ * them on a change is cheap and reads never lock.
+ */
+class PatientBookingIndex {
+
+    private static final Booking[] NO_BOOKINGS = new Booking[0];
+
+    private final ConcurrentMap<UUID, Booking[]> bookingsByPatient = new ConcurrentHashMap<>();
+    private final ConcurrentMap<UUID, Booking> bookingsById = new ConcurrentHashMap<>();
+
+    void add(Booking booking) {
+        bookingsById.put(booking.getId(), booking);
+        if (booking.getStatus().isOccupyingTime())
+            bookingsByPatient.compute(booking.getPatient().getId(),
+                    (id, current) -> inserted(current == null ? NO_BOOKINGS : current, booking));
+    }
+
+    /**
+     * Drops a booking that has been cancelled from its patient's bookings.
+     */
+    void remove(Booking booking) {
+        bookingsByPatient.computeIfPresent(booking.getPatient().getId(), (id, current) -> removed(current, booking));
+    }
+
+    /**
+     * @return The booking with the id, or null if it isn't in the index.
+     */
+    Booking find(UUID bookingId) {
+        return bookingsById.get(bookingId);
+    }
+
+    /**
+     * @return The patient's bookings starting at or after the first date and time and before the second, in
+     * date and start time order.
+     */
+    List<Booking> between(Patient patient, LocalDate fromDate, LocalTime fromTime, LocalDate toDate, LocalTime toTime) {
+        Booking[] bookings = bookingsByPatient.getOrDefault(patient.getId(), NO_BOOKINGS);
+        int from = search(bookings, fromDate, fromTime, false);
+        int to = search(bookings, toDate, toTime, false);
+        return from < to ? List.of(Arrays.copyOfRange(bookings, from, to)) : List.of();
+    }
+
+    /**
+     * Inserts after any booking with the same date and start time, e.g. with another practitioner.
+     */
+    private static Booking[] inserted(Booking[] current, Booking booking) {
+        int index = search(current, booking.getDate(), booking.getStartTime(), true);
+        Booking[] updated = new Booking[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, index);
+        updated[index] = booking;
+        System.arraycopy(current, index, updated, index + 1, current.length - index);
+        return updated;
+    }
+
+    /**
+     * @return The bookings without the booking, or null to drop a patient left with none.
+     */
+    private static Booking[] removed(Booking[] current, Booking booking) {
+        int index = search(current, booking.getDate(), booking.getStartTime(), false);
+        while (index < current.length && current[index] != booking)
+            index++;
+        if (index == current.length)
+            return current;
+        if (current.length == 1)
+            return null;
+        Booking[] updated = new Booking[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, index);
+        System.arraycopy(current, index + 1, updated, index, updated.length - index);
+        return updated;
+    }
+
+    /**
+     * @return The position of the first booking starting at or after the date and time, or only after it if
+     * {@code after}.
+     */
+    private static int search(Booking[] bookings, LocalDate date, LocalTime time, boolean after) {
+        int low = 0;
+        int high = bookings.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int compared = bookings[mid].getDate().compareTo(date);
+            if (compared == 0)
+                compared = bookings[mid].getStartTime().compareTo(time);
+            if (compared < 0 || after && compared == 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+}
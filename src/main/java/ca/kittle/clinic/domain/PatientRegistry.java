@@ -0,0 +1,281 @@
+package ca.kittle.clinic.domain;
+
+import ca.kittle.clinic.domain.validation.PatientValidationError;
+import io.jbock.util.Either;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Every registered patient, found by id, email or phone number in constant time, e.g. a front desk looking up
+ * the caller on the phone. Emails are matched ignoring case and surrounding whitespace, and phone numbers by
+ * their digits alone, so "(416) 555-3421" finds the patient registered as 416-555-3421.
+ * <p>
+ * Patients are held in registration order in plain arrays, and each key has its own open addressing table of
+ * {@code long}s: the key's hash in the high half and the patient's position plus one in the low half, with zero
+ * marking an empty entry. A lookup probes linearly and only compares keys whose hash matches, so there is no
+ * boxed entry or chain per patient. Tables are kept at most half full.
+ * <p>
+ * Registrations are serialized by a {@link StampedLock}. Lookups read optimistically and only take the read lock
+ * when a registration happened while they were probing, so readers never contend with each other.
+ */
+public class PatientRegistry {
+
+    private static final int DEFAULT_EXPECTED_PATIENTS = 1024;
+    private static final int MAX_TABLE_CAPACITY = 1 << 30;
+    private static final int HASH_SPREAD = 0x9E3779B9;
+    private static final long POSITION_MASK = 0xFFFFFFFFL;
+    private static final int NANP_LENGTH = 10;
+
+    private static final String EXPECTED_PATIENTS_ERROR = "Expected patients cannot be negative";
+    private static final String PATIENT_NULL_ERROR = "Patient cannot be null";
+    private static final String ID_NULL_ERROR = "Patient ID cannot be null";
+    private static final String EMAIL_NULL_ERROR = "Patient email cannot be null";
+    private static final String PHONE_NULL_ERROR = "Patient phone number cannot be null";
+    private static final String REGISTRY_FULL_ERROR = "Patient registry is full";
+
+    private final StampedLock lock = new StampedLock();
+    private final KeyIndex ids;
+    private final KeyIndex emails;
+    private final KeyIndex phoneNumbers;
+    private Patient[] patients;
+    private int size;
+
+    public PatientRegistry() {
+        this(DEFAULT_EXPECTED_PATIENTS);
+    }
+
+    /**
+     * @param expectedPatients How many patients to make room for up front, so a large registry isn't rehashed
+     *                         as it fills.
+     */
+    public PatientRegistry(int expectedPatients) {
+        if (expectedPatients < 0)
+            throw new IllegalArgumentException(EXPECTED_PATIENTS_ERROR);
+        int tableCapacity = tableCapacityFor(expectedPatients);
+        this.ids = new KeyIndex(tableCapacity);
+        this.emails = new KeyIndex(tableCapacity);
+        this.phoneNumbers = new KeyIndex(tableCapacity);
+        this.patients = new Patient[tableCapacity / 2];
+    }
+
+    /**
+     * Register a new patient, unless another patient already has their id, email or phone number.
+     *
+     * @param patient The patient to register
+     * @return Either a list of the keys that are already taken, or the patient once registered.
+     */
+    public Either<List<PatientValidationError>, Patient> register(Patient patient) {
+        if (patient == null)
+            throw new IllegalArgumentException(PATIENT_NULL_ERROR);
+        UUID id = patient.getId();
+        String email = normalizeEmail(patient.getEmail());
+        String phoneNumber = normalizePhoneNumber(patient.getPhoneNumber());
+        int idHash = hash(id);
+        int emailHash = hash(email);
+        int phoneHash = hash(phoneNumber);
+
+        long stamp = lock.writeLock();
+        try {
+            List<PatientValidationError> errors = new ArrayList<>();
+            if (ids.positionOf(id, idHash) >= 0)
+                errors.add(new PatientValidationError.DuplicateIdError());
+            if (emails.positionOf(email, emailHash) >= 0)
+                errors.add(new PatientValidationError.DuplicateEmailError());
+            if (phoneNumbers.positionOf(phoneNumber, phoneHash) >= 0)
+                errors.add(new PatientValidationError.DuplicatePhoneNumberError());
+            if (!errors.isEmpty())
+                return Either.left(errors);
+
+            if (size == patients.length)
+                grow();
+            patients[size] = patient;
+            ids.add(id, idHash, size);
+            emails.add(email, emailHash, size);
+            phoneNumbers.add(phoneNumber, phoneHash, size);
+            size++;
+            return Either.right(patient);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @param id The patient's id
+     * @return The patient with that id, if registered.
+     */
+    public Optional<Patient> findById(UUID id) {
+        if (id == null)
+            throw new IllegalArgumentException(ID_NULL_ERROR);
+        return find(ids, id);
+    }
+
+    /**
+     * @param email The patient's email, in any case
+     * @return The patient with that email, if registered.
+     */
+    public Optional<Patient> findByEmail(String email) {
+        if (email == null)
+            throw new IllegalArgumentException(EMAIL_NULL_ERROR);
+        return find(emails, normalizeEmail(email));
+    }
+
+    /**
+     * @param phoneNumber The patient's phone number, in any format
+     * @return The patient with that phone number, if registered.
+     */
+    public Optional<Patient> findByPhoneNumber(String phoneNumber) {
+        if (phoneNumber == null)
+            throw new IllegalArgumentException(PHONE_NULL_ERROR);
+        return find(phoneNumbers, normalizePhoneNumber(phoneNumber));
+    }
+
+    /**
+     * @return The number of registered patients.
+     */
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int currentSize = size;
+        if (lock.validate(stamp))
+            return currentSize;
+        stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Optional<Patient> find(KeyIndex index, Object key) {
+        int hash = hash(key);
+        long stamp = lock.tryOptimisticRead();
+        Patient patient = patientAt(index.positionOf(key, hash));
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                patient = patientAt(index.positionOf(key, hash));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return Optional.ofNullable(patient);
+    }
+
+    /**
+     * Tolerates positions from a table that was being changed, as an optimistic read throws its result away.
+     */
+    private Patient patientAt(int position) {
+        Patient[] current = patients;
+        return position >= 0 && position < current.length ? current[position] : null;
+    }
+
+    private void grow() {
+        int tableCapacity = ids.table.length * 2;
+        if (tableCapacity > MAX_TABLE_CAPACITY)
+            throw new IllegalStateException(REGISTRY_FULL_ERROR);
+        patients = Arrays.copyOf(patients, tableCapacity / 2);
+        ids.resize(tableCapacity);
+        emails.resize(tableCapacity);
+        phoneNumbers.resize(tableCapacity);
+    }
+
+    private static int tableCapacityFor(int expectedPatients) {
+        if (expectedPatients > MAX_TABLE_CAPACITY / 2)
+            throw new IllegalStateException(REGISTRY_FULL_ERROR);
+        return Math.max(2, Integer.highestOneBit(Math.max(1, expectedPatients) * 2 - 1) << 1);
+    }
+
+    /**
+     * Fibonacci hashing, folded so the low bits used for the table slot depend on every bit of the hash code.
+     */
+    private static int hash(Object key) {
+        int hash = key.hashCode() * HASH_SPREAD;
+        return hash ^ (hash >>> 16);
+    }
+
+    static String normalizeEmail(String email) {
+        return email.strip().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Keeps the digits only, dropping a leading North American country code.
+     */
+    static String normalizePhoneNumber(String phoneNumber) {
+        StringBuilder digits = new StringBuilder(phoneNumber.length());
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            char c = phoneNumber.charAt(i);
+            if (c >= '0' && c <= '9')
+                digits.append(c);
+        }
+        if (digits.length() == NANP_LENGTH + 1 && digits.charAt(0) == '1')
+            digits.deleteCharAt(0);
+        return digits.toString();
+    }
+
+    /**
+     * One key's open addressing table, with the keys themselves held by patient position.
+     */
+    private static final class KeyIndex {
+
+        private Object[] keys;
+        private long[] table;
+
+        private KeyIndex(int tableCapacity) {
+            this.keys = new Object[tableCapacity / 2];
+            this.table = new long[tableCapacity];
+        }
+
+        /**
+         * Safe to call without the lock: probing is bounded and positions are checked, so a table being
+         * changed can only give a wrong answer, never an exception.
+         *
+         * @return The position of the patient with the key, or -1 if there is none.
+         */
+        private int positionOf(Object key, int hash) {
+            long[] currentTable = table;
+            Object[] currentKeys = keys;
+            int mask = currentTable.length - 1;
+            int slot = hash & mask;
+            for (int probe = 0; probe < currentTable.length; probe++) {
+                long entry = currentTable[slot];
+                if (entry == 0L)
+                    return -1;
+                if ((int) (entry >>> 32) == hash) {
+                    int position = (int) (entry & POSITION_MASK) - 1;
+                    if (position >= 0 && position < currentKeys.length && key.equals(currentKeys[position]))
+                        return position;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private void add(Object key, int hash, int position) {
+            keys[position] = key;
+            insert(table, hash, position);
+        }
+
+        private void resize(int tableCapacity) {
+            long[] resized = new long[tableCapacity];
+            for (long entry : table) {
+                if (entry != 0L)
+                    insert(resized, (int) (entry >>> 32), (int) (entry & POSITION_MASK) - 1);
+            }
+            keys = Arrays.copyOf(keys, tableCapacity / 2);
+            table = resized;
+        }
+
+        private static void insert(long[] table, int hash, int position) {
+            int mask = table.length - 1;
+            int slot = hash & mask;
+            while (table[slot] != 0L)
+                slot = (slot + 1) & mask;
+            table[slot] = (long) hash << 32 | (position + 1);
+        }
+    }
+}
@@ -1,20 +1,41 @@
 package ca.kittle.clinic.domain;
 
+import ca.kittle.clinic.domain.calendar.BookingCalendar;
+import ca.kittle.clinic.domain.calendar.DayArchive;
+import ca.kittle.clinic.domain.calendar.OccupancyCursor;
+import ca.kittle.clinic.domain.calendar.ReservationStrategy;
+import ca.kittle.clinic.domain.calendar.SlotMatch;
+import ca.kittle.clinic.domain.calendar.SlotGrid;
 import ca.kittle.clinic.domain.validation.AppointmentValidationError;
+import ca.kittle.clinic.domain.validation.AppointmentValidationErrors;
 import ca.kittle.clinic.domain.validation.BookingValidationError;
+import ca.kittle.clinic.domain.validation.BookingValidationErrors;
+import ca.kittle.clinic.domain.validation.ValidationMode;
 import io.jbock.util.Either;
+import lombok.AccessLevel;
 import lombok.Getter;
 import util.CustomValidator;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Getter
 public class Practitioner {
 
+    private static final String ID_NULL_ERROR = "Practitioner ID cannot be null";
     private static final String FIRST_NAME_NULL_ERROR = "Practitioner first name cannot be null or blank";
     private static final String LAST_NAME_NULL_ERROR = "Practitioner last name cannot be null or blank";
     private static final String PHONE_NULL_ERROR = "Practitioner phone number cannot be null or blank";
@@ -26,14 +47,36 @@ public class Practitioner {
     private static final String DATE_TIME_NULL_ERROR = "Date and time for booking cannot be null";
     private static final String PATIENT_NULL_ERROR = "Patient cannot be null";
     private static final String CLINIC_NULL_ERROR = "Clinic cannot be null";
+    private static final String STRATEGY_NULL_ERROR = "Reservation strategy cannot be null";
+    private static final String DATE_RANGE_ERROR = "End date cannot be before start date";
+    private static final String REQUESTS_NULL_ERROR = "Booking requests cannot be null";
+    private static final String OTHER_PRACTITIONER_ERROR = "Booking request is for another practitioner";
+    private static final String HOLD_TIME_ERROR = "Hold time must be positive";
+    private static final String STATUS_NULL_ERROR = "Booking status cannot be null";
+    private static final String EVENTS_NULL_ERROR = "Booking events cannot be null";
+    private static final String BOOKING_ID_NULL_ERROR = "Booking ID cannot be null";
 
+    private static final String HOURS_NULL_ERROR = "Clinic hours cannot be null";
+
+    // Each thread's occupancy and start masks for a day's available times, so a lookup only allocates its result
+    private static final ThreadLocal<SlotMasks> SLOT_MASKS = ThreadLocal.withInitial(SlotMasks::new);
+
+    private final UUID id;
     private final String firstName;
     private final String lastName;
     private final String phoneNumber;
     private final String email;
 
     private final List<Appointment> appointments = new ArrayList<>();
-    private final List<Booking> bookings = new ArrayList<>();
+    @Getter(AccessLevel.NONE)
+    private final BookingCalendar calendar;
+    @Getter(AccessLevel.NONE)
+    private volatile BookingEvents bookingEvents = BookingEvents.NONE;
+    @Getter(AccessLevel.NONE)
+    private volatile PatientBookingIndex patientBookings;
+    // The hours availability is offered in, until the practitioner joins a clinic
+    @Getter(AccessLevel.NONE)
+    private volatile ClinicHours hours = Clinic.DEFAULT_HOURS;
 
     /**
      * This should be the preferred constructor used by the application
@@ -44,6 +87,38 @@ public class Practitioner {
      * @param email       The email address of the practitioner
      */
     public Practitioner(String firstName, String lastName, String phoneNumber, String email) {
+        this(firstName, lastName, phoneNumber, email, ReservationStrategy.LOCKING);
+    }
+
+    /**
+     * Create a practitioner whose bookings are reserved with a specific strategy, e.g. lock-free for
+     * practitioners whose new days are booked in a rush
+     *
+     * @param firstName           The first name of the practitioner
+     * @param lastName            The last name of the practitioner
+     * @param phoneNumber         The phone number of the practitioner
+     * @param email               The email address of the practitioner
+     * @param reservationStrategy How concurrent bookings for the same day are made atomic
+     */
+    public Practitioner(String firstName, String lastName, String phoneNumber, String email,
+                        ReservationStrategy reservationStrategy) {
+        this(IdGenerator.TIME_ORDERED.nextId(), firstName, lastName, phoneNumber, email, reservationStrategy);
+    }
+
+    /**
+     * This constructor would typically be used by repository classes, creating a practitioner from a datastore
+     *
+     * @param id                  The UUID of the practitioner
+     * @param firstName           The first name of the practitioner
+     * @param lastName            The last name of the practitioner
+     * @param phoneNumber         The phone number of the practitioner
+     * @param email               The email address of the practitioner
+     * @param reservationStrategy How concurrent bookings for the same day are made atomic
+     */
+    public Practitioner(UUID id, String firstName, String lastName, String phoneNumber, String email,
+                        ReservationStrategy reservationStrategy) {
+        if (id == null)
+            throw new IllegalArgumentException(ID_NULL_ERROR);
         if (firstName == null || firstName.isBlank())
             throw new IllegalArgumentException(FIRST_NAME_NULL_ERROR);
         if (lastName == null || lastName.isBlank())
@@ -56,62 +131,295 @@ public class Practitioner {
             throw new IllegalArgumentException(EMAIL_NULL_ERROR);
         if (!CustomValidator.isValidEmail(email))
             throw new IllegalArgumentException(EMAIL_INVALID_ERROR);
+        if (reservationStrategy == null)
+            throw new IllegalArgumentException(STRATEGY_NULL_ERROR);
+        this.id = id;
         this.firstName = firstName;
         this.lastName = lastName;
         this.phoneNumber = phoneNumber;
         this.email = email;
+        this.calendar = new BookingCalendar(reservationStrategy, hours.getSlotGrid(), hours.openSlots());
+    }
+
+    /**
+     * Report every change to this practitioner's bookings from now on, e.g. to a booking journal.
+     *
+     * @param bookingEvents Where changes are reported, or {@link BookingEvents#NONE} to stop reporting them.
+     */
+    public void setBookingEvents(BookingEvents bookingEvents) {
+        if (bookingEvents == null)
+            throw new IllegalArgumentException(EVENTS_NULL_ERROR);
+        this.bookingEvents = bookingEvents;
+    }
+
+    /**
+     * Offer availability in a clinic's hours from now on, rather than the default hours. A clinic on a different
+     * slot grid moves the practitioner's calendar onto it, which is only possible before they have any bookings,
+     * see {@link BookingCalendar#setSlots}.
+     */
+    void setHours(ClinicHours hours) {
+        if (hours == null)
+            throw new IllegalArgumentException(HOURS_NULL_ERROR);
+        calendar.setSlots(hours.getSlotGrid(), hours.openSlots());
+        this.hours = hours;
+    }
+
+    /**
+     * Keep a clinic's index of each patient's bookings up to date with this practitioner's bookings, starting
+     * with the ones they already have. Bookings restored with {@link #restoreCalendar} are indexed as their day
+     * is read, see {@link #readArchivedDays}.
+     */
+    void setPatientBookings(PatientBookingIndex patientBookings) {
+        this.patientBookings = patientBookings;
+        calendar.setArchiveListener(this::indexBooking);
+        calendar.loadedBookings().forEach(patientBookings::add);
+    }
+
+    /**
+     * Reads any restored days between two dates (inclusive) that a patient has bookings on and that haven't been
+     * read yet, so their bookings are in the clinic's index of each patient's bookings.
+     */
+    void readArchivedDays(Patient patient, LocalDate fromDate, LocalDate toDate) {
+        calendar.readArchive(patient.getId(), fromDate, toDate);
+    }
+
+    /**
+     * Walks every booking the practitioner has whatever its status, ordered by date and then start time, without
+     * reading restored days into the calendar, see {@link BookingCalendar#forEachBooking}.
+     *
+     * @param action Called for each booking.
+     */
+    public void forEachBooking(Consumer<Booking> action) {
+        calendar.forEachBooking(action);
+    }
+
+    /**
+     * Retrieves every booking the practitioner has.
+     *
+     * @return An unmodifiable list of all bookings ordered by date and then start time.
+     */
+    public List<Booking> getBookings() {
+        return calendar.allBookings();
     }
 
-    
     /**
-     * Retrieves a list of bookings for the practitioner on a specific date.
+     * Retrieves a list of bookings for the practitioner on a specific date, e.g. the day's schedule for a
+     * waiting-room display. Nothing is sorted or copied, see {@link BookingCalendar#listBookings(LocalDate)}.
      *
      * @param forDate The date for which bookings should be retrieved.
-     * @return A list of bookings that match the specified date.
+     * @return A read-only list of bookings that match the specified date, in start time order.
      */
     public List<Booking> listBookings(LocalDate forDate) {
-        return bookings.stream()
-                .filter(b -> b.getDate().isEqual(forDate))
-                .toList();
+        return calendar.listBookings(forDate);
+    }
+
+    /**
+     * Retrieves a list of bookings for the practitioner between two dates (inclusive).
+     *
+     * @param fromDate The first date for which bookings should be retrieved.
+     * @param toDate   The last date for which bookings should be retrieved.
+     * @return A list of bookings in the date range, ordered by date and then start time.
+     */
+    public List<Booking> listBookings(LocalDate fromDate, LocalDate toDate) {
+        return calendar.listBookings(fromDate, toDate);
+    }
+
+    /**
+     * Retrieves the practitioner's bookings with a given status on a specific date, e.g. today's confirmed bookings.
+     *
+     * @param forDate The date for which bookings should be retrieved.
+     * @param status  The status of the bookings to retrieve.
+     * @return A list of bookings on the date with the status, in start time order.
+     */
+    public List<Booking> listBookings(LocalDate forDate, Booking.BookingStatus status) {
+        return calendar.listBookings(forDate, status);
+    }
+
+    /**
+     * Retrieves the practitioner's bookings with a given status between two dates (inclusive), e.g. this
+     * month's no-shows.
+     *
+     * @param fromDate The first date for which bookings should be retrieved.
+     * @param toDate   The last date for which bookings should be retrieved.
+     * @param status   The status of the bookings to retrieve.
+     * @return A list of bookings in the date range with the status, ordered by date and then start time.
+     */
+    public List<Booking> listBookings(LocalDate fromDate, LocalDate toDate, Booking.BookingStatus status) {
+        return calendar.listBookings(fromDate, toDate, status);
     }
 
 
     /**
      * Retrieves a list of available time slots for the practitioner on a specific date, based on the appointment type.
-     * Ensures time slots do not overlap with existing bookings.
+     * Ensures time slots do not overlap with existing bookings by masking the day's slot occupancy rather than
+     * comparing each candidate against each booking, and only offers starts that leave room for the whole
+     * appointment in one of the clinic's shifts that day.
      *
      * @param forDate         The date to check for available time slots.
      * @param appointmentType The appointment type, which determines the duration of the appointment.
      * @return A list of available {@link LocalTime} slots on the specified date.
      */
     public List<LocalTime> availabileTimes(LocalDate forDate, Appointment.AppointmentType appointmentType) {
-        List<LocalTime> times = new ArrayList<>();
-        List<Booking> bookings = listBookings(forDate);
-        // FIXME Need to use actual clinic hours here, not hardcoded values
-        for (int hour = 9; hour < 17; hour++) {
-            for (int minute = 0; minute < 60; minute += (int) Clinic.BOOKING_START_TIME_INTERVAL.toMinutes()) {
-                LocalTime startTime = LocalTime.of(hour, minute);
-                LocalTime endTime = startTime.plusMinutes(appointmentType.getDuration().toMinutes());
-                if (!Booking.doAppointmentTimesOverlapOtherBookings(startTime, endTime, bookings))
-                    times.add(startTime);
-            }
-        }
+        expireHolds();
+        ClinicHours clinicHours = hours;
+        SlotGrid grid = clinicHours.getSlotGrid();
+        SlotMasks masks = SLOT_MASKS.get().fit(grid);
+        calendar.occupancy(forDate, masks.occupied);
+        availableStartSlots(clinicHours, forDate, masks.occupied, appointmentType, masks.starts);
+        List<LocalTime> times = new ArrayList<>(SlotGrid.count(masks.starts));
+        for (int slot = SlotGrid.nextSlot(masks.starts, 0); slot >= 0; slot = SlotGrid.nextSlot(masks.starts, slot + 1))
+            times.add(grid.startTimeOf(slot));
         return times;
     }
 
     /**
-     * Cancels an existing booking for this practitioner.
+     * Lazily streams the available time slots between two dates (inclusive), e.g. for a patient browsing weeks
+     * at a time. The range is read in one pass over the practitioner's booked days, fully booked days are
+     * skipped without producing anything, and slots are only worked out as the stream is consumed, so
+     * {@code findFirst} or {@code limit} stop the search early.
+     *
+     * @param fromDate        The first date to check for available time slots.
+     * @param toDate          The last date to check for available time slots.
+     * @param appointmentType The appointment type, which determines the duration of the appointment.
+     * @return A stream of available slots ordered by date and then start time.
+     */
+    public Stream<AvailableSlot> availabileTimes(
+            LocalDate fromDate,
+            LocalDate toDate,
+            Appointment.AppointmentType appointmentType) {
+        if (fromDate == null || toDate == null)
+            throw new IllegalArgumentException(DATE_TIME_NULL_ERROR);
+        if (toDate.isBefore(fromDate))
+            throw new IllegalArgumentException(DATE_RANGE_ERROR);
+        if (appointmentType == null)
+            throw new IllegalArgumentException(TYPE_NULL_ERROR);
+        expireHolds();
+        return StreamSupport.stream(
+                new AvailableSlotSpliterator(calendar.occupancyCursor(fromDate, toDate), hours, appointmentType),
+                false);
+    }
+
+    /**
+     * Finds the earliest time slot a patient could book from now, e.g. "the next CHECK_IN with this practitioner".
+     *
+     * @param appointmentType The appointment type, which determines the duration of the appointment.
+     * @return The earliest available slot, or empty if the appointment type can never fit in the day.
+     */
+    public Optional<AvailableSlot> nextAvailableTime(Appointment.AppointmentType appointmentType) {
+        return nextAvailableTime(LocalDateTime.now(), appointmentType);
+    }
+
+    /**
+     * Finds the earliest available time slot that can still be booked at a given moment, i.e. one starting
+     * more than {@link Booking#MINIMUM_LEAD_TIME} later. Fully booked weeks are skipped without checking
+     * their days, so a long run of full weeks costs one lookup per week.
+     *
+     * @param earliestDateTime The moment the booking would be made.
+     * @param appointmentType  The appointment type, which determines the duration of the appointment.
+     * @return The earliest available slot, or empty if the appointment type can never fit in the day.
+     */
+    public Optional<AvailableSlot> nextAvailableTime(
+            LocalDateTime earliestDateTime,
+            Appointment.AppointmentType appointmentType) {
+        if (earliestDateTime == null)
+            throw new IllegalArgumentException(DATE_TIME_NULL_ERROR);
+        if (appointmentType == null)
+            throw new IllegalArgumentException(TYPE_NULL_ERROR);
+
+        expireHolds();
+        ClinicHours clinicHours = hours;
+        SlotGrid grid = clinicHours.getSlotGrid();
+        LocalDateTime leadTime = earliestDateTime.plus(Booking.MINIMUM_LEAD_TIME);
+        // Only slots starting strictly after the lead time can be booked on the first day
+        Optional<SlotMatch> match = calendar.findFirstFit(
+                leadTime.toLocalDate(),
+                grid.slotOf(leadTime.toLocalTime()) + 1,
+                grid.slotsFor(appointmentType.getDuration()),
+                clinicHours.startSlots(appointmentType));
+        return match.map(found ->
+                new AvailableSlot(this, found.date(), grid.startTimeOf(found.slot())));
+    }
+
+    /**
+     * The clinic's start slot template for the appointment type on the date's day of the week, masked against
+     * the day's occupancy.
+     *
+     * @param occupied The day's occupancy.
+     * @param into     Where to write the available start slots; must not be the occupancy.
+     */
+    private static void availableStartSlots(ClinicHours clinicHours, LocalDate date, long[] occupied,
+                                            Appointment.AppointmentType appointmentType, long[] into) {
+        long[] template = clinicHours.startSlots(appointmentType)[date.getDayOfWeek().ordinal()];
+        if (SlotGrid.isEmpty(template)) {
+            Arrays.fill(into, 0L);
+            return;
+        }
+        SlotGrid grid = clinicHours.getSlotGrid();
+        grid.freeRunStarts(occupied, grid.slotsFor(appointmentType.getDuration()), into);
+        SlotGrid.retain(into, template);
+    }
+
+    /**
+     * Cancels an existing booking for this practitioner, releasing its time. The cancelled booking is kept,
+     * see {@link #listBookings(LocalDate, Booking.BookingStatus)}.
      *
      * @param booking The booking to be canceled.
-     * @return {@code true} if the booking was successfully removed, {@code false} if the booking was not found.
+     * @return {@code true} if the booking was cancelled, {@code false} if the booking was not found or had
+     * already been cancelled, completed or missed.
      */
     public boolean cancelBooking(Booking booking) {
-        return bookings.remove(booking);
+        return changeStatus(booking, Booking.BookingStatus.CANCELLED);
+    }
+
+    /**
+     * Cancels a booking by its id, e.g. the reference number the patient was given, as
+     * {@link #cancelBooking(Booking)} does. The booking is found in O(1) and its time is released in the same
+     * atomic step as any other change to its day.
+     *
+     * @param bookingId The id of the booking to be cancelled.
+     * @return {@code true} if the booking was cancelled, {@code false} if this practitioner has no booking with the
+     * id or it had already been cancelled, completed or missed.
+     */
+    public boolean cancelBooking(UUID bookingId) {
+        return findBooking(bookingId).map(this::cancelBooking).orElse(false);
+    }
+
+    /**
+     * Finds one of this practitioner's bookings by its id, whatever its status.
+     *
+     * @param bookingId The id of the booking.
+     * @return The booking, or empty if this practitioner has no booking with the id.
+     */
+    public Optional<Booking> findBooking(UUID bookingId) {
+        return calendar.find(bookingId);
+    }
+
+    /**
+     * Records that the patient didn't show up for a confirmed booking.
+     *
+     * @param booking The booking that was missed.
+     * @return {@code true} if the booking was marked as a no-show, {@code false} if it was not found or not confirmed.
+     */
+    public boolean markNoShow(Booking booking) {
+        return changeStatus(booking, Booking.BookingStatus.NO_SHOW);
+    }
+
+    /**
+     * Records that the appointment for a confirmed booking took place.
+     *
+     * @param booking The booking that was completed.
+     * @return {@code true} if the booking was marked as completed, {@code false} if it was not found or not confirmed.
+     */
+    public boolean markCompleted(Booking booking) {
+        return changeStatus(booking, Booking.BookingStatus.COMPLETED);
     }
 
     /**
      * Attempts to add a booking for a specific patient, clinic, appointment type, date, and start time.
      * Ensures the appointment type is valid and does not overlap an existing booking before proceeding.
+     * Safe to call concurrently; two requests for overlapping times on the same day can never both succeed.
+     * A booking that can't be reported to the {@link BookingEvents}, e.g. because the journal can't be written, is
+     * cancelled again and the failure is thrown.
      *
      * @param patient         The patient.
      * @param clinic          The clinic the appointment will be at.
@@ -127,41 +435,320 @@ public class Practitioner {
             Appointment.AppointmentType appointmentType,
             LocalDate date,
             LocalTime startTime) {
+        return addBooking(patient, clinic, appointmentType, date, startTime, ValidationMode.COLLECT_ALL);
+    }
 
-        if (patient == null)
-            throw new IllegalArgumentException(PATIENT_NULL_ERROR);
+    /**
+     * Attempts to add a booking as {@link #addBooking(Patient, Clinic, Appointment.AppointmentType, LocalDate,
+     * LocalTime)} does, checking the booking rules in the given mode, e.g. {@link ValidationMode#FAIL_FAST} for
+     * callers that only report the first error.
+     *
+     * @param patient         The patient.
+     * @param clinic          The clinic the appointment will be at.
+     * @param appointmentType The type of appointment (e.g., STANDARD, CONSULTATION).
+     * @param date            The specific date the booking is for.
+     * @param startTime       The time slot for the booking.
+     * @param mode            Whether to find every error or stop at the first.
+     * @return Either<List<BookingValidationError>, Booking> either a list of validate errors or a Booking
+     * @throws IllegalArgumentException if the appointment type or mode is null.
+     */
+    public Either<List<BookingValidationError>, Booking> addBooking(
+            Patient patient,
+            Clinic clinic,
+            Appointment.AppointmentType appointmentType,
+            LocalDate date,
+            LocalTime startTime,
+            ValidationMode mode) {
 
-        if (clinic == null)
-            throw new IllegalArgumentException(CLINIC_NULL_ERROR);
+        long errors = validateBooking(patient, clinic, appointmentType, date, startTime, mode);
+        if (errors != BookingValidationErrors.NONE)
+            return Either.left(BookingValidationErrors.toList(errors));
 
-        if (appointmentType == null)
-            throw new IllegalArgumentException(TYPE_NULL_ERROR);
+        Booking booking = new Booking(appointmentType, date, startTime, patient, this);
+        booking.moveTo(Booking.BookingStatus.CONFIRMED);
+        // Holding the booking's monitor keeps a concurrent cancel from being reported before the booking itself
+        synchronized (booking) {
+            // The overlap check and the insert are atomic for this practitioner and date, see ReservationStrategy
+            if (!calendar.addIfFree(booking))
+                return Either.left(BookingValidationErrors.toList(BookingValidationErrors.OVERLAPS_ANOTHER));
+            indexBooking(booking);
+            reportAdded(booking);
+        }
+        return Either.right(booking);
+    }
 
-        if (date == null || startTime == null)
-            throw new IllegalArgumentException(DATE_TIME_NULL_ERROR);
+    /**
+     * Puts back a booking made earlier, e.g. when replaying a booking journal at startup. The rules about when a
+     * booking can be made were checked when it was first made, so only its start time, the clinic hours and
+     * overlaps with other bookings are checked now. Nothing is reported to the {@link BookingEvents}.
+     *
+     * @param patient         The patient.
+     * @param clinic          The clinic the appointment will be at.
+     * @param appointmentType The type of appointment (e.g., STANDARD, CONSULTATION).
+     * @param date            The specific date the booking is for.
+     * @param startTime       The time slot for the booking.
+     * @return Either<List<BookingValidationError>, Booking> either a list of validate errors or the confirmed Booking
+     */
+    public Either<List<BookingValidationError>, Booking> restoreBooking(
+            Patient patient,
+            Clinic clinic,
+            Appointment.AppointmentType appointmentType,
+            LocalDate date,
+            LocalTime startTime) {
+        return restoreBooking(IdGenerator.TIME_ORDERED.nextId(), patient, clinic, appointmentType, date, startTime);
+    }
 
-        Either<List<BookingValidationError>, Booking> result = Booking.createBooking(
-                LocalDateTime.now(),
+    /**
+     * Puts back a booking made earlier under the id it was given then, see {@link #restoreBooking(Patient, Clinic,
+     * Appointment.AppointmentType, LocalDate, LocalTime)}, so it can still be found and cancelled by that id.
+     *
+     * @param bookingId       The id the booking was given when it was made.
+     * @param patient         The patient.
+     * @param clinic          The clinic the appointment will be at.
+     * @param appointmentType The type of appointment (e.g., STANDARD, CONSULTATION).
+     * @param date            The specific date the booking is for.
+     * @param startTime       The time slot for the booking.
+     * @return Either<List<BookingValidationError>, Booking> either a list of validate errors or the confirmed Booking
+     * @throws IllegalArgumentException if the booking id or clinic is null.
+     */
+    public Either<List<BookingValidationError>, Booking> restoreBooking(
+            UUID bookingId,
+            Patient patient,
+            Clinic clinic,
+            Appointment.AppointmentType appointmentType,
+            LocalDate date,
+            LocalTime startTime) {
+
+        if (bookingId == null)
+            throw new IllegalArgumentException(BOOKING_ID_NULL_ERROR);
+        if (clinic == null)
+            throw new IllegalArgumentException(CLINIC_NULL_ERROR);
+
+        long errors = Booking.validate(
+                LocalDateTime.MIN,
                 clinic.getHours(),
                 appointmentType,
                 date,
                 startTime,
                 patient,
                 this);
-        if (result.isLeft())
-            return result;
+        if (errors != BookingValidationErrors.NONE)
+            return Either.left(BookingValidationErrors.toList(errors));
+
+        Booking booking = new Booking(bookingId, appointmentType, date, startTime, patient, this);
+        booking.moveTo(Booking.BookingStatus.CONFIRMED);
+        if (!calendar.addIfFree(booking))
+            return Either.left(BookingValidationErrors.toList(BookingValidationErrors.OVERLAPS_ANOTHER));
+        indexBooking(booking);
+        return Either.right(booking);
+    }
+
+    /**
+     * Restores the practitioner's bookings from archived days, e.g. a calendar snapshot, before any new bookings
+     * are made. Days are only read from the archive when they are needed. Nothing is reported to the
+     * {@link BookingEvents}.
+     *
+     * @param archive The archived days, see {@link BookingCalendar#restore}.
+     * @throws IllegalStateException if the practitioner already has bookings.
+     */
+    public void restoreCalendar(DayArchive archive) {
+        calendar.restore(archive);
+    }
+
+    /**
+     * @return {@code true} if the practitioner's calendar can still be restored, see {@link #restoreCalendar}.
+     */
+    public boolean canRestoreCalendar() {
+        return calendar.canRestore();
+    }
+
+    /**
+     * Puts back an appointment created earlier, e.g. from a calendar snapshot. Nothing is reported to the
+     * {@link BookingEvents}.
+     *
+     * @param patient         The patient.
+     * @param appointmentType The type of appointment.
+     * @param date            The date of the appointment.
+     * @param startTime       The start time of the appointment.
+     * @return Either<List < AppointmentValidationError>, Appointment> - A list of validation errors or the Appointment
+     */
+    public Either<List<AppointmentValidationError>, Appointment> restoreAppointment(
+            Patient patient,
+            Appointment.AppointmentType appointmentType,
+            LocalDate date,
+            LocalTime startTime) {
+        Either<List<AppointmentValidationError>, Appointment> result = Appointment.createAppointment(
+                LocalDateTime.MIN,
+                appointmentType,
+                date,
+                startTime,
+                patient,
+                this
+        );
+        result.getRight().ifPresent(appointments::add);
+        return result;
+    }
+
+    /**
+     * Holds a date and time for {@link Booking#HOLD_TIME} while the patient completes their booking, see
+     * {@link #holdBooking(Patient, Clinic, Appointment.AppointmentType, LocalDate, LocalTime, Duration)}.
+     */
+    public Either<List<BookingValidationError>, Booking> holdBooking(
+            Patient patient,
+            Clinic clinic,
+            Appointment.AppointmentType appointmentType,
+            LocalDate date,
+            LocalTime startTime) {
+        return holdBooking(patient, clinic, appointmentType, date, startTime, Booking.HOLD_TIME);
+    }
+
+    /**
+     * Holds a date and time while the patient completes their booking. The held booking is validated and
+     * reserved exactly as {@link #addBooking} would, so its time is no longer available, but it stays
+     * {@link Booking.BookingStatus#PENDING} and is cancelled automatically unless it is confirmed with
+     * {@link #confirmBooking} before the hold runs out.
+     *
+     * @param patient         The patient.
+     * @param clinic          The clinic the appointment will be at.
+     * @param appointmentType The type of appointment (e.g., STANDARD, CONSULTATION).
+     * @param date            The specific date the booking is for.
+     * @param startTime       The time slot for the booking.
+     * @param holdFor         How long to hold the booking for.
+     * @return Either<List<BookingValidationError>, Booking> either a list of validate errors or the held Booking
+     * @throws IllegalArgumentException if the appointment type is null or the hold time is not positive.
+     */
+    public Either<List<BookingValidationError>, Booking> holdBooking(
+            Patient patient,
+            Clinic clinic,
+            Appointment.AppointmentType appointmentType,
+            LocalDate date,
+            LocalTime startTime,
+            Duration holdFor) {
 
-        Booking booking = result.getRight().isPresent() ? result.getRight().get() : null;
-        if (booking == null)
-            return Either.left(List.of(new BookingValidationError.CannotCreateBookingError()));
+        if (holdFor == null || holdFor.isNegative() || holdFor.isZero())
+            throw new IllegalArgumentException(HOLD_TIME_ERROR);
 
-        List<Booking> existingBookings = listBookings(date);
-        if (booking.doesBookingOverlap(existingBookings))
-            return Either.left(List.of(new BookingValidationError.BookingOverlapsAnotherError()));
-        bookings.add(booking);
+        long errors = validateBooking(patient, clinic, appointmentType, date, startTime, ValidationMode.COLLECT_ALL);
+        if (errors != BookingValidationErrors.NONE)
+            return Either.left(BookingValidationErrors.toList(errors));
+
+        Booking booking = new Booking(appointmentType, date, startTime, patient, this);
+        // Holding the booking's monitor keeps the hold from expiring before the booking is indexed
+        synchronized (booking) {
+            if (!calendar.holdIfFree(booking, System.currentTimeMillis() + holdFor.toMillis()))
+                return Either.left(BookingValidationErrors.toList(BookingValidationErrors.OVERLAPS_ANOTHER));
+            indexBooking(booking);
+        }
         return Either.right(booking);
     }
 
+    /**
+     * Confirms a held booking so it is kept.
+     *
+     * @param booking The booking returned by {@link #holdBooking}.
+     * @return {@code true} if the booking was confirmed, {@code false} if it wasn't held or the hold has run out.
+     */
+    public boolean confirmBooking(Booking booking) {
+        expireHolds();
+        return calendar.confirmHold(booking) && changeStatus(booking, Booking.BookingStatus.CONFIRMED);
+    }
+
+    /**
+     * @return {@code true} if the booking is held and waiting to be confirmed.
+     */
+    public boolean isHeld(Booking booking) {
+        return calendar.isHeld(booking);
+    }
+
+    /**
+     * Cancels every held booking whose hold ran out by a given time. This happens on its own before
+     * availability is read or bookings are made, so it only needs calling directly to release holds eagerly.
+     *
+     * @param asOf The time to expire holds up to.
+     */
+    public void expireHolds(LocalDateTime asOf) {
+        if (asOf == null)
+            throw new IllegalArgumentException(DATE_TIME_NULL_ERROR);
+        calendar.expireHolds(asOf.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), this::expireHold);
+    }
+
+    /**
+     * Attempts to add many bookings at once, e.g. when migrating from another system. Each request is validated
+     * as {@link #addBooking} would, then the valid bookings are added with one sort and a single pass per day,
+     * see {@link BookingCalendar#addAllIfFree}. Where requests overlap each other the earlier start wins, or
+     * the earlier request on a tie. Bookings that can't be reported are cancelled again, as with
+     * {@link #addBooking}, and the first failure is thrown once every booking has been reported or cancelled.
+     *
+     * @param clinic   The clinic the appointments will be at.
+     * @param requests The bookings to add, all with this practitioner.
+     * @return Either a list of validation errors or a Booking for each request, in the same order as the requests.
+     * @throws IllegalArgumentException if any request is null or is for another practitioner.
+     */
+    public List<Either<List<BookingValidationError>, Booking>> addBookings(
+            Clinic clinic,
+            List<BookingRequest> requests) {
+
+        if (clinic == null)
+            throw new IllegalArgumentException(CLINIC_NULL_ERROR);
+
+        if (requests == null)
+            throw new IllegalArgumentException(REQUESTS_NULL_ERROR);
+
+        expireHolds();
+        LocalDateTime now = LocalDateTime.now();
+        List<Either<List<BookingValidationError>, Booking>> results = new ArrayList<>(requests.size());
+        List<Booking> valid = new ArrayList<>(requests.size());
+        for (BookingRequest request : requests) {
+            if (request == null)
+                throw new IllegalArgumentException(REQUESTS_NULL_ERROR);
+            if (request.practitioner() != this)
+                throw new IllegalArgumentException(OTHER_PRACTITIONER_ERROR);
+            Either<List<BookingValidationError>, Booking> result = Booking.createBooking(
+                    now,
+                    clinic.getHours(),
+                    request.appointmentType(),
+                    request.date(),
+                    request.startTime(),
+                    request.patient(),
+                    this);
+            results.add(result);
+            result.getRight().ifPresent(booking -> {
+                booking.moveTo(Booking.BookingStatus.CONFIRMED);
+                valid.add(booking);
+            });
+        }
+
+        boolean[] added = calendar.addAllIfFree(valid);
+        RuntimeException unreported = null;
+        for (int i = 0, next = 0; i < results.size(); i++) {
+            if (results.get(i).isLeft())
+                continue;
+            Booking booking = valid.get(next);
+            if (!added[next++]) {
+                results.set(i, Either.left(BookingValidationErrors.toList(BookingValidationErrors.OVERLAPS_ANOTHER)));
+                continue;
+            }
+            synchronized (booking) {
+                if (booking.getStatus() != Booking.BookingStatus.CANCELLED)
+                    indexBooking(booking);
+                // A cancel that raced in ahead of this has already been reported, so this one mustn't follow it
+                if (booking.getStatus() == Booking.BookingStatus.CONFIRMED) {
+                    // Every booking is reported or withdrawn before the first failure is thrown
+                    try {
+                        reportAdded(booking);
+                    } catch (RuntimeException e) {
+                        if (unreported == null)
+                            unreported = e;
+                        else
+                            unreported.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        if (unreported != null)
+            throw unreported;
+        return List.copyOf(results);
+    }
 
     /**
      * Attempts to create an appointment for a specific booking.
@@ -172,7 +759,7 @@ public class Practitioner {
      * cannot be created, or the successfully created Appointment instance.
      */
     public Either<List<AppointmentValidationError>, Appointment> createAppointment(Booking booking) {
-        Either<List<AppointmentValidationError>, Appointment> result = Appointment.createAppointment(
+        long errors = Appointment.validate(
                 LocalDateTime.now(),
                 booking.getAppointmentType(),
                 booking.getDate(),
@@ -180,15 +767,172 @@ public class Practitioner {
                 booking.getPatient(),
                 this
         );
-        if (result.isLeft())
-            return result;
-
-        Appointment appointment = result.getRight().isPresent() ? result.getRight().get() : null;
-        if (appointment == null)
-            return Either.left(List.of(new AppointmentValidationError.CannotCreateAppointmentError()));
+        if (errors != AppointmentValidationErrors.NONE)
+            return Either.left(AppointmentValidationErrors.toList(errors));
 
+        Appointment appointment = new Appointment(booking.getAppointmentType(), booking.getDate(),
+                booking.getStartTime(), booking.getPatient(), this);
         appointments.add(appointment);
+        bookingEvents.appointmentCreated(appointment);
         return Either.right(appointment);
     }
 
-}
\ No newline at end of file
+    /**
+     * Moves a booking through its lifecycle and re-files it in the calendar as one step.
+     */
+    private boolean changeStatus(Booking booking, Booking.BookingStatus next) {
+        if (next == null)
+            throw new IllegalArgumentException(STATUS_NULL_ERROR);
+        if (booking == null || booking.getPractitioner() != this)
+            return false;
+        synchronized (booking) {
+            Booking.BookingStatus previous = booking.getStatus();
+            if (!calendar.contains(booking) || !booking.moveTo(next))
+                return false;
+            calendar.statusChanged(booking, previous);
+            if (next == Booking.BookingStatus.CANCELLED)
+                unindexBooking(booking);
+            if (next == Booking.BookingStatus.CONFIRMED)
+                reportAdded(booking);
+            else if (next == Booking.BookingStatus.CANCELLED && previous == Booking.BookingStatus.CONFIRMED)
+                bookingEvents.bookingCancelled(booking);
+            else if (next == Booking.BookingStatus.NO_SHOW || next == Booking.BookingStatus.COMPLETED)
+                bookingEvents.bookingStatusChanged(booking);
+            return true;
+        }
+    }
+
+    /**
+     * Reports a booking that has just been confirmed. If it can't be reported, e.g. the journal can't be written,
+     * the booking is withdrawn by cancelling it, so it doesn't hold its time and isn't kept only in memory. The
+     * cancellation is reported too in case the booking's own record still reaches the journal. Other changes stand
+     * when reporting them fails, as the journal keeps their records for its next sync.
+     *
+     * @throws RuntimeException whatever reporting the booking threw, once it has been withdrawn.
+     */
+    private void reportAdded(Booking booking) {
+        try {
+            bookingEvents.bookingAdded(booking);
+        } catch (RuntimeException e) {
+            booking.moveTo(Booking.BookingStatus.CANCELLED);
+            calendar.statusChanged(booking, Booking.BookingStatus.CONFIRMED);
+            unindexBooking(booking);
+            try {
+                bookingEvents.bookingCancelled(booking);
+            } catch (RuntimeException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    private void indexBooking(Booking booking) {
+        PatientBookingIndex index = patientBookings;
+        if (index != null)
+            index.add(booking);
+    }
+
+    private void unindexBooking(Booking booking) {
+        PatientBookingIndex index = patientBookings;
+        if (index != null)
+            index.remove(booking);
+    }
+
+    private void expireHolds() {
+        calendar.expireHolds(System.currentTimeMillis(), this::expireHold);
+    }
+
+    private void expireHold(Booking booking) {
+        changeStatus(booking, Booking.BookingStatus.CANCELLED);
+    }
+
+    /**
+     * Validates a booking for this practitioner, first releasing any expired holds so their times can be booked.
+     *
+     * @return the errors found as a bitset, see {@link BookingValidationErrors}
+     */
+    private long validateBooking(
+            Patient patient,
+            Clinic clinic,
+            Appointment.AppointmentType appointmentType,
+            LocalDate date,
+            LocalTime startTime,
+            ValidationMode mode) {
+
+        if (patient == null)
+            throw new IllegalArgumentException(PATIENT_NULL_ERROR);
+
+        if (clinic == null)
+            throw new IllegalArgumentException(CLINIC_NULL_ERROR);
+
+        if (appointmentType == null)
+            throw new IllegalArgumentException(TYPE_NULL_ERROR);
+
+        if (date == null || startTime == null)
+            throw new IllegalArgumentException(DATE_TIME_NULL_ERROR);
+
+        expireHolds();
+        return Booking.validate(
+                mode,
+                LocalDateTime.now(),
+                clinic.getHours(),
+                appointmentType,
+                date,
+                startTime,
+                patient,
+                this);
+    }
+
+    /**
+     * Emits one day's available start slots at a time, moving the cursor on only when the current day runs out.
+     */
+    private final class AvailableSlotSpliterator extends Spliterators.AbstractSpliterator<AvailableSlot> {
+
+        private final OccupancyCursor cursor;
+        private final ClinicHours clinicHours;
+        private final Appointment.AppointmentType appointmentType;
+        // The current day's available starts, reused for every day
+        private final long[] pendingStarts;
+        private int nextSlot = -1;
+
+        private AvailableSlotSpliterator(OccupancyCursor cursor, ClinicHours clinicHours,
+                                         Appointment.AppointmentType appointmentType) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+            this.cursor = cursor;
+            this.clinicHours = clinicHours;
+            this.appointmentType = appointmentType;
+            this.pendingStarts = clinicHours.getSlotGrid().empty();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super AvailableSlot> action) {
+            while (nextSlot < 0) {
+                if (!cursor.advance())
+                    return false;
+                availableStartSlots(clinicHours, cursor.date(), cursor.occupancy(), appointmentType, pendingStarts);
+                nextSlot = SlotGrid.nextSlot(pendingStarts, 0);
+            }
+            int slot = nextSlot;
+            nextSlot = SlotGrid.nextSlot(pendingStarts, slot + 1);
+            action.accept(new AvailableSlot(Practitioner.this, cursor.date(),
+                    clinicHours.getSlotGrid().startTimeOf(slot)));
+            return true;
+        }
+    }
+
+    private static final class SlotMasks {
+        private long[] occupied = new long[0];
+        private long[] starts = new long[0];
+
+        /**
+         * Sizes the masks for a grid, only allocating when the grid has a different number of words to the last.
+         */
+        private SlotMasks fit(SlotGrid grid) {
+            if (occupied.length != grid.getWords()) {
+                occupied = grid.empty();
+                starts = grid.empty();
+            }
+            return this;
+        }
+    }
+}
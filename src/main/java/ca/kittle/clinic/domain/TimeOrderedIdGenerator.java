@@ -0,0 +1,69 @@
+package ca.kittle.clinic.domain;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Version 7 UUIDs: the time in milliseconds in the top 48 bits, so ids made later sort later and indexes keyed
+ * on them are appended to rather than filled in at random places. Within a millisecond the 12 bits after the
+ * version are a counter, so each thread's ids are strictly increasing; if a thread uses up the counter, or the
+ * clock goes backwards, its ids run ahead of the clock until it catches up. The last 62 bits are random.
+ * <p>
+ * Each thread keeps its own counter and draws from {@link ThreadLocalRandom}, so threads never contend. That
+ * randomness isn't cryptographically strong: these ids are unique, not secret.
+ */
+public final class TimeOrderedIdGenerator implements IdGenerator {
+
+    private static final long TIMESTAMP_MASK = 0xFFFF_FFFF_FFFFL;
+    private static final int COUNTER_BITS = 12;
+    private static final int MAX_COUNTER = (1 << COUNTER_BITS) - 1;
+    // A new millisecond's counter starts in the lower half, leaving room for the ids that follow it
+    private static final int COUNTER_SEED_BOUND = 1 << (COUNTER_BITS - 1);
+    private static final long VERSION = 7L << COUNTER_BITS;
+    private static final long VARIANT = 0x8000_0000_0000_0000L;
+    private static final long RANDOM_MASK = 0x3FFF_FFFF_FFFF_FFFFL;
+
+    private final LongSupplier clock;
+    private final ThreadLocal<Sequence> sequences = ThreadLocal.withInitial(Sequence::new);
+
+    public TimeOrderedIdGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock The current time in milliseconds since the epoch.
+     */
+    TimeOrderedIdGenerator(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public UUID nextId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Sequence sequence = sequences.get();
+        long millis = clock.getAsLong();
+        if (millis > sequence.millis) {
+            sequence.millis = millis;
+            sequence.counter = random.nextInt(COUNTER_SEED_BOUND);
+        } else if (++sequence.counter > MAX_COUNTER) {
+            sequence.millis++;
+            sequence.counter = 0;
+        }
+        long mostSignificantBits = (sequence.millis & TIMESTAMP_MASK) << 16 | VERSION | sequence.counter;
+        long leastSignificantBits = VARIANT | random.nextLong() & RANDOM_MASK;
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    /**
+     * @return When an id from this generator was made, in milliseconds since the epoch.
+     */
+    public static long timestampOf(UUID id) {
+        return id.getMostSignificantBits() >>> 16;
+    }
+
+    private static final class Sequence {
+        private long millis = Long.MIN_VALUE;
+        private int counter;
+    }
+}
@@ -0,0 +1,821 @@
+package ca.kittle.clinic.domain.calendar;
+
+import ca.kittle.clinic.domain.Booking;
+import ca.kittle.clinic.domain.Booking.BookingStatus;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A practitioner's bookings indexed by date. Each date holds that day's bookings in start time order,
+ * so looking up a single day or a range of days costs O(log days + bookings returned) regardless of
+ * how much history the practitioner has.
+ * <p>
+ * The calendar is safe for concurrent use. Writes only ever contend with other writes to the same day, and
+ * the {@link ReservationStrategy} decides whether they lock or compare-and-set, see {@link DaySchedule}.
+ * <p>
+ * The calendar divides each day into the slots of a {@link SlotGrid}, 30 minutes unless it is given another,
+ * and knows which slots appointments may start in on each day of the week (its bookable starts) so it can keep
+ * a {@link FreeRunIndex} for first-fit searches.
+ * <p>
+ * A booking can be held rather than added outright, e.g. while the patient completes the booking. A held
+ * booking occupies its slots like any other until it is confirmed or its hold expires. Expiries are kept on a
+ * {@link TimingWheel} which is moved on by {@link #expireHolds}, so holds cost no thread or task of their own.
+ * <p>
+ * Day schedules only hold bookings whose {@link BookingStatus} occupies time. Every booking, including cancelled
+ * ones, is also filed in a {@link StatusIndex} so bookings can be looked up by status, and by its id so it can be
+ * found without knowing its date, e.g. when a patient cancels by reference number.
+ * <p>
+ * A calendar can be restored from a {@link DayArchive}. Archived days stay in the archive until a booking on
+ * them is needed, so restoring costs the same however much history the archive holds.
+ */
+public class BookingCalendar {
+
+    private static final String BOOKING_NULL_ERROR = "Booking cannot be null";
+    private static final String DATE_NULL_ERROR = "Date cannot be null";
+    private static final String DATE_RANGE_ERROR = "End date cannot be before start date";
+    private static final String STRATEGY_NULL_ERROR = "Reservation strategy cannot be null";
+    private static final String BATCH_NULL_ERROR = "Bookings cannot be null";
+    private static final String STATUS_NULL_ERROR = "Booking status cannot be null";
+    private static final String ARCHIVE_NULL_ERROR = "Day archive cannot be null";
+    private static final String ARCHIVE_NOT_EMPTY_ERROR = "Only an empty calendar can be restored from an archive";
+    private static final String STARTS_ERROR = "Bookable starts are needed for every day of the week, on the slot grid";
+    private static final String GRID_NULL_ERROR = "Slot grid cannot be null";
+    private static final String ARCHIVE_GRID_ERROR = "Day archive is on a different slot grid to the calendar";
+    private static final String LISTENER_NULL_ERROR = "Archive listener cannot be null";
+    private static final String GRID_IN_USE_ERROR = "Slot grid cannot change once the calendar has bookings";
+    private static final String ACTION_NULL_ERROR = "Booking action cannot be null";
+    private static final String PATIENT_NULL_ERROR = "Patient id cannot be null";
+    private static final String OCCUPANCY_WORDS_ERROR = "Occupancy must have as many words as the slot grid";
+    // Holds expire within a second of their deadline; one turn of the wheel covers about 17 minutes
+    private static final long HOLD_TICK_MILLIS = 1000;
+    private static final int HOLD_WHEEL_TICKS = 1024;
+
+    // Batch sort keys pack the date, the start second and the batch position into one long
+    private static final int INDEX_BITS = 31;
+    private static final int SECOND_BITS = 17;
+    private static final int DAY_BITS = Long.SIZE - 1 - INDEX_BITS - SECOND_BITS;
+
+    private final ConcurrentNavigableMap<LocalDate, DaySchedule> days = new ConcurrentSkipListMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final ReservationStrategy strategy;
+    private volatile SlotGrid grid;
+    private volatile long[][] bookableStarts;
+    private volatile FreeRunIndex freeRunIndex;
+    private final StatusIndex statusIndex = new StatusIndex();
+    private final ConcurrentMap<UUID, Booking> bookingsById = new ConcurrentHashMap<>();
+    private final TimingWheel<Booking> holdExpiry = new TimingWheel<>(HOLD_TICK_MILLIS, HOLD_WHEEL_TICKS);
+    // Bookings have no equality of their own, so holds are keyed by identity
+    private final ConcurrentMap<Booking, TimingWheel.Timeout<Booking>> holds = new ConcurrentHashMap<>();
+    private final Object archiveLock = new Object();
+    private volatile DayArchive archive = DayArchive.EMPTY;
+    // Set once every archived day has been read, so nothing needs to walk the archive again
+    private volatile boolean archiveLoaded;
+    private volatile Consumer<Booking> archiveListener = booking -> { };
+
+    public BookingCalendar() {
+        this(ReservationStrategy.LOCKING);
+    }
+
+    public BookingCalendar(ReservationStrategy strategy) {
+        this(strategy, SlotGrid.DEFAULT, SlotGrid.DEFAULT.mask(0, SlotGrid.DEFAULT.getSlotsPerDay()));
+    }
+
+    /**
+     * @param strategy       How concurrent writes to the same day are made atomic.
+     * @param grid           How each day is divided into slots.
+     * @param bookableStarts A mask of the slots appointments may start in.
+     */
+    public BookingCalendar(ReservationStrategy strategy, SlotGrid grid, long[] bookableStarts) {
+        this(strategy, grid, everyDay(bookableStarts));
+    }
+
+    /**
+     * @param strategy       How concurrent writes to the same day are made atomic.
+     * @param grid           How each day is divided into slots.
+     * @param bookableStarts A mask of the slots appointments may start in for each day of the week, indexed by
+     *                       {@link DayOfWeek#ordinal()}.
+     */
+    public BookingCalendar(ReservationStrategy strategy, SlotGrid grid, long[][] bookableStarts) {
+        if (strategy == null)
+            throw new IllegalArgumentException(STRATEGY_NULL_ERROR);
+        if (grid == null)
+            throw new IllegalArgumentException(GRID_NULL_ERROR);
+        this.strategy = strategy;
+        this.grid = grid;
+        this.bookableStarts = checkedStarts(grid, bookableStarts);
+        this.freeRunIndex = new FreeRunIndex(grid, this.bookableStarts);
+    }
+
+    /**
+     * Change the slots appointments may start in, e.g. when the practitioner starts working different hours.
+     * The first-fit summary is rebuilt from the days already read; archived days are summarised as they are read.
+     * <p>
+     * Every day's occupancy is recorded on the grid, so the grid can only change before the calendar takes any
+     * bookings or is restored from an archive, e.g. when the practitioner joins a clinic.
+     *
+     * @param grid           How each day is divided into slots.
+     * @param bookableStarts A mask of the slots appointments may start in for each day of the week, indexed by
+     *                       {@link DayOfWeek#ordinal()}.
+     * @throws IllegalStateException if the grid changes once the calendar has bookings or an archive.
+     */
+    public synchronized void setSlots(SlotGrid grid, long[][] bookableStarts) {
+        if (grid == null)
+            throw new IllegalArgumentException(GRID_NULL_ERROR);
+        long[][] starts = checkedStarts(grid, bookableStarts);
+        if (!grid.equals(this.grid)) {
+            if (!days.isEmpty() || archive != DayArchive.EMPTY)
+                throw new IllegalStateException(GRID_IN_USE_ERROR);
+            this.grid = grid;
+        }
+        // Published before it is filled so a concurrent change either updates it or is seen while filling it
+        FreeRunIndex rebuilt = new FreeRunIndex(grid, starts);
+        this.bookableStarts = starts;
+        this.freeRunIndex = rebuilt;
+        days.values().forEach(rebuilt::update);
+    }
+
+    /**
+     * Restores the calendar from an archive of days. Nothing is read from the archive until it is needed.
+     *
+     * @param archive The archived days, on the calendar's slot grid.
+     * @throws IllegalStateException if the calendar already has bookings or has already been restored.
+     */
+    public synchronized void restore(DayArchive archive) {
+        if (archive == null)
+            throw new IllegalArgumentException(ARCHIVE_NULL_ERROR);
+        if (!canRestore())
+            throw new IllegalStateException(ARCHIVE_NOT_EMPTY_ERROR);
+        if (archive != DayArchive.EMPTY && !archive.grid().equals(grid))
+            throw new IllegalArgumentException(ARCHIVE_GRID_ERROR);
+        this.archive = archive;
+        archiveLoaded = false;
+        size.addAndGet(archive.occupyingBookings());
+    }
+
+    /**
+     * @return {@code true} if the calendar can still be {@link #restore restored}, i.e. it has never had a booking
+     * and hasn't been restored already.
+     */
+    public boolean canRestore() {
+        return days.isEmpty() && archive == DayArchive.EMPTY;
+    }
+
+    /**
+     * Tells a listener about every booking read from the archive from now on, whatever its status, once its day
+     * is in the calendar, e.g. to index restored bookings as they are read.
+     *
+     * @param listener Called for each booking read, while no other day can be read.
+     */
+    public void setArchiveListener(Consumer<Booking> listener) {
+        if (listener == null)
+            throw new IllegalArgumentException(LISTENER_NULL_ERROR);
+        this.archiveListener = listener;
+    }
+
+    /**
+     * Reads the archived days between two dates (inclusive) that a patient has bookings on and that haven't been
+     * read yet, so their bookings are reported to the {@link #setArchiveListener listener}. The archive finds the
+     * patient's days, see {@link DayArchive#datesOf}, so no one else's days are read.
+     *
+     * @param patientId The patient's id.
+     * @param fromDate  The first date to read.
+     * @param toDate    The last date to read.
+     */
+    public void readArchive(UUID patientId, LocalDate fromDate, LocalDate toDate) {
+        if (patientId == null)
+            throw new IllegalArgumentException(PATIENT_NULL_ERROR);
+        if (fromDate == null || toDate == null)
+            throw new IllegalArgumentException(DATE_NULL_ERROR);
+        if (toDate.isBefore(fromDate))
+            throw new IllegalArgumentException(DATE_RANGE_ERROR);
+        if (archiveLoaded)
+            return;
+        for (LocalDate date : archive.datesOf(patientId, fromDate, toDate)) {
+            if (!days.containsKey(date))
+                loadArchivedDay(date);
+        }
+    }
+
+    /**
+     * Adds a booking to the day it is for.
+     *
+     * @param booking The booking to add.
+     */
+    public void add(Booking booking) {
+        if (booking == null)
+            throw new IllegalArgumentException(BOOKING_NULL_ERROR);
+        DaySchedule day = dayFor(booking.getDate());
+        day.add(booking);
+        freeRunIndex.update(day);
+        file(booking);
+        size.incrementAndGet();
+    }
+
+    /**
+     * Adds a booking only if none of its slots are already booked. The check and the insert are atomic
+     * with respect to every other change to the same day.
+     *
+     * @param booking The booking to add.
+     * @return {@code true} if the booking was added, {@code false} if it overlaps an existing booking.
+     */
+    public boolean addIfFree(Booking booking) {
+        if (booking == null)
+            throw new IllegalArgumentException(BOOKING_NULL_ERROR);
+        DaySchedule day = dayFor(booking.getDate());
+        if (!day.addIfFree(booking))
+            return false;
+        freeRunIndex.update(day);
+        file(booking);
+        size.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Adds a booking only if none of its slots are already booked, holding it until a deadline. Unless it is
+     * confirmed first, the booking is removed by the first {@link #expireHolds} call at or after the deadline.
+     *
+     * @param booking         The booking to hold.
+     * @param expiresAtMillis When the hold expires, in milliseconds since the epoch.
+     * @return {@code true} if the booking was held, {@code false} if it overlaps an existing booking.
+     */
+    public boolean holdIfFree(Booking booking, long expiresAtMillis) {
+        if (!addIfFree(booking))
+            return false;
+        // Scheduling inside compute means an expiry can't look the hold up before it is recorded
+        holds.compute(booking, (held, previous) -> holdExpiry.schedule(held, expiresAtMillis));
+        return true;
+    }
+
+    /**
+     * Makes a held booking permanent.
+     *
+     * @param booking The held booking.
+     * @return {@code true} if the booking was confirmed, {@code false} if it was not held or its hold expired.
+     */
+    public boolean confirmHold(Booking booking) {
+        if (booking == null)
+            return false;
+        TimingWheel.Timeout<Booking> timeout = holds.remove(booking);
+        if (timeout == null)
+            return false;
+        timeout.cancel();
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the booking is held and has not yet been confirmed or expired.
+     */
+    public boolean isHeld(Booking booking) {
+        return booking != null && holds.containsKey(booking);
+    }
+
+    /**
+     * Finds every held booking whose hold expired by the given time. The calendar stops holding them and hands
+     * them back, typically to be cancelled so their slots are released. Cheap when nothing is due, so it can be
+     * called before every read.
+     *
+     * @param nowMillis The current time in milliseconds since the epoch.
+     * @param expired   Called with each booking whose hold expired.
+     */
+    public void expireHolds(long nowMillis, Consumer<Booking> expired) {
+        holdExpiry.advance(nowMillis, booking -> {
+            // Losing the race to a confirmation leaves the booking in place
+            if (holds.remove(booking) != null)
+                expired.accept(booking);
+        });
+    }
+
+    /**
+     * Adds a batch of bookings, each only if it overlaps neither a booking already in the calendar nor an
+     * earlier starting booking in the batch. The batch is sorted once by date and start time, then each day
+     * is checked and updated in a single pass, see {@link DaySchedule#addAllIfFree}, so a batch costs
+     * O(n log n) rather than a check and a copy of the day for every booking.
+     *
+     * @param bookings The bookings to add, in any order.
+     * @return Whether each booking was added, in the same order as the bookings.
+     */
+    public boolean[] addAllIfFree(List<Booking> bookings) {
+        if (bookings == null)
+            throw new IllegalArgumentException(BATCH_NULL_ERROR);
+        int[] order = sortedByDateAndTime(bookings);
+        boolean[] added = new boolean[bookings.size()];
+        int addedCount = 0;
+        for (int first = 0; first < order.length; ) {
+            LocalDate date = bookings.get(order[first]).getDate();
+            int last = first;
+            while (last < order.length && bookings.get(order[last]).getDate().equals(date))
+                last++;
+            Booking[] batch = new Booking[last - first];
+            for (int i = 0; i < batch.length; i++)
+                batch[i] = bookings.get(order[first + i]);
+
+            DaySchedule day = dayFor(date);
+            boolean[] accepted = day.addAllIfFree(batch);
+            for (int i = 0; i < accepted.length; i++) {
+                added[order[first + i]] = accepted[i];
+                if (accepted[i]) {
+                    file(batch[i]);
+                    addedCount++;
+                }
+            }
+            freeRunIndex.update(day);
+            first = last;
+        }
+        size.addAndGet(addedCount);
+        return added;
+    }
+
+    /**
+     * Removes a booking from the calendar altogether, leaving no record of it. Emptied days are kept so a
+     * concurrent add can never land on a day that has just been dropped from the map.
+     *
+     * @param booking The booking to remove.
+     * @return {@code true} if the booking was removed, {@code false} if it was not in the calendar.
+     */
+    public boolean remove(Booking booking) {
+        if (booking == null || !statusIndex.remove(booking.getStatus(), booking))
+            return false;
+        bookingsById.remove(booking.getId(), booking);
+        release(booking);
+        dropHold(booking);
+        return true;
+    }
+
+    /**
+     * Re-files a booking whose status has just changed, releasing its slots if the new status no longer
+     * occupies time. Changes to the same booking must not run concurrently.
+     *
+     * @param booking  The booking, already in its new status.
+     * @param previous The status the booking had before.
+     * @return {@code true} if the booking was re-filed, {@code false} if it was not in the calendar.
+     */
+    public boolean statusChanged(Booking booking, BookingStatus previous) {
+        if (booking == null)
+            throw new IllegalArgumentException(BOOKING_NULL_ERROR);
+        if (previous == null)
+            throw new IllegalArgumentException(STATUS_NULL_ERROR);
+        if (!statusIndex.remove(previous, booking))
+            return false;
+        statusIndex.add(booking);
+        if (previous.isOccupyingTime() && !booking.getStatus().isOccupyingTime())
+            release(booking);
+        if (previous == BookingStatus.PENDING)
+            dropHold(booking);
+        return true;
+    }
+
+    /**
+     * Finds a booking by its id in O(1), whatever its status. A booking on an archived day that hasn't been read
+     * yet is looked up in the archive, see {@link DayArchive#dateOf}, and only its day is read.
+     *
+     * @param id The booking's id.
+     * @return The booking, or empty if the calendar has no booking with the id.
+     */
+    public Optional<Booking> find(UUID id) {
+        if (id == null)
+            return Optional.empty();
+        Booking booking = bookingsById.get(id);
+        if (booking == null && !archiveLoaded) {
+            LocalDate date = archive.dateOf(id);
+            if (date != null && bookedDay(date) != null)
+                booking = bookingsById.get(id);
+        }
+        return Optional.ofNullable(booking);
+    }
+
+    /**
+     * @return {@code true} if the booking is in the calendar, whatever its status.
+     */
+    public boolean contains(Booking booking) {
+        return booking != null && statusIndex.contains(booking);
+    }
+
+    /**
+     * Retrieves the bookings that occupy time on a specific date in start time order. The day is kept in that
+     * order as bookings come and go, so this neither sorts nor copies and is cheap enough to poll.
+     *
+     * @param forDate The date for which bookings should be retrieved.
+     * @return A read-only view of the bookings on the date when it was called; later changes don't show in it.
+     */
+    public List<Booking> listBookings(LocalDate forDate) {
+        if (forDate == null)
+            throw new IllegalArgumentException(DATE_NULL_ERROR);
+        DaySchedule day = bookedDay(forDate);
+        return day == null ? List.of() : day.bookings();
+    }
+
+    /**
+     * Retrieves the bookings that occupy time between two dates (inclusive) ordered by date and then start time.
+     *
+     * @param fromDate The first date of the range.
+     * @param toDate   The last date of the range.
+     * @return An unmodifiable list of the bookings in the range.
+     */
+    public List<Booking> listBookings(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate == null || toDate == null)
+            throw new IllegalArgumentException(DATE_NULL_ERROR);
+        if (toDate.isBefore(fromDate))
+            throw new IllegalArgumentException(DATE_RANGE_ERROR);
+        loadArchivedDays(fromDate, toDate);
+        List<Booking> result = new ArrayList<>();
+        days.subMap(fromDate, true, toDate, true).values().forEach(day -> day.copyInto(result));
+        return List.copyOf(result);
+    }
+
+    /**
+     * Retrieves the bookings with a status on a specific date in start time order, e.g. today's confirmed bookings.
+     *
+     * @param forDate The date for which bookings should be retrieved.
+     * @param status  The status of the bookings to retrieve.
+     * @return An unmodifiable list of the bookings on the date with the status.
+     */
+    public List<Booking> listBookings(LocalDate forDate, BookingStatus status) {
+        if (forDate == null)
+            throw new IllegalArgumentException(DATE_NULL_ERROR);
+        if (status == null)
+            throw new IllegalArgumentException(STATUS_NULL_ERROR);
+        bookedDay(forDate);
+        return statusIndex.list(status, forDate);
+    }
+
+    /**
+     * Retrieves the bookings with a status between two dates (inclusive) ordered by date and then start time,
+     * e.g. this month's no-shows.
+     *
+     * @param fromDate The first date of the range.
+     * @param toDate   The last date of the range.
+     * @param status   The status of the bookings to retrieve.
+     * @return An unmodifiable list of the bookings in the range with the status.
+     */
+    public List<Booking> listBookings(LocalDate fromDate, LocalDate toDate, BookingStatus status) {
+        if (fromDate == null || toDate == null)
+            throw new IllegalArgumentException(DATE_NULL_ERROR);
+        if (toDate.isBefore(fromDate))
+            throw new IllegalArgumentException(DATE_RANGE_ERROR);
+        if (status == null)
+            throw new IllegalArgumentException(STATUS_NULL_ERROR);
+        loadArchivedDays(fromDate, toDate);
+        return statusIndex.list(status, fromDate, toDate);
+    }
+
+    /**
+     * Retrieves the occupancy for a date, see {@link SlotGrid}.
+     *
+     * @param forDate The date to get the occupancy for.
+     * @return A bitset with a bit set for every booked slot on the date, in as many words as the grid needs.
+     */
+    public long[] occupancy(LocalDate forDate) {
+        if (forDate == null)
+            throw new IllegalArgumentException(DATE_NULL_ERROR);
+        long[] occupied = grid.empty();
+        readOccupancy(forDate, occupied);
+        return occupied;
+    }
+
+    /**
+     * As {@link #occupancy(LocalDate)}, writing the occupancy into an existing array so a caller reading it
+     * often needn't allocate for each read.
+     *
+     * @param forDate The date to get the occupancy for.
+     * @param into    Where to write the occupancy, in as many words as the grid needs.
+     */
+    public void occupancy(LocalDate forDate, long[] into) {
+        if (forDate == null)
+            throw new IllegalArgumentException(DATE_NULL_ERROR);
+        if (into == null || into.length != grid.getWords())
+            throw new IllegalArgumentException(OCCUPANCY_WORDS_ERROR);
+        readOccupancy(forDate, into);
+    }
+
+    /**
+     * Walk the occupancy of every date between two dates (inclusive) without looking each date up.
+     *
+     * @param fromDate The first date of the range.
+     * @param toDate   The last date of the range.
+     * @return A cursor positioned before the first date.
+     */
+    public OccupancyCursor occupancyCursor(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate == null || toDate == null)
+            throw new IllegalArgumentException(DATE_NULL_ERROR);
+        if (toDate.isBefore(fromDate))
+            throw new IllegalArgumentException(DATE_RANGE_ERROR);
+        return new OccupancyCursor(
+                days.subMap(fromDate, true, toDate, true).values().iterator(), archive, grid, fromDate, toDate);
+    }
+
+    /**
+     * Finds the first run of free slots long enough for an appointment, starting the search at a date.
+     * Weeks the {@link FreeRunIndex} shows as too full are stepped over in one go. The search always ends
+     * because every date after the last booked one is free.
+     *
+     * @param fromDate     The first date to search.
+     * @param firstDaySlot The earliest slot the run may start in on the first date, e.g. to respect a lead time.
+     * @param slotCount    The number of consecutive free slots needed.
+     * @return The date and first slot of the earliest run, or empty if the run can never fit in a day.
+     */
+    public Optional<SlotMatch> findFirstFit(LocalDate fromDate, int firstDaySlot, int slotCount) {
+        return findFirstFit(fromDate, firstDaySlot, slotCount, bookableStarts);
+    }
+
+    /**
+     * Finds the first run of free slots long enough for an appointment, only starting in the given slots of
+     * each day of the week, e.g. the starts that leave room for the whole appointment before closing. The
+     * occupancy and the runs are read into two arrays reused for every date searched.
+     *
+     * @param fromDate     The first date to search.
+     * @param firstDaySlot The earliest slot the run may start in on the first date, e.g. to respect a lead time.
+     * @param slotCount    The number of consecutive free slots needed.
+     * @param starts       The slots the run may start in for each day of the week, indexed by
+     *                     {@link DayOfWeek#ordinal()}.
+     * @return The date and first slot of the earliest run, or empty if the run can never fit in a day.
+     */
+    public Optional<SlotMatch> findFirstFit(LocalDate fromDate, int firstDaySlot, int slotCount, long[][] starts) {
+        if (fromDate == null)
+            throw new IllegalArgumentException(DATE_NULL_ERROR);
+        SlotGrid slotGrid = grid;
+        checkStarts(slotGrid, starts);
+        long[] occupied = slotGrid.empty();
+        long[] fits = slotGrid.empty();
+        slotGrid.freeRunStarts(occupied, slotCount, fits);
+        boolean anyDayFits = false;
+        for (long[] dayStarts : starts)
+            anyDayFits |= SlotGrid.intersects(fits, dayStarts);
+        if (!anyDayFits)
+            return Optional.empty();
+
+        readOccupancy(fromDate, occupied);
+        slotGrid.freeRunStarts(occupied, slotCount, fits);
+        SlotGrid.retain(fits, starts[fromDate.getDayOfWeek().ordinal()]);
+        int firstDayFit = SlotGrid.nextSlot(fits, Math.max(0, firstDaySlot));
+        if (firstDayFit >= 0)
+            return Optional.of(new SlotMatch(fromDate, firstDayFit));
+
+        LocalDate date = fromDate.plusDays(1);
+        FreeRunIndex index = freeRunIndex;
+        while (true) {
+            if (index.isWeekFull(date, slotCount)) {
+                date = FreeRunIndex.nextWeek(date);
+                continue;
+            }
+            long[] dayStarts = starts[date.getDayOfWeek().ordinal()];
+            if (!SlotGrid.isEmpty(dayStarts)) {
+                readOccupancy(date, occupied);
+                slotGrid.freeRunStarts(occupied, slotCount, fits);
+                SlotGrid.retain(fits, dayStarts);
+                int fit = SlotGrid.nextSlot(fits, 0);
+                if (fit >= 0)
+                    return Optional.of(new SlotMatch(date, fit));
+            }
+            date = date.plusDays(1);
+        }
+    }
+
+    /**
+     * @return An unmodifiable list of every booking in the calendar whatever its status, in no particular order,
+     * without reading anything from the archive.
+     */
+    public List<Booking> loadedBookings() {
+        return List.copyOf(bookingsById.values());
+    }
+
+    /**
+     * Walks every booking in the calendar whatever its status, ordered by date and then start time, e.g. to copy
+     * the calendar out. Archived days that haven't been read are walked straight from the archive rather than read
+     * into the calendar, so walking a restored calendar doesn't leave its whole history on the heap.
+     *
+     * @param action Called for each booking.
+     */
+    public void forEachBooking(Consumer<Booking> action) {
+        if (action == null)
+            throw new IllegalArgumentException(ACTION_NULL_ERROR);
+        LocalDate loaded = days.ceilingKey(LocalDate.MIN);
+        LocalDate archived = archiveLoaded ? null : archive.nextDate(LocalDate.MIN);
+        while (loaded != null || archived != null) {
+            LocalDate date = archived == null || loaded != null && loaded.isBefore(archived) ? loaded : archived;
+            if (days.containsKey(date))
+                everyBooking(date).forEach(action);
+            else
+                archive.bookings(date).forEach(action);
+            if (date.equals(LocalDate.MAX))
+                return;
+            loaded = days.higherKey(date);
+            if (archived != null && !archived.isAfter(date))
+                archived = archive.nextDate(date.plusDays(1));
+        }
+    }
+
+    /**
+     * @return An unmodifiable list of every booking in the calendar that occupies time, ordered by date and then
+     * start time.
+     */
+    public List<Booking> allBookings() {
+        loadArchive();
+        List<Booking> result = new ArrayList<>(size());
+        days.values().forEach(day -> day.copyInto(result));
+        return List.copyOf(result);
+    }
+
+    public ReservationStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return How each day is divided into slots.
+     */
+    public SlotGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * @return A mask of the slots appointments may start in on the day of the week.
+     */
+    public long[] getBookableStarts(DayOfWeek day) {
+        return bookableStarts[day.ordinal()].clone();
+    }
+
+    /**
+     * @return The number of bookings that occupy time.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Sorts the batch positions by date, then start time, then position. Sorting packed primitive keys avoids
+     * a comparator call per comparison; batches spanning too many years for the key fall back to one.
+     */
+    private static int[] sortedByDateAndTime(List<Booking> bookings) {
+        long firstDay = Long.MAX_VALUE;
+        long lastDay = Long.MIN_VALUE;
+        for (Booking booking : bookings) {
+            if (booking == null)
+                throw new IllegalArgumentException(BOOKING_NULL_ERROR);
+            firstDay = Math.min(firstDay, booking.getDate().toEpochDay());
+            lastDay = Math.max(lastDay, booking.getDate().toEpochDay());
+        }
+        int[] order = new int[bookings.size()];
+        if (lastDay - firstDay >= 1L << DAY_BITS) {
+            Integer[] boxed = new Integer[order.length];
+            Arrays.setAll(boxed, i -> i);
+            Arrays.sort(boxed, (left, right) -> {
+                Booking one = bookings.get(left);
+                Booking other = bookings.get(right);
+                int byDate = one.getDate().compareTo(other.getDate());
+                return byDate != 0 ? byDate : one.getStartTime().compareTo(other.getStartTime());
+            });
+            Arrays.setAll(order, i -> boxed[i]);
+            return order;
+        }
+        long[] keys = new long[order.length];
+        for (int i = 0; i < keys.length; i++) {
+            Booking booking = bookings.get(i);
+            long day = booking.getDate().toEpochDay() - firstDay;
+            long second = booking.getStartTime().toSecondOfDay();
+            keys[i] = (day << (SECOND_BITS + INDEX_BITS)) | (second << INDEX_BITS) | i;
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++)
+            order[i] = (int) (keys[i] & ((1L << INDEX_BITS) - 1));
+        return order;
+    }
+
+    private static long[][] everyDay(long[] bookableStarts) {
+        long[][] starts = new long[DayOfWeek.values().length][];
+        Arrays.fill(starts, bookableStarts);
+        return starts;
+    }
+
+    private static long[][] checkedStarts(SlotGrid grid, long[][] bookableStarts) {
+        checkStarts(grid, bookableStarts);
+        long[][] starts = new long[bookableStarts.length][];
+        for (int day = 0; day < starts.length; day++)
+            starts[day] = bookableStarts[day].clone();
+        return starts;
+    }
+
+    private static void checkStarts(SlotGrid grid, long[][] bookableStarts) {
+        if (bookableStarts == null || bookableStarts.length != DayOfWeek.values().length)
+            throw new IllegalArgumentException(STARTS_ERROR);
+        for (long[] dayStarts : bookableStarts) {
+            if (dayStarts == null || dayStarts.length != grid.getWords())
+                throw new IllegalArgumentException(STARTS_ERROR);
+        }
+    }
+
+    private void readOccupancy(LocalDate date, long[] into) {
+        DaySchedule day = days.get(date);
+        if (day == null)
+            archive.readOccupancy(date, into);
+        else
+            day.readOccupancy(into);
+    }
+
+    /**
+     * @return Every booking on a day in the calendar whatever its status, in start time order.
+     */
+    private List<Booking> everyBooking(LocalDate date) {
+        List<Booking> bookings = new ArrayList<>();
+        for (BookingStatus status : BookingStatus.values())
+            bookings.addAll(statusIndex.list(status, date));
+        bookings.sort(Comparator.comparing(Booking::getStartTime));
+        return bookings;
+    }
+
+    private void release(Booking booking) {
+        DaySchedule day = days.get(booking.getDate());
+        if (day == null || !day.remove(booking))
+            return;
+        freeRunIndex.update(day);
+        size.decrementAndGet();
+    }
+
+    private void dropHold(Booking booking) {
+        TimingWheel.Timeout<Booking> timeout = holds.remove(booking);
+        if (timeout != null)
+            timeout.cancel();
+    }
+
+    /**
+     * @return The schedule for a date, loading it from the archive if need be, or {@code null} if it has no bookings.
+     */
+    private DaySchedule bookedDay(LocalDate date) {
+        DaySchedule day = days.get(date);
+        if (day != null || !date.equals(archive.nextDate(date)))
+            return day;
+        return loadArchivedDay(date);
+    }
+
+    private void loadArchive() {
+        if (archiveLoaded)
+            return;
+        loadArchivedDays(LocalDate.MIN, LocalDate.MAX);
+        archiveLoaded = true;
+    }
+
+    /**
+     * Files a booking new to the calendar under its status and its id.
+     */
+    private void file(Booking booking) {
+        statusIndex.add(booking);
+        bookingsById.put(booking.getId(), booking);
+    }
+
+    private void loadArchivedDays(LocalDate fromDate, LocalDate toDate) {
+        LocalDate date = archive.nextDate(fromDate);
+        while (date != null && !date.isAfter(toDate)) {
+            if (!days.containsKey(date))
+                loadArchivedDay(date);
+            date = date.equals(LocalDate.MAX) ? null : archive.nextDate(date.plusDays(1));
+        }
+    }
+
+    /**
+     * Loads are serialised so each archived day is only ever turned into one set of bookings, and the day is
+     * filed in full before it is published so it can be changed as soon as it can be seen. The archive already
+     * counted its bookings in the calendar's size.
+     */
+    private DaySchedule loadArchivedDay(LocalDate date) {
+        synchronized (archiveLock) {
+            DaySchedule day = days.get(date);
+            if (day != null)
+                return day;
+            List<Booking> archived = archive.bookings(date);
+            DaySchedule loaded = new DaySchedule(date, strategy, grid);
+            for (Booking booking : archived) {
+                if (booking.getStatus().isOccupyingTime())
+                    loaded.add(booking);
+                file(booking);
+            }
+            freeRunIndex.update(loaded);
+            days.put(date, loaded);
+            archived.forEach(archiveListener);
+            return loaded;
+        }
+    }
+
+    private DaySchedule dayFor(LocalDate date) {
+        DaySchedule day = bookedDay(date);
+        if (day != null)
+            return day;
+        DaySchedule created = new DaySchedule(date, strategy, grid);
+        DaySchedule raced = days.putIfAbsent(date, created);
+        return raced == null ? created : raced;
+    }
+}
@@ -0,0 +1,552 @@
+package ca.kittle.clinic.domain.calendar;
+
+import ca.kittle.clinic.domain.Appointment;
+import ca.kittle.clinic.domain.Booking;
+import ca.kittle.clinic.domain.Booking.BookingStatus;
+import ca.kittle.clinic.domain.Patient;
+import ca.kittle.clinic.domain.Practitioner;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Bookings packed into fixed-width columns outside the Java heap, for history too large to keep as
+ * {@link Booking} objects. Each booking is a start minute, an appointment type, a status, a patient id and its
+ * own id, plus its places in its practitioner's id and patient orders, 44 bytes in all, and none of it is traced
+ * by the garbage collector.
+ * <p>
+ * The store is built once and never changes. Bookings are ordered by practitioner, date and start time. The epoch
+ * day, the practitioner and the occupancy are held once per practitioner-day in day columns that record where
+ * each day's bookings start, so a practitioner's day is found by binary search. Occupancy is recorded on the
+ * {@link SlotGrid} the store is built for, in as many words a day as the grid needs. Each practitioner's bookings
+ * are also listed in id order, so a booking's date is found from its id by binary search too, and in patient order,
+ * so the days a patient is on are found without reading anyone else's bookings.
+ * A practitioner's calendar is restored from {@link #archiveFor}, after which every question the practitioner
+ * answers reads the columns in place; a day's {@link Booking} objects are only built once something needs them.
+ */
+public final class ColumnarBookingStore {
+
+    private static final String BOOKING_NULL_ERROR = "Booking cannot be null";
+    private static final String PRACTITIONER_NULL_ERROR = "Practitioner cannot be null";
+    private static final String PATIENTS_NULL_ERROR = "Patient lookup cannot be null";
+    private static final String UNKNOWN_PATIENT_ERROR = "Stored booking is for an unknown patient: ";
+    private static final String TOO_MANY_BOOKINGS_ERROR = "Too many bookings for one store";
+    private static final String STORE_TOO_LARGE_ERROR = "Too many bookings or days for one store";
+    private static final String GRID_NULL_ERROR = "Slot grid cannot be null";
+
+    // Bytes per booking across all the booking columns
+    public static final int BOOKING_BYTES = Short.BYTES + 2 + 4 * Long.BYTES + 2 * Integer.BYTES;
+    private static final int MAX_BOOKINGS = Integer.MAX_VALUE / Long.BYTES;
+    private static final Appointment.AppointmentType[] APPOINTMENT_TYPES = Appointment.AppointmentType.values();
+    private static final BookingStatus[] STATUSES = BookingStatus.values();
+
+    private final SlotGrid grid;
+    // Booking columns, ordered by practitioner, date and start minute
+    private final ShortBuffer startMinutes;
+    private final ByteBuffer types;
+    private final ByteBuffer statuses;
+    private final LongBuffer patientHighBits;
+    private final LongBuffer patientLowBits;
+    private final LongBuffer idHighBits;
+    private final LongBuffer idLowBits;
+    // Positions of each practitioner's bookings ordered by id, in the same runs as the booking columns
+    private final IntBuffer idOrder;
+    // Positions of each practitioner's bookings ordered by patient and then date, in the same runs
+    private final IntBuffer patientOrder;
+    // Day columns, one entry per practitioner-day, with the grid's words of occupancy each
+    private final IntBuffer dayEpochDays;
+    private final IntBuffer dayFirstBookings;
+    private final LongBuffer dayOccupancies;
+    private final int dayBytes;
+    // Practitioner table, each practitioner's days are the run from their first day to the next one's
+    private final Map<UUID, Integer> practitionerIndexes;
+    private final int[] practitionerFirstDays;
+    private final int[] practitionerOccupyingBookings;
+    private final int[] practitionerFirstBookings;
+    private final int size;
+    private final int dayCount;
+
+    private ColumnarBookingStore(Builder builder, int[] order, int[] practitionerCounts) {
+        this.grid = builder.grid;
+        this.size = order.length;
+        this.startMinutes = column(size, Short.BYTES).asShortBuffer();
+        this.types = ByteBuffer.allocateDirect(size);
+        this.statuses = ByteBuffer.allocateDirect(size);
+        this.patientHighBits = longColumn(size);
+        this.patientLowBits = longColumn(size);
+        this.idHighBits = longColumn(size);
+        this.idLowBits = longColumn(size);
+        this.idOrder = intColumn(size);
+        this.patientOrder = intColumn(size);
+        this.practitionerIndexes = Map.copyOf(builder.practitionerIndexes);
+
+        int practitionerCount = practitionerCounts.length;
+        this.practitionerFirstDays = new int[practitionerCount + 1];
+        this.practitionerOccupyingBookings = new int[practitionerCount];
+        int days = 0;
+        for (int i = 0; i < size; i++) {
+            if (startsDay(builder, order, i))
+                days++;
+        }
+        this.dayCount = days;
+        this.dayEpochDays = intColumn(days);
+        this.dayFirstBookings = intColumn(days);
+        this.dayOccupancies = longColumn(checkedLength(days, grid.getWords()));
+        this.dayBytes = 2 * Integer.BYTES + grid.getWords() * Long.BYTES;
+        long[] occupancy = grid.empty();
+
+        int day = -1;
+        int practitioner = -1;
+        for (int i = 0; i < size; i++) {
+            int from = order[i];
+            if (startsDay(builder, order, i)) {
+                if (day >= 0)
+                    dayOccupancies.put(day * occupancy.length, occupancy);
+                Arrays.fill(occupancy, 0L);
+                day++;
+                // Practitioners are numbered in order, and each one's days follow the last's
+                for (int next = practitioner + 1; next <= builder.practitioners[from]; next++)
+                    practitionerFirstDays[next] = day;
+                practitioner = builder.practitioners[from];
+                dayEpochDays.put(day, builder.epochDays[from]);
+                dayFirstBookings.put(day, i);
+            }
+            startMinutes.put(i, builder.startMinutes[from]);
+            types.put(i, builder.types[from]);
+            statuses.put(i, builder.statuses[from]);
+            patientHighBits.put(i, builder.patientHighBits[from]);
+            patientLowBits.put(i, builder.patientLowBits[from]);
+            idHighBits.put(i, builder.idHighBits[from]);
+            idLowBits.put(i, builder.idLowBits[from]);
+            if (STATUSES[builder.statuses[from]].isOccupyingTime()) {
+                practitionerOccupyingBookings[practitioner]++;
+                LocalTime startTime = startTimeOf(builder.startMinutes[from]);
+                Appointment.AppointmentType type = APPOINTMENT_TYPES[builder.types[from]];
+                grid.include(occupancy, startTime, startTime.plus(type.getDuration()));
+            }
+        }
+        if (day >= 0)
+            dayOccupancies.put(day * occupancy.length, occupancy);
+        for (int skipped = practitioner + 1; skipped <= practitionerCount; skipped++)
+            practitionerFirstDays[skipped] = days;
+
+        this.practitionerFirstBookings = new int[practitionerCount + 1];
+        for (int i = 0; i < practitionerCount; i++)
+            practitionerFirstBookings[i + 1] = practitionerFirstBookings[i] + practitionerCounts[i];
+        for (int i = 0; i < practitionerCount; i++) {
+            int from = practitionerFirstBookings[i];
+            int to = practitionerFirstBookings[i + 1];
+            putOrder(idOrder, from, to, (first, second) -> compareId(idHighBits.get(first), idLowBits.get(first),
+                    idHighBits.get(second), idLowBits.get(second)));
+            // The sort is stable and positions run in date order, so each patient's bookings stay in date order
+            putOrder(patientOrder, from, to, (first, second) -> compareId(patientHighBits.get(first),
+                    patientLowBits.get(first), patientHighBits.get(second), patientLowBits.get(second)));
+        }
+    }
+
+    private static void putOrder(IntBuffer column, int from, int to, IndexSort.Order order) {
+        int[] positions = new int[to - from];
+        for (int i = 0; i < positions.length; i++)
+            positions[i] = from + i;
+        IndexSort.sort(positions, order);
+        column.put(from, positions);
+    }
+
+    private static int compareId(long high, long low, long otherHigh, long otherLow) {
+        int compared = Long.compare(high, otherHigh);
+        return compared != 0 ? compared : Long.compare(low, otherLow);
+    }
+
+    private static boolean startsDay(Builder builder, int[] order, int position) {
+        if (position == 0)
+            return true;
+        int booking = order[position];
+        int previous = order[position - 1];
+        return builder.practitioners[booking] != builder.practitioners[previous] ||
+                builder.epochDays[booking] != builder.epochDays[previous];
+    }
+
+    /**
+     * @return A builder for a store on the default 30 minute grid.
+     */
+    public static Builder builder() {
+        return builder(SlotGrid.DEFAULT);
+    }
+
+    /**
+     * @param grid The grid occupancy is recorded on, which must be the grid of the calendars restored from it.
+     * @return A builder for a store on the grid.
+     */
+    public static Builder builder(SlotGrid grid) {
+        if (grid == null)
+            throw new IllegalArgumentException(GRID_NULL_ERROR);
+        return new Builder(grid);
+    }
+
+    /**
+     * A practitioner's bookings in the store as a {@link DayArchive}, to restore their calendar from, see
+     * {@link Practitioner#restoreCalendar}.
+     *
+     * @param practitioner The practitioner; the archive is empty if the store has none of their bookings.
+     * @param patients     Finds a patient by id as bookings are built. Must be safe to call from several threads.
+     * @return The practitioner's bookings.
+     */
+    public DayArchive archiveFor(Practitioner practitioner, Function<UUID, Patient> patients) {
+        if (practitioner == null)
+            throw new IllegalArgumentException(PRACTITIONER_NULL_ERROR);
+        if (patients == null)
+            throw new IllegalArgumentException(PATIENTS_NULL_ERROR);
+        Integer index = practitionerIndexes.get(practitioner.getId());
+        return index == null ? DayArchive.EMPTY : new PractitionerDays(practitioner, index, patients);
+    }
+
+    /**
+     * @return The number of bookings in the store.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The bytes of native memory the store's columns take up.
+     */
+    public long offHeapBytes() {
+        return (long) size * BOOKING_BYTES + (long) dayCount * dayBytes;
+    }
+
+    private static LocalTime startTimeOf(short startMinute) {
+        return LocalTime.ofSecondOfDay(startMinute * 60L);
+    }
+
+    private static IntBuffer intColumn(int length) {
+        return column(length, Integer.BYTES).asIntBuffer();
+    }
+
+    private static LongBuffer longColumn(int length) {
+        return column(length, Long.BYTES).asLongBuffer();
+    }
+
+    private static ByteBuffer column(int length, int width) {
+        return ByteBuffer.allocateDirect(checkedLength(length, width)).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * @return The entries in a column of a length with a width each, if a buffer can hold them.
+     * @throws IllegalStateException if the column would be too large.
+     */
+    private static int checkedLength(int length, int width) {
+        try {
+            return Math.multiplyExact(length, width);
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException(STORE_TOO_LARGE_ERROR, e);
+        }
+    }
+
+    /**
+     * One practitioner's days, a contiguous run of the day columns. Only absolute reads are made on the columns,
+     * so concurrent lookups never interfere.
+     */
+    private final class PractitionerDays implements DayArchive {
+
+        private final Practitioner practitioner;
+        private final int index;
+        private final int firstDay;
+        private final int lastDay;
+        private final int firstBooking;
+        private final int lastBooking;
+        private final Function<UUID, Patient> patients;
+
+        private PractitionerDays(Practitioner practitioner, int index, Function<UUID, Patient> patients) {
+            this.practitioner = practitioner;
+            this.index = index;
+            this.firstDay = practitionerFirstDays[index];
+            this.lastDay = practitionerFirstDays[index + 1];
+            this.firstBooking = practitionerFirstBookings[index];
+            this.lastBooking = practitionerFirstBookings[index + 1];
+            this.patients = patients;
+        }
+
+        @Override
+        public int occupyingBookings() {
+            return practitionerOccupyingBookings[index];
+        }
+
+        @Override
+        public SlotGrid grid() {
+            return grid;
+        }
+
+        @Override
+        public void readOccupancy(LocalDate date, long[] into) {
+            int day = indexOf(date);
+            if (day < lastDay && dayEpochDays.get(day) == date.toEpochDay())
+                dayOccupancies.get(day * into.length, into);
+            else
+                Arrays.fill(into, 0L);
+        }
+
+        @Override
+        public LocalDate nextDate(LocalDate fromDate) {
+            int day = indexOf(fromDate);
+            return day < lastDay ? LocalDate.ofEpochDay(dayEpochDays.get(day)) : null;
+        }
+
+        @Override
+        public List<Booking> bookings(LocalDate date) {
+            int day = indexOf(date);
+            if (day >= lastDay || dayEpochDays.get(day) != date.toEpochDay())
+                return List.of();
+            int first = dayFirstBookings.get(day);
+            int last = day + 1 < dayCount ? dayFirstBookings.get(day + 1) : size;
+            List<Booking> result = new ArrayList<>(last - first);
+            for (int i = first; i < last; i++) {
+                UUID patientId = new UUID(patientHighBits.get(i), patientLowBits.get(i));
+                Patient patient = patients.apply(patientId);
+                if (patient == null)
+                    throw new IllegalStateException(UNKNOWN_PATIENT_ERROR + patientId);
+                result.add(Booking.restoreBooking(
+                        new UUID(idHighBits.get(i), idLowBits.get(i)),
+                        APPOINTMENT_TYPES[types.get(i)],
+                        date,
+                        startTimeOf(startMinutes.get(i)),
+                        patient,
+                        practitioner,
+                        STATUSES[statuses.get(i)]));
+            }
+            return result;
+        }
+
+        @Override
+        public LocalDate dateOf(UUID bookingId) {
+            long high = bookingId.getMostSignificantBits();
+            long low = bookingId.getLeastSignificantBits();
+            int from = firstBooking;
+            int to = lastBooking;
+            while (from < to) {
+                int middle = (from + to) >>> 1;
+                int position = idOrder.get(middle);
+                int compared = compareId(idHighBits.get(position), idLowBits.get(position), high, low);
+                if (compared == 0)
+                    return LocalDate.ofEpochDay(dayEpochDays.get(dayOf(position)));
+                if (compared < 0)
+                    from = middle + 1;
+                else
+                    to = middle;
+            }
+            return null;
+        }
+
+        /**
+         * Positions run in date order, so the patient's bookings from a date on follow their first booking at or
+         * after the date's first position, and a binary search over the patient order finds it.
+         */
+        @Override
+        public List<LocalDate> datesOf(UUID patientId, LocalDate fromDate, LocalDate toDate) {
+            long high = patientId.getMostSignificantBits();
+            long low = patientId.getLeastSignificantBits();
+            int fromPosition = firstBookingOf(indexOf(fromDate));
+            int toPosition = toDate.equals(LocalDate.MAX) ? lastBooking : firstBookingOf(indexOf(toDate.plusDays(1)));
+            int from = firstBooking;
+            int to = lastBooking;
+            while (from < to) {
+                int middle = (from + to) >>> 1;
+                int position = patientOrder.get(middle);
+                int compared = compareId(patientHighBits.get(position), patientLowBits.get(position), high, low);
+                if (compared < 0 || compared == 0 && position < fromPosition)
+                    from = middle + 1;
+                else
+                    to = middle;
+            }
+            List<LocalDate> dates = new ArrayList<>();
+            int previousDay = -1;
+            for (int i = from; i < lastBooking; i++) {
+                int position = patientOrder.get(i);
+                if (position >= toPosition || patientHighBits.get(position) != high
+                        || patientLowBits.get(position) != low)
+                    break;
+                int day = dayOf(position);
+                if (day != previousDay)
+                    dates.add(LocalDate.ofEpochDay(dayEpochDays.get(day)));
+                previousDay = day;
+            }
+            return dates;
+        }
+
+        /**
+         * @return The position of the first booking on one of the practitioner's days, or {@code lastBooking}
+         * past their last day.
+         */
+        private int firstBookingOf(int day) {
+            return day < lastDay ? dayFirstBookings.get(day) : lastBooking;
+        }
+
+        /**
+         * @return The index of the practitioner's day a booking is on.
+         */
+        private int dayOf(int position) {
+            int low = firstDay;
+            int high = lastDay - 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (dayFirstBookings.get(middle) <= position)
+                    low = middle;
+                else
+                    high = middle - 1;
+            }
+            return low;
+        }
+
+        /**
+         * @return The index of the practitioner's first day on or after the date, or {@code lastDay} if none.
+         */
+        private int indexOf(LocalDate date) {
+            long epochDay = date.toEpochDay();
+            int low = firstDay;
+            int high = lastDay;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (dayEpochDays.get(middle) < epochDay)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Collects bookings on the heap, then sorts and packs them into a store in one go.
+     */
+    public static final class Builder {
+
+        private static final int INDEX_BITS = 31;
+        private static final int MINUTE_BITS = 11;
+
+        private final SlotGrid grid;
+        private final Map<UUID, Integer> practitionerIndexes = new HashMap<>();
+        private int[] epochDays = new int[16];
+        private short[] startMinutes = new short[16];
+        private byte[] types = new byte[16];
+        private byte[] statuses = new byte[16];
+        private long[] patientHighBits = new long[16];
+        private long[] patientLowBits = new long[16];
+        private long[] idHighBits = new long[16];
+        private long[] idLowBits = new long[16];
+        private int[] practitioners = new int[16];
+        private int size;
+
+        private Builder(SlotGrid grid) {
+            this.grid = grid;
+        }
+
+        /**
+         * Adds a booking in its current status. Pending bookings are left out, since a hold can't expire once
+         * the booking is stored.
+         *
+         * @param booking The booking.
+         * @return This builder.
+         */
+        public Builder add(Booking booking) {
+            if (booking == null)
+                throw new IllegalArgumentException(BOOKING_NULL_ERROR);
+            if (booking.getStatus() == BookingStatus.PENDING)
+                return this;
+            if (size == MAX_BOOKINGS)
+                throw new IllegalStateException(TOO_MANY_BOOKINGS_ERROR);
+            if (size == epochDays.length)
+                grow();
+            epochDays[size] = (int) booking.getDate().toEpochDay();
+            startMinutes[size] = (short) (booking.getStartTime().toSecondOfDay() / 60);
+            types[size] = (byte) booking.getAppointmentType().ordinal();
+            statuses[size] = (byte) booking.getStatus().ordinal();
+            patientHighBits[size] = booking.getPatient().getId().getMostSignificantBits();
+            patientLowBits[size] = booking.getPatient().getId().getLeastSignificantBits();
+            idHighBits[size] = booking.getId().getMostSignificantBits();
+            idLowBits[size] = booking.getId().getLeastSignificantBits();
+            practitioners[size] = practitionerIndexes.computeIfAbsent(
+                    booking.getPractitioner().getId(), id -> practitionerIndexes.size());
+            size++;
+            return this;
+        }
+
+        /**
+         * Adds every booking a practitioner has, in every status but pending. Days restored from an archive that
+         * haven't been read are copied straight from it, see {@link Practitioner#forEachBooking}.
+         *
+         * @param practitioner The practitioner.
+         * @return This builder.
+         */
+        public Builder addAll(Practitioner practitioner) {
+            if (practitioner == null)
+                throw new IllegalArgumentException(PRACTITIONER_NULL_ERROR);
+            practitioner.forEachBooking(booking -> {
+                if (booking.getStatus() != BookingStatus.PENDING)
+                    add(booking);
+            });
+            return this;
+        }
+
+        public ColumnarBookingStore build() {
+            int[] practitionerCounts = new int[practitionerIndexes.size()];
+            for (int i = 0; i < size; i++)
+                practitionerCounts[practitioners[i]]++;
+            return new ColumnarBookingStore(this, sortedOrder(practitionerCounts), practitionerCounts);
+        }
+
+        /**
+         * Bookings are bucketed by practitioner, then each bucket is sorted on packed keys of date, start minute
+         * and position so no comparator is needed.
+         */
+        private int[] sortedOrder(int[] practitionerCounts) {
+            int[] bucketStarts = new int[practitionerCounts.length + 1];
+            for (int i = 0; i < practitionerCounts.length; i++)
+                bucketStarts[i + 1] = bucketStarts[i] + practitionerCounts[i];
+            int[] order = new int[size];
+            int[] next = Arrays.copyOf(bucketStarts, practitionerCounts.length);
+            for (int i = 0; i < size; i++)
+                order[next[practitioners[i]]++] = i;
+
+            long firstDay = Long.MAX_VALUE;
+            for (int i = 0; i < size; i++)
+                firstDay = Math.min(firstDay, epochDays[i]);
+            for (int bucket = 0; bucket < practitionerCounts.length; bucket++) {
+                int from = bucketStarts[bucket];
+                long[] keys = new long[practitionerCounts[bucket]];
+                for (int i = 0; i < keys.length; i++) {
+                    int booking = order[from + i];
+                    keys[i] = ((epochDays[booking] - firstDay) << (MINUTE_BITS + INDEX_BITS)) |
+                            ((long) startMinutes[booking] << INDEX_BITS) | booking;
+                }
+                Arrays.sort(keys);
+                for (int i = 0; i < keys.length; i++)
+                    order[from + i] = (int) (keys[i] & ((1L << INDEX_BITS) - 1));
+            }
+            return order;
+        }
+
+        private void grow() {
+            int length = (int) Math.min(MAX_BOOKINGS, (long) epochDays.length * 2);
+            epochDays = Arrays.copyOf(epochDays, length);
+            startMinutes = Arrays.copyOf(startMinutes, length);
+            types = Arrays.copyOf(types, length);
+            statuses = Arrays.copyOf(statuses, length);
+            patientHighBits = Arrays.copyOf(patientHighBits, length);
+            patientLowBits = Arrays.copyOf(patientLowBits, length);
+            idHighBits = Arrays.copyOf(idHighBits, length);
+            idLowBits = Arrays.copyOf(idLowBits, length);
+            practitioners = Arrays.copyOf(practitioners, length);
+        }
+    }
+}
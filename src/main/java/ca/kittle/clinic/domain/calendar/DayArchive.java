@@ -0,0 +1,105 @@
+package ca.kittle.clinic.domain.calendar;
+
+import ca.kittle.clinic.domain.Booking;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Days a calendar was restored from, e.g. a snapshot file, that it reads from in place rather than loading
+ * at startup. Occupancy is answered straight from the archive; a day's bookings are only turned into
+ * {@link Booking} objects the first time something needs them, after which the calendar holds the day itself
+ * and never asks the archive about it again.
+ * <p>
+ * An archive never changes once a calendar has been restored from it and must be safe for concurrent reads.
+ */
+public interface DayArchive {
+
+    DayArchive EMPTY = new DayArchive() {
+        @Override
+        public int occupyingBookings() {
+            return 0;
+        }
+
+        @Override
+        public void readOccupancy(LocalDate date, long[] into) {
+            Arrays.fill(into, 0L);
+        }
+
+        @Override
+        public LocalDate nextDate(LocalDate fromDate) {
+            return null;
+        }
+
+        @Override
+        public List<Booking> bookings(LocalDate date) {
+            return List.of();
+        }
+
+        @Override
+        public LocalDate dateOf(UUID bookingId) {
+            return null;
+        }
+
+        @Override
+        public List<LocalDate> datesOf(UUID patientId, LocalDate fromDate, LocalDate toDate) {
+            return List.of();
+        }
+    };
+
+    /**
+     * @return The number of archived bookings whose status occupies time.
+     */
+    int occupyingBookings();
+
+    /**
+     * @return The slot grid the archive's occupancy is recorded on, which must be the calendar's.
+     */
+    default SlotGrid grid() {
+        return SlotGrid.DEFAULT;
+    }
+
+    /**
+     * Copies the occupancy for an archived date, see {@link SlotGrid}, into an array of the grid's words,
+     * or clears it if the date has no bookings.
+     *
+     * @param date The date.
+     * @param into Where to copy the occupancy.
+     */
+    void readOccupancy(LocalDate date, long[] into);
+
+    /**
+     * @return The first archived date on or after a date, or {@code null} if there are none.
+     */
+    LocalDate nextDate(LocalDate fromDate);
+
+    /**
+     * Every booking on an archived date whatever its status, in start time order.
+     *
+     * @param date The date.
+     * @return The bookings, or an empty list if the date has none.
+     */
+    List<Booking> bookings(LocalDate date);
+
+    /**
+     * Finds the date of an archived booking from its id alone, without reading any day's bookings, so a lookup by
+     * id only has to read the one day it is on.
+     *
+     * @param bookingId The booking's id.
+     * @return The date of the booking with the id whatever its status, or {@code null} if it isn't archived.
+     */
+    LocalDate dateOf(UUID bookingId);
+
+    /**
+     * Finds the archived dates a patient has bookings on without reading any day's bookings, so reading a
+     * patient's bookings only has to read the days they are on.
+     *
+     * @param patientId The patient's id.
+     * @param fromDate  The first date to look on.
+     * @param toDate    The last date to look on.
+     * @return The dates between the two (inclusive) with a booking for the patient whatever its status, in order.
+     */
+    List<LocalDate> datesOf(UUID patientId, LocalDate fromDate, LocalDate toDate);
+}
@@ -0,0 +1,264 @@
+package ca.kittle.clinic.domain.calendar;
+
+import ca.kittle.clinic.domain.Booking;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The bookings a practitioner has on a single date, kept in start time order, along with an occupancy
+ * bitset recording which {@link SlotGrid} slots those bookings cover.
+ * <p>
+ * Every practitioner-day is guarded on its own, so bookings for different days or different practitioners
+ * never wait on each other. Bookings are held in {@link SortedBookings} and the occupancy in atomic words,
+ * so reads never lock. How writes are made atomic depends on the {@link ReservationStrategy}.
+ */
+class DaySchedule {
+
+    private final LocalDate date;
+    private final ReservationStrategy strategy;
+    private final SlotGrid grid;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLongArray occupancy;
+    private final SortedBookings bookings = new SortedBookings();
+
+    DaySchedule(LocalDate date, ReservationStrategy strategy, SlotGrid grid) {
+        this.date = date;
+        this.strategy = strategy;
+        this.grid = grid;
+        this.occupancy = new AtomicLongArray(grid.getWords());
+    }
+
+    LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Inserts a booking at its start time position so the day never needs sorting.
+     *
+     * @param booking The booking to add; must be for this schedule's date.
+     */
+    void add(Booking booking) {
+        long[] claimed = occupancyOf(booking);
+        if (strategy == ReservationStrategy.LOCK_FREE) {
+            for (int word = 0; word < claimed.length; word++)
+                occupancy.getAndAccumulate(word, claimed[word], (current, bits) -> current | bits);
+            bookings.insert(booking);
+            return;
+        }
+        lock.lock();
+        try {
+            for (int word = 0; word < claimed.length; word++)
+                occupancy.set(word, occupancy.get(word) | claimed[word]);
+            bookings.insert(booking);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks the booking's slots are free and inserts it as one atomic step.
+     *
+     * @param booking The booking to add; must be for this schedule's date.
+     * @return {@code true} if the booking was added, {@code false} if it overlaps a booking already on the day.
+     */
+    boolean addIfFree(Booking booking) {
+        long[] claimed = occupancyOf(booking);
+        return strategy == ReservationStrategy.LOCK_FREE ?
+                claimLockFree(booking, claimed) :
+                claimLocking(booking, claimed);
+    }
+
+    /**
+     * Adds a batch of bookings, each only if its slots are free, as one atomic step. The batch is swept in
+     * start time order so each booking is checked against the day and the batch bookings before it, then
+     * the accepted bookings are merged into the day's bookings in a single pass instead of one copy each.
+     * Where batch bookings overlap each other the earlier start wins, or the earlier in the batch on a tie.
+     *
+     * @param batch Bookings for this schedule's date, sorted by start time.
+     * @return Whether each booking in the batch was added.
+     */
+    boolean[] addAllIfFree(Booking[] batch) {
+        long[][] claims = new long[batch.length][];
+        for (int i = 0; i < batch.length; i++)
+            claims[i] = occupancyOf(batch[i]);
+        boolean[] accepted = new boolean[batch.length];
+        long[] current = grid.empty();
+        if (strategy == ReservationStrategy.LOCK_FREE) {
+            long[] claimed;
+            do {
+                readOccupancy(current);
+                claimed = sweep(current, claims, accepted);
+            } while (!SlotGrid.isEmpty(claimed) && !claimWords(claimed));
+            bookings.insertAll(batch, accepted);
+            return accepted;
+        }
+        lock.lock();
+        try {
+            readOccupancy(current);
+            long[] claimed = sweep(current, claims, accepted);
+            for (int word = 0; word < claimed.length; word++)
+                occupancy.set(word, current[word] | claimed[word]);
+            bookings.insertAll(batch, accepted);
+            return accepted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a booking from the day. Bookings have no equality of their own so this matches on identity.
+     *
+     * @param booking The booking to remove.
+     * @return {@code true} if the booking was on this day, {@code false} otherwise.
+     */
+    boolean remove(Booking booking) {
+        if (strategy == ReservationStrategy.LOCK_FREE) {
+            if (!bookings.delete(booking))
+                return false;
+            // Only release slots no remaining booking still covers
+            long[] released = occupancyOf(booking);
+            long[] stillOccupied = occupancyOf(bookings.snapshot());
+            for (int word = 0; word < released.length; word++)
+                occupancy.getAndAccumulate(word, released[word] & ~stillOccupied[word],
+                        (current, bits) -> current & ~bits);
+            return true;
+        }
+        lock.lock();
+        try {
+            if (!bookings.delete(booking))
+                return false;
+            long[] occupied = occupancyOf(bookings.snapshot());
+            for (int word = 0; word < occupied.length; word++)
+                occupancy.set(word, occupied[word]);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        return bookings.size();
+    }
+
+    /**
+     * @return A copy of the day's occupancy.
+     */
+    long[] getOccupancy() {
+        long[] occupied = grid.empty();
+        readOccupancy(occupied);
+        return occupied;
+    }
+
+    /**
+     * Copies the day's occupancy into an existing array, so walking many days needn't allocate for each one.
+     * Each word is read atomically, but a booking spanning words may be seen half claimed while it is added.
+     */
+    void readOccupancy(long[] into) {
+        for (int word = 0; word < into.length; word++)
+            into[word] = occupancy.get(word);
+    }
+
+    /**
+     * @return A read-only view of the day's bookings in start time order, see {@link SortedBookings#view}.
+     */
+    List<Booking> bookings() {
+        return bookings.view();
+    }
+
+    void copyInto(List<Booking> target) {
+        bookings.copyInto(target);
+    }
+
+    private long[] occupancyOf(Booking booking) {
+        return grid.maskOf(booking.getStartTime(), booking.getEndTime());
+    }
+
+    private long[] occupancyOf(Booking[] bookings) {
+        long[] occupied = grid.empty();
+        for (Booking booking : bookings)
+            grid.include(occupied, booking.getStartTime(), booking.getEndTime());
+        return occupied;
+    }
+
+    private boolean claimLocking(Booking booking, long[] claimed) {
+        // Cheap unlocked check so obvious conflicts don't queue up on the lock
+        if (isAnyClaimed(claimed))
+            return false;
+        lock.lock();
+        try {
+            if (isAnyClaimed(claimed))
+                return false;
+            for (int word = 0; word < claimed.length; word++)
+                occupancy.set(word, occupancy.get(word) | claimed[word]);
+            bookings.insert(booking);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Once the slots are claimed they belong to this booking, so inserting it into the day's bookings can never
+     * conflict with another claim and only retries if another insert raced it.
+     */
+    private boolean claimLockFree(Booking booking, long[] claimed) {
+        if (!claimWords(claimed))
+            return false;
+        bookings.insert(booking);
+        return true;
+    }
+
+    /**
+     * Claims the slots a word at a time with a compare-and-set each, in word order. If a word turns out to be
+     * taken, the words already claimed are given back. Until then another booking may be turned away by the
+     * partial claim, just as if it had lost the race to a booking that was then cancelled.
+     *
+     * @return {@code true} if every slot was claimed, {@code false} if any was already taken.
+     */
+    private boolean claimWords(long[] claimed) {
+        for (int word = 0; word < claimed.length; word++) {
+            long bits = claimed[word];
+            if (bits == 0)
+                continue;
+            long current;
+            do {
+                current = occupancy.get(word);
+                if ((current & bits) != 0) {
+                    // Every bit in the earlier words was free before this claim set it, so clearing them is safe
+                    for (int claimedWord = 0; claimedWord < word; claimedWord++)
+                        occupancy.getAndAccumulate(claimedWord, claimed[claimedWord],
+                                (occupied, released) -> occupied & ~released);
+                    return false;
+                }
+            } while (!occupancy.compareAndSet(word, current, current | bits));
+        }
+        return true;
+    }
+
+    private boolean isAnyClaimed(long[] claimed) {
+        for (int word = 0; word < claimed.length; word++) {
+            if ((occupancy.get(word) & claimed[word]) != 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return The slots claimed by the accepted bookings.
+     */
+    private long[] sweep(long[] occupied, long[][] claims, boolean[] accepted) {
+        long[] claimed = grid.empty();
+        long[] taken = occupied.clone();
+        for (int i = 0; i < claims.length; i++) {
+            accepted[i] = !SlotGrid.intersects(taken, claims[i]);
+            if (accepted[i]) {
+                SlotGrid.add(claimed, claims[i]);
+                SlotGrid.add(taken, claims[i]);
+            }
+        }
+        return claimed;
+    }
+}
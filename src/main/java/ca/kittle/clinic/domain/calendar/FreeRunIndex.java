@@ -0,0 +1,97 @@
+package ca.kittle.clinic.domain.calendar;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A summary of the longest run of free slots that starts at a bookable time, per day and per week.
+ * First-fit searches use it to step over a whole week that can't fit an appointment with a single lookup
+ * instead of checking each of its days.
+ * <p>
+ * Weeks are seven day blocks counted from the epoch, and only weeks with at least one booked day are held.
+ * Any day without bookings counts as free whenever appointments may start, so a week is only ever skipped if
+ * every one of its days is too full. A run only has to start at a bookable time, so the summary may overstate
+ * what fits, e.g. a run carrying on past closing, but never understates it.
+ */
+class FreeRunIndex {
+
+    private static final int DAYS_PER_WEEK = 7;
+
+    private final SlotGrid grid;
+    // Indexed by DayOfWeek.ordinal()
+    private final long[][] bookableStarts;
+    private final int[] emptyDayRuns = new int[DAYS_PER_WEEK];
+    private final ConcurrentMap<Long, Week> weeks = new ConcurrentHashMap<>();
+
+    FreeRunIndex(SlotGrid grid, long[][] bookableStarts) {
+        this.grid = grid;
+        this.bookableStarts = bookableStarts;
+        for (DayOfWeek day : DayOfWeek.values())
+            emptyDayRuns[day.ordinal()] = longestFreeRun(day, grid.empty());
+    }
+
+    /**
+     * Refresh the summary after the day's occupancy has changed.
+     */
+    void update(DaySchedule day) {
+        long epochDay = day.getDate().toEpochDay();
+        weeks.computeIfAbsent(Math.floorDiv(epochDay, DAYS_PER_WEEK), Week::new)
+                .update((int) Math.floorMod(epochDay, DAYS_PER_WEEK), day);
+    }
+
+    /**
+     * @return {@code true} if no day in the week containing the date has room for {@code slotCount} slots.
+     */
+    boolean isWeekFull(LocalDate date, int slotCount) {
+        Week week = weeks.get(Math.floorDiv(date.toEpochDay(), DAYS_PER_WEEK));
+        return week != null && week.longestFreeRun < slotCount;
+    }
+
+    /**
+     * @return The first date of the week after the one containing the date.
+     */
+    static LocalDate nextWeek(LocalDate date) {
+        return LocalDate.ofEpochDay((Math.floorDiv(date.toEpochDay(), DAYS_PER_WEEK) + 1) * DAYS_PER_WEEK);
+    }
+
+    /**
+     * @return The longest run of free slots starting at one of the day's bookable starts, see
+     * {@link SlotGrid#longestFreeRun}.
+     */
+    int longestFreeRun(DayOfWeek day, long[] occupancy) {
+        return grid.longestFreeRun(occupancy, bookableStarts[day.ordinal()]);
+    }
+
+    private final class Week {
+
+        private final int[] dayRuns = new int[DAYS_PER_WEEK];
+        // Only used inside update, which is synchronized
+        private final long[] occupancy = grid.empty();
+        private volatile int longestFreeRun;
+
+        private Week(long week) {
+            long firstDay = week * DAYS_PER_WEEK;
+            int longest = 0;
+            for (int dayOfWeek = 0; dayOfWeek < DAYS_PER_WEEK; dayOfWeek++) {
+                dayRuns[dayOfWeek] = emptyDayRuns[LocalDate.ofEpochDay(firstDay + dayOfWeek).getDayOfWeek().ordinal()];
+                longest = Math.max(longest, dayRuns[dayOfWeek]);
+            }
+            this.longestFreeRun = longest;
+        }
+
+        /**
+         * Reads the day's occupancy inside the lock so the last update to finish always reflects
+         * the latest change, however concurrent writers interleave.
+         */
+        private synchronized void update(int dayOfWeek, DaySchedule day) {
+            day.readOccupancy(occupancy);
+            dayRuns[dayOfWeek] = longestFreeRun(day.getDate().getDayOfWeek(), occupancy);
+            int longest = 0;
+            for (int run : dayRuns)
+                longest = Math.max(longest, run);
+            longestFreeRun = longest;
+        }
+    }
+}
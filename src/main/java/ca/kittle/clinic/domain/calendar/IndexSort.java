@@ -0,0 +1,50 @@
+package ca.kittle.clinic.domain.calendar;
+
+/**
+ * Sorts positions into columns of primitives, e.g. a {@link ColumnarBookingStore}'s bookings by id, so that
+ * ordering them by a column boxes nothing.
+ */
+public final class IndexSort {
+
+    /**
+     * Orders two positions.
+     */
+    @FunctionalInterface
+    public interface Order {
+        int compare(int first, int second);
+    }
+
+    private IndexSort() {
+        // Utility class should not be instantiated
+    }
+
+    /**
+     * A stable bottom-up merge sort, so positions that compare equal keep their order.
+     *
+     * @param positions The positions to sort in place.
+     * @param order     How to order two positions.
+     */
+    public static void sort(int[] positions, Order order) {
+        int[] source = positions;
+        int[] target = new int[positions.length];
+        for (int width = 1; width < positions.length; width *= 2) {
+            for (int from = 0; from < positions.length; from += 2 * width) {
+                int middle = Math.min(from + width, positions.length);
+                int to = Math.min(from + 2 * width, positions.length);
+                int left = from;
+                int right = middle;
+                for (int i = from; i < to; i++) {
+                    if (right == to || left < middle && order.compare(source[left], source[right]) <= 0)
+                        target[i] = source[left++];
+                    else
+                        target[i] = source[right++];
+                }
+            }
+            int[] merged = target;
+            target = source;
+            source = merged;
+        }
+        if (source != positions)
+            System.arraycopy(source, 0, positions, 0, positions.length);
+    }
+}
@@ -0,0 +1,244 @@
+package ca.kittle.clinic.domain.calendar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Free-form half-open intervals {@code [start, end)}, e.g. nanoseconds of the day, for calendars whose bookings
+ * don't sit on a {@link SlotGrid}, such as rooms and equipment with hundreds of bookings of any length a day.
+ * <p>
+ * The intervals are held in an AVL tree ordered by start, and every node also records the latest end in its
+ * subtree. A search skips any subtree that ends before the query starts or that starts after the query ends, so
+ * asking whether anything overlaps costs O(log n), and finding the k intervals that overlap or contain a point
+ * costs at most O(k log n) rather than a walk of every interval. Two intervals overlap when each starts before
+ * the other ends, the same rule as {@code Booking#doAppointmentTimesOverlap}, so intervals that only touch don't
+ * overlap.
+ * <p>
+ * The tree isn't safe for concurrent use; guard it the way the calendar it belongs to is guarded.
+ *
+ * @param <T> The item each interval is for.
+ */
+public final class IntervalTree<T> {
+
+    private static final String INTERVAL_ERROR = "Interval must end after it starts";
+    private static final String VALUE_NULL_ERROR = "Interval value cannot be null";
+
+    private Node<T> root;
+    private int size;
+
+    /**
+     * Adds an interval. Intervals may overlap, and the same interval may be added for several values.
+     *
+     * @param start Where the interval starts, inclusive.
+     * @param end   Where the interval ends, exclusive.
+     * @param value The item the interval is for.
+     * @throws IllegalArgumentException if the interval doesn't end after it starts or the value is null.
+     */
+    public void add(long start, long end, T value) {
+        if (end <= start)
+            throw new IllegalArgumentException(INTERVAL_ERROR);
+        if (value == null)
+            throw new IllegalArgumentException(VALUE_NULL_ERROR);
+        root = insert(root, new Node<>(start, end, value));
+        size++;
+    }
+
+    /**
+     * Removes an interval added earlier. Values are matched on identity, like bookings in a calendar.
+     *
+     * @return {@code true} if the interval was in the tree for the value.
+     */
+    public boolean remove(long start, long end, T value) {
+        int before = size;
+        root = delete(root, start, end, value);
+        return size < before;
+    }
+
+    /**
+     * @return {@code true} if any interval overlaps {@code [start, end)}.
+     */
+    public boolean overlaps(long start, long end) {
+        return overlaps(start, end, value -> true);
+    }
+
+    /**
+     * Whether any interval whose value passes the filter overlaps {@code [start, end)}. Overlapping intervals the
+     * filter turns away still have to be visited, so keep them few, e.g. remove cancelled bookings.
+     *
+     * @param start  Where the query starts, inclusive.
+     * @param end    Where the query ends, exclusive.
+     * @param filter Which values count.
+     * @return {@code true} if a matching interval overlaps.
+     */
+    public boolean overlaps(long start, long end, Predicate<? super T> filter) {
+        return anyOverlapping(root, start, end, filter);
+    }
+
+    /**
+     * @return The values of the intervals overlapping {@code [start, end)}, ordered by start.
+     */
+    public List<T> overlapping(long start, long end) {
+        List<T> result = new ArrayList<>();
+        collectOverlapping(root, start, end, result);
+        return result;
+    }
+
+    /**
+     * A stabbing query: the values of the intervals containing a point, ordered by start.
+     *
+     * @param point The point, e.g. a time of day.
+     * @return The values of the intervals that start at or before the point and end after it.
+     */
+    public List<T> containing(long point) {
+        return overlapping(point, point + 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static <T> boolean anyOverlapping(Node<T> node, long start, long end, Predicate<? super T> filter) {
+        while (node != null && node.maxEnd > start) {
+            if (node.start < end && node.end > start && filter.test(node.value))
+                return true;
+            // Only the left subtree can overlap if this node already starts too late
+            if (node.start >= end)
+                node = node.left;
+            else if (node.left != null && node.left.maxEnd > start && anyOverlapping(node.left, start, end, filter))
+                return true;
+            else
+                node = node.right;
+        }
+        return false;
+    }
+
+    private static <T> void collectOverlapping(Node<T> node, long start, long end, List<T> result) {
+        if (node == null || node.maxEnd <= start)
+            return;
+        collectOverlapping(node.left, start, end, result);
+        if (node.start >= end)
+            return;
+        if (node.end > start)
+            result.add(node.value);
+        collectOverlapping(node.right, start, end, result);
+    }
+
+    /**
+     * Equal starts go to the right, so intervals with the same start keep the order they were added in.
+     */
+    private Node<T> insert(Node<T> node, Node<T> added) {
+        if (node == null)
+            return added;
+        if (added.start < node.start)
+            node.left = insert(node.left, added);
+        else
+            node.right = insert(node.right, added);
+        return rebalance(node);
+    }
+
+    private Node<T> delete(Node<T> node, long start, long end, T value) {
+        if (node == null || node.maxEnd < end)
+            return node;
+        if (start < node.start) {
+            node.left = delete(node.left, start, end, value);
+        } else if (start > node.start) {
+            node.right = delete(node.right, start, end, value);
+        } else if (node.end == end && node.value == value) {
+            size--;
+            if (node.left == null || node.right == null)
+                return node.left == null ? node.right : node.left;
+            Node<T> successor = node.right;
+            while (successor.left != null)
+                successor = successor.left;
+            node.right = removeFirst(node.right);
+            successor.left = node.left;
+            successor.right = node.right;
+            return rebalance(successor);
+        } else {
+            // Intervals with the same start can end up on either side after rotations
+            int before = size;
+            node.left = delete(node.left, start, end, value);
+            if (size == before)
+                node.right = delete(node.right, start, end, value);
+        }
+        return rebalance(node);
+    }
+
+    private Node<T> removeFirst(Node<T> node) {
+        if (node.left == null)
+            return node.right;
+        node.left = removeFirst(node.left);
+        return rebalance(node);
+    }
+
+    private Node<T> rebalance(Node<T> node) {
+        node.update();
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right))
+                node.left = rotateLeft(node.left);
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left))
+                node.right = rotateRight(node.right);
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node<T> rotateLeft(Node<T> node) {
+        Node<T> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private Node<T> rotateRight(Node<T> node) {
+        Node<T> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static final class Node<T> {
+
+        private final long start;
+        private final long end;
+        private final T value;
+        private Node<T> left;
+        private Node<T> right;
+        // The latest end of any interval in this subtree
+        private long maxEnd;
+        private int height = 1;
+
+        private Node(long start, long end, T value) {
+            this.start = start;
+            this.end = end;
+            this.value = value;
+            this.maxEnd = end;
+        }
+
+        private void update() {
+            height = 1 + Math.max(height(left), height(right));
+            maxEnd = end;
+            if (left != null)
+                maxEnd = Math.max(maxEnd, left.maxEnd);
+            if (right != null)
+                maxEnd = Math.max(maxEnd, right.maxEnd);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ca.kittle.clinic.domain.calendar;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Walks a calendar's occupancy one date at a time, in a single pass over the booked days in the range.
+ * Dates with no bookings report an occupancy of zero without a lookup. Days still in the calendar's
+ * {@link DayArchive} are read from it in place, without loading their bookings. Every date's occupancy is
+ * read into the same array, so walking a range allocates nothing per date.
+ * <pre>
+ * OccupancyCursor cursor = calendar.occupancyCursor(fromDate, toDate);
+ * while (cursor.advance())
+ *     use(cursor.date(), cursor.occupancy());
+ * </pre>
+ */
+public final class OccupancyCursor {
+
+    private final Iterator<DaySchedule> bookedDays;
+    private final DayArchive archive;
+    private final LocalDate lastDate;
+    private DaySchedule nextBookedDay;
+    private LocalDate nextArchivedDate;
+    private final long[] occupancy;
+    private LocalDate date;
+
+    OccupancyCursor(Iterator<DaySchedule> bookedDays, DayArchive archive, SlotGrid grid, LocalDate firstDate,
+                    LocalDate lastDate) {
+        this.bookedDays = bookedDays;
+        this.occupancy = grid.empty();
+        this.archive = archive;
+        this.lastDate = lastDate;
+        this.date = firstDate.minusDays(1);
+        this.nextBookedDay = bookedDays.hasNext() ? bookedDays.next() : null;
+        this.nextArchivedDate = archive.nextDate(firstDate);
+    }
+
+    /**
+     * Move to the next date.
+     *
+     * @return {@code true} if there was another date in the range, {@code false} once the range is exhausted.
+     */
+    public boolean advance() {
+        if (!date.isBefore(lastDate))
+            return false;
+        date = date.plusDays(1);
+        boolean archived = date.equals(nextArchivedDate);
+        if (archived)
+            nextArchivedDate = date.equals(lastDate) ? null : archive.nextDate(date.plusDays(1));
+        // A day the calendar has loaded supersedes its archived copy
+        if (nextBookedDay != null && nextBookedDay.getDate().equals(date)) {
+            nextBookedDay.readOccupancy(occupancy);
+            nextBookedDay = bookedDays.hasNext() ? bookedDays.next() : null;
+        } else if (archived) {
+            archive.readOccupancy(date, occupancy);
+        } else {
+            Arrays.fill(occupancy, 0L);
+        }
+        return true;
+    }
+
+    public LocalDate date() {
+        return date;
+    }
+
+    /**
+     * @return The occupancy for the current date, see {@link SlotGrid}. The array is overwritten when the
+     * cursor advances, so must not be kept or changed.
+     */
+    public long[] occupancy() {
+        return occupancy;
+    }
+}
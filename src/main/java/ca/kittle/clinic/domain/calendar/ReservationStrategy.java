@@ -0,0 +1,17 @@
+package ca.kittle.clinic.domain.calendar;
+
+/**
+ * How a {@link BookingCalendar} makes the overlap check and the insert of a booking atomic.
+ */
+public enum ReservationStrategy {
+    /**
+     * Take the lock for the practitioner-day, check the occupancy and insert. Simple and fair under
+     * moderate load.
+     */
+    LOCKING,
+    /**
+     * Claim the booking's slots with a compare-and-set on each of the day's occupancy words. A conflicting request
+     * fails straight away without taking a lock, so a burst of requests for the same day never parks threads.
+     */
+    LOCK_FREE
+}
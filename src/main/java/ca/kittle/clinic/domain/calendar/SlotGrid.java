@@ -0,0 +1,315 @@
+package ca.kittle.clinic.domain.calendar;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+/**
+ * How a clinic divides a day into slots, and the bit twiddling for a day's occupancy on that grid. Slots are
+ * counted from midnight, and bit {@code n} of a day's occupancy is set when slot {@code n} is booked.
+ * <p>
+ * Occupancy is held in as many 64-bit words as the grid needs, slot {@code n} in bit {@code n % 64} of word
+ * {@code n / 64}. With the default 30 minute slots the whole day fits in a single word, 15 minute slots take two
+ * and 10 minute slots three. Every operation loops over the words, so a finer grid only costs its extra words.
+ */
+public final class SlotGrid {
+
+    public static final int MIN_SLOT_MINUTES = 5;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int DEFAULT_SLOT_MINUTES = 30;
+
+    private static final String SLOT_LENGTH_NULL_ERROR = "Slot length cannot be null";
+    private static final String SLOT_LENGTH_ERROR =
+            "Slot length must be a whole number of minutes, at least " + MIN_SLOT_MINUTES + ", that divides a day";
+
+    public static final SlotGrid DEFAULT = new SlotGrid(DEFAULT_SLOT_MINUTES);
+
+    private final int slotMinutes;
+    private final int slotsPerDay;
+    private final int words;
+    private final long lastWordMask;
+    private final LocalTime[] slotStartTimes;
+
+    private SlotGrid(int slotMinutes) {
+        this.slotMinutes = slotMinutes;
+        this.slotsPerDay = MINUTES_PER_DAY / slotMinutes;
+        this.words = (slotsPerDay + Long.SIZE - 1) / Long.SIZE;
+        int lastWordSlots = slotsPerDay - (words - 1) * Long.SIZE;
+        this.lastWordMask = lastWordSlots == Long.SIZE ? -1L : (1L << lastWordSlots) - 1;
+        this.slotStartTimes = new LocalTime[slotsPerDay];
+        for (int slot = 0; slot < slotsPerDay; slot++)
+            slotStartTimes[slot] = LocalTime.MIDNIGHT.plusMinutes((long) slot * slotMinutes);
+    }
+
+    /**
+     * @param slotLength How long each slot is, e.g. 10, 15 or 30 minutes.
+     * @return The grid with slots of that length.
+     */
+    public static SlotGrid of(Duration slotLength) {
+        if (slotLength == null)
+            throw new IllegalArgumentException(SLOT_LENGTH_NULL_ERROR);
+        long minutes = slotLength.toMinutes();
+        if (!slotLength.equals(Duration.ofMinutes(minutes)) || minutes < MIN_SLOT_MINUTES ||
+                MINUTES_PER_DAY % minutes != 0)
+            throw new IllegalArgumentException(SLOT_LENGTH_ERROR);
+        return minutes == DEFAULT_SLOT_MINUTES ? DEFAULT : new SlotGrid((int) minutes);
+    }
+
+    public int getSlotMinutes() {
+        return slotMinutes;
+    }
+
+    public Duration getSlotLength() {
+        return Duration.ofMinutes(slotMinutes);
+    }
+
+    public int getSlotsPerDay() {
+        return slotsPerDay;
+    }
+
+    /**
+     * @return The number of 64-bit words a day's occupancy takes.
+     */
+    public int getWords() {
+        return words;
+    }
+
+    /**
+     * @return A day's occupancy with no slots set.
+     */
+    public long[] empty() {
+        return new long[words];
+    }
+
+    /**
+     * @return The slot that contains the given time.
+     */
+    public int slotOf(LocalTime time) {
+        return (time.getHour() * 60 + time.getMinute()) / slotMinutes;
+    }
+
+    /**
+     * @return {@code true} if the time is the start of a slot, ignoring seconds.
+     */
+    public boolean isSlotStart(LocalTime time) {
+        return (time.getHour() * 60 + time.getMinute()) % slotMinutes == 0;
+    }
+
+    /**
+     * @return The (shared, immutable) start time of a slot.
+     */
+    public LocalTime startTimeOf(int slot) {
+        return slotStartTimes[slot];
+    }
+
+    /**
+     * @return The number of slots needed to cover a duration, rounding partial slots up.
+     */
+    public int slotsFor(Duration duration) {
+        long minutes = duration.toMinutes();
+        return (int) ((minutes + slotMinutes - 1) / slotMinutes);
+    }
+
+    /**
+     * @return A mask of {@code slotCount} consecutive slots starting at {@code firstSlot}.
+     */
+    public long[] mask(int firstSlot, int slotCount) {
+        long[] bits = empty();
+        include(bits, firstSlot, slotCount);
+        return bits;
+    }
+
+    /**
+     * @return A mask of every slot touched by the time range, including partially covered slots.
+     */
+    public long[] maskOf(LocalTime startTime, LocalTime endTime) {
+        long[] bits = empty();
+        include(bits, startTime, endTime);
+        return bits;
+    }
+
+    /**
+     * Sets every slot touched by the time range, including partially covered slots. An end before the start is
+     * taken to be after midnight, so only the slots up to the end of the day are set.
+     */
+    public void include(long[] bits, LocalTime startTime, LocalTime endTime) {
+        int firstSlot = slotOf(startTime);
+        int endMinute = endTime.getHour() * 60 + endTime.getMinute() + (endTime.getSecond() > 0 ? 1 : 0);
+        int endSlot = endTime.isBefore(startTime) ? slotsPerDay : (endMinute + slotMinutes - 1) / slotMinutes;
+        include(bits, firstSlot, endSlot - firstSlot);
+    }
+
+    /**
+     * Sets {@code slotCount} consecutive slots starting at {@code firstSlot}, leaving off any past the end of the
+     * day.
+     */
+    public void include(long[] bits, int firstSlot, int slotCount) {
+        int endSlot = Math.min(slotsPerDay, firstSlot + Math.max(0, slotCount));
+        for (int slot = firstSlot; slot < endSlot; ) {
+            int word = slot >>> 6;
+            int wordEnd = Math.min(endSlot, (word + 1) * Long.SIZE);
+            int count = wordEnd - slot;
+            long run = count == Long.SIZE ? -1L : (1L << count) - 1;
+            bits[word] |= run << (slot & (Long.SIZE - 1));
+            slot = wordEnd;
+        }
+    }
+
+    /**
+     * Finds every slot where a run of {@code slotCount} free slots starts, using one shift-and-AND per slot
+     * of the run rather than checking each candidate start against each booking.
+     *
+     * @param occupied  The day's occupancy.
+     * @param slotCount The number of consecutive slots required.
+     * @return A mask with slot {@code n} set when slots {@code n .. n + slotCount - 1} are all free.
+     */
+    public long[] freeRunStarts(long[] occupied, int slotCount) {
+        long[] starts = empty();
+        freeRunStarts(occupied, slotCount, starts);
+        return starts;
+    }
+
+    /**
+     * As {@link #freeRunStarts(long[], int)}, writing the starts into an existing array so a search over many
+     * days needn't allocate for each one.
+     */
+    public void freeRunStarts(long[] occupied, int slotCount, long[] starts) {
+        for (int word = 0; word < words; word++)
+            starts[word] = freeWord(occupied, word);
+        boolean any = true;
+        for (int offset = 1; offset < slotCount && any; offset++) {
+            any = false;
+            for (int word = 0; word < words; word++) {
+                starts[word] &= shiftedFreeWord(occupied, offset, word);
+                any |= starts[word] != 0;
+            }
+        }
+    }
+
+    /**
+     * Free runs are monotonic (a run of n free slots contains a run of n - 1), so grow the runs from every
+     * start until none are left.
+     *
+     * @param occupied The day's occupancy.
+     * @param starts   The slots a run may start in.
+     * @return The length of the longest run of free slots beginning at one of the starts.
+     */
+    public int longestFreeRun(long[] occupied, long[] starts) {
+        long[] runs = empty();
+        boolean any = false;
+        for (int word = 0; word < words; word++) {
+            runs[word] = freeWord(occupied, word) & starts[word];
+            any |= runs[word] != 0;
+        }
+        int length = 0;
+        while (any) {
+            length++;
+            any = false;
+            for (int word = 0; word < words; word++) {
+                runs[word] &= shiftedFreeWord(occupied, length, word);
+                any |= runs[word] != 0;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return The first set slot at or after {@code fromSlot}, or -1 if there is none.
+     */
+    public static int nextSlot(long[] bits, int fromSlot) {
+        int word = fromSlot >>> 6;
+        if (word >= bits.length)
+            return -1;
+        long remaining = bits[word] & (-1L << (fromSlot & (Long.SIZE - 1)));
+        while (true) {
+            if (remaining != 0)
+                return word * Long.SIZE + Long.numberOfTrailingZeros(remaining);
+            if (++word == bits.length)
+                return -1;
+            remaining = bits[word];
+        }
+    }
+
+    /**
+     * @return The number of set slots.
+     */
+    public static int count(long[] bits) {
+        int count = 0;
+        for (long word : bits)
+            count += Long.bitCount(word);
+        return count;
+    }
+
+    /**
+     * @return {@code true} if no slot is set.
+     */
+    public static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code true} if any slot is set in both.
+     */
+    public static boolean intersects(long[] bits, long[] other) {
+        for (int word = 0; word < bits.length; word++) {
+            if ((bits[word] & other[word]) != 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Keeps only the slots that are also set in the other mask.
+     */
+    public static void retain(long[] bits, long[] other) {
+        for (int word = 0; word < bits.length; word++)
+            bits[word] &= other[word];
+    }
+
+    /**
+     * Sets every slot set in the other mask.
+     */
+    public static void add(long[] bits, long[] other) {
+        for (int word = 0; word < bits.length; word++)
+            bits[word] |= other[word];
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SlotGrid grid && grid.slotMinutes == slotMinutes;
+    }
+
+    @Override
+    public int hashCode() {
+        return slotMinutes;
+    }
+
+    @Override
+    public String toString() {
+        return "SlotGrid[" + slotMinutes + " minutes, " + Arrays.toString(new int[]{slotsPerDay, words}) + "]";
+    }
+
+    /**
+     * @return A word of the day's free slots, with no slot past the end of the day.
+     */
+    private long freeWord(long[] occupied, int word) {
+        if (word >= words)
+            return 0L;
+        long free = ~occupied[word];
+        return word == words - 1 ? free & lastWordMask : free;
+    }
+
+    /**
+     * @return A word of the day's free slots moved down by {@code offset} slots, carrying slots across words.
+     */
+    private long shiftedFreeWord(long[] occupied, int offset, int word) {
+        int from = word + (offset >>> 6);
+        int shift = offset & (Long.SIZE - 1);
+        long low = freeWord(occupied, from);
+        return shift == 0 ? low : (low >>> shift) | (freeWord(occupied, from + 1) << (Long.SIZE - shift));
+    }
+}
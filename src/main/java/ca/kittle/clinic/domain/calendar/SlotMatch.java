@@ -0,0 +1,12 @@
+package ca.kittle.clinic.domain.calendar;
+
+import java.time.LocalDate;
+
+/**
+ * The date and starting {@link SlotGrid} slot of a run of free slots.
+ *
+ * @param date The date of the run
+ * @param slot The first slot of the run
+ */
+public record SlotMatch(LocalDate date, int slot) {
+}
@@ -0,0 +1,147 @@
+package ca.kittle.clinic.domain.calendar;
+
+import ca.kittle.clinic.domain.Booking;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * One day's bookings in start time order, held in a copy-on-write array. Reads take a snapshot of the array
+ * without locking, and writes replace it with a compare-and-set, retrying if another write got there first.
+ * A published array is never changed, so readers can be handed a view of it rather than a copy.
+ */
+class SortedBookings {
+
+    private static final Booking[] NO_BOOKINGS = new Booking[0];
+
+    private final AtomicReference<Booking[]> bookings = new AtomicReference<>(NO_BOOKINGS);
+
+    /**
+     * @return The current bookings; the array must not be modified.
+     */
+    Booking[] snapshot() {
+        return bookings.get();
+    }
+
+    int size() {
+        return bookings.get().length;
+    }
+
+    /**
+     * @return A read-only view of the bookings as they are now, in start time order. Nothing is copied or
+     * sorted, and later changes to the day don't show in it.
+     */
+    List<Booking> view() {
+        Booking[] current = bookings.get();
+        return current.length == 0 ? List.of() : Collections.unmodifiableList(Arrays.asList(current));
+    }
+
+    void copyInto(List<Booking> target) {
+        target.addAll(Arrays.asList(bookings.get()));
+    }
+
+    /**
+     * Inserts a booking at its start time position so the day never needs sorting.
+     */
+    void insert(Booking booking) {
+        Booking[] current;
+        Booking[] updated;
+        do {
+            current = bookings.get();
+            int index = insertionPoint(current, booking.getStartTime());
+            updated = new Booking[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            updated[index] = booking;
+            System.arraycopy(current, index, updated, index + 1, current.length - index);
+        } while (!bookings.compareAndSet(current, updated));
+    }
+
+    /**
+     * Merges the included bookings of a batch in one pass rather than copying the array for each.
+     *
+     * @param batch    Bookings sorted by start time.
+     * @param included Which bookings of the batch to insert.
+     */
+    void insertAll(Booking[] batch, boolean[] included) {
+        int count = 0;
+        for (boolean include : included) {
+            if (include)
+                count++;
+        }
+        if (count == 0)
+            return;
+        Booking[] current;
+        Booking[] updated;
+        do {
+            current = bookings.get();
+            updated = new Booking[current.length + count];
+            int existing = 0;
+            int next = 0;
+            int target = 0;
+            while (next < batch.length) {
+                if (!included[next]) {
+                    next++;
+                } else if (existing < current.length &&
+                        !current[existing].getStartTime().isAfter(batch[next].getStartTime())) {
+                    updated[target++] = current[existing++];
+                } else {
+                    updated[target++] = batch[next++];
+                }
+            }
+            System.arraycopy(current, existing, updated, target, current.length - existing);
+        } while (!bookings.compareAndSet(current, updated));
+    }
+
+    /**
+     * Removes a booking. Bookings have no equality of their own so this matches on identity.
+     *
+     * @return {@code true} if the booking was present.
+     */
+    boolean delete(Booking booking) {
+        Booking[] current;
+        Booking[] updated;
+        do {
+            current = bookings.get();
+            int index = indexOf(current, booking);
+            if (index < 0)
+                return false;
+            updated = current.length == 1 ? NO_BOOKINGS : new Booking[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+        } while (!bookings.compareAndSet(current, updated));
+        return true;
+    }
+
+    boolean contains(Booking booking) {
+        return indexOf(bookings.get(), booking) >= 0;
+    }
+
+    private static int indexOf(Booking[] bookings, Booking booking) {
+        for (int i = insertionPoint(bookings, booking.getStartTime()) - 1; i >= 0; i--) {
+            if (bookings[i] == booking)
+                return i;
+            if (!bookings[i].getStartTime().equals(booking.getStartTime()))
+                break;
+        }
+        return -1;
+    }
+
+    /**
+     * Binary search for the index just past the last booking starting at or before the given time.
+     */
+    private static int insertionPoint(Booking[] bookings, LocalTime startTime) {
+        int low = 0;
+        int high = bookings.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bookings[mid].getStartTime().isAfter(startTime))
+                high = mid;
+            else
+                low = mid + 1;
+        }
+        return low;
+    }
+}
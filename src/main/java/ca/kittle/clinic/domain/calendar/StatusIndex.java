@@ -0,0 +1,72 @@
+package ca.kittle.clinic.domain.calendar;
+
+import ca.kittle.clinic.domain.Booking;
+import ca.kittle.clinic.domain.Booking.BookingStatus;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A calendar's bookings partitioned by status, each partition indexed by date with the day's bookings in start
+ * time order. Questions like "today's confirmed bookings" or "this month's no-shows" read just the matching
+ * partition and dates rather than filtering every booking.
+ * <p>
+ * A booking whose status changes is moved from one partition to another, so a concurrent reader may briefly
+ * miss it; each partition on its own is always consistent.
+ */
+class StatusIndex {
+
+    private final Map<BookingStatus, ConcurrentNavigableMap<LocalDate, SortedBookings>> partitions =
+            new EnumMap<>(BookingStatus.class);
+
+    StatusIndex() {
+        for (BookingStatus status : BookingStatus.values())
+            partitions.put(status, new ConcurrentSkipListMap<>());
+    }
+
+    /**
+     * File a booking under its current status.
+     */
+    void add(Booking booking) {
+        ConcurrentNavigableMap<LocalDate, SortedBookings> days = partitions.get(booking.getStatus());
+        SortedBookings day = days.get(booking.getDate());
+        if (day == null) {
+            SortedBookings created = new SortedBookings();
+            SortedBookings raced = days.putIfAbsent(booking.getDate(), created);
+            day = raced == null ? created : raced;
+        }
+        day.insert(booking);
+    }
+
+    /**
+     * @return {@code true} if the booking was filed under the status.
+     */
+    boolean remove(BookingStatus status, Booking booking) {
+        SortedBookings day = partitions.get(status).get(booking.getDate());
+        return day != null && day.delete(booking);
+    }
+
+    /**
+     * @return {@code true} if the booking is filed under its current status.
+     */
+    boolean contains(Booking booking) {
+        SortedBookings day = partitions.get(booking.getStatus()).get(booking.getDate());
+        return day != null && day.contains(booking);
+    }
+
+    List<Booking> list(BookingStatus status, LocalDate forDate) {
+        SortedBookings day = partitions.get(status).get(forDate);
+        return day == null ? List.of() : day.view();
+    }
+
+    List<Booking> list(BookingStatus status, LocalDate fromDate, LocalDate toDate) {
+        List<Booking> result = new ArrayList<>();
+        partitions.get(status).subMap(fromDate, true, toDate, true).values().forEach(day -> day.copyInto(result));
+        return List.copyOf(result);
+    }
+}
@@ -0,0 +1,153 @@
+package ca.kittle.clinic.domain.calendar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A hashed timing wheel: a ring of buckets, one per tick, each holding the timeouts due on ticks that map to
+ * it. Scheduling and cancelling are O(1) however many timeouts are pending, and advancing the wheel only visits
+ * the buckets for the ticks that have passed. Timeouts more than one turn of the wheel away wait in their bucket
+ * until the wheel comes round to their tick.
+ * <p>
+ * The wheel has no thread of its own; whoever needs expired timeouts gone calls {@link #advance}. Expiry
+ * callbacks run on the advancing thread, outside the wheel's lock.
+ *
+ * @param <T> The item each timeout is for.
+ */
+class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final Bucket<T>[] buckets;
+    private final int mask;
+    private volatile long currentTick = Long.MIN_VALUE;
+
+    /**
+     * @param tickMillis The resolution of the wheel; timeouts fire up to one tick late.
+     * @param ticks      The number of buckets, rounded up to a power of two.
+     */
+    TimingWheel(long tickMillis, int ticks) {
+        this.tickMillis = tickMillis;
+        int size = Integer.highestOneBit(Math.max(1, ticks - 1)) << 1;
+        @SuppressWarnings("unchecked")
+        Bucket<T>[] ring = new Bucket[size];
+        for (int i = 0; i < size; i++)
+            ring[i] = new Bucket<>();
+        this.buckets = ring;
+        this.mask = size - 1;
+    }
+
+    /**
+     * Schedule an item to expire at a time. Times already passed expire on the next advance.
+     *
+     * @param item           The item to hand back when the timeout expires.
+     * @param deadlineMillis The time, in milliseconds, the timeout expires.
+     * @return A handle for cancelling the timeout.
+     */
+    synchronized Timeout<T> schedule(T item, long deadlineMillis) {
+        long tick = Math.floorDiv(deadlineMillis, tickMillis);
+        if (currentTick != Long.MIN_VALUE && tick <= currentTick)
+            tick = currentTick + 1;
+        Timeout<T> timeout = new Timeout<>(this, item, tick);
+        buckets[(int) (tick & mask)].append(timeout);
+        return timeout;
+    }
+
+    /**
+     * Move the wheel on to a time, expiring every timeout due by then.
+     *
+     * @param nowMillis The current time in milliseconds.
+     * @param expired   Called with the item of each expired timeout.
+     */
+    void advance(long nowMillis, Consumer<T> expired) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        // Cheap unlocked check, almost every call lands within the current tick
+        if (targetTick <= currentTick)
+            return;
+        List<T> due = new ArrayList<>();
+        synchronized (this) {
+            if (targetTick <= currentTick)
+                return;
+            // A jump of more than one turn visits every bucket once
+            long firstTick = currentTick == Long.MIN_VALUE ? targetTick - mask : currentTick + 1;
+            long fromTick = Math.max(firstTick, targetTick - mask);
+            for (long tick = fromTick; tick <= targetTick; tick++)
+                buckets[(int) (tick & mask)].expire(targetTick, due);
+            currentTick = targetTick;
+        }
+        due.forEach(expired);
+    }
+
+    /**
+     * A scheduled expiry, linked into its bucket so it can be cancelled without a search.
+     */
+    static final class Timeout<T> {
+
+        private final TimingWheel<T> wheel;
+        private final T item;
+        private final long deadlineTick;
+        private Bucket<T> bucket;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+
+        private Timeout(TimingWheel<T> wheel, T item, long deadlineTick) {
+            this.wheel = wheel;
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * @return {@code true} if the timeout was cancelled, {@code false} if it had already expired or been cancelled.
+         */
+        boolean cancel() {
+            synchronized (wheel) {
+                if (bucket == null)
+                    return false;
+                bucket.unlink(this);
+                return true;
+            }
+        }
+    }
+
+    private static final class Bucket<T> {
+
+        private Timeout<T> head;
+        private Timeout<T> tail;
+
+        private void append(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.previous = tail;
+            if (tail == null)
+                head = timeout;
+            else
+                tail.next = timeout;
+            tail = timeout;
+        }
+
+        private void unlink(Timeout<T> timeout) {
+            if (timeout.previous == null)
+                head = timeout.next;
+            else
+                timeout.previous.next = timeout.next;
+            if (timeout.next == null)
+                tail = timeout.previous;
+            else
+                timeout.next.previous = timeout.previous;
+            timeout.bucket = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+
+        private void expire(long targetTick, List<T> due) {
+            Timeout<T> timeout = head;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                if (timeout.deadlineTick <= targetTick) {
+                    unlink(timeout);
+                    due.add(timeout.item);
+                }
+                timeout = next;
+            }
+        }
+    }
+}
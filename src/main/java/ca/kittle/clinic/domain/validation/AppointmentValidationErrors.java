@@ -0,0 +1,39 @@
+package ca.kittle.clinic.domain.validation;
+
+import java.util.List;
+
+/**
+ * The bit for each kind of {@link AppointmentValidationError}, see {@link ValidationErrorSet}.
+ */
+public final class AppointmentValidationErrors {
+
+    public static final ValidationErrorSet<AppointmentValidationError> ERRORS = new ValidationErrorSet<>(
+            new AppointmentValidationError.EarliestDateNullError(),
+            new AppointmentValidationError.TypeNullError(),
+            new AppointmentValidationError.DateNullError(),
+            new AppointmentValidationError.StartTimeNullError(),
+            new AppointmentValidationError.PatientNullError(),
+            new AppointmentValidationError.PractitionerNullError(),
+            new AppointmentValidationError.CannotCreateAppointmentError());
+
+    public static final long NONE = 0L;
+    public static final long EARLIEST_DATE_NULL =
+            ERRORS.bitOf(new AppointmentValidationError.EarliestDateNullError());
+    public static final long TYPE_NULL = ERRORS.bitOf(new AppointmentValidationError.TypeNullError());
+    public static final long DATE_NULL = ERRORS.bitOf(new AppointmentValidationError.DateNullError());
+    public static final long START_TIME_NULL = ERRORS.bitOf(new AppointmentValidationError.StartTimeNullError());
+    public static final long PATIENT_NULL = ERRORS.bitOf(new AppointmentValidationError.PatientNullError());
+    public static final long PRACTITIONER_NULL = ERRORS.bitOf(new AppointmentValidationError.PractitionerNullError());
+    public static final long CANNOT_CREATE =
+            ERRORS.bitOf(new AppointmentValidationError.CannotCreateAppointmentError());
+
+    private AppointmentValidationErrors() {
+    }
+
+    /**
+     * @return The errors in the bitset, see {@link ValidationErrorSet#toList}.
+     */
+    public static List<AppointmentValidationError> toList(long errors) {
+        return ERRORS.toList(errors);
+    }
+}
@@ -0,0 +1,53 @@
+package ca.kittle.clinic.domain.validation;
+
+import java.util.List;
+
+/**
+ * The bit for each kind of {@link BookingValidationError}, see {@link ValidationErrorSet}. Lists of errors are
+ * built in the order rules are checked: missing values first, then the booking time rules.
+ */
+public final class BookingValidationErrors {
+
+    public static final ValidationErrorSet<BookingValidationError> ERRORS = new ValidationErrorSet<>(
+            new BookingValidationError.EarliestDateNullError(),
+            new BookingValidationError.ClinicHoursNullError(),
+            new BookingValidationError.TypeNullError(),
+            new BookingValidationError.DateNullError(),
+            new BookingValidationError.StartTimeNullError(),
+            new BookingValidationError.PatientNullError(),
+            new BookingValidationError.PractitionerNullError(),
+            new BookingValidationError.DateInPastError(),
+            new BookingValidationError.TimeInPastError(),
+            new BookingValidationError.DesiredStartTimeError(),
+            new BookingValidationError.TooSoonToAppointmentError(),
+            new BookingValidationError.OutsideBusinessHoursError(),
+            new BookingValidationError.BookingOverlapsAnotherError(),
+            new BookingValidationError.CannotCreateBookingError());
+
+    public static final long NONE = 0L;
+    public static final long EARLIEST_DATE_NULL = ERRORS.bitOf(new BookingValidationError.EarliestDateNullError());
+    public static final long CLINIC_HOURS_NULL = ERRORS.bitOf(new BookingValidationError.ClinicHoursNullError());
+    public static final long TYPE_NULL = ERRORS.bitOf(new BookingValidationError.TypeNullError());
+    public static final long DATE_NULL = ERRORS.bitOf(new BookingValidationError.DateNullError());
+    public static final long START_TIME_NULL = ERRORS.bitOf(new BookingValidationError.StartTimeNullError());
+    public static final long PATIENT_NULL = ERRORS.bitOf(new BookingValidationError.PatientNullError());
+    public static final long PRACTITIONER_NULL = ERRORS.bitOf(new BookingValidationError.PractitionerNullError());
+    public static final long DATE_IN_PAST = ERRORS.bitOf(new BookingValidationError.DateInPastError());
+    public static final long TIME_IN_PAST = ERRORS.bitOf(new BookingValidationError.TimeInPastError());
+    public static final long DESIRED_START_TIME = ERRORS.bitOf(new BookingValidationError.DesiredStartTimeError());
+    public static final long TOO_SOON = ERRORS.bitOf(new BookingValidationError.TooSoonToAppointmentError());
+    public static final long OUTSIDE_BUSINESS_HOURS =
+            ERRORS.bitOf(new BookingValidationError.OutsideBusinessHoursError());
+    public static final long OVERLAPS_ANOTHER = ERRORS.bitOf(new BookingValidationError.BookingOverlapsAnotherError());
+    public static final long CANNOT_CREATE = ERRORS.bitOf(new BookingValidationError.CannotCreateBookingError());
+
+    private BookingValidationErrors() {
+    }
+
+    /**
+     * @return The errors in the bitset, see {@link ValidationErrorSet#toList}.
+     */
+    public static List<BookingValidationError> toList(long errors) {
+        return ERRORS.toList(errors);
+    }
+}
@@ -0,0 +1,13 @@
+package ca.kittle.clinic.domain.validation;
+
+public sealed interface PatientValidationError {
+
+    record DuplicateIdError() implements PatientValidationError {
+    }
+
+    record DuplicateEmailError() implements PatientValidationError {
+    }
+
+    record DuplicatePhoneNumberError() implements PatientValidationError {
+    }
+}
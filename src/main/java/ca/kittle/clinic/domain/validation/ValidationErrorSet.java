@@ -0,0 +1,68 @@
+package ca.kittle.clinic.domain.validation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Validation errors as a bitset in a {@code long}, one bit per kind of error, so a value that passes validation
+ * costs nothing more than a zero. Each kind of error has one canonical instance, and a list of errors is only
+ * built when a caller asks for it.
+ *
+ * @param <E> The kind of validation error.
+ */
+public final class ValidationErrorSet<E> {
+
+    private static final String TOO_MANY_ERRORS = "A validation error set holds at most 64 kinds of error";
+    private static final String UNKNOWN_ERROR = "Unknown validation error: ";
+
+    private final List<E> errors;
+    // A list for each error on its own, as most failures are a single error
+    private final List<List<E>> singleErrors;
+
+    /**
+     * @param errors The canonical instance of each kind of error, in the order lists of them are built in.
+     */
+    @SafeVarargs
+    ValidationErrorSet(E... errors) {
+        if (errors.length > Long.SIZE)
+            throw new IllegalArgumentException(TOO_MANY_ERRORS);
+        this.errors = List.of(errors);
+        List<List<E>> singles = new ArrayList<>(errors.length);
+        for (E error : errors)
+            singles.add(List.of(error));
+        this.singleErrors = List.copyOf(singles);
+    }
+
+    /**
+     * @param error Any instance of the kind of error.
+     * @return The bit for the kind of error.
+     */
+    public long bitOf(E error) {
+        int index = errors.indexOf(error);
+        if (index < 0)
+            throw new IllegalArgumentException(UNKNOWN_ERROR + error);
+        return 1L << index;
+    }
+
+    /**
+     * @return {@code true} if the bitset includes the kind of error.
+     */
+    public boolean contains(long bits, E error) {
+        return (bits & bitOf(error)) != 0;
+    }
+
+    /**
+     * @param bits The errors found.
+     * @return The canonical instances of the errors, in the order the set was built with.
+     */
+    public List<E> toList(long bits) {
+        if (bits == 0)
+            return List.of();
+        if (Long.bitCount(bits) == 1)
+            return singleErrors.get(Long.numberOfTrailingZeros(bits));
+        List<E> found = new ArrayList<>(Long.bitCount(bits));
+        for (long remaining = bits; remaining != 0; remaining &= remaining - 1)
+            found.add(errors.get(Long.numberOfTrailingZeros(remaining)));
+        return List.copyOf(found);
+    }
+}
@@ -0,0 +1,16 @@
+package ca.kittle.clinic.domain.validation;
+
+/**
+ * How much of a value is checked once it is known to be invalid.
+ */
+public enum ValidationMode {
+    /**
+     * Check every rule and report every error, e.g. so a form can show them all at once.
+     */
+    COLLECT_ALL,
+    /**
+     * Check the cheapest rules first and stop at the first error, e.g. for an API that only reports one.
+     * Which error is reported can differ from the first one {@link #COLLECT_ALL} lists.
+     */
+    FAIL_FAST
+}
@@ -0,0 +1,477 @@
+package ca.kittle.clinic.journal;
+
+import ca.kittle.clinic.domain.Appointment;
+import ca.kittle.clinic.domain.Booking;
+import ca.kittle.clinic.domain.BookingEvents;
+import ca.kittle.clinic.domain.Clinic;
+import ca.kittle.clinic.domain.Patient;
+import ca.kittle.clinic.domain.Practitioner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only journal of booking changes, so practitioners' calendars survive a restart.
+ * <p>
+ * Every change is one fixed-size binary record (see {@link #RECORD_BYTES}) checked by a CRC, appended to a single
+ * file. Attach the journal to a clinic with {@link Clinic#setBookingEvents} and every confirmed booking,
+ * cancellation, no-show, completion and new appointment is recorded. At startup, {@link #replay} the file into a
+ * clinic whose practitioners have their original ids <em>before</em> attaching the journal again, otherwise the
+ * replay itself would be journaled.
+ * <p>
+ * How appends are made durable depends on the {@link SyncPolicy}. With group commit each append waits until its
+ * record is on disk, but one thread's fsync covers every record appended before it started, so concurrent
+ * bookings share the cost of a sync rather than queueing for one each. If a write or sync fails the append
+ * throws, but its record stays buffered and goes out with the next sync that succeeds.
+ */
+public final class BookingJournal implements BookingEvents, Closeable {
+
+    /**
+     * type(1) appointment type(1) start minute(2) epoch day(4) practitioner id(16) patient id(16) booking id(16)
+     * crc(4). Appointments have no booking id of their own, so theirs is all zeros. A status change records the
+     * status the booking moved to in place of the appointment type, which the booking already has.
+     */
+    public static final int RECORD_BYTES = 60;
+    static final int HEADER_BYTES = 8;
+
+    private static final int MAGIC = 0x434C4A31; // "CLJ1"
+    private static final int VERSION = 3;
+    private static final UUID NO_BOOKING = new UUID(0, 0);
+    private static final int CRC_OFFSET = RECORD_BYTES - Integer.BYTES;
+    private static final int BUFFER_RECORDS = 4096;
+    private static final int REPLAY_BUFFER_BYTES = RECORD_BYTES * 16 * 1024;
+    private static final Appointment.AppointmentType[] APPOINTMENT_TYPES = Appointment.AppointmentType.values();
+    private static final Booking.BookingStatus[] STATUSES = Booking.BookingStatus.values();
+
+    private static final String PATH_NULL_ERROR = "Journal path cannot be null";
+    private static final String POLICY_NULL_ERROR = "Sync policy cannot be null";
+    private static final String CLINIC_NULL_ERROR = "Clinic cannot be null";
+    private static final String PATIENTS_NULL_ERROR = "Patient lookup cannot be null";
+    private static final String NOT_A_JOURNAL_ERROR = "File is not a booking journal: ";
+    private static final String POSITION_ERROR = "Position must be one returned by the journal";
+
+    public enum SyncPolicy {
+        /**
+         * Each append returns once its record has been forced to disk, sharing syncs with concurrent appends.
+         */
+        GROUP_COMMIT,
+        /**
+         * Appends return straight away; records reach the disk when the buffer fills, on {@link #flush} and on
+         * {@link #close}. For bulk loads where losing the tail of the journal in a crash is acceptable.
+         */
+        ON_FLUSH
+    }
+
+    enum RecordType {
+        BOOKING_ADDED, BOOKING_CANCELLED, APPOINTMENT_CREATED, BOOKING_STATUS_CHANGED
+    }
+
+    private static final RecordType[] RECORD_TYPES = RecordType.values();
+
+    private final FileChannel channel;
+    private final SyncPolicy syncPolicy;
+    private final ByteBuffer pending = ByteBuffer.allocateDirect(RECORD_BYTES * BUFFER_RECORDS);
+    private final CRC32C crc = new CRC32C();
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+    private final long openedAt;
+    private long appended;
+    private volatile long durable;
+
+    private BookingJournal(FileChannel channel, SyncPolicy syncPolicy, long openedAt) {
+        this.channel = channel;
+        this.syncPolicy = syncPolicy;
+        this.openedAt = openedAt;
+    }
+
+    /**
+     * Open a journal for appending, creating it if it doesn't exist. A record left torn at the end by a crash is
+     * cut off first, so new records always start on a record boundary.
+     *
+     * @param path       The journal file.
+     * @param syncPolicy How appends are made durable.
+     * @return The journal, positioned after its last record.
+     * @throws UncheckedIOException if the file can't be opened or isn't a booking journal.
+     */
+    public static BookingJournal open(Path path, SyncPolicy syncPolicy) {
+        if (path == null)
+            throw new IllegalArgumentException(PATH_NULL_ERROR);
+        if (syncPolicy == null)
+            throw new IllegalArgumentException(POLICY_NULL_ERROR);
+        try {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+                while (header.hasRemaining())
+                    channel.write(header);
+                channel.force(true);
+            } else {
+                checkHeader(channel, path);
+                trimTornTail(channel);
+            }
+            channel.position(channel.size());
+            return new BookingJournal(channel, syncPolicy, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void bookingAdded(Booking booking) {
+        append(RecordType.BOOKING_ADDED, booking.getPractitioner(), booking.getPatient(),
+                booking.getAppointmentType(), booking.getDate(), booking.getStartTime(), booking.getId());
+    }
+
+    @Override
+    public void bookingCancelled(Booking booking) {
+        append(RecordType.BOOKING_CANCELLED, booking.getPractitioner(), booking.getPatient(),
+                booking.getAppointmentType(), booking.getDate(), booking.getStartTime(), booking.getId());
+    }
+
+    @Override
+    public void bookingStatusChanged(Booking booking) {
+        append(RecordType.BOOKING_STATUS_CHANGED, booking.getPractitioner(), booking.getPatient(),
+                booking.getStatus().ordinal(), booking.getDate(), booking.getStartTime(), booking.getId());
+    }
+
+    @Override
+    public void appointmentCreated(Appointment appointment) {
+        append(RecordType.APPOINTMENT_CREATED, appointment.getPractitioner(), appointment.getPatient(),
+                appointment.getType(), appointment.getDate(), appointment.getStartTime(), NO_BOOKING);
+    }
+
+    /**
+     * The position just after the last record forced to disk, so a crash can't leave the journal shorter than it.
+     * A {@link CalendarSnapshot} records it, after a {@link #flush}, so that after loading the snapshot only the
+     * records from there on need replaying.
+     *
+     * @return The position in bytes from the start of the file.
+     */
+    public long position() {
+        return openedAt + durable * RECORD_BYTES;
+    }
+
+    /**
+     * Force every record appended so far to disk.
+     */
+    public void flush() {
+        long upTo;
+        synchronized (appendLock) {
+            upTo = appended;
+        }
+        sync(upTo);
+    }
+
+    @Override
+    public void close() {
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void append(RecordType type, Practitioner practitioner, Patient patient,
+                Appointment.AppointmentType appointmentType, LocalDate date, LocalTime startTime, UUID bookingId) {
+        append(type, practitioner, patient, appointmentType.ordinal(), date, startTime, bookingId);
+    }
+
+    /**
+     * @param detail The appointment type's ordinal, or the new status's for a status change.
+     */
+    private void append(RecordType type, Practitioner practitioner, Patient patient, int detail, LocalDate date,
+                        LocalTime startTime, UUID bookingId) {
+        long sequence;
+        synchronized (appendLock) {
+            if (pending.remaining() < RECORD_BYTES)
+                writePending();
+            int start = pending.position();
+            pending.put((byte) type.ordinal())
+                    .put((byte) detail)
+                    .putShort((short) (startTime.toSecondOfDay() / 60))
+                    .putInt((int) date.toEpochDay())
+                    .putLong(practitioner.getId().getMostSignificantBits())
+                    .putLong(practitioner.getId().getLeastSignificantBits())
+                    .putLong(patient.getId().getMostSignificantBits())
+                    .putLong(patient.getId().getLeastSignificantBits())
+                    .putLong(bookingId.getMostSignificantBits())
+                    .putLong(bookingId.getLeastSignificantBits());
+            pending.putInt(crcOf(crc, pending, start));
+            sequence = ++appended;
+        }
+        if (syncPolicy == SyncPolicy.GROUP_COMMIT)
+            sync(sequence);
+    }
+
+    /**
+     * Whichever thread gets the sync lock first writes and forces everything appended so far, so the threads
+     * queued behind it usually find their record already durable and return without a sync of their own.
+     */
+    private void sync(long sequence) {
+        if (durable >= sequence)
+            return;
+        synchronized (syncLock) {
+            if (durable >= sequence)
+                return;
+            long upTo;
+            synchronized (appendLock) {
+                writePending();
+                upTo = appended;
+            }
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            durable = upTo;
+        }
+    }
+
+    /**
+     * Records that can't be written stay in the buffer, after any part of them that was, to go with the next write.
+     */
+    private void writePending() {
+        pending.flip();
+        try {
+            while (pending.hasRemaining())
+                channel.write(pending);
+        } catch (IOException e) {
+            pending.compact();
+            throw new UncheckedIOException(e);
+        }
+        pending.clear();
+    }
+
+    /**
+     * Rebuild a clinic's calendars from a journal. Practitioners are matched on id, so the clinic must already
+     * have its practitioners, and patients are looked up as they are needed. Records for unknown practitioners
+     * or patients, or that no longer apply, are skipped. A torn or corrupt record ends the journal: it and
+     * anything after it are cut off so the next append follows the last good record.
+     *
+     * @param path     The journal file; a missing file replays nothing.
+     * @param clinic   The clinic to rebuild.
+     * @param patients Finds a patient by id, or returns null if there is no such patient.
+     * @return What was replayed.
+     * @throws UncheckedIOException if the file can't be read or isn't a booking journal.
+     */
+    public static JournalReplay replay(Path path, Clinic clinic, Function<UUID, Patient> patients) {
+        return replay(path, clinic, patients, HEADER_BYTES);
+    }
+
+    /**
+     * Replay the records from a position on, e.g. the {@link #position} a {@link CalendarSnapshot} was taken
+     * at once the snapshot has been loaded. Records written while the snapshot was being taken may already be
+     * in it; bookings and appointments the clinic already has are skipped rather than added twice.
+     *
+     * @param path         The journal file; a missing file replays nothing.
+     * @param clinic       The clinic to bring up to date.
+     * @param patients     Finds a patient by id, or returns null if there is no such patient.
+     * @param fromPosition Where to start, a position returned by {@link #position}.
+     * @return What was replayed.
+     * @throws UncheckedIOException if the file can't be read or isn't a booking journal.
+     */
+    public static JournalReplay replay(Path path, Clinic clinic, Function<UUID, Patient> patients,
+                                       long fromPosition) {
+        if (fromPosition < HEADER_BYTES || (fromPosition - HEADER_BYTES) % RECORD_BYTES != 0)
+            throw new IllegalArgumentException(POSITION_ERROR);
+        if (path == null)
+            throw new IllegalArgumentException(PATH_NULL_ERROR);
+        if (clinic == null)
+            throw new IllegalArgumentException(CLINIC_NULL_ERROR);
+        if (patients == null)
+            throw new IllegalArgumentException(PATIENTS_NULL_ERROR);
+        if (!path.toFile().exists())
+            return new JournalReplay(0, 0, false);
+
+        Replayer replayer = new Replayer(clinic, patients);
+        CRC32C crc = new CRC32C();
+        long records = 0;
+        long skipped = 0;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            checkHeader(channel, path);
+            long fileSize = channel.size();
+            long position = fromPosition;
+            ByteBuffer buffer = ByteBuffer.allocateDirect(REPLAY_BUFFER_BYTES);
+            boolean corrupt = false;
+            while (!corrupt && position + RECORD_BYTES <= fileSize) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), (fileSize - position) / RECORD_BYTES * RECORD_BYTES));
+                while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+                    // Keep reading until the chunk is full
+                }
+                buffer.flip();
+                while (buffer.remaining() >= RECORD_BYTES) {
+                    int start = buffer.position();
+                    if (!isValidRecord(crc, buffer, start)) {
+                        corrupt = true;
+                        break;
+                    }
+                    records++;
+                    if (!replayer.apply(buffer))
+                        skipped++;
+                    buffer.position(start + RECORD_BYTES);
+                    position += RECORD_BYTES;
+                }
+            }
+            boolean truncated = position < fileSize;
+            if (truncated) {
+                channel.truncate(position);
+                channel.force(true);
+            }
+            return new JournalReplay(records, skipped, truncated);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Cuts off what a crash mid-append can leave at the end: part of a record, or whole records that fail their
+     * CRC. Corruption further back is left for {@link #replay} to find.
+     */
+    private static void trimTornTail(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long end = size - (size - HEADER_BYTES) % RECORD_BYTES;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        CRC32C crc = new CRC32C();
+        for (; end > HEADER_BYTES; end -= RECORD_BYTES) {
+            record.clear();
+            while (record.hasRemaining() && channel.read(record, end - RECORD_BYTES + record.position()) >= 0) {
+                // Keep reading until the record is full
+            }
+            if (isValidRecord(crc, record, 0))
+                break;
+        }
+        if (end < size) {
+            channel.truncate(end);
+            channel.force(true);
+        }
+    }
+
+    private static boolean isValidRecord(CRC32C crc, ByteBuffer buffer, int start) {
+        return crcOf(crc, buffer, start) == buffer.getInt(start + CRC_OFFSET) && isKnownRecord(buffer, start);
+    }
+
+    /**
+     * @return The CRC of the record starting at a position in the buffer, over everything but the CRC itself.
+     */
+    private static int crcOf(CRC32C crc, ByteBuffer buffer, int start) {
+        crc.reset();
+        crc.update(buffer.duplicate().position(start).limit(start + CRC_OFFSET));
+        return (int) crc.getValue();
+    }
+
+    private static boolean isKnownRecord(ByteBuffer buffer, int start) {
+        int type = buffer.get(start) & 0xFF;
+        if (type >= RECORD_TYPES.length)
+            return false;
+        int detail = buffer.get(start + 1) & 0xFF;
+        return detail < (RECORD_TYPES[type] == RecordType.BOOKING_STATUS_CHANGED ?
+                STATUSES.length :
+                APPOINTMENT_TYPES.length);
+    }
+
+    /**
+     * Applies records to a clinic, remembering the practitioners, patients and appointments it has looked up.
+     */
+    private static final class Replayer {
+
+        private final Clinic clinic;
+        private final Function<UUID, Patient> patients;
+        private final Map<UUID, Practitioner> practitionersById = new HashMap<>();
+        private final Map<UUID, Patient> patientsById = new HashMap<>();
+        private final Map<Practitioner, Set<AppointmentKey>> appointments = new HashMap<>();
+
+        private Replayer(Clinic clinic, Function<UUID, Patient> patients) {
+            this.clinic = clinic;
+            this.patients = patients;
+            clinic.getPractitioners().forEach(practitioner -> practitionersById.put(practitioner.getId(), practitioner));
+        }
+
+        /**
+         * Apply the record at the buffer's position, leaving the position where it was.
+         *
+         * @return {@code true} if the record changed the clinic.
+         */
+        private boolean apply(ByteBuffer buffer) {
+            int start = buffer.position();
+            RecordType type = RECORD_TYPES[buffer.get(start)];
+            int detail = buffer.get(start + 1);
+            LocalTime startTime = LocalTime.ofSecondOfDay(buffer.getShort(start + 2) * 60L);
+            LocalDate date = LocalDate.ofEpochDay(buffer.getInt(start + 4));
+            Practitioner practitioner = practitionersById.get(
+                    new UUID(buffer.getLong(start + 8), buffer.getLong(start + 16)));
+            UUID patientId = new UUID(buffer.getLong(start + 24), buffer.getLong(start + 32));
+            Patient patient = patientsById.computeIfAbsent(patientId, patients);
+            if (practitioner == null || patient == null)
+                return false;
+            UUID bookingId = new UUID(buffer.getLong(start + 40), buffer.getLong(start + 48));
+
+            // Bookings are found by id, so replaying a record reads at most the one archived day the booking is on
+            return switch (type) {
+                case BOOKING_ADDED -> practitioner.findBooking(bookingId).isEmpty() &&
+                        practitioner.restoreBooking(bookingId, patient, clinic, APPOINTMENT_TYPES[detail], date,
+                                startTime).isRight();
+                case BOOKING_CANCELLED -> practitioner.findBooking(bookingId)
+                        .map(practitioner::cancelBooking)
+                        .orElse(false);
+                case APPOINTMENT_CREATED -> appointmentsOf(practitioner)
+                        .add(new AppointmentKey(date, startTime, patientId)) &&
+                        practitioner.restoreAppointment(patient, APPOINTMENT_TYPES[detail], date, startTime).isRight();
+                case BOOKING_STATUS_CHANGED -> practitioner.findBooking(bookingId)
+                        .map(booking -> changeStatus(practitioner, booking, STATUSES[detail]))
+                        .orElse(false);
+            };
+        }
+
+        /**
+         * Replays a status change the way it was made, so a booking already in the status is skipped.
+         */
+        private static boolean changeStatus(Practitioner practitioner, Booking booking, Booking.BookingStatus status) {
+            return switch (status) {
+                case NO_SHOW -> practitioner.markNoShow(booking);
+                case COMPLETED -> practitioner.markCompleted(booking);
+                case PENDING, CONFIRMED, CANCELLED -> false;
+            };
+        }
+
+        private Set<AppointmentKey> appointmentsOf(Practitioner practitioner) {
+            return appointments.computeIfAbsent(practitioner, owner -> {
+                Set<AppointmentKey> keys = new HashSet<>();
+                for (Appointment appointment : owner.getAppointments())
+                    keys.add(new AppointmentKey(
+                            appointment.getDate(), appointment.getStartTime(), appointment.getPatient().getId()));
+                return keys;
+            });
+        }
+    }
+
+    private record AppointmentKey(LocalDate date, LocalTime startTime, UUID patientId) {
+    }
+
+    private static void checkHeader(FileChannel channel, Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            // Keep reading until the header is full
+        }
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION)
+            throw new UncheckedIOException(new IOException(NOT_A_JOURNAL_ERROR + path));
+    }
+}
@@ -0,0 +1,436 @@
+package ca.kittle.clinic.journal;
+
+import ca.kittle.clinic.domain.Appointment;
+import ca.kittle.clinic.domain.Booking;
+import ca.kittle.clinic.domain.Clinic;
+import ca.kittle.clinic.domain.Patient;
+import ca.kittle.clinic.domain.Practitioner;
+import ca.kittle.clinic.domain.calendar.DayArchive;
+import ca.kittle.clinic.domain.calendar.IndexSort;
+import ca.kittle.clinic.domain.calendar.SlotGrid;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A point-in-time copy of every practitioner's bookings and appointments in a fixed-layout file, so startup
+ * doesn't have to replay the whole {@link BookingJournal}.
+ * <p>
+ * Loading a snapshot maps the file into memory and hands each practitioner a {@link DayArchive} over their part
+ * of it; the only bookings read at startup are appointments. Availability is answered from the mapped per-day
+ * occupancy straight away, and a day's bookings are decoded the first time they are needed, with the operating
+ * system paging in just the parts of the file that are touched. Loading therefore costs the same however many
+ * bookings the snapshot holds. Afterwards, replay the journal from the snapshot's
+ * {@link SnapshotLoad#journalPosition} to catch up with changes made since.
+ * <p>
+ * The layout, big-endian throughout:
+ * <pre>
+ * header        magic(4) version(4) journal position(8) practitioners(4) appointments(4) appointments offset(8)
+ *               slot minutes(4) reserved(4)
+ * practitioner  id(16) region offset(8) days(4) bookings(4) occupying bookings(4) patient days(4)
+ * region        bookings, each: start minute(2) appointment type(1) status(1) patient id(16) booking id(16),
+ *               by date and time
+ *               then days, each: epoch day(4) first booking(4) occupancy(8 per word of the slot grid), sorted by date
+ *               then booking ids, each: booking id(16) epoch day(4), sorted by id
+ *               then patient days, each: patient id(16) epoch day(4), one per patient per day, sorted by patient
+ *               then date
+ * appointment   practitioner index(4) epoch day(4) start minute(2) appointment type(1) reserved(1) patient id(16)
+ * </pre>
+ * Occupancy is recorded on the clinic's {@link SlotGrid}, and a snapshot can only be loaded into a clinic on the
+ * same grid. The sorted booking ids let a booking be found from its id alone without reading any day, and the
+ * sorted patient days let a patient's bookings be read without reading anyone else's.
+ * <p>
+ * Each practitioner's bookings are streamed into their region, so days restored from an earlier snapshot are
+ * copied across without being read into the calendar. The header and practitioner table are filled in last.
+ * Snapshots are written to a temporary file that replaces the old one in a single move, so a crash while
+ * writing leaves the previous snapshot intact and a snapshot never needs checking when it's loaded.
+ */
+public final class CalendarSnapshot {
+
+    static final int HEADER_BYTES = 40;
+    static final int PRACTITIONER_BYTES = 40;
+    static final int BOOKING_BYTES = 36;
+    static final int BOOKING_ID_BYTES = 20;
+    static final int PATIENT_DAY_BYTES = 20;
+    static final int APPOINTMENT_BYTES = 28;
+
+    private static final int MAGIC = 0x434C5331; // "CLS1"
+    private static final int VERSION = 6;
+
+    private static final String PATH_NULL_ERROR = "Snapshot path cannot be null";
+    private static final String CLINIC_NULL_ERROR = "Clinic cannot be null";
+    private static final String JOURNAL_NULL_ERROR = "Journal cannot be null";
+    private static final String PATIENTS_NULL_ERROR = "Patient lookup cannot be null";
+    private static final String NOT_A_SNAPSHOT_ERROR = "File is not a calendar snapshot: ";
+    private static final String REGION_TOO_LARGE_ERROR = "Practitioner's snapshot is too large to map: ";
+    private static final String GRID_MISMATCH_ERROR = "Snapshot is on a different slot grid to the clinic: ";
+    private static final String NOT_RESTORABLE_ERROR = "Practitioner already has bookings: ";
+
+    private CalendarSnapshot() {
+        // Utility class should not be instantiated
+    }
+
+    /**
+     * Write a snapshot of a clinic. Bookings still pending are left out, like holds in the journal.
+     * The journal is flushed and its position read before the clinic, so replaying from it after loading the
+     * snapshot can't miss a change made while the snapshot was being written, and a crash can't leave the journal
+     * shorter than the position.
+     *
+     * @param path    The snapshot file, replaced if it exists.
+     * @param clinic  The clinic to snapshot.
+     * @param journal The clinic's journal.
+     * @throws UncheckedIOException if the snapshot can't be written.
+     */
+    public static void write(Path path, Clinic clinic, BookingJournal journal) {
+        if (path == null)
+            throw new IllegalArgumentException(PATH_NULL_ERROR);
+        if (clinic == null)
+            throw new IllegalArgumentException(CLINIC_NULL_ERROR);
+        if (journal == null)
+            throw new IllegalArgumentException(JOURNAL_NULL_ERROR);
+        journal.flush();
+        long journalPosition = journal.position();
+        SlotGrid grid = clinic.getHours().getSlotGrid();
+        List<Practitioner> practitioners = clinic.getPractitioners();
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                long offset = HEADER_BYTES + (long) PRACTITIONER_BYTES * practitioners.size();
+                ByteBuffer table = ByteBuffer.allocate(Math.toIntExact(offset)).position(HEADER_BYTES);
+                channel.position(offset);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Channels.newOutputStream(channel), 1 << 16));
+                for (Practitioner practitioner : practitioners) {
+                    RegionWriter region = new RegionWriter(out, grid);
+                    practitioner.forEachBooking(region);
+                    region.finish();
+                    UUID id = practitioner.getId();
+                    table.putLong(id.getMostSignificantBits())
+                            .putLong(id.getLeastSignificantBits())
+                            .putLong(offset)
+                            .putInt(region.days)
+                            .putInt(region.bookings)
+                            .putInt(region.occupying)
+                            .putInt(region.patientDays);
+                    offset += region.bytes();
+                }
+                int appointmentCount = 0;
+                for (int i = 0; i < practitioners.size(); i++) {
+                    for (Appointment appointment : List.copyOf(practitioners.get(i).getAppointments())) {
+                        writeAppointment(out, i, appointment);
+                        appointmentCount++;
+                    }
+                }
+                out.flush();
+
+                table.putInt(0, MAGIC)
+                        .putInt(4, VERSION)
+                        .putLong(8, journalPosition)
+                        .putInt(16, practitioners.size())
+                        .putInt(20, appointmentCount)
+                        .putLong(24, offset)
+                        .putInt(32, grid.getSlotMinutes())
+                        .putInt(36, 0)
+                        .clear();
+                while (table.hasRemaining())
+                    channel.write(table, table.position());
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Load a snapshot into a clinic whose practitioners have their original ids and no bookings yet. Only the
+     * header, the practitioner table and the appointments are read; every practitioner's bookings stay in the
+     * mapped file until they are needed. Practitioners in the snapshot the clinic doesn't have are skipped.
+     * Every practitioner is checked before any is restored, so a load that fails leaves the clinic as it was.
+     *
+     * @param path     The snapshot file.
+     * @param clinic   The clinic to restore.
+     * @param patients Finds a patient by id. Called as days are loaded, possibly from several threads at once.
+     * @return What was loaded, including where to replay the journal from.
+     * @throws UncheckedIOException  if the file can't be read or isn't a calendar snapshot.
+     * @throws IllegalStateException if a practitioner in the snapshot already has bookings.
+     */
+    public static SnapshotLoad load(Path path, Clinic clinic, Function<UUID, Patient> patients) {
+        if (path == null)
+            throw new IllegalArgumentException(PATH_NULL_ERROR);
+        if (clinic == null)
+            throw new IllegalArgumentException(CLINIC_NULL_ERROR);
+        if (patients == null)
+            throw new IllegalArgumentException(PATIENTS_NULL_ERROR);
+
+        Map<UUID, Practitioner> practitionersById = new HashMap<>();
+        clinic.getPractitioners().forEach(practitioner -> practitionersById.put(practitioner.getId(), practitioner));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES)
+                throw new IOException(NOT_A_SNAPSHOT_ERROR + path);
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                throw new IOException(NOT_A_SNAPSHOT_ERROR + path);
+            long journalPosition = header.getLong(8);
+            int practitionerCount = header.getInt(16);
+            int appointmentCount = header.getInt(20);
+            long appointmentsOffset = header.getLong(24);
+            SlotGrid grid = SlotGrid.of(Duration.ofMinutes(header.getInt(32)));
+            if (!grid.equals(clinic.getHours().getSlotGrid()))
+                throw new IOException(GRID_MISMATCH_ERROR + path);
+            int dayBytes = dayBytes(grid);
+
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES,
+                    (long) PRACTITIONER_BYTES * practitionerCount);
+            Practitioner[] restored = new Practitioner[practitionerCount];
+            for (int i = 0; i < practitionerCount; i++) {
+                int entry = i * PRACTITIONER_BYTES;
+                Practitioner practitioner = practitionersById.get(
+                        new UUID(table.getLong(entry), table.getLong(entry + 8)));
+                if (practitioner == null)
+                    continue;
+                if (!practitioner.canRestoreCalendar())
+                    throw new IllegalStateException(NOT_RESTORABLE_ERROR + practitioner.getId());
+                if (regionBytes(table, entry, dayBytes) > Integer.MAX_VALUE)
+                    throw new IOException(REGION_TOO_LARGE_ERROR + practitioner.getId());
+                restored[i] = practitioner;
+            }
+            int restoredCount = 0;
+            long bookingCount = 0;
+            for (int i = 0; i < practitionerCount; i++) {
+                if (restored[i] == null)
+                    continue;
+                int entry = i * PRACTITIONER_BYTES;
+                int days = table.getInt(entry + 24);
+                int bookings = table.getInt(entry + 28);
+                int occupying = table.getInt(entry + 32);
+                int patientDays = table.getInt(entry + 36);
+                ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, table.getLong(entry + 16),
+                        regionBytes(table, entry, dayBytes));
+                restored[i].restoreCalendar(new MappedDayArchive(
+                        restored[i], region, grid, days, bookings, occupying, patientDays, patients));
+                restoredCount++;
+                bookingCount += bookings;
+            }
+
+            ByteBuffer appointments = channel.map(FileChannel.MapMode.READ_ONLY, appointmentsOffset,
+                    (long) APPOINTMENT_BYTES * appointmentCount);
+            int appointmentsRestored = 0;
+            for (int i = 0; i < appointmentCount; i++) {
+                int entry = i * APPOINTMENT_BYTES;
+                Practitioner practitioner = restored[appointments.getInt(entry)];
+                if (practitioner == null)
+                    continue;
+                Patient patient = patients.apply(new UUID(appointments.getLong(entry + 12),
+                        appointments.getLong(entry + 20)));
+                if (patient == null)
+                    continue;
+                practitioner.restoreAppointment(patient,
+                        MappedDayArchive.APPOINTMENT_TYPES[appointments.get(entry + 10)],
+                        LocalDate.ofEpochDay(appointments.getInt(entry + 4)),
+                        MappedDayArchive.startTimeOf(appointments.getShort(entry + 8)));
+                appointmentsRestored++;
+            }
+            return new SnapshotLoad(journalPosition, restoredCount, bookingCount, appointmentsRestored);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return The bytes of the region of a practitioner's entry in the table.
+     */
+    private static long regionBytes(ByteBuffer table, int entry, int dayBytes) {
+        return (long) dayBytes * table.getInt(entry + 24) + bookingsBytes(table.getInt(entry + 28))
+                + (long) PATIENT_DAY_BYTES * table.getInt(entry + 36);
+    }
+
+    /**
+     * @return The bytes of a region's booking entries and booking ids.
+     */
+    private static long bookingsBytes(int bookings) {
+        return (long) (BOOKING_BYTES + BOOKING_ID_BYTES) * bookings;
+    }
+
+    /**
+     * Orders ids on their two halves as signed numbers, the way {@link MappedDayArchive} searches them.
+     */
+    static int compareIds(long high, long low, long otherHigh, long otherLow) {
+        int compared = Long.compare(high, otherHigh);
+        return compared != 0 ? compared : Long.compare(low, otherLow);
+    }
+
+    /**
+     * @return The bytes of a day entry for occupancy on the grid.
+     */
+    static int dayBytes(SlotGrid grid) {
+        return 2 * Integer.BYTES + grid.getWords() * Long.BYTES;
+    }
+
+    private static void writeAppointment(DataOutputStream out, int practitioner, Appointment appointment)
+            throws IOException {
+        out.writeInt(practitioner);
+        out.writeInt((int) appointment.getDate().toEpochDay());
+        out.writeShort(appointment.getStartTime().toSecondOfDay() / 60);
+        out.writeByte(appointment.getType().ordinal());
+        out.writeByte(0);
+        out.writeLong(appointment.getPatient().getId().getMostSignificantBits());
+        out.writeLong(appointment.getPatient().getId().getLeastSignificantBits());
+    }
+
+    /**
+     * Writes one practitioner's region as their bookings are walked. Booking entries go straight to the file; the
+     * day entries, booking ids and patient days that follow them are kept in primitive arrays until the last
+     * booking.
+     */
+    private static final class RegionWriter implements Consumer<Booking> {
+
+        private final DataOutputStream out;
+        private final SlotGrid grid;
+        private final long[] occupancy;
+        private int days;
+        private int bookings;
+        private int occupying;
+        private int patientDays;
+        private int[] epochDays = new int[16];
+        private int[] firstBookings = new int[16];
+        private long[] occupancies;
+        private long[] idHighBits = new long[64];
+        private long[] idLowBits = new long[64];
+        private int[] idEpochDays = new int[64];
+        private long[] patientHighBits = new long[64];
+        private long[] patientLowBits = new long[64];
+
+        RegionWriter(DataOutputStream out, SlotGrid grid) {
+            this.out = out;
+            this.grid = grid;
+            this.occupancy = grid.empty();
+            this.occupancies = new long[epochDays.length * grid.getWords()];
+        }
+
+        @Override
+        public void accept(Booking booking) {
+            if (booking.getStatus() == Booking.BookingStatus.PENDING)
+                return;
+            int epochDay = (int) booking.getDate().toEpochDay();
+            if (days == 0 || epochDays[days - 1] != epochDay)
+                startDay(epochDay);
+            if (booking.getStatus().isOccupyingTime()) {
+                grid.include(occupancy, booking.getStartTime(), booking.getEndTime());
+                occupying++;
+            }
+            UUID id = booking.getId();
+            UUID patientId = booking.getPatient().getId();
+            try {
+                out.writeShort(booking.getStartTime().toSecondOfDay() / 60);
+                out.writeByte(booking.getAppointmentType().ordinal());
+                out.writeByte(booking.getStatus().ordinal());
+                out.writeLong(patientId.getMostSignificantBits());
+                out.writeLong(patientId.getLeastSignificantBits());
+                out.writeLong(id.getMostSignificantBits());
+                out.writeLong(id.getLeastSignificantBits());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (bookings == idHighBits.length) {
+                idHighBits = Arrays.copyOf(idHighBits, bookings * 2);
+                idLowBits = Arrays.copyOf(idLowBits, bookings * 2);
+                idEpochDays = Arrays.copyOf(idEpochDays, bookings * 2);
+                patientHighBits = Arrays.copyOf(patientHighBits, bookings * 2);
+                patientLowBits = Arrays.copyOf(patientLowBits, bookings * 2);
+            }
+            idHighBits[bookings] = id.getMostSignificantBits();
+            idLowBits[bookings] = id.getLeastSignificantBits();
+            idEpochDays[bookings] = epochDay;
+            patientHighBits[bookings] = patientId.getMostSignificantBits();
+            patientLowBits[bookings] = patientId.getLeastSignificantBits();
+            bookings++;
+        }
+
+        /**
+         * Writes the day entries, the booking ids and the patient days once every booking has been written.
+         */
+        void finish() throws IOException {
+            endDay();
+            int words = grid.getWords();
+            for (int day = 0; day < days; day++) {
+                out.writeInt(epochDays[day]);
+                out.writeInt(firstBookings[day]);
+                for (int word = 0; word < words; word++)
+                    out.writeLong(occupancies[day * words + word]);
+            }
+            for (int i : sorted(idHighBits, idLowBits)) {
+                out.writeLong(idHighBits[i]);
+                out.writeLong(idLowBits[i]);
+                out.writeInt(idEpochDays[i]);
+            }
+            // Bookings were added in date order and the sort is stable, so each patient's run is in date order
+            int previous = -1;
+            for (int i : sorted(patientHighBits, patientLowBits)) {
+                if (previous >= 0 && patientHighBits[i] == patientHighBits[previous]
+                        && patientLowBits[i] == patientLowBits[previous] && idEpochDays[i] == idEpochDays[previous])
+                    continue;
+                out.writeLong(patientHighBits[i]);
+                out.writeLong(patientLowBits[i]);
+                out.writeInt(idEpochDays[i]);
+                patientDays++;
+                previous = i;
+            }
+        }
+
+        long bytes() {
+            return (long) dayBytes(grid) * days + bookingsBytes(bookings) + (long) PATIENT_DAY_BYTES * patientDays;
+        }
+
+        /**
+         * @return The bookings' positions ordered by an id held as two halves.
+         */
+        private int[] sorted(long[] highBits, long[] lowBits) {
+            int[] positions = new int[bookings];
+            for (int i = 0; i < bookings; i++)
+                positions[i] = i;
+            IndexSort.sort(positions, (first, second) -> compareIds(highBits[first], lowBits[first],
+                    highBits[second], lowBits[second]));
+            return positions;
+        }
+
+        private void startDay(int epochDay) {
+            endDay();
+            if (days == epochDays.length) {
+                epochDays = Arrays.copyOf(epochDays, days * 2);
+                firstBookings = Arrays.copyOf(firstBookings, days * 2);
+                occupancies = Arrays.copyOf(occupancies, days * 2 * grid.getWords());
+            }
+            epochDays[days] = epochDay;
+            firstBookings[days] = bookings;
+            days++;
+        }
+
+        private void endDay() {
+            if (days == 0)
+                return;
+            System.arraycopy(occupancy, 0, occupancies, (days - 1) * occupancy.length, occupancy.length);
+            Arrays.fill(occupancy, 0L);
+        }
+    }
+}
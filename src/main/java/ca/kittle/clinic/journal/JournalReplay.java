@@ -0,0 +1,11 @@
+package ca.kittle.clinic.journal;
+
+/**
+ * What {@link BookingJournal#replay} found in a journal.
+ *
+ * @param records   The number of intact records read
+ * @param skipped   How many of them were for unknown practitioners or patients or no longer applied
+ * @param truncated Whether a torn or corrupt tail was cut off the journal
+ */
+public record JournalReplay(long records, long skipped, boolean truncated) {
+}
@@ -0,0 +1,189 @@
+package ca.kittle.clinic.journal;
+
+import ca.kittle.clinic.domain.Appointment;
+import ca.kittle.clinic.domain.Booking;
+import ca.kittle.clinic.domain.Patient;
+import ca.kittle.clinic.domain.Practitioner;
+import ca.kittle.clinic.domain.calendar.DayArchive;
+import ca.kittle.clinic.domain.calendar.SlotGrid;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * One practitioner's region of a mapped {@link CalendarSnapshot}. Dates are found by binary search over the
+ * sorted day entries, a booking's date by binary search over the sorted booking ids and a patient's dates by
+ * binary search over the sorted patient days, so a lookup touches a handful of pages of the file rather than
+ * reading it all.
+ * Only absolute reads are made on the buffer, so concurrent lookups never interfere.
+ */
+final class MappedDayArchive implements DayArchive {
+
+    static final Appointment.AppointmentType[] APPOINTMENT_TYPES = Appointment.AppointmentType.values();
+    private static final Booking.BookingStatus[] STATUSES = Booking.BookingStatus.values();
+    private static final String UNKNOWN_PATIENT_ERROR = "Snapshot booking is for an unknown patient: ";
+
+    private final Practitioner practitioner;
+    private final ByteBuffer region;
+    private final SlotGrid grid;
+    private final int dayBytes;
+    private final int days;
+    private final int bookings;
+    private final int occupyingBookings;
+    private final int daysOffset;
+    private final int idsOffset;
+    private final int patientDaysOffset;
+    private final int patientDays;
+    private final Function<UUID, Patient> patients;
+
+    MappedDayArchive(Practitioner practitioner, ByteBuffer region, SlotGrid grid, int days, int bookings,
+                     int occupyingBookings, int patientDays, Function<UUID, Patient> patients) {
+        this.practitioner = practitioner;
+        this.region = region;
+        this.grid = grid;
+        this.dayBytes = CalendarSnapshot.dayBytes(grid);
+        this.days = days;
+        this.bookings = bookings;
+        this.occupyingBookings = occupyingBookings;
+        this.daysOffset = bookings * CalendarSnapshot.BOOKING_BYTES;
+        this.idsOffset = daysOffset + days * dayBytes;
+        this.patientDaysOffset = idsOffset + bookings * CalendarSnapshot.BOOKING_ID_BYTES;
+        this.patientDays = patientDays;
+        this.patients = patients;
+    }
+
+    static LocalTime startTimeOf(short startMinute) {
+        return LocalTime.ofSecondOfDay(startMinute * 60L);
+    }
+
+    @Override
+    public int occupyingBookings() {
+        return occupyingBookings;
+    }
+
+    @Override
+    public SlotGrid grid() {
+        return grid;
+    }
+
+    @Override
+    public void readOccupancy(LocalDate date, long[] into) {
+        int day = indexOf(date);
+        if (day >= days || epochDayAt(day) != date.toEpochDay()) {
+            Arrays.fill(into, 0L);
+            return;
+        }
+        for (int word = 0; word < into.length; word++)
+            into[word] = region.getLong(daysOffset + day * dayBytes + 8 + word * Long.BYTES);
+    }
+
+    @Override
+    public LocalDate nextDate(LocalDate fromDate) {
+        int day = indexOf(fromDate);
+        return day < days ? LocalDate.ofEpochDay(epochDayAt(day)) : null;
+    }
+
+    /**
+     * Bookings for patients that can't be found mean the snapshot doesn't belong with the patients it is being
+     * loaded alongside, so they fail the load of the day rather than leave its occupancy wrong.
+     */
+    @Override
+    public List<Booking> bookings(LocalDate date) {
+        int day = indexOf(date);
+        if (day >= days || epochDayAt(day) != date.toEpochDay())
+            return List.of();
+        int first = region.getInt(daysOffset + day * dayBytes + 4);
+        int last = day + 1 < days ? region.getInt(daysOffset + (day + 1) * dayBytes + 4) : bookings;
+        List<Booking> result = new ArrayList<>(last - first);
+        for (int i = first; i < last; i++) {
+            int entry = i * CalendarSnapshot.BOOKING_BYTES;
+            UUID patientId = new UUID(region.getLong(entry + 4), region.getLong(entry + 12));
+            Patient patient = patients.apply(patientId);
+            if (patient == null)
+                throw new IllegalStateException(UNKNOWN_PATIENT_ERROR + patientId);
+            result.add(Booking.restoreBooking(
+                    new UUID(region.getLong(entry + 20), region.getLong(entry + 28)),
+                    APPOINTMENT_TYPES[region.get(entry + 2)],
+                    date,
+                    startTimeOf(region.getShort(entry)),
+                    patient,
+                    practitioner,
+                    STATUSES[region.get(entry + 3)]));
+        }
+        return result;
+    }
+
+    @Override
+    public LocalDate dateOf(UUID bookingId) {
+        long high = bookingId.getMostSignificantBits();
+        long low = bookingId.getLeastSignificantBits();
+        int from = 0;
+        int to = bookings;
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            int entry = idsOffset + middle * CalendarSnapshot.BOOKING_ID_BYTES;
+            int compared = CalendarSnapshot.compareIds(region.getLong(entry), region.getLong(entry + 8), high, low);
+            if (compared == 0)
+                return LocalDate.ofEpochDay(region.getInt(entry + 16));
+            if (compared < 0)
+                from = middle + 1;
+            else
+                to = middle;
+        }
+        return null;
+    }
+
+    @Override
+    public List<LocalDate> datesOf(UUID patientId, LocalDate fromDate, LocalDate toDate) {
+        long high = patientId.getMostSignificantBits();
+        long low = patientId.getLeastSignificantBits();
+        long fromEpochDay = fromDate.toEpochDay();
+        int from = 0;
+        int to = patientDays;
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            int entry = patientDaysOffset + middle * CalendarSnapshot.PATIENT_DAY_BYTES;
+            int compared = CalendarSnapshot.compareIds(region.getLong(entry), region.getLong(entry + 8), high, low);
+            if (compared < 0 || compared == 0 && region.getInt(entry + 16) < fromEpochDay)
+                from = middle + 1;
+            else
+                to = middle;
+        }
+        List<LocalDate> dates = new ArrayList<>();
+        for (int i = from; i < patientDays; i++) {
+            int entry = patientDaysOffset + i * CalendarSnapshot.PATIENT_DAY_BYTES;
+            if (region.getLong(entry) != high || region.getLong(entry + 8) != low
+                    || region.getInt(entry + 16) > toDate.toEpochDay())
+                break;
+            dates.add(LocalDate.ofEpochDay(region.getInt(entry + 16)));
+        }
+        return dates;
+    }
+
+    /**
+     * @return The index of the first day on or after the date, or {@code days} if there is none.
+     */
+    private int indexOf(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        int low = 0;
+        int high = days;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (epochDayAt(middle) < epochDay)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private int epochDayAt(int day) {
+        return region.getInt(daysOffset + day * dayBytes);
+    }
+}
@@ -0,0 +1,12 @@
+package ca.kittle.clinic.journal;
+
+/**
+ * What {@link CalendarSnapshot#load} restored.
+ *
+ * @param journalPosition Where to replay the journal from to catch up, see {@link BookingJournal#replay}
+ * @param practitioners   The number of practitioners restored
+ * @param bookings        The number of bookings they have in the snapshot, none of which have been read yet
+ * @param appointments    The number of appointments restored
+ */
+public record SnapshotLoad(long journalPosition, int practitioners, long bookings, int appointments) {
+}
@@ -1,17 +1,102 @@
 package util;
 
-import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
+/**
+ * Validation for the phone number and email shapes used by patients, practitioners and clinics.
+ * <p>
+ * These are single-pass character scanners rather than regular expressions, so validating a value allocates
+ * nothing. They accept exactly what the original patterns did: phone numbers match {@code ^\d{3}-\d{3}-\d{4}$}
+ * (ASCII digits only) and emails match {@code ^[^@]+@[^@]+\.[^@]+$}.
+ */
 public class CustomValidator {
 
+    private static final int PHONE_NUMBER_LENGTH = 12;
+    private static final int FIRST_PHONE_HYPHEN = 3;
+    private static final int SECOND_PHONE_HYPHEN = 7;
+
+    /**
+     * @param phoneNumber The phone number to check; may be null.
+     * @return {@code true} if the phone number is in the form ###-###-####.
+     */
     public static boolean isValidPhoneNumber(String phoneNumber) {
-        String pattern = "^\\d{3}-\\d{3}-\\d{4}$";
-        return Pattern.compile(pattern).matcher(phoneNumber).matches();
+        if (phoneNumber == null || phoneNumber.length() != PHONE_NUMBER_LENGTH)
+            return false;
+        for (int i = 0; i < PHONE_NUMBER_LENGTH; i++) {
+            char c = phoneNumber.charAt(i);
+            boolean valid = (i == FIRST_PHONE_HYPHEN || i == SECOND_PHONE_HYPHEN) ? c == '-' : c >= '0' && c <= '9';
+            if (!valid)
+                return false;
+        }
+        return true;
     }
 
+    /**
+     * An email needs a single {@code @} with something before it, and a {@code .} after it that has
+     * something on both sides.
+     *
+     * @param email The email to check; may be null.
+     * @return {@code true} if the email is valid.
+     */
     public static boolean isValidEmail(String email) {
-        String pattern = "^[^@]+@[^@]+\\.[^@]+$";
-        return Pattern.compile(pattern).matcher(email).matches();
+        if (email == null)
+            return false;
+        int length = email.length();
+        int at = -1;
+        int dotAfterAt = -1;
+        for (int i = 0; i < length; i++) {
+            char c = email.charAt(i);
+            if (c == '@') {
+                if (at >= 0)
+                    return false;
+                at = i;
+            } else if (c == '.' && at >= 0 && dotAfterAt < 0 && i > at + 1 && i < length - 1) {
+                dotAfterAt = i;
+            }
+        }
+        return at > 0 && dotAfterAt > 0;
+    }
+
+    /**
+     * Validate a batch of phone numbers, e.g. from a patient import.
+     *
+     * @param phoneNumbers The phone numbers to check; null entries are invalid.
+     * @return Whether each phone number is valid, in the same order as the input.
+     */
+    public static boolean[] validatePhoneNumbers(String... phoneNumbers) {
+        boolean[] results = new boolean[phoneNumbers.length];
+        for (int i = 0; i < phoneNumbers.length; i++)
+            results[i] = isValidPhoneNumber(phoneNumbers[i]);
+        return results;
+    }
+
+    /**
+     * Validate a batch of emails, e.g. from a patient import.
+     *
+     * @param emails The emails to check; null entries are invalid.
+     * @return Whether each email is valid, in the same order as the input.
+     */
+    public static boolean[] validateEmails(String... emails) {
+        boolean[] results = new boolean[emails.length];
+        for (int i = 0; i < emails.length; i++)
+            results[i] = isValidEmail(emails[i]);
+        return results;
+    }
+
+    /**
+     * @param phoneNumbers The phone numbers to check; stops at the first invalid one.
+     * @return {@code true} if every phone number is valid.
+     */
+    public static boolean allValidPhoneNumbers(Stream<String> phoneNumbers) {
+        return phoneNumbers.allMatch(CustomValidator::isValidPhoneNumber);
+    }
+
+    /**
+     * @param emails The emails to check; stops at the first invalid one.
+     * @return {@code true} if every email is valid.
+     */
+    public static boolean allValidEmails(Stream<String> emails) {
+        return emails.allMatch(CustomValidator::isValidEmail);
     }
 
 }
@@ -4,6 +4,8 @@ import ca.kittle.clinic.domain.fixtures.TestClinic;
 import ca.kittle.clinic.domain.fixtures.TestPatients;
 import ca.kittle.clinic.domain.fixtures.TestPractitioner;
 import ca.kittle.clinic.domain.validation.BookingValidationError;
+import ca.kittle.clinic.domain.validation.BookingValidationErrors;
+import ca.kittle.clinic.domain.validation.ValidationMode;
 import io.jbock.util.Either;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
@@ -14,6 +16,7 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class BookingBusinessRuleTest {
@@ -247,4 +250,64 @@ class BookingBusinessRuleTest {
         );
     }
 
+    @Test
+    @DisplayName("Validating a booking should report its errors as a bitset without creating it")
+    void shouldValidateWithoutCreatingTheBooking() {
+        Patient patient = patients.get(0);
+        Practitioner practitioner = TestPractitioner.CHERIA;
+        ClinicHours clinicHours = TestClinic.TEST_CLINIC.getHours();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate bookingDate = now.toLocalDate().plusDays(1);
+
+        assertEquals(BookingValidationErrors.NONE, Booking.validate(now, clinicHours,
+                Appointment.AppointmentType.STANDARD, bookingDate, LocalTime.of(10, 0), patient, practitioner));
+        assertEquals(BookingValidationErrors.DESIRED_START_TIME | BookingValidationErrors.OUTSIDE_BUSINESS_HOURS,
+                Booking.validate(now, clinicHours, Appointment.AppointmentType.CONSULTATION, bookingDate,
+                        LocalTime.of(15, 45), patient, practitioner));
+        assertEquals(BookingValidationErrors.PATIENT_NULL, Booking.validate(now, clinicHours,
+                Appointment.AppointmentType.STANDARD, bookingDate, LocalTime.of(10, 0), null, practitioner));
+    }
+
+    @Test
+    @DisplayName("Should return an error when booking starts within the lead time across midnight")
+    void shouldReturnAnErrorWhenTooSoonAcrossMidnight() {
+        Patient patient = patients.get(0);
+        Practitioner practitioner = TestPractitioner.CHERIA;
+        ClinicHours clinicHours = new ClinicHours(LocalTime.MIN, LocalTime.of(23, 0));
+        LocalDate today = LocalDate.now();
+        LocalDateTime lateEvening = today.atTime(23, 0);
+
+        assertEquals(BookingValidationErrors.TOO_SOON, Booking.validate(lateEvening, clinicHours,
+                Appointment.AppointmentType.CHECK_IN, today.plusDays(1), LocalTime.of(0, 30), patient, practitioner));
+        assertEquals(BookingValidationErrors.NONE, Booking.validate(lateEvening, clinicHours,
+                Appointment.AppointmentType.CHECK_IN, today.plusDays(1), LocalTime.of(1, 30), patient, practitioner));
+    }
+
+    @Test
+    @DisplayName("Failing fast should report only the first error, checking the cheapest rules first")
+    void shouldReportOnlyTheFirstErrorWhenFailingFast() {
+        Patient patient = patients.get(0);
+        Practitioner practitioner = TestPractitioner.CHERIA;
+        ClinicHours clinicHours = TestClinic.TEST_CLINIC.getHours();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate yesterday = now.toLocalDate().minusDays(1);
+
+        // In the past, too soon, off the half hour and after closing
+        Either<List<BookingValidationError>, Booking> result = Booking.createBooking(ValidationMode.FAIL_FAST, now,
+                clinicHours, Appointment.AppointmentType.STANDARD, yesterday, LocalTime.of(17, 15), patient,
+                practitioner);
+        assertEquals(List.of(new BookingValidationError.DesiredStartTimeError()), result.getLeft().orElseThrow());
+        assertEquals(4, Booking.createBooking(now, clinicHours, Appointment.AppointmentType.STANDARD, yesterday,
+                LocalTime.of(17, 15), patient, practitioner).getLeft().orElseThrow().size());
+
+        assertEquals(BookingValidationErrors.TYPE_NULL, Booking.validate(ValidationMode.FAIL_FAST, now, clinicHours,
+                null, yesterday, LocalTime.of(17, 15), null, practitioner));
+        assertEquals(BookingValidationErrors.DATE_IN_PAST, Booking.validate(ValidationMode.FAIL_FAST, now,
+                clinicHours, Appointment.AppointmentType.STANDARD, yesterday, LocalTime.of(10, 0), patient,
+                practitioner));
+        assertEquals(BookingValidationErrors.NONE, Booking.validate(ValidationMode.FAIL_FAST, now, clinicHours,
+                Appointment.AppointmentType.STANDARD, now.toLocalDate().plusDays(1), LocalTime.of(10, 0), patient,
+                practitioner));
+    }
+
 }
@@ -1,5 +1,6 @@
 package ca.kittle.clinic.domain;
 
+import ca.kittle.clinic.domain.calendar.IntervalTree;
 import ca.kittle.clinic.domain.fixtures.TestClinic;
 import ca.kittle.clinic.domain.fixtures.TestPatients;
 import ca.kittle.clinic.domain.fixtures.TestPractitioner;
@@ -13,8 +14,10 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class BookingTest {
@@ -270,4 +273,110 @@ class BookingTest {
         );
     }
 
+    @Test
+    @DisplayName("Should only allow moves along the booking lifecycle")
+    void shouldOnlyAllowLifecycleMoves() {
+        Booking booking = Booking.createBooking(LocalDateTime.now(), TestClinic.TEST_CLINIC.getHours(),
+                Appointment.AppointmentType.STANDARD, LocalDate.now().plusDays(1), LocalTime.of(9, 0),
+                patients.get(0), TestPractitioner.CHERIA).getRight().orElseThrow();
+
+        assertEquals(Booking.BookingStatus.PENDING, booking.getStatus());
+        assertFalse(booking.moveTo(Booking.BookingStatus.COMPLETED));
+        assertTrue(booking.moveTo(Booking.BookingStatus.CONFIRMED));
+        assertFalse(booking.moveTo(Booking.BookingStatus.PENDING));
+        assertTrue(booking.moveTo(Booking.BookingStatus.NO_SHOW));
+        assertFalse(booking.moveTo(Booking.BookingStatus.CANCELLED));
+        assertEquals(Booking.BookingStatus.NO_SHOW, booking.getStatus());
+    }
+
+    @Test
+    @DisplayName("Should not count cancelled bookings as overlapping")
+    void shouldIgnoreCancelledBookingsWhenCheckingOverlap() {
+        Practitioner practitioner = new Practitioner("Over", "Lap", "416-555-1212", "over.lap@email.com");
+        LocalDate bookingDate = LocalDate.now().plusDays(1);
+        Booking existing = practitioner.addBooking(patients.get(0), TestClinic.TEST_CLINIC,
+                Appointment.AppointmentType.STANDARD, bookingDate, LocalTime.of(10, 0)).getRight().orElseThrow();
+        Booking candidate = Booking.createBooking(LocalDateTime.now(), TestClinic.TEST_CLINIC.getHours(),
+                Appointment.AppointmentType.CHECK_IN, bookingDate, LocalTime.of(10, 30),
+                patients.get(1), practitioner).getRight().orElseThrow();
+
+        assertTrue(candidate.doesBookingOverlap(List.of(existing)));
+        assertTrue(practitioner.cancelBooking(existing));
+        assertFalse(candidate.doesBookingOverlap(List.of(existing)));
+        assertFalse(Booking.doAppointmentTimesOverlapOtherBookings(
+                LocalTime.of(10, 0), LocalTime.of(11, 0), List.of(existing)));
+    }
+
+    @Test
+    @DisplayName("Should give the same overlap answers from an interval tree as from a list")
+    void shouldCheckOverlapAgainstAnIntervalTree() {
+        Practitioner practitioner = new Practitioner("Inter", "Val", "416-555-1313", "inter.val@email.com");
+        LocalDate bookingDate = LocalDate.now().plusDays(1);
+        Booking standard = practitioner.addBooking(patients.get(0), TestClinic.TEST_CLINIC,
+                Appointment.AppointmentType.STANDARD, bookingDate, LocalTime.of(10, 0)).getRight().orElseThrow();
+        Booking checkIn = practitioner.addBooking(patients.get(0), TestClinic.TEST_CLINIC,
+                Appointment.AppointmentType.CHECK_IN, bookingDate, LocalTime.of(13, 0)).getRight().orElseThrow();
+        List<Booking> bookings = List.of(standard, checkIn);
+        IntervalTree<Booking> intervals = Booking.intervalsOf(bookings);
+        assertEquals(2, intervals.size());
+
+        for (int minute = 8 * 60; minute < 15 * 60; minute += 15) {
+            LocalTime startTime = LocalTime.of(minute / 60, minute % 60);
+            LocalTime endTime = startTime.plusMinutes(45);
+            assertEquals(Booking.doAppointmentTimesOverlapOtherBookings(startTime, endTime, bookings),
+                    Booking.doAppointmentTimesOverlapOtherBookings(bookingDate, startTime, endTime, intervals));
+        }
+        Booking candidate = Booking.createBooking(LocalDateTime.now(), TestClinic.TEST_CLINIC.getHours(),
+                Appointment.AppointmentType.CHECK_IN, bookingDate, LocalTime.of(10, 30),
+                patients.get(1), practitioner).getRight().orElseThrow();
+        Booking otherDay = Booking.createBooking(LocalDateTime.now(), TestClinic.TEST_CLINIC.getHours(),
+                Appointment.AppointmentType.CHECK_IN, bookingDate.plusDays(1), LocalTime.of(10, 0),
+                patients.get(1), practitioner).getRight().orElseThrow();
+        assertTrue(candidate.doesBookingOverlap(intervals));
+        assertFalse(otherDay.doesBookingOverlap(intervals));
+
+        // Cancelled after the tree was built, but no longer in the way
+        assertTrue(practitioner.cancelBooking(standard));
+        assertFalse(candidate.doesBookingOverlap(intervals));
+        assertEquals(1, Booking.intervalsOf(bookings).size());
+        assertFalse(candidate.doesBookingOverlap((IntervalTree<Booking>) null));
+    }
+
+    @Test
+    @DisplayName("Should give the same overlap answers from a tree of several dates as from a list late in the evening")
+    void shouldAgreeOnOverlapsAroundMidnight() {
+        Practitioner practitioner = new Practitioner("Late", "Night", "416-555-1414", "late.night@email.com");
+        LocalDate bookingDate = LocalDate.now().plusDays(1);
+        LocalDate nextDate = bookingDate.plusDays(1);
+        // Restored rather than booked, since the clinic's hours would turn both away
+        Booking endsAtMidnight = Booking.restoreBooking(UUID.randomUUID(), Appointment.AppointmentType.STANDARD,
+                bookingDate, LocalTime.of(23, 0), patients.get(0), practitioner, Booking.BookingStatus.CONFIRMED);
+        Booking pastMidnight = Booking.restoreBooking(UUID.randomUUID(), Appointment.AppointmentType.CONSULTATION,
+                nextDate, LocalTime.of(23, 30), patients.get(1), practitioner, Booking.BookingStatus.CONFIRMED);
+        Booking earlyMorning = Booking.restoreBooking(UUID.randomUUID(), Appointment.AppointmentType.CHECK_IN,
+                nextDate, LocalTime.of(0, 15), patients.get(0), practitioner, Booking.BookingStatus.CONFIRMED);
+        List<Booking> bookings = List.of(endsAtMidnight, pastMidnight, earlyMorning);
+        IntervalTree<Booking> intervals = Booking.intervalsOf(bookings);
+
+        for (LocalDate date : List.of(bookingDate, nextDate)) {
+            List<Booking> onDate = bookings.stream().filter(booking -> booking.getDate().equals(date)).toList();
+            for (int minute = 0; minute < 24 * 60; minute += 15) {
+                LocalTime startTime = LocalTime.of(minute / 60, minute % 60);
+                for (Appointment.AppointmentType type : Appointment.AppointmentType.values()) {
+                    LocalTime endTime = startTime.plus(type.getDuration());
+                    assertEquals(Booking.doAppointmentTimesOverlapOtherBookings(startTime, endTime, onDate),
+                            Booking.doAppointmentTimesOverlapOtherBookings(date, startTime, endTime, intervals));
+                    Booking candidate = Booking.restoreBooking(UUID.randomUUID(), type, date, startTime,
+                            patients.get(1), practitioner, Booking.BookingStatus.PENDING);
+                    assertEquals(candidate.doesBookingOverlap(bookings), candidate.doesBookingOverlap(intervals));
+                }
+            }
+        }
+        Booking lateCheckIn = Booking.restoreBooking(UUID.randomUUID(), Appointment.AppointmentType.CHECK_IN,
+                bookingDate, LocalTime.of(23, 45), patients.get(1), practitioner, Booking.BookingStatus.PENDING);
+        assertTrue(lateCheckIn.doesBookingOverlap(bookings));
+        assertTrue(lateCheckIn.doesBookingOverlap(intervals));
+        assertFalse(Booking.doAppointmentTimesOverlapOtherBookings(nextDate, LocalTime.of(0, 0), LocalTime.of(0, 15),
+                intervals));
+    }
 }
@@ -0,0 +1,115 @@
+package ca.kittle.clinic.domain;
+
+import ca.kittle.clinic.domain.calendar.SlotGrid;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClinicHoursTest {
+
+    private static final ClinicHours.Shift MORNING = new ClinicHours.Shift(LocalTime.of(9, 0), LocalTime.of(12, 0));
+    private static final ClinicHours.Shift AFTERNOON = new ClinicHours.Shift(LocalTime.of(13, 0), LocalTime.of(17, 0));
+    private static final ClinicHours.Shift SATURDAY = new ClinicHours.Shift(LocalTime.of(10, 0), LocalTime.of(14, 0));
+
+    private static final ClinicHours SPLIT_SHIFTS = new ClinicHours(Map.of(
+            DayOfWeek.MONDAY, List.of(AFTERNOON, MORNING),
+            DayOfWeek.SATURDAY, List.of(SATURDAY)));
+
+    /**
+     * @return The slots from each first start time to each last start time, given as pairs.
+     */
+    private static long[] slotsFrom(SlotGrid grid, LocalTime... firstAndLastStartTimes) {
+        long[] slots = grid.empty();
+        for (int i = 0; i < firstAndLastStartTimes.length; i += 2)
+            grid.include(slots, firstAndLastStartTimes[i],
+                    firstAndLastStartTimes[i + 1].plusMinutes(grid.getSlotMinutes()));
+        return slots;
+    }
+
+    @Test
+    @DisplayName("Should keep each day's shifts in opening order, with missing days closed")
+    void shouldKeepShiftsByDay() {
+        assertEquals(List.of(MORNING, AFTERNOON), SPLIT_SHIFTS.getShifts(DayOfWeek.MONDAY));
+        assertEquals(List.of(), SPLIT_SHIFTS.getShifts(DayOfWeek.SUNDAY));
+        assertTrue(SPLIT_SHIFTS.isOpenOn(DayOfWeek.SATURDAY));
+        assertFalse(SPLIT_SHIFTS.isOpenOn(DayOfWeek.TUESDAY));
+        assertEquals(LocalTime.of(9, 0), SPLIT_SHIFTS.getOpeningTime());
+        assertEquals(LocalTime.of(17, 0), SPLIT_SHIFTS.getClosingTime());
+    }
+
+    @Test
+    @DisplayName("Should only offer starts with room for the whole appointment in a single shift")
+    void shouldWorkOutStartSlotsPerDayAndType() {
+        SlotGrid grid = SPLIT_SHIFTS.getSlotGrid();
+        long[][] standard = SPLIT_SHIFTS.startSlots(Appointment.AppointmentType.STANDARD);
+        assertArrayEquals(slotsFrom(grid, LocalTime.of(9, 0), LocalTime.of(11, 0),
+                        LocalTime.of(13, 0), LocalTime.of(16, 0)),
+                standard[DayOfWeek.MONDAY.ordinal()]);
+        assertArrayEquals(slotsFrom(grid, LocalTime.of(10, 0), LocalTime.of(13, 0)),
+                standard[DayOfWeek.SATURDAY.ordinal()]);
+        assertArrayEquals(grid.empty(), standard[DayOfWeek.SUNDAY.ordinal()]);
+
+        long[][] consultation = SPLIT_SHIFTS.startSlots(Appointment.AppointmentType.CONSULTATION);
+        assertArrayEquals(slotsFrom(grid, LocalTime.of(9, 0), LocalTime.of(10, 30),
+                        LocalTime.of(13, 0), LocalTime.of(15, 30)),
+                consultation[DayOfWeek.MONDAY.ordinal()]);
+        // Worked out once and shared
+        assertSame(standard, SPLIT_SHIFTS.startSlots(Appointment.AppointmentType.STANDARD));
+    }
+
+    @Test
+    @DisplayName("Should work out start slots on a finer grid of the clinic's own")
+    void shouldWorkOutStartSlotsOnFinerGrid() {
+        ClinicHours hours = new ClinicHours(Map.of(DayOfWeek.MONDAY, List.of(MORNING, AFTERNOON)),
+                Duration.ofMinutes(15));
+        SlotGrid grid = hours.getSlotGrid();
+        assertEquals(15, grid.getSlotMinutes());
+        assertEquals(2, grid.getWords());
+
+        long[][] checkIn = hours.startSlots(Appointment.AppointmentType.CHECK_IN);
+        assertArrayEquals(slotsFrom(grid, LocalTime.of(9, 0), LocalTime.of(11, 30),
+                        LocalTime.of(13, 0), LocalTime.of(16, 30)),
+                checkIn[DayOfWeek.MONDAY.ordinal()]);
+        assertArrayEquals(slotsFrom(grid, LocalTime.of(9, 0), LocalTime.of(11, 45),
+                        LocalTime.of(13, 0), LocalTime.of(16, 45)),
+                hours.openSlots()[DayOfWeek.MONDAY.ordinal()]);
+        assertEquals(SlotGrid.DEFAULT, SPLIT_SHIFTS.getSlotGrid());
+        assertThrows(IllegalArgumentException.class,
+                () -> new ClinicHours(LocalTime.of(9, 0), LocalTime.of(17, 0), Duration.ofMinutes(7)));
+    }
+
+    @Test
+    @DisplayName("Should find the closing time of the shift a time falls in")
+    void shouldFindClosingTimeOfShift() {
+        assertEquals(LocalTime.of(12, 0).toNanoOfDay(),
+                SPLIT_SHIFTS.closingNanosAt(DayOfWeek.MONDAY, LocalTime.of(11, 30).toNanoOfDay()));
+        assertEquals(LocalTime.of(17, 0).toNanoOfDay(),
+                SPLIT_SHIFTS.closingNanosAt(DayOfWeek.MONDAY, LocalTime.of(13, 0).toNanoOfDay()));
+        assertEquals(-1, SPLIT_SHIFTS.closingNanosAt(DayOfWeek.MONDAY, LocalTime.of(12, 0).toNanoOfDay()));
+        assertEquals(-1, SPLIT_SHIFTS.closingNanosAt(DayOfWeek.SUNDAY, LocalTime.of(13, 0).toNanoOfDay()));
+    }
+
+    @Test
+    @DisplayName("Should refuse overlapping shifts and hours that never open")
+    void shouldRefuseInvalidHours() {
+        assertThrows(IllegalArgumentException.class, () -> new ClinicHours(null));
+        assertThrows(IllegalArgumentException.class, () -> new ClinicHours(Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> new ClinicHours(Map.of(DayOfWeek.MONDAY,
+                List.of(MORNING, new ClinicHours.Shift(LocalTime.of(11, 0), LocalTime.of(14, 0))))));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ClinicHours.Shift(LocalTime.of(12, 0), LocalTime.of(12, 0)));
+        assertThrows(IllegalArgumentException.class, () -> SPLIT_SHIFTS.getShifts(null));
+    }
+}
@@ -1,12 +1,30 @@
 package ca.kittle.clinic.domain;
 
 import ca.kittle.clinic.domain.fixtures.TestClinic;
+import ca.kittle.clinic.domain.fixtures.TestPatients;
+import ca.kittle.clinic.domain.validation.BookingValidationError;
+import io.jbock.util.Either;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
 import static ca.kittle.clinic.domain.fixtures.TestClinic.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ClinicTest {
 
@@ -60,4 +78,214 @@ class ClinicTest {
                 new Clinic(CLINIC_NAME, PHONE_NUMBER, "clinic-email.com")
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should merge available times across every practitioner at the clinic")
+    void shouldFindAvailableTimesAcrossPractitioners() {
+        Clinic clinic = new Clinic(CLINIC_NAME, PHONE_NUMBER, EMAIL);
+        Practitioner first = new Practitioner("First", "Practitioner", "416-555-1111", "first@email.com");
+        Practitioner second = new Practitioner("Second", "Practitioner", "416-555-2222", "second@email.com");
+        clinic.addPractitioner(first);
+        clinic.addPractitioner(second);
+        LocalDate date = LocalDate.now().plusDays(1);
+        first.addBooking(TestPatients.getAllPatients().get(0), clinic, Appointment.AppointmentType.STANDARD, date, LocalTime.of(9, 0));
+
+        List<AvailableSlot> slots = clinic.availableTimes(date, Appointment.AppointmentType.CONSULTATION);
+
+        assertEquals(new AvailableSlot(second, date, LocalTime.of(9, 0)), slots.get(0));
+        assertEquals(new AvailableSlot(first, date, LocalTime.of(10, 0)), slots.get(2));
+        assertEquals(new AvailableSlot(second, date, LocalTime.of(10, 0)), slots.get(3));
+        assertEquals(
+                first.availabileTimes(date, Appointment.AppointmentType.CONSULTATION).size() +
+                        second.availabileTimes(date, Appointment.AppointmentType.CONSULTATION).size(),
+                slots.size());
+    }
+
+    @Test
+    @DisplayName("Should give the same answer when searching many practitioners in parallel")
+    void shouldFindAvailableTimesAcrossManyPractitioners() {
+        Clinic clinic = new Clinic(CLINIC_NAME, PHONE_NUMBER, EMAIL);
+        LocalDate date = LocalDate.now().plusDays(1);
+        for (int i = 0; i < 40; i++) {
+            Practitioner practitioner = new Practitioner("Prac", "Titioner", "416-555-1111", "prac" + i + "@email.com");
+            clinic.addPractitioner(practitioner);
+            practitioner.addBooking(TestPatients.getAllPatients().get(0), clinic,
+                    Appointment.AppointmentType.CHECK_IN, date.plusDays(i % 2), LocalTime.of(9, 0).plusMinutes(30L * (i % 16)));
+        }
+
+        List<AvailableSlot> slots = clinic.availableTimes(date, date.plusDays(1), Appointment.AppointmentType.CHECK_IN);
+
+        // Every practitioner has one of their 32 half hour slots over the two days booked
+        assertEquals(40 * 31, slots.size());
+        for (int i = 1; i < slots.size(); i++) {
+            AvailableSlot previous = slots.get(i - 1);
+            AvailableSlot current = slots.get(i);
+            assertTrue(previous.date().isBefore(current.date()) ||
+                    (previous.date().equals(current.date()) && !previous.startTime().isAfter(current.startTime())));
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> clinic.availableTimes(date, date.minusDays(1), Appointment.AppointmentType.CHECK_IN));
+    }
+
+    @Test
+    @DisplayName("Should add a batch of bookings with a result for each request in request order")
+    void shouldAddBatchOfBookings() {
+        Clinic clinic = new Clinic(CLINIC_NAME, PHONE_NUMBER, EMAIL);
+        Practitioner first = new Practitioner("First", "Practitioner", "416-555-1111", "first@email.com");
+        Practitioner second = new Practitioner("Second", "Practitioner", "416-555-2222", "second@email.com");
+        Patient patient = TestPatients.getAllPatients().get(0);
+        LocalDate date = LocalDate.now().plusDays(1);
+        first.addBooking(patient, clinic, Appointment.AppointmentType.STANDARD, date, LocalTime.of(9, 0));
+
+        List<Either<List<BookingValidationError>, Booking>> results = clinic.addBookings(List.of(
+                // Overlaps the existing 9:00 booking
+                new BookingRequest(first, patient, Appointment.AppointmentType.CHECK_IN, date, LocalTime.of(9, 30)),
+                // Overlaps the 11:00 request below, which starts first so wins
+                new BookingRequest(first, patient, Appointment.AppointmentType.STANDARD, date, LocalTime.of(11, 30)),
+                new BookingRequest(first, patient, Appointment.AppointmentType.STANDARD, date, LocalTime.of(11, 0)),
+                new BookingRequest(second, patient, Appointment.AppointmentType.STANDARD, date, LocalTime.of(11, 0)),
+                new BookingRequest(first, patient, Appointment.AppointmentType.STANDARD, date.minusDays(2), LocalTime.of(11, 0)),
+                new BookingRequest(null, patient, Appointment.AppointmentType.STANDARD, date, LocalTime.of(11, 0)),
+                new BookingRequest(first, patient, Appointment.AppointmentType.CONSULTATION, date.plusDays(1), LocalTime.of(9, 0))));
+
+        assertEquals(7, results.size());
+        assertEquals(List.of(new BookingValidationError.BookingOverlapsAnotherError()), results.get(0).getLeft().orElseThrow());
+        assertEquals(List.of(new BookingValidationError.BookingOverlapsAnotherError()), results.get(1).getLeft().orElseThrow());
+        assertEquals(LocalTime.of(11, 0), results.get(2).getRight().orElseThrow().getStartTime());
+        assertEquals(second, results.get(3).getRight().orElseThrow().getPractitioner());
+        assertTrue(results.get(4).getLeft().orElseThrow().contains(new BookingValidationError.DateInPastError()));
+        assertEquals(List.of(new BookingValidationError.PractitionerNullError()), results.get(5).getLeft().orElseThrow());
+        assertTrue(results.get(6).isRight());
+
+        assertEquals(List.of(LocalTime.of(9, 0), LocalTime.of(11, 0)),
+                first.listBookings(date).stream().map(Booking::getStartTime).toList());
+        assertEquals(1, second.getBookings().size());
+        assertEquals(3, first.getBookings().size());
+        assertFalse(first.availabileTimes(date.plusDays(1), Appointment.AppointmentType.CHECK_IN).contains(LocalTime.of(9, 30)));
+    }
+
+    @Test
+    @DisplayName("Should find a patient's bookings with every practitioner, in date and time order")
+    void shouldFindAPatientsBookingsAcrossPractitioners() {
+        Clinic clinic = new Clinic(CLINIC_NAME, PHONE_NUMBER, EMAIL);
+        Practitioner first = new Practitioner("First", "Practitioner", "416-555-1111", "first@email.com");
+        Practitioner second = new Practitioner("Second", "Practitioner", "416-555-2222", "second@email.com");
+        Patient patient = TestPatients.getAllPatients().get(0);
+        Patient otherPatient = TestPatients.getAllPatients().get(1);
+        LocalDate date = LocalDate.now().plusDays(3);
+        Booking past = first.restoreBooking(patient, clinic, Appointment.AppointmentType.STANDARD,
+                LocalDate.now().minusDays(7), LocalTime.of(10, 0)).getRight().orElseThrow();
+        clinic.addPractitioner(first);
+        clinic.addPractitioner(second);
+
+        Booking later = first.addBooking(patient, clinic, Appointment.AppointmentType.STANDARD,
+                date.plusDays(1), LocalTime.of(9, 0)).getRight().orElseThrow();
+        Booking earlier = second.addBooking(patient, clinic, Appointment.AppointmentType.CHECK_IN,
+                date, LocalTime.of(14, 0)).getRight().orElseThrow();
+        Booking earliest = first.addBooking(patient, clinic, Appointment.AppointmentType.CHECK_IN,
+                date, LocalTime.of(9, 0)).getRight().orElseThrow();
+        Booking cancelled = second.addBooking(patient, clinic, Appointment.AppointmentType.CHECK_IN,
+                date, LocalTime.of(11, 0)).getRight().orElseThrow();
+        Booking held = second.holdBooking(patient, clinic, Appointment.AppointmentType.CHECK_IN,
+                date.plusDays(2), LocalTime.of(11, 0)).getRight().orElseThrow();
+        first.addBooking(otherPatient, clinic, Appointment.AppointmentType.CHECK_IN, date, LocalTime.of(10, 0));
+        second.cancelBooking(cancelled);
+
+        assertEquals(List.of(earliest, earlier, later, held), clinic.upcomingBookings(patient));
+        assertEquals(List.of(past), clinic.pastBookings(patient));
+        assertEquals(List.of(earliest, earlier), clinic.listBookings(patient, date, date));
+        assertEquals(1, clinic.upcomingBookings(otherPatient).size());
+
+        second.expireHolds(LocalDateTime.now().plusHours(1));
+        assertEquals(List.of(earliest, earlier, later), clinic.upcomingBookings(patient));
+        assertTrue(clinic.upcomingBookings(TestPatients.getAllPatients().get(2)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should find and cancel a booking with any practitioner by its id, releasing its time")
+    void shouldCancelBookingsById() {
+        Clinic clinic = new Clinic(CLINIC_NAME, PHONE_NUMBER, EMAIL);
+        Practitioner first = new Practitioner("First", "Practitioner", "416-555-1111", "first@email.com");
+        Practitioner second = new Practitioner("Second", "Practitioner", "416-555-2222", "second@email.com");
+        clinic.addPractitioner(first);
+        clinic.addPractitioner(second);
+        Patient patient = TestPatients.getAllPatients().get(0);
+        LocalDate date = LocalDate.now().plusDays(3);
+        Booking kept = first.addBooking(patient, clinic, Appointment.AppointmentType.STANDARD,
+                date, LocalTime.of(9, 0)).getRight().orElseThrow();
+        Booking booking = second.addBooking(patient, clinic, Appointment.AppointmentType.STANDARD,
+                date, LocalTime.of(10, 0)).getRight().orElseThrow();
+
+        assertNotEquals(kept.getId(), booking.getId());
+        assertEquals(Optional.of(booking), clinic.findBooking(booking.getId()));
+        assertEquals(Optional.of(booking), second.findBooking(booking.getId()));
+        assertEquals(Optional.empty(), first.findBooking(booking.getId()));
+        assertFalse(first.cancelBooking(booking.getId()));
+
+        assertTrue(clinic.cancelBooking(booking.getId()));
+        assertEquals(Booking.BookingStatus.CANCELLED, booking.getStatus());
+        assertTrue(second.availabileTimes(date, Appointment.AppointmentType.STANDARD).contains(LocalTime.of(10, 0)));
+        assertEquals(List.of(kept), clinic.upcomingBookings(patient));
+        // Cancelled bookings can still be found, but not cancelled again
+        assertEquals(Optional.of(booking), clinic.findBooking(booking.getId()));
+        assertFalse(clinic.cancelBooking(booking.getId()));
+        assertFalse(clinic.cancelBooking(UUID.randomUUID()));
+        assertThrows(IllegalArgumentException.class, () -> clinic.findBooking(null));
+    }
+
+    @Test
+    @DisplayName("Should offer availability and take bookings only within the clinic's shifts on each day")
+    void shouldHonourClinicHoursPerWeekday() {
+        ClinicHours.Shift morning = new ClinicHours.Shift(LocalTime.of(9, 0), LocalTime.of(12, 0));
+        ClinicHours.Shift afternoon = new ClinicHours.Shift(LocalTime.of(13, 0), LocalTime.of(15, 0));
+        Map<DayOfWeek, List<ClinicHours.Shift>> shifts = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (day != DayOfWeek.SUNDAY)
+                shifts.put(day, List.of(morning, afternoon));
+        }
+        Clinic clinic = new Clinic(CLINIC_NAME, PHONE_NUMBER, EMAIL, new ClinicHours(shifts));
+        Practitioner practitioner = new Practitioner("Split", "Shift", "416-555-1111", "split.shift@email.com");
+        clinic.addPractitioner(practitioner);
+        Patient patient = TestPatients.getAllPatients().get(0);
+        LocalDate sunday = LocalDate.now().plusDays(7).with(TemporalAdjusters.next(DayOfWeek.SUNDAY));
+        LocalDate monday = sunday.plusDays(1);
+
+        assertEquals(List.of(LocalTime.of(9, 0), LocalTime.of(9, 30), LocalTime.of(10, 0), LocalTime.of(10, 30),
+                        LocalTime.of(11, 0), LocalTime.of(13, 0), LocalTime.of(13, 30), LocalTime.of(14, 0)),
+                practitioner.availabileTimes(monday, Appointment.AppointmentType.STANDARD));
+        assertTrue(practitioner.availabileTimes(sunday, Appointment.AppointmentType.CHECK_IN).isEmpty());
+        // Would run into the lunch break
+        assertEquals(List.of(new BookingValidationError.OutsideBusinessHoursError()),
+                practitioner.addBooking(patient, clinic, Appointment.AppointmentType.STANDARD, monday,
+                        LocalTime.of(11, 30)).getLeft().orElseThrow());
+        assertTrue(practitioner.addBooking(patient, clinic, Appointment.AppointmentType.CHECK_IN, sunday,
+                LocalTime.of(10, 0)).isLeft());
+        assertTrue(practitioner.addBooking(patient, clinic, Appointment.AppointmentType.STANDARD, monday,
+                LocalTime.of(11, 0)).isRight());
+
+        // Saturday evening, the next morning is a Sunday
+        assertEquals(new AvailableSlot(practitioner, monday, LocalTime.of(9, 0)), practitioner.nextAvailableTime(
+                sunday.minusDays(1).atTime(20, 0), Appointment.AppointmentType.STANDARD).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Should offer availability and take bookings on a clinic's own finer slot grid")
+    void shouldHonourClinicSlotGrid() {
+        Clinic clinic = new Clinic(CLINIC_NAME, PHONE_NUMBER, EMAIL,
+                new ClinicHours(LocalTime.of(9, 0), LocalTime.of(11, 0), Duration.ofMinutes(15)));
+        Practitioner practitioner = new Practitioner("Quarter", "Hour", "416-555-1112", "quarter.hour@email.com");
+        clinic.addPractitioner(practitioner);
+        Patient patient = TestPatients.getAllPatients().get(0);
+        LocalDate monday = LocalDate.now().plusDays(7).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+
+        assertTrue(practitioner.addBooking(patient, clinic, Appointment.AppointmentType.CHECK_IN, monday,
+                LocalTime.of(9, 15)).isRight());
+        assertEquals(List.of(new BookingValidationError.DesiredStartTimeError()),
+                practitioner.addBooking(patient, clinic, Appointment.AppointmentType.CHECK_IN, monday,
+                        LocalTime.of(10, 20)).getLeft().orElseThrow());
+        assertEquals(List.of(LocalTime.of(9, 45), LocalTime.of(10, 0)),
+                practitioner.availabileTimes(monday, Appointment.AppointmentType.STANDARD));
+        assertEquals(new AvailableSlot(practitioner, monday, LocalTime.of(9, 45)), practitioner.nextAvailableTime(
+                monday.minusDays(1).atTime(20, 0), Appointment.AppointmentType.CHECK_IN).orElseThrow());
+    }
+}
@@ -0,0 +1,119 @@
+package ca.kittle.clinic.domain;
+
+import ca.kittle.clinic.domain.fixtures.TestPatients;
+import ca.kittle.clinic.domain.validation.PatientValidationError;
+import io.jbock.util.Either;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PatientRegistryTest {
+
+    private static Patient patient(int i) {
+        return new Patient("Patient", "Number" + i, String.format("%03d-555-%04d", 200 + i / 10_000, i % 10_000),
+                "patient" + i + "@email.com");
+    }
+
+    @Test
+    @DisplayName("Should find a registered patient by id, email or phone number")
+    void shouldFindByEveryKey() {
+        PatientRegistry registry = new PatientRegistry();
+        TestPatients.getAllPatients().forEach(registry::register);
+        Patient patient = TestPatients.getAllPatients().get(3);
+
+        assertEquals(9, registry.size());
+        assertSame(patient, registry.findById(patient.getId()).orElseThrow());
+        assertSame(patient, registry.findByEmail("  Oscar.Tulip@EMAIL.com ").orElseThrow());
+        assertSame(patient, registry.findByPhoneNumber("(416) 555-7845").orElseThrow());
+        assertSame(patient, registry.findByPhoneNumber("+1 416 555 7845").orElseThrow());
+        assertEquals(Optional.empty(), registry.findById(UUID.randomUUID()));
+        assertEquals(Optional.empty(), registry.findByEmail("nobody@email.com"));
+        assertEquals(Optional.empty(), registry.findByPhoneNumber("416-555-0000"));
+    }
+
+    @Test
+    @DisplayName("Should refuse a patient whose id, email or phone number is already registered")
+    void shouldRefuseDuplicates() {
+        PatientRegistry registry = new PatientRegistry();
+        Patient patient = TestPatients.getAllPatients().get(0);
+        assertTrue(registry.register(patient).isRight());
+
+        Either<List<PatientValidationError>, Patient> sameId = registry.register(
+                new Patient(patient.getId(), "Other", "Person", "905-555-0001", "other.person@email.com"));
+        assertEquals(List.of(new PatientValidationError.DuplicateIdError()), sameId.getLeft().orElseThrow());
+        Either<List<PatientValidationError>, Patient> sameContacts = registry.register(
+                new Patient("Other", "Person", "416-555-3421", "HinFan.Rose@email.com"));
+        assertEquals(List.of(new PatientValidationError.DuplicateEmailError(),
+                new PatientValidationError.DuplicatePhoneNumberError()), sameContacts.getLeft().orElseThrow());
+        assertEquals(1, registry.size());
+        assertThrows(IllegalArgumentException.class, () -> registry.register(null));
+    }
+
+    @Test
+    @DisplayName("Should keep finding every patient as the registry grows past its expected size")
+    void shouldGrowPastExpectedSize() {
+        PatientRegistry registry = new PatientRegistry(1);
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            patients.add(patient(i));
+            assertTrue(registry.register(patients.get(i)).isRight());
+        }
+        assertEquals(5_000, registry.size());
+        for (Patient patient : patients) {
+            assertSame(patient, registry.findById(patient.getId()).orElseThrow());
+            assertSame(patient, registry.findByEmail(patient.getEmail()).orElseThrow());
+            assertSame(patient, registry.findByPhoneNumber(patient.getPhoneNumber()).orElseThrow());
+        }
+    }
+
+    @Test
+    @DisplayName("Readers should always find patients registered before they looked, while others register")
+    void shouldFindPatientsWhileOthersRegister() throws Exception {
+        PatientRegistry registry = new PatientRegistry(1);
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++)
+            patients.add(patient(i));
+        for (int i = 0; i < 100; i++)
+            registry.register(patients.get(i));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (int i = 100; i < patients.size(); i++)
+                    registry.register(patients.get(i));
+            });
+            List<Future<Integer>> readers = new ArrayList<>();
+            for (int reader = 0; reader < 3; reader++) {
+                readers.add(executor.submit(() -> {
+                    int misses = 0;
+                    while (!writer.isDone()) {
+                        int registered = registry.size();
+                        Patient patient = patients.get(registered - 1);
+                        if (registry.findByPhoneNumber(patient.getPhoneNumber()).orElse(null) != patient)
+                            misses++;
+                    }
+                    return misses;
+                }));
+            }
+            writer.get(30, TimeUnit.SECONDS);
+            for (Future<Integer> reader : readers)
+                assertEquals(0, (int) reader.get(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(patients.size(), registry.size());
+    }
+}
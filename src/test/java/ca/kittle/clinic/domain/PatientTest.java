@@ -39,6 +39,18 @@ class PatientTest {
         assertEquals(EMAIL, patient.getEmail());
     }
 
+    @Test
+    @DisplayName("Should be able to create a patient with an id from a specific generator")
+    void shouldCreatePatientWithIdFromGenerator() {
+        UUID id = UUID.randomUUID();
+        Patient patient = Patient.createPatient(() -> id, FIRST_NAME, LAST_NAME, PHONE_NUMBER, EMAIL);
+
+        assertEquals(id, patient.getId());
+        assertEquals(7, new Patient(FIRST_NAME, LAST_NAME, PHONE_NUMBER, EMAIL).getId().version());
+        assertThrows(IllegalArgumentException.class,
+                () -> Patient.createPatient(null, FIRST_NAME, LAST_NAME, PHONE_NUMBER, EMAIL));
+    }
+
     @Test
     @DisplayName("Should throw exception when first name is null")
     void shouldThrowExceptionWhenFirstNameIsNull() {
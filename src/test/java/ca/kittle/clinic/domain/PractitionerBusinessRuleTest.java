@@ -14,9 +14,17 @@ import org.junit.jupiter.api.Test;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class PractitionerBusinessRuleTest {
@@ -210,7 +218,8 @@ class PractitionerBusinessRuleTest {
 
         List<LocalTime> times = practitioner.availabileTimes(bookingDate, type);
         assertTrue(times.stream().anyMatch(item -> item.equals(startTime)));
-        assertEquals(16, times.size());
+        // A 16:30 start would run past closing
+        assertEquals(15, times.size());
     }
 
     @Test
@@ -235,7 +244,253 @@ class PractitionerBusinessRuleTest {
         List<LocalTime> times = practitioner.availabileTimes(bookingDate, type);
         assertTrue(times.stream().anyMatch(item -> item.equals(LocalTime.of(10, 0))));
         assertTrue(times.stream().anyMatch(item -> item.isAfter(LocalTime.of(9, 59))));
-        assertEquals(14, times.size());
+        assertEquals(13, times.size());
     }
 
+    @Test
+    @DisplayName("Should report the same available time slots as checking each slot against each booking")
+    void shouldMatchPairwiseOverlapCheckForAvailableTimeSlots() {
+        Practitioner freshPractitioner = new Practitioner("Avail", "Able", "416-555-2222", "avail.able@email.com");
+        LocalDate bookingDate = LocalDateTime.now().toLocalDate().plusDays(1);
+        freshPractitioner.addBooking(patients.get(0), clinic, Appointment.AppointmentType.CHECK_IN, bookingDate, LocalTime.of(9, 30));
+        freshPractitioner.addBooking(patients.get(1), clinic, Appointment.AppointmentType.CONSULTATION, bookingDate, LocalTime.of(11, 0));
+        freshPractitioner.addBooking(patients.get(2), clinic, Appointment.AppointmentType.STANDARD, bookingDate, LocalTime.of(15, 0));
+        List<Booking> bookings = freshPractitioner.listBookings(bookingDate);
+        assertEquals(3, bookings.size());
+
+        for (Appointment.AppointmentType type : Appointment.AppointmentType.values()) {
+            List<LocalTime> expected = new ArrayList<>();
+            for (LocalTime startTime = LocalTime.of(9, 0); startTime.isBefore(LocalTime.of(17, 0)); startTime = startTime.plusMinutes(30)) {
+                LocalTime endTime = startTime.plus(type.getDuration());
+                if (!endTime.isAfter(LocalTime.of(17, 0)) &&
+                        !Booking.doAppointmentTimesOverlapOtherBookings(startTime, endTime, bookings))
+                    expected.add(startTime);
+            }
+            assertEquals(expected, freshPractitioner.availabileTimes(bookingDate, type));
+        }
+    }
+
+    @Test
+    @DisplayName("Should only accept one of many concurrent requests for overlapping time slots")
+    void shouldNotDoubleBookWhenRequestsAreConcurrent() throws Exception {
+        Practitioner freshPractitioner = new Practitioner("Con", "Current", "416-555-3333", "con.current@email.com");
+        LocalDate bookingDate = LocalDateTime.now().toLocalDate().plusDays(1);
+        int requests = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Either<List<BookingValidationError>, Booking>>> results = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                // Alternate between two start times whose 60 minute appointments overlap
+                LocalTime startTime = LocalTime.of(10, i % 2 == 0 ? 0 : 30);
+                Patient patient = patients.get(i % patients.size());
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return freshPractitioner.addBooking(
+                            patient, clinic, Appointment.AppointmentType.STANDARD, bookingDate, startTime);
+                }));
+            }
+            start.countDown();
+            int booked = 0;
+            for (Future<Either<List<BookingValidationError>, Booking>> result : results) {
+                if (result.get().isRight())
+                    booked++;
+            }
+            assertEquals(1, booked);
+            assertEquals(1, freshPractitioner.listBookings(bookingDate).size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should stream the same available time slots over a date range as asking day by day")
+    void shouldStreamAvailableTimeSlotsForADateRange() {
+        Practitioner freshPractitioner = new Practitioner("Rang", "Ing", "416-555-4444", "rang.ing@email.com");
+        LocalDate firstDate = LocalDateTime.now().toLocalDate().plusDays(1);
+        LocalDate lastDate = firstDate.plusDays(9);
+        // Fill the third day completely and part of the fifth
+        for (LocalTime startTime = LocalTime.of(9, 0); startTime.isBefore(LocalTime.of(17, 0)); startTime = startTime.plusHours(1))
+            freshPractitioner.addBooking(patients.get(0), clinic, Appointment.AppointmentType.STANDARD, firstDate.plusDays(2), startTime);
+        freshPractitioner.addBooking(patients.get(1), clinic, Appointment.AppointmentType.CONSULTATION, firstDate.plusDays(4), LocalTime.of(13, 0));
+
+        List<AvailableSlot> expected = new ArrayList<>();
+        for (LocalDate date = firstDate; !date.isAfter(lastDate); date = date.plusDays(1)) {
+            for (LocalTime startTime : freshPractitioner.availabileTimes(date, Appointment.AppointmentType.STANDARD))
+                expected.add(new AvailableSlot(freshPractitioner, date, startTime));
+        }
+
+        assertEquals(expected,
+                freshPractitioner.availabileTimes(firstDate, lastDate, Appointment.AppointmentType.STANDARD).toList());
+        assertTrue(expected.stream().noneMatch(slot -> slot.date().equals(firstDate.plusDays(2))));
+    }
+
+    @Test
+    @DisplayName("Should stop searching a date range once the caller has enough slots")
+    void shouldStopStreamingAvailableTimeSlotsEarly() {
+        Practitioner freshPractitioner = new Practitioner("Ear", "Ly", "416-555-5555", "ear.ly@email.com");
+        LocalDate firstDate = LocalDateTime.now().toLocalDate().plusDays(1);
+        freshPractitioner.addBooking(patients.get(0), clinic, Appointment.AppointmentType.STANDARD, firstDate, LocalTime.of(9, 0));
+
+        List<AvailableSlot> firstThree = freshPractitioner
+                .availabileTimes(firstDate, firstDate.plusYears(10), Appointment.AppointmentType.STANDARD)
+                .limit(3)
+                .toList();
+
+        assertEquals(List.of(LocalTime.of(10, 0), LocalTime.of(10, 30), LocalTime.of(11, 0)),
+                firstThree.stream().map(AvailableSlot::startTime).toList());
+    }
+
+    @Test
+    @DisplayName("Should find the next available time slot after the booking lead time")
+    void shouldFindNextAvailableTimeSlot() {
+        Practitioner freshPractitioner = new Practitioner("Nex", "Tup", "416-555-6666", "nex.tup@email.com");
+        LocalDate tomorrow = LocalDateTime.now().toLocalDate().plusDays(1);
+        freshPractitioner.addBooking(patients.get(0), clinic, Appointment.AppointmentType.STANDARD, tomorrow, LocalTime.of(10, 30));
+
+        // 08:00 + 2 hours lead time leaves 10:30 as the first bookable start, which is taken
+        Optional<AvailableSlot> next = freshPractitioner.nextAvailableTime(
+                LocalDateTime.of(tomorrow, LocalTime.of(8, 0)), Appointment.AppointmentType.STANDARD);
+
+        assertEquals(Optional.of(new AvailableSlot(freshPractitioner, tomorrow, LocalTime.of(11, 30))), next);
+    }
+
+    @Test
+    @DisplayName("Should skip fully booked days when finding the next available time slot")
+    void shouldSkipFullyBookedDaysForNextAvailableTimeSlot() {
+        Practitioner freshPractitioner = new Practitioner("Ful", "Ly", "416-555-7777", "ful.ly@email.com");
+        LocalDate tomorrow = LocalDateTime.now().toLocalDate().plusDays(1);
+        for (int day = 0; day < 21; day++) {
+            for (LocalTime startTime = LocalTime.of(9, 0); startTime.isBefore(LocalTime.of(17, 0)); startTime = startTime.plusHours(1))
+                freshPractitioner.addBooking(patients.get(0), clinic, Appointment.AppointmentType.STANDARD, tomorrow.plusDays(day), startTime);
+        }
+
+        Optional<AvailableSlot> next = freshPractitioner.nextAvailableTime(
+                LocalDateTime.of(tomorrow.minusDays(1), LocalTime.of(20, 0)), Appointment.AppointmentType.STANDARD);
+
+        assertEquals(Optional.of(new AvailableSlot(freshPractitioner, tomorrow.plusDays(21), LocalTime.of(9, 0))), next);
+    }
+
+    @Test
+    @DisplayName("Should hide a held time slot until the hold expires")
+    void shouldReleaseHeldTimeSlotWhenHoldExpires() {
+        Practitioner freshPractitioner = new Practitioner("Hol", "Ding", "416-555-8888", "hol.ding@email.com");
+        LocalDate tomorrow = LocalDateTime.now().toLocalDate().plusDays(1);
+
+        Booking held = freshPractitioner.holdBooking(patients.get(0), clinic, Appointment.AppointmentType.STANDARD,
+                tomorrow, LocalTime.of(10, 0)).getRight().orElseThrow();
+
+        assertTrue(freshPractitioner.isHeld(held));
+        assertFalse(freshPractitioner.availabileTimes(tomorrow, Appointment.AppointmentType.CHECK_IN).contains(LocalTime.of(10, 30)));
+        assertTrue(freshPractitioner.addBooking(patients.get(1), clinic, Appointment.AppointmentType.CHECK_IN,
+                tomorrow, LocalTime.of(10, 30)).isLeft());
+
+        freshPractitioner.expireHolds(LocalDateTime.now().plus(Booking.HOLD_TIME).plusMinutes(1));
+
+        assertFalse(freshPractitioner.isHeld(held));
+        assertFalse(freshPractitioner.confirmBooking(held));
+        assertTrue(freshPractitioner.listBookings(tomorrow).isEmpty());
+        assertTrue(freshPractitioner.availabileTimes(tomorrow, Appointment.AppointmentType.CHECK_IN).contains(LocalTime.of(10, 30)));
+    }
+
+    @Test
+    @DisplayName("Should keep a held booking once it is confirmed")
+    void shouldKeepConfirmedHold() {
+        Practitioner freshPractitioner = new Practitioner("Con", "Firm", "416-555-9999", "con.firm@email.com");
+        LocalDate tomorrow = LocalDateTime.now().toLocalDate().plusDays(1);
+
+        Booking held = freshPractitioner.holdBooking(patients.get(0), clinic, Appointment.AppointmentType.STANDARD,
+                tomorrow, LocalTime.of(10, 0)).getRight().orElseThrow();
+
+        assertTrue(freshPractitioner.confirmBooking(held));
+        assertFalse(freshPractitioner.isHeld(held));
+        freshPractitioner.expireHolds(LocalDateTime.now().plus(Booking.HOLD_TIME).plusMinutes(1));
+        assertEquals(List.of(held), freshPractitioner.listBookings(tomorrow));
+    }
+
+    @Test
+    @DisplayName("Should keep cancelled bookings by status while releasing their time")
+    void shouldIndexBookingsByStatus() {
+        Practitioner freshPractitioner = new Practitioner("Sta", "Tus", "416-555-1313", "sta.tus@email.com");
+        LocalDate tomorrow = LocalDateTime.now().toLocalDate().plusDays(1);
+        Booking cancelled = freshPractitioner.addBooking(patients.get(0), clinic, Appointment.AppointmentType.STANDARD,
+                tomorrow, LocalTime.of(9, 0)).getRight().orElseThrow();
+        Booking completed = freshPractitioner.addBooking(patients.get(0), clinic, Appointment.AppointmentType.STANDARD,
+                tomorrow, LocalTime.of(11, 0)).getRight().orElseThrow();
+        Booking missed = freshPractitioner.addBooking(patients.get(1), clinic, Appointment.AppointmentType.STANDARD,
+                tomorrow.plusDays(1), LocalTime.of(9, 0)).getRight().orElseThrow();
+        Booking held = freshPractitioner.holdBooking(patients.get(1), clinic, Appointment.AppointmentType.STANDARD,
+                tomorrow, LocalTime.of(13, 0)).getRight().orElseThrow();
+
+        assertEquals(List.of(cancelled, completed), freshPractitioner.listBookings(tomorrow, Booking.BookingStatus.CONFIRMED));
+        assertEquals(List.of(held), freshPractitioner.listBookings(tomorrow, Booking.BookingStatus.PENDING));
+
+        assertTrue(freshPractitioner.cancelBooking(cancelled));
+        assertFalse(freshPractitioner.cancelBooking(cancelled));
+        assertFalse(freshPractitioner.markCompleted(cancelled));
+        assertFalse(freshPractitioner.markCompleted(held));
+        assertTrue(freshPractitioner.markCompleted(completed));
+        assertTrue(freshPractitioner.markNoShow(missed));
+
+        assertEquals(Booking.BookingStatus.CANCELLED, cancelled.getStatus());
+        assertEquals(List.of(cancelled), freshPractitioner.listBookings(tomorrow, Booking.BookingStatus.CANCELLED));
+        assertEquals(List.of(completed), freshPractitioner.listBookings(tomorrow, Booking.BookingStatus.COMPLETED));
+        assertEquals(List.of(missed),
+                freshPractitioner.listBookings(tomorrow, tomorrow.plusDays(30), Booking.BookingStatus.NO_SHOW));
+        assertTrue(freshPractitioner.listBookings(tomorrow, Booking.BookingStatus.CONFIRMED).isEmpty());
+        // Only the cancelled booking's time is released
+        assertEquals(List.of(completed, held), freshPractitioner.listBookings(tomorrow));
+        assertTrue(freshPractitioner.availabileTimes(tomorrow, Appointment.AppointmentType.STANDARD).contains(LocalTime.of(9, 0)));
+        assertFalse(freshPractitioner.availabileTimes(tomorrow, Appointment.AppointmentType.STANDARD).contains(LocalTime.of(11, 0)));
+    }
+
+    @Test
+    @DisplayName("Should cancel a held booking when its hold expires")
+    void shouldCancelExpiredHold() {
+        Practitioner freshPractitioner = new Practitioner("Exp", "Ired", "416-555-1414", "exp.ired@email.com");
+        LocalDate tomorrow = LocalDateTime.now().toLocalDate().plusDays(1);
+        Booking held = freshPractitioner.holdBooking(patients.get(0), clinic, Appointment.AppointmentType.STANDARD,
+                tomorrow, LocalTime.of(10, 0)).getRight().orElseThrow();
+
+        freshPractitioner.expireHolds(LocalDateTime.now().plus(Booking.HOLD_TIME).plusMinutes(1));
+
+        assertEquals(Booking.BookingStatus.CANCELLED, held.getStatus());
+        assertEquals(List.of(held), freshPractitioner.listBookings(tomorrow, Booking.BookingStatus.CANCELLED));
+        assertTrue(freshPractitioner.listBookings(tomorrow, Booking.BookingStatus.PENDING).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should cancel a booking again when it can't be reported, reporting the cancellation instead")
+    void shouldWithdrawABookingThatCannotBeReported() {
+        Practitioner freshPractitioner = new Practitioner("Un", "Journaled", "416-555-1515", "un.journaled@email.com");
+        LocalDate tomorrow = LocalDateTime.now().toLocalDate().plusDays(1);
+        List<Booking> cancelled = new ArrayList<>();
+        freshPractitioner.setBookingEvents(new BookingEvents() {
+            @Override
+            public void bookingAdded(Booking booking) {
+                throw new IllegalStateException("journal unavailable");
+            }
+
+            @Override
+            public void bookingCancelled(Booking booking) {
+                cancelled.add(booking);
+            }
+        });
+
+        assertThrows(IllegalStateException.class, () -> freshPractitioner.addBooking(patients.get(0), clinic,
+                Appointment.AppointmentType.STANDARD, tomorrow, LocalTime.of(10, 0)));
+
+        assertEquals(1, cancelled.size());
+        assertEquals(Booking.BookingStatus.CANCELLED, cancelled.get(0).getStatus());
+        assertTrue(freshPractitioner.listBookings(tomorrow).isEmpty());
+        assertTrue(freshPractitioner.availabileTimes(tomorrow, Appointment.AppointmentType.STANDARD)
+                .contains(LocalTime.of(10, 0)));
+        assertThrows(IllegalStateException.class, () -> freshPractitioner.addBookings(clinic, List.of(
+                new BookingRequest(freshPractitioner, patients.get(0), Appointment.AppointmentType.STANDARD,
+                        tomorrow, LocalTime.of(10, 0)),
+                new BookingRequest(freshPractitioner, patients.get(1), Appointment.AppointmentType.STANDARD,
+                        tomorrow, LocalTime.of(11, 0)))));
+        assertEquals(3, cancelled.size());
+        assertTrue(freshPractitioner.listBookings(tomorrow).isEmpty());
+    }
 }
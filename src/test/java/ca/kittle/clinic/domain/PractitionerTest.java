@@ -101,4 +101,11 @@ class PractitionerTest {
                 () -> new Practitioner(FIRST_NAME, LAST_NAME, PHONE_NUMBER, "invalid-email"));
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Should throw exception when reservation strategy is null")
+    void shouldThrowExceptionWhenReservationStrategyIsNull() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new Practitioner(FIRST_NAME, LAST_NAME, PHONE_NUMBER, EMAIL, null));
+    }
+
+}
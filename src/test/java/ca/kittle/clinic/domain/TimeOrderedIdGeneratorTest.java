@@ -0,0 +1,85 @@
+package ca.kittle.clinic.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeOrderedIdGeneratorTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    @DisplayName("Should make version 7 ids carrying the time they were made")
+    void shouldMakeVersion7Ids() {
+        UUID id = new TimeOrderedIdGenerator(() -> NOW).nextId();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(NOW, TimeOrderedIdGenerator.timestampOf(id));
+    }
+
+    @Test
+    @DisplayName("A thread's ids should keep increasing within a millisecond and when the clock goes backwards")
+    void shouldKeepIncreasing() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(clock::get);
+        UUID previous = generator.nextId();
+        for (int i = 0; i < 10_000; i++) {
+            if (i == 5_000)
+                clock.set(NOW - 1_000);
+            UUID next = generator.nextId();
+            assertTrue(next.compareTo(previous) > 0);
+            previous = next;
+        }
+        clock.set(NOW + 1_000);
+        assertEquals(NOW + 1_000, TimeOrderedIdGenerator.timestampOf(generator.nextId()));
+    }
+
+    @Test
+    @DisplayName("Ids made later should sort later")
+    void shouldSortByTime() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(clock::get);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            clock.addAndGet(1);
+            ids.add(generator.nextId());
+        }
+        assertEquals(ids, ids.stream().sorted().toList());
+    }
+
+    @Test
+    @DisplayName("Threads making ids at the same time should never make the same one")
+    void shouldBeUniqueAcrossThreads() throws Exception {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(() -> NOW);
+        Set<UUID> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> makers = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                makers.add(executor.submit(() -> {
+                    for (int i = 0; i < 25_000; i++)
+                        ids.add(generator.nextId());
+                }));
+            }
+            for (Future<?> maker : makers)
+                maker.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(100_000, ids.size());
+    }
+}
@@ -0,0 +1,477 @@
+package ca.kittle.clinic.domain.calendar;
+
+import ca.kittle.clinic.domain.Appointment;
+import ca.kittle.clinic.domain.Booking;
+import ca.kittle.clinic.domain.Patient;
+import ca.kittle.clinic.domain.Practitioner;
+import ca.kittle.clinic.domain.fixtures.TestClinic;
+import ca.kittle.clinic.domain.fixtures.TestPatients;
+import ca.kittle.clinic.domain.fixtures.TestPractitioner;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookingCalendarTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 3, 8, 0);
+    private static final LocalDate MONDAY = NOW.toLocalDate().plusDays(7);
+    private static final Patient PATIENT = TestPatients.getAllPatients().get(0);
+    private static final Practitioner PRACTITIONER = TestPractitioner.CHERIA;
+
+    private static Booking booking(LocalDate date, LocalTime startTime) {
+        return Booking.createBooking(
+                NOW,
+                TestClinic.TEST_CLINIC.getHours(),
+                Appointment.AppointmentType.CHECK_IN,
+                date,
+                startTime,
+                PATIENT,
+                PRACTITIONER).getRight().orElseThrow();
+    }
+
+    @Test
+    @DisplayName("Should list a day's bookings in start time order regardless of insertion order")
+    void shouldListBookingsInStartTimeOrder() {
+        BookingCalendar calendar = new BookingCalendar();
+        Booking late = booking(MONDAY, LocalTime.of(15, 0));
+        Booking early = booking(MONDAY, LocalTime.of(9, 0));
+        Booking middle = booking(MONDAY, LocalTime.of(11, 30));
+        calendar.add(late);
+        calendar.add(early);
+        calendar.add(middle);
+        calendar.add(booking(MONDAY.plusDays(1), LocalTime.of(10, 0)));
+
+        assertEquals(List.of(early, middle, late), calendar.listBookings(MONDAY));
+        assertEquals(4, calendar.size());
+    }
+
+    @Test
+    @DisplayName("Should hand out a read-only view of the day that later changes don't disturb")
+    void shouldViewADayWithoutCopying() {
+        BookingCalendar calendar = new BookingCalendar();
+        Booking late = booking(MONDAY, LocalTime.of(15, 0));
+        Booking early = booking(MONDAY, LocalTime.of(9, 0));
+        calendar.add(late);
+        calendar.add(early);
+
+        List<Booking> day = calendar.listBookings(MONDAY);
+        Booking middle = booking(MONDAY, LocalTime.of(11, 30));
+        calendar.add(middle);
+        assertTrue(calendar.remove(early));
+
+        assertEquals(List.of(early, late), day);
+        assertEquals(List.of(middle, late), calendar.listBookings(MONDAY));
+        assertThrows(UnsupportedOperationException.class, () -> day.set(0, middle));
+        assertThrows(UnsupportedOperationException.class, () -> day.remove(0));
+    }
+
+    @Test
+    @DisplayName("Should list bookings across a date range ordered by date then start time")
+    void shouldListBookingsForADateRange() {
+        BookingCalendar calendar = new BookingCalendar();
+        Booking before = booking(MONDAY.minusDays(1), LocalTime.of(9, 0));
+        Booking first = booking(MONDAY, LocalTime.of(13, 0));
+        Booking second = booking(MONDAY.plusDays(2), LocalTime.of(9, 0));
+        Booking after = booking(MONDAY.plusDays(3), LocalTime.of(9, 0));
+        List.of(after, second, first, before).forEach(calendar::add);
+
+        assertEquals(List.of(first, second), calendar.listBookings(MONDAY, MONDAY.plusDays(2)));
+        assertEquals(List.of(before, first, second, after), calendar.allBookings());
+        assertThrows(IllegalArgumentException.class, () -> calendar.listBookings(MONDAY, MONDAY.minusDays(1)));
+    }
+
+    @Test
+    @DisplayName("Should only remove the exact booking instance")
+    void shouldRemoveBookingByIdentity() {
+        BookingCalendar calendar = new BookingCalendar();
+        Booking booking = booking(MONDAY, LocalTime.of(10, 0));
+        Booking sameSlot = booking(MONDAY, LocalTime.of(10, 0));
+        calendar.add(booking);
+
+        assertFalse(calendar.remove(sameSlot));
+        assertTrue(calendar.remove(booking));
+        assertFalse(calendar.remove(booking));
+        assertTrue(calendar.isEmpty());
+        assertTrue(calendar.listBookings(MONDAY).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should only move onto a different slot grid before taking any bookings")
+    void shouldRefuseToChangeGridOnceInUse() {
+        SlotGrid quarterHours = SlotGrid.of(Duration.ofMinutes(15));
+        long[][] quarterStarts = new long[7][];
+        Arrays.fill(quarterStarts, quarterHours.mask(0, quarterHours.getSlotsPerDay()));
+        long[][] halfHourStarts = new long[7][];
+        Arrays.fill(halfHourStarts, SlotGrid.DEFAULT.mask(0, 20));
+        BookingCalendar calendar = new BookingCalendar();
+        calendar.add(booking(MONDAY, LocalTime.of(10, 0)));
+
+        assertThrows(IllegalStateException.class, () -> calendar.setSlots(quarterHours, quarterStarts));
+        assertEquals(SlotGrid.DEFAULT, calendar.getGrid());
+        calendar.setSlots(SlotGrid.DEFAULT, halfHourStarts);
+        assertTrue(calendar.addIfFree(booking(MONDAY, LocalTime.of(9, 0))));
+
+        BookingCalendar empty = new BookingCalendar();
+        empty.setSlots(quarterHours, quarterStarts);
+        assertEquals(quarterHours, empty.getGrid());
+    }
+
+    @Test
+    @DisplayName("Should refuse to add a booking that overlaps one already on the day")
+    void shouldOnlyAddIfFree() {
+        BookingCalendar calendar = new BookingCalendar();
+        Booking booking = booking(MONDAY, LocalTime.of(10, 0));
+
+        assertTrue(calendar.addIfFree(booking));
+        assertFalse(calendar.addIfFree(booking(MONDAY, LocalTime.of(10, 0))));
+        assertTrue(calendar.addIfFree(booking(MONDAY, LocalTime.of(10, 30))));
+        assertTrue(calendar.addIfFree(booking(MONDAY.plusDays(1), LocalTime.of(10, 0))));
+        assertEquals(3, calendar.size());
+
+        calendar.remove(booking);
+        assertTrue(calendar.addIfFree(booking(MONDAY, LocalTime.of(10, 0))));
+    }
+
+    @Test
+    @DisplayName("Should never double-book a slot under contention with either reservation strategy")
+    void shouldNotDoubleBookUnderContention() throws Exception {
+        for (ReservationStrategy strategy : ReservationStrategy.values()) {
+            BookingCalendar calendar = new BookingCalendar(strategy);
+            List<Booking> requests = new ArrayList<>();
+            for (int copy = 0; copy < 8; copy++) {
+                for (LocalTime startTime = LocalTime.of(9, 0); startTime.isBefore(LocalTime.of(17, 0)); startTime = startTime.plusMinutes(30))
+                    requests.add(booking(MONDAY, startTime));
+            }
+            AtomicInteger booked = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            for (Booking request : requests) {
+                executor.submit(() -> {
+                    start.await();
+                    if (calendar.addIfFree(request))
+                        booked.incrementAndGet();
+                    return null;
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+            // Each CHECK_IN fills exactly one slot, so every slot is booked exactly once
+            List<Booking> bookings = calendar.listBookings(MONDAY);
+            assertEquals(16, booked.get(), strategy.name());
+            assertEquals(16, bookings.size(), strategy.name());
+            for (int i = 1; i < bookings.size(); i++)
+                assertFalse(bookings.get(i).getStartTime().isBefore(bookings.get(i - 1).getEndTime()), strategy.name());
+        }
+    }
+
+    @Test
+    @DisplayName("Should release a cancelled booking's slots with the lock-free strategy")
+    void shouldReleaseSlotsWhenLockFree() {
+        BookingCalendar calendar = new BookingCalendar(ReservationStrategy.LOCK_FREE);
+        Booking booking = booking(MONDAY, LocalTime.of(10, 0));
+
+        assertTrue(calendar.addIfFree(booking));
+        assertFalse(calendar.addIfFree(booking(MONDAY, LocalTime.of(10, 0))));
+        assertTrue(calendar.remove(booking));
+        assertArrayEquals(new long[1], calendar.occupancy(MONDAY));
+        assertTrue(calendar.addIfFree(booking(MONDAY, LocalTime.of(10, 0))));
+    }
+
+    @Test
+    @DisplayName("Should claim and release bookings that span occupancy words on a finer grid")
+    void shouldClaimAcrossWordsOnFinerGrid() {
+        SlotGrid grid = SlotGrid.of(Duration.ofMinutes(10));
+        for (ReservationStrategy strategy : ReservationStrategy.values()) {
+            BookingCalendar calendar = new BookingCalendar(strategy, grid,
+                    grid.maskOf(LocalTime.of(9, 0), LocalTime.of(17, 0)));
+            // 10:30 to 11:00 is slots 63 to 65, the last slot of the first word and two of the second
+            Booking spanning = booking(MONDAY, LocalTime.of(10, 30));
+
+            assertTrue(calendar.addIfFree(spanning), strategy.name());
+            assertFalse(calendar.addIfFree(booking(MONDAY, LocalTime.of(10, 30))), strategy.name());
+            assertArrayEquals(new long[]{1L << 63, 0b11L, 0L}, calendar.occupancy(MONDAY), strategy.name());
+            assertArrayEquals(new boolean[]{true, false, true}, calendar.addAllIfFree(List.of(
+                    booking(MONDAY, LocalTime.of(10, 0)),
+                    booking(MONDAY, LocalTime.of(10, 30)),
+                    booking(MONDAY, LocalTime.of(11, 0)))), strategy.name());
+            assertEquals(Optional.of(new SlotMatch(MONDAY, grid.slotOf(LocalTime.of(9, 0)))),
+                    calendar.findFirstFit(MONDAY, 0, 6), strategy.name());
+            assertEquals(Optional.of(new SlotMatch(MONDAY, grid.slotOf(LocalTime.of(11, 30)))),
+                    calendar.findFirstFit(MONDAY, grid.slotOf(LocalTime.of(9, 10)), 6), strategy.name());
+
+            assertTrue(calendar.remove(spanning), strategy.name());
+            long[] remaining = grid.mask(60, 3);
+            grid.include(remaining, 66, 3);
+            assertArrayEquals(remaining, calendar.occupancy(MONDAY), strategy.name());
+        }
+    }
+
+    @Test
+    @DisplayName("Should write occupancy into an existing array sized for the grid")
+    void shouldReadOccupancyIntoArray() {
+        SlotGrid grid = SlotGrid.of(Duration.ofMinutes(10));
+        BookingCalendar calendar = new BookingCalendar(ReservationStrategy.LOCKING, grid,
+                grid.maskOf(LocalTime.of(9, 0), LocalTime.of(17, 0)));
+        calendar.addIfFree(booking(MONDAY, LocalTime.of(10, 30)));
+        long[] into = {-1L, -1L, -1L};
+
+        calendar.occupancy(MONDAY, into);
+        assertArrayEquals(calendar.occupancy(MONDAY), into);
+        calendar.occupancy(MONDAY.plusDays(1), into);
+        assertArrayEquals(new long[3], into);
+        assertThrows(IllegalArgumentException.class, () -> calendar.occupancy(MONDAY, new long[1]));
+        assertThrows(IllegalArgumentException.class, () -> calendar.occupancy(null, into));
+    }
+
+    @Test
+    @DisplayName("Should find the first fit past fully booked weeks, including a slot freed by a cancellation")
+    void shouldFindFirstFitPastFullWeeks() {
+        BookingCalendar calendar = new BookingCalendar(ReservationStrategy.LOCKING, SlotGrid.DEFAULT,
+                SlotGrid.DEFAULT.maskOf(LocalTime.of(9, 0), LocalTime.of(17, 0)));
+        Booking cancelled = null;
+        for (int day = 0; day < 14; day++) {
+            for (LocalTime startTime = LocalTime.of(9, 0); startTime.isBefore(LocalTime.of(17, 0)); startTime = startTime.plusMinutes(30)) {
+                Booking booking = booking(MONDAY.plusDays(day), startTime);
+                calendar.add(booking);
+                if (day == 10 && startTime.equals(LocalTime.of(14, 0)))
+                    cancelled = booking;
+            }
+        }
+
+        assertEquals(Optional.of(new SlotMatch(MONDAY.plusDays(14), SlotGrid.DEFAULT.slotOf(LocalTime.of(9, 0)))),
+                calendar.findFirstFit(MONDAY, 0, 1));
+
+        calendar.remove(cancelled);
+        assertEquals(Optional.of(new SlotMatch(MONDAY.plusDays(10), SlotGrid.DEFAULT.slotOf(LocalTime.of(14, 0)))),
+                calendar.findFirstFit(MONDAY, 0, 1));
+        assertEquals(Optional.of(new SlotMatch(MONDAY.plusDays(14), SlotGrid.DEFAULT.slotOf(LocalTime.of(9, 0)))),
+                calendar.findFirstFit(MONDAY, 0, 2));
+    }
+
+    @Test
+    @DisplayName("Should add a batch across days, rejecting bookings that overlap the calendar or the batch")
+    void shouldAddAllIfFree() {
+        for (ReservationStrategy strategy : ReservationStrategy.values()) {
+            BookingCalendar calendar = new BookingCalendar(strategy);
+            calendar.add(booking(MONDAY, LocalTime.of(10, 0)));
+            List<Booking> batch = List.of(
+                    booking(MONDAY.plusDays(1), LocalTime.of(9, 0)),
+                    booking(MONDAY, LocalTime.of(11, 0)),
+                    booking(MONDAY, LocalTime.of(10, 0)),
+                    booking(MONDAY, LocalTime.of(9, 30)),
+                    booking(MONDAY, LocalTime.of(11, 0)));
+
+            assertArrayEquals(new boolean[]{true, true, false, true, false}, calendar.addAllIfFree(batch));
+            assertEquals(4, calendar.size());
+            assertEquals(List.of(LocalTime.of(9, 30), LocalTime.of(10, 0), LocalTime.of(11, 0)),
+                    calendar.listBookings(MONDAY).stream().map(Booking::getStartTime).toList());
+            assertEquals(batch.get(1), calendar.listBookings(MONDAY).get(2));
+            long[] occupied = SlotGrid.DEFAULT.maskOf(LocalTime.of(9, 30), LocalTime.of(10, 30));
+            SlotGrid.DEFAULT.include(occupied, LocalTime.of(11, 0), LocalTime.of(11, 30));
+            assertArrayEquals(occupied, calendar.occupancy(MONDAY));
+        }
+    }
+
+    /**
+     * Archived days held in memory, counting how often a day's bookings are asked for.
+     */
+    private static final class CountingArchive implements DayArchive {
+
+        private final NavigableMap<LocalDate, List<Booking>> days = new TreeMap<>();
+        private final AtomicInteger loads = new AtomicInteger();
+
+        private CountingArchive(List<Booking> bookings) {
+            bookings.forEach(booking -> days.computeIfAbsent(booking.getDate(), date -> new ArrayList<>()).add(booking));
+        }
+
+        @Override
+        public int occupyingBookings() {
+            return (int) days.values().stream().flatMap(List::stream)
+                    .filter(booking -> booking.getStatus().isOccupyingTime())
+                    .count();
+        }
+
+        @Override
+        public void readOccupancy(LocalDate date, long[] into) {
+            Arrays.fill(into, 0L);
+            for (Booking booking : days.getOrDefault(date, List.of())) {
+                if (booking.getStatus().isOccupyingTime())
+                    SlotGrid.DEFAULT.include(into, booking.getStartTime(), booking.getEndTime());
+            }
+        }
+
+        @Override
+        public LocalDate nextDate(LocalDate fromDate) {
+            return days.ceilingKey(fromDate);
+        }
+
+        @Override
+        public List<Booking> bookings(LocalDate date) {
+            loads.incrementAndGet();
+            return days.getOrDefault(date, List.of());
+        }
+
+        @Override
+        public LocalDate dateOf(UUID bookingId) {
+            return days.values().stream().flatMap(List::stream)
+                    .filter(booking -> booking.getId().equals(bookingId))
+                    .map(Booking::getDate)
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        @Override
+        public List<LocalDate> datesOf(UUID patientId, LocalDate fromDate, LocalDate toDate) {
+            return days.subMap(fromDate, true, toDate, true).entrySet().stream()
+                    .filter(day -> day.getValue().stream()
+                            .anyMatch(booking -> booking.getPatient().getId().equals(patientId)))
+                    .map(Map.Entry::getKey)
+                    .toList();
+        }
+    }
+
+    private static Booking archived(LocalDate date, LocalTime startTime, Booking.BookingStatus status) {
+        return Booking.restoreBooking(UUID.randomUUID(), Appointment.AppointmentType.CHECK_IN, date, startTime,
+                PATIENT, PRACTITIONER, status);
+    }
+
+    @Test
+    @DisplayName("Should answer occupancy from an archive and only load a day when its bookings are needed")
+    void shouldLoadArchivedDaysLazily() {
+        LocalDate wednesday = MONDAY.plusDays(2);
+        CountingArchive archive = new CountingArchive(List.of(
+                archived(MONDAY, LocalTime.of(9, 0), Booking.BookingStatus.CONFIRMED),
+                archived(wednesday, LocalTime.of(10, 0), Booking.BookingStatus.COMPLETED),
+                archived(wednesday, LocalTime.of(11, 0), Booking.BookingStatus.CANCELLED)));
+        BookingCalendar calendar = new BookingCalendar();
+        calendar.restore(archive);
+
+        assertEquals(2, calendar.size());
+        assertArrayEquals(SlotGrid.DEFAULT.maskOf(LocalTime.of(9, 0), LocalTime.of(9, 30)), calendar.occupancy(MONDAY));
+        OccupancyCursor cursor = calendar.occupancyCursor(MONDAY, wednesday);
+        List<Long> occupancies = new ArrayList<>();
+        while (cursor.advance())
+            occupancies.add(cursor.occupancy()[0]);
+        assertEquals(List.of(calendar.occupancy(MONDAY)[0], 0L,
+                SlotGrid.DEFAULT.maskOf(LocalTime.of(10, 0), LocalTime.of(10, 30))[0]), occupancies);
+        assertEquals(0, archive.loads.get());
+
+        assertEquals(1, calendar.listBookings(MONDAY).size());
+        assertEquals(1, calendar.listBookings(MONDAY, wednesday, Booking.BookingStatus.CANCELLED).size());
+        assertEquals(1, calendar.listBookings(MONDAY).size());
+        assertEquals(2, archive.loads.get());
+
+        assertFalse(calendar.addIfFree(booking(wednesday, LocalTime.of(10, 0))));
+        assertTrue(calendar.addIfFree(booking(wednesday, LocalTime.of(11, 0))));
+        assertEquals(3, calendar.size());
+        assertEquals(2, archive.loads.get());
+    }
+
+    @Test
+    @DisplayName("Should find bookings by id, reading only its own day for a booking on a day not yet read")
+    void shouldFindBookingsById() {
+        Booking cancelled = archived(MONDAY.plusDays(2), LocalTime.of(11, 0), Booking.BookingStatus.CANCELLED);
+        CountingArchive archive = new CountingArchive(List.of(
+                archived(MONDAY, LocalTime.of(9, 0), Booking.BookingStatus.CONFIRMED), cancelled));
+        BookingCalendar calendar = new BookingCalendar();
+        calendar.restore(archive);
+        Booking added = booking(MONDAY.plusDays(1), LocalTime.of(9, 0));
+        assertTrue(calendar.addIfFree(added));
+
+        assertEquals(Optional.of(added), calendar.find(added.getId()));
+        assertEquals(0, archive.loads.get());
+        assertEquals(Optional.of(cancelled), calendar.find(cancelled.getId()));
+        assertEquals(1, archive.loads.get());
+        assertEquals(Optional.of(cancelled), calendar.find(cancelled.getId()));
+        assertEquals(Optional.empty(), calendar.find(UUID.randomUUID()));
+        assertEquals(1, archive.loads.get());
+
+        assertTrue(calendar.remove(added));
+        assertEquals(Optional.empty(), calendar.find(added.getId()));
+        assertEquals(Optional.empty(), calendar.find(null));
+    }
+
+    @Test
+    @DisplayName("Should only read the archived days a patient has bookings on, and each only once")
+    void shouldReadOnlyAPatientsArchivedDays() {
+        Patient other = TestPatients.getAllPatients().get(1);
+        CountingArchive archive = new CountingArchive(List.of(
+                archived(MONDAY, LocalTime.of(9, 0), Booking.BookingStatus.CONFIRMED),
+                Booking.restoreBooking(UUID.randomUUID(), Appointment.AppointmentType.CHECK_IN, MONDAY.plusDays(1),
+                        LocalTime.of(9, 0), other, PRACTITIONER, Booking.BookingStatus.CONFIRMED),
+                archived(MONDAY.plusDays(2), LocalTime.of(9, 0), Booking.BookingStatus.CANCELLED),
+                archived(MONDAY.plusDays(9), LocalTime.of(9, 0), Booking.BookingStatus.CONFIRMED)));
+        BookingCalendar calendar = new BookingCalendar();
+        calendar.restore(archive);
+        List<Booking> read = new ArrayList<>();
+        calendar.setArchiveListener(read::add);
+
+        calendar.readArchive(PATIENT.getId(), MONDAY, MONDAY.plusDays(6));
+        assertEquals(2, archive.loads.get());
+        assertEquals(List.of(MONDAY, MONDAY.plusDays(2)), read.stream().map(Booking::getDate).toList());
+
+        calendar.readArchive(PATIENT.getId(), LocalDate.MIN, LocalDate.MAX);
+        assertEquals(3, archive.loads.get());
+        calendar.readArchive(other.getId(), MONDAY.plusDays(2), LocalDate.MAX);
+        assertEquals(3, archive.loads.get());
+        assertThrows(IllegalArgumentException.class, () -> calendar.readArchive(null, MONDAY, MONDAY));
+    }
+
+    @Test
+    @DisplayName("Should walk loaded and archived days in order without reading archived days into the calendar")
+    void shouldWalkEveryBookingWithoutLoadingTheArchive() {
+        Booking monday = archived(MONDAY, LocalTime.of(9, 0), Booking.BookingStatus.CONFIRMED);
+        Booking wednesday = archived(MONDAY.plusDays(2), LocalTime.of(10, 0), Booking.BookingStatus.CANCELLED);
+        CountingArchive archive = new CountingArchive(List.of(monday, wednesday));
+        BookingCalendar calendar = new BookingCalendar();
+        calendar.restore(archive);
+        Booking tuesday = booking(MONDAY.plusDays(1), LocalTime.of(9, 0));
+        Booking mondayLater = booking(MONDAY, LocalTime.of(11, 0));
+        assertTrue(calendar.addIfFree(tuesday));
+        assertTrue(calendar.addIfFree(mondayLater));
+        assertEquals(1, archive.loads.get());
+
+        List<Booking> walked = new ArrayList<>();
+        calendar.forEachBooking(walked::add);
+
+        assertEquals(List.of(monday, mondayLater, tuesday, wednesday), walked);
+        assertEquals(2, archive.loads.get());
+        assertEquals(3, calendar.loadedBookings().size());
+    }
+
+    @Test
+    @DisplayName("Should only restore a calendar that has no bookings")
+    void shouldOnlyRestoreAnEmptyCalendar() {
+        BookingCalendar calendar = new BookingCalendar();
+        assertTrue(calendar.canRestore());
+        calendar.add(booking(MONDAY, LocalTime.of(9, 0)));
+
+        assertFalse(calendar.canRestore());
+        assertThrows(IllegalStateException.class, () -> calendar.restore(DayArchive.EMPTY));
+    }
+}
@@ -0,0 +1,199 @@
+package ca.kittle.clinic.domain.calendar;
+
+import ca.kittle.clinic.domain.Appointment;
+import ca.kittle.clinic.domain.Booking;
+import ca.kittle.clinic.domain.Clinic;
+import ca.kittle.clinic.domain.ClinicHours;
+import ca.kittle.clinic.domain.Patient;
+import ca.kittle.clinic.domain.Practitioner;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarBookingStoreTest {
+
+    private static final LocalDate DATE = LocalDate.now().plusDays(1);
+
+    private final Clinic clinic = new Clinic("Columnar Clinic", "416-555-0100", "columnar@clinic.com");
+    private final Patient alice = new Patient("Alice", "Smith", "416-555-0101", "alice.smith@email.com");
+    private final Patient bob = new Patient("Bob", "Jones", "416-555-0102", "bob.jones@email.com");
+    private final Map<UUID, Patient> patients = Map.of(alice.getId(), alice, bob.getId(), bob);
+
+    private static Practitioner practitioner(UUID id) {
+        return new Practitioner(id, "Prac", "Titioner", "416-555-0103", "prac@clinic.com",
+                ReservationStrategy.LOCKING);
+    }
+
+    @Test
+    @DisplayName("A calendar restored from the store should answer the same questions as the one it was built from")
+    void shouldAnswerLikeTheOriginalCalendar() {
+        Practitioner first = practitioner(UUID.randomUUID());
+        Practitioner second = practitioner(UUID.randomUUID());
+        Booking cancelled = first.addBooking(bob, clinic, Appointment.AppointmentType.CHECK_IN,
+                DATE, LocalTime.of(13, 0)).getRight().orElseThrow();
+        first.addBooking(alice, clinic, Appointment.AppointmentType.CONSULTATION, DATE, LocalTime.of(9, 0));
+        second.addBooking(bob, clinic, Appointment.AppointmentType.STANDARD, DATE, LocalTime.of(9, 0));
+        Booking completed = first.addBooking(bob, clinic, Appointment.AppointmentType.STANDARD,
+                DATE.plusDays(3), LocalTime.of(15, 0)).getRight().orElseThrow();
+        first.cancelBooking(cancelled);
+        first.markCompleted(completed);
+        first.holdBooking(alice, clinic, Appointment.AppointmentType.CHECK_IN, DATE.plusDays(5), LocalTime.of(10, 0));
+
+        ColumnarBookingStore store = ColumnarBookingStore.builder().addAll(first).addAll(second).build();
+        assertEquals(4, store.size());
+
+        Practitioner restored = practitioner(first.getId());
+        restored.restoreCalendar(store.archiveFor(restored, patients::get));
+
+        assertEquals(2, restored.getBookings().size());
+        assertEquals(first.availabileTimes(DATE, Appointment.AppointmentType.STANDARD),
+                restored.availabileTimes(DATE, Appointment.AppointmentType.STANDARD));
+        assertTrue(restored.availabileTimes(DATE.plusDays(5), Appointment.AppointmentType.STANDARD)
+                .contains(LocalTime.of(10, 0)));
+        List<Booking> day = restored.listBookings(DATE);
+        assertEquals(1, day.size());
+        assertEquals(alice, day.get(0).getPatient());
+        assertEquals(Appointment.AppointmentType.CONSULTATION, day.get(0).getAppointmentType());
+        assertSame(restored, day.get(0).getPractitioner());
+        assertEquals(LocalTime.of(13, 0),
+                restored.listBookings(DATE, Booking.BookingStatus.CANCELLED).get(0).getStartTime());
+        assertEquals(Booking.BookingStatus.COMPLETED, restored.listBookings(DATE.plusDays(3)).get(0).getStatus());
+    }
+
+    @Test
+    @DisplayName("Each practitioner should only see their own bookings in the store")
+    void shouldPartitionBookingsByPractitioner() {
+        Practitioner first = practitioner(UUID.randomUUID());
+        Practitioner second = practitioner(UUID.randomUUID());
+        for (int day = 0; day < 10; day++) {
+            first.addBooking(alice, clinic, Appointment.AppointmentType.CHECK_IN, DATE.plusDays(day), LocalTime.of(9, 0));
+            second.addBooking(bob, clinic, Appointment.AppointmentType.CHECK_IN, DATE.plusDays(day), LocalTime.of(16, 0));
+        }
+        ColumnarBookingStore store = ColumnarBookingStore.builder().addAll(second).addAll(first).build();
+
+        DayArchive firstDays = store.archiveFor(first, patients::get);
+        DayArchive secondDays = store.archiveFor(second, patients::get);
+        assertEquals(10, firstDays.occupyingBookings());
+        assertEquals(DATE.plusDays(4), firstDays.nextDate(DATE.plusDays(4)));
+        assertEquals(null, firstDays.nextDate(DATE.plusDays(10)));
+        long[] occupancy = new long[1];
+        firstDays.readOccupancy(DATE, occupancy);
+        assertArrayEquals(SlotGrid.DEFAULT.maskOf(LocalTime.of(9, 0), LocalTime.of(9, 30)), occupancy);
+        secondDays.readOccupancy(DATE, occupancy);
+        assertArrayEquals(SlotGrid.DEFAULT.maskOf(LocalTime.of(16, 0), LocalTime.of(16, 30)), occupancy);
+        assertEquals(bob, secondDays.bookings(DATE.plusDays(9)).get(0).getPatient());
+        for (int day = 0; day < 10; day++) {
+            UUID id = first.listBookings(DATE.plusDays(day)).get(0).getId();
+            assertEquals(DATE.plusDays(day), firstDays.dateOf(id));
+            assertEquals(null, secondDays.dateOf(id));
+        }
+        assertEquals(null, firstDays.dateOf(UUID.randomUUID()));
+        assertSame(DayArchive.EMPTY, store.archiveFor(practitioner(UUID.randomUUID()), patients::get));
+        assertEquals(20L * ColumnarBookingStore.BOOKING_BYTES + 20L * 16, store.offHeapBytes());
+    }
+
+    @Test
+    @DisplayName("Should find the days a patient is on from the patient alone, without reading other days")
+    void shouldFindAPatientsDays() {
+        Practitioner first = practitioner(UUID.randomUUID());
+        Practitioner second = practitioner(UUID.randomUUID());
+        for (int day = 0; day < 6; day++) {
+            Patient patient = day % 2 == 0 ? alice : bob;
+            first.addBooking(patient, clinic, Appointment.AppointmentType.CHECK_IN, DATE.plusDays(day),
+                    LocalTime.of(9, 0));
+            first.addBooking(patient, clinic, Appointment.AppointmentType.CHECK_IN, DATE.plusDays(day),
+                    LocalTime.of(10, 0));
+        }
+        second.addBooking(alice, clinic, Appointment.AppointmentType.CHECK_IN, DATE.plusDays(1), LocalTime.of(9, 0));
+        ColumnarBookingStore store = ColumnarBookingStore.builder().addAll(second).addAll(first).build();
+
+        DayArchive firstDays = store.archiveFor(first, patients::get);
+        assertEquals(List.of(DATE, DATE.plusDays(2), DATE.plusDays(4)),
+                firstDays.datesOf(alice.getId(), LocalDate.MIN, LocalDate.MAX));
+        assertEquals(List.of(DATE.plusDays(2), DATE.plusDays(4)),
+                firstDays.datesOf(alice.getId(), DATE.plusDays(1), DATE.plusDays(4)));
+        assertEquals(List.of(DATE.plusDays(3)), firstDays.datesOf(bob.getId(), DATE.plusDays(2), DATE.plusDays(3)));
+        assertEquals(List.of(), firstDays.datesOf(bob.getId(), DATE.plusDays(6), LocalDate.MAX));
+        assertEquals(List.of(), firstDays.datesOf(UUID.randomUUID(), LocalDate.MIN, LocalDate.MAX));
+        assertEquals(List.of(DATE.plusDays(1)),
+                store.archiveFor(second, patients::get).datesOf(alice.getId(), LocalDate.MIN, LocalDate.MAX));
+    }
+
+    @Test
+    @DisplayName("Bookings restored from the store should be changed like any others")
+    void shouldChangeRestoredBookings() {
+        Practitioner original = practitioner(UUID.randomUUID());
+        Booking booking = original.addBooking(alice, clinic, Appointment.AppointmentType.STANDARD,
+                DATE, LocalTime.of(9, 0)).getRight().orElseThrow();
+        ColumnarBookingStore store = ColumnarBookingStore.builder().addAll(original).build();
+        Practitioner restored = practitioner(original.getId());
+        restored.restoreCalendar(store.archiveFor(restored, patients::get));
+
+        assertEquals(booking.getId(), restored.listBookings(DATE).get(0).getId());
+        assertTrue(restored.addBooking(bob, clinic, Appointment.AppointmentType.STANDARD,
+                DATE, LocalTime.of(9, 30)).isLeft());
+        assertTrue(restored.cancelBooking(restored.listBookings(DATE).get(0)));
+        assertFalse(restored.addBooking(bob, clinic, Appointment.AppointmentType.STANDARD,
+                DATE, LocalTime.of(9, 30)).isLeft());
+    }
+
+    @Test
+    @DisplayName("A store should be rebuilt from a restored calendar, taking the days it never read from the archive")
+    void shouldRebuildFromARestoredCalendar() {
+        Practitioner original = practitioner(UUID.randomUUID());
+        Booking cancelled = original.addBooking(bob, clinic, Appointment.AppointmentType.CHECK_IN,
+                DATE, LocalTime.of(13, 0)).getRight().orElseThrow();
+        original.addBooking(alice, clinic, Appointment.AppointmentType.STANDARD, DATE.plusDays(2), LocalTime.of(9, 0));
+        original.cancelBooking(cancelled);
+        Practitioner restored = practitioner(original.getId());
+        restored.restoreCalendar(ColumnarBookingStore.builder().addAll(original).build()
+                .archiveFor(restored, patients::get));
+        restored.addBooking(bob, clinic, Appointment.AppointmentType.STANDARD, DATE.plusDays(1), LocalTime.of(9, 0));
+
+        ColumnarBookingStore rebuilt = ColumnarBookingStore.builder().addAll(restored).build();
+        assertEquals(3, rebuilt.size());
+        DayArchive days = rebuilt.archiveFor(restored, patients::get);
+        assertEquals(Booking.BookingStatus.CANCELLED, days.bookings(DATE).get(0).getStatus());
+        assertEquals(bob, days.bookings(DATE.plusDays(1)).get(0).getPatient());
+        assertEquals(alice, days.bookings(DATE.plusDays(2)).get(0).getPatient());
+    }
+
+    @Test
+    @DisplayName("A store on a finer grid should keep each day's occupancy across several words")
+    void shouldStoreOccupancyOnFinerGrid() {
+        Clinic quarterHours = new Clinic("Quarter Hour Clinic", "416-555-0104", "quarter@clinic.com",
+                new ClinicHours(LocalTime.of(9, 0), LocalTime.of(17, 0), Duration.ofMinutes(15)));
+        SlotGrid grid = quarterHours.getHours().getSlotGrid();
+        Practitioner original = practitioner(UUID.randomUUID());
+        quarterHours.addPractitioner(original);
+        // 15:45 to 16:15 runs from the last slot of the first word into the second
+        original.addBooking(alice, quarterHours, Appointment.AppointmentType.CHECK_IN, DATE, LocalTime.of(15, 45));
+        ColumnarBookingStore store = ColumnarBookingStore.builder(grid).addAll(original).build();
+
+        DayArchive days = store.archiveFor(original, patients::get);
+        long[] occupancy = grid.empty();
+        days.readOccupancy(DATE, occupancy);
+        assertArrayEquals(new long[]{1L << 63, 1L}, occupancy);
+        assertEquals(LocalTime.of(15, 45), days.bookings(DATE).get(0).getStartTime());
+
+        Practitioner restored = practitioner(original.getId());
+        quarterHours.addPractitioner(restored);
+        restored.restoreCalendar(days);
+        assertEquals(original.availabileTimes(DATE, Appointment.AppointmentType.CHECK_IN),
+                restored.availabileTimes(DATE, Appointment.AppointmentType.CHECK_IN));
+        assertThrows(IllegalArgumentException.class, () -> practitioner(original.getId()).restoreCalendar(days));
+    }
+}
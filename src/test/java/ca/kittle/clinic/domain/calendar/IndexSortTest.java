@@ -0,0 +1,48 @@
+package ca.kittle.clinic.domain.calendar;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexSortTest {
+
+    @Test
+    @DisplayName("Should order positions by the column they index")
+    void shouldOrderPositionsByColumn() {
+        long[] column = new Random(7).longs(1_000).toArray();
+        int[] positions = IntStream.range(0, column.length).toArray();
+
+        IndexSort.sort(positions, (first, second) -> Long.compare(column[first], column[second]));
+
+        for (int i = 1; i < positions.length; i++)
+            assertTrue(column[positions[i - 1]] <= column[positions[i]]);
+    }
+
+    @Test
+    @DisplayName("Should keep positions that compare equal in their original order")
+    void shouldBeStable() {
+        int[] column = {3, 1, 3, 2, 1, 3, 2};
+        int[] positions = {0, 1, 2, 3, 4, 5, 6};
+
+        IndexSort.sort(positions, (first, second) -> Integer.compare(column[first], column[second]));
+
+        assertArrayEquals(new int[]{1, 4, 3, 6, 0, 2, 5}, positions);
+    }
+
+    @Test
+    @DisplayName("Should leave empty and single positions alone")
+    void shouldSortTrivialInputs() {
+        int[] none = {};
+        int[] one = {4};
+        IndexSort.sort(none, (first, second) -> 0);
+        IndexSort.sort(one, (first, second) -> 0);
+
+        assertArrayEquals(new int[]{}, none);
+        assertArrayEquals(new int[]{4}, one);
+    }
+}
@@ -0,0 +1,100 @@
+package ca.kittle.clinic.domain.calendar;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntervalTreeTest {
+
+    private record Interval(long start, long end) {
+    }
+
+    @Test
+    @DisplayName("Should find overlaps and the intervals containing a point, with touching intervals apart")
+    void shouldFindOverlapsAndStabs() {
+        IntervalTree<String> tree = new IntervalTree<>();
+        tree.add(900, 1000, "nine");
+        tree.add(1000, 1130, "ten");
+        tree.add(930, 1200, "long");
+        tree.add(1300, 1330, "one");
+
+        assertTrue(tree.overlaps(1130, 1145));
+        assertFalse(tree.overlaps(1200, 1300));
+        assertFalse(tree.overlaps(1330, 1400));
+        assertEquals(List.of("nine", "long", "ten"), tree.overlapping(950, 1030));
+        assertEquals(List.of("long", "ten"), tree.containing(1000));
+        assertEquals(List.of(), tree.containing(1200));
+        assertFalse(tree.overlaps(900, 1200, value -> value.startsWith("x")));
+        assertTrue(tree.overlaps(1100, 1400, "one"::equals));
+        assertEquals(4, tree.size());
+    }
+
+    @Test
+    @DisplayName("Should remove only the interval added for the value, even among identical intervals")
+    void shouldRemoveByValue() {
+        IntervalTree<String> tree = new IntervalTree<>();
+        String first = "first";
+        String second = "second";
+        tree.add(100, 200, first);
+        tree.add(100, 200, second);
+
+        assertFalse(tree.remove(100, 300, first));
+        assertTrue(tree.remove(100, 200, second));
+        assertFalse(tree.remove(100, 200, second));
+        assertEquals(List.of(first), tree.containing(150));
+        assertTrue(tree.remove(100, 200, first));
+        assertTrue(tree.isEmpty());
+        assertFalse(tree.overlaps(Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("Should answer like a scan of every interval as intervals come and go")
+    void shouldMatchALinearScan() {
+        Random random = new Random(25);
+        IntervalTree<Interval> tree = new IntervalTree<>();
+        List<Interval> intervals = new ArrayList<>();
+        for (int round = 0; round < 4000; round++) {
+            if (!intervals.isEmpty() && random.nextInt(3) == 0) {
+                Interval removed = intervals.remove(random.nextInt(intervals.size()));
+                assertTrue(tree.remove(removed.start(), removed.end(), removed));
+            } else {
+                long start = random.nextInt(1440);
+                Interval added = new Interval(start, start + 1 + random.nextInt(240));
+                tree.add(added.start(), added.end(), added);
+                intervals.add(added);
+            }
+
+            long start = random.nextInt(1500);
+            long end = start + 1 + random.nextInt(120);
+            List<Interval> expected = intervals.stream()
+                    .filter(interval -> interval.start() < end && interval.end() > start)
+                    .sorted(Comparator.comparingLong(Interval::start))
+                    .toList();
+            List<Interval> found = tree.overlapping(start, end);
+            assertEquals(expected.size(), found.size());
+            assertTrue(found.containsAll(expected));
+            assertEquals(!expected.isEmpty(), tree.overlaps(start, end));
+            assertEquals(expected.stream().filter(interval -> interval.start() <= start).count(),
+                    (long) tree.containing(start).size());
+        }
+        assertEquals(intervals.size(), tree.size());
+    }
+
+    @Test
+    @DisplayName("Should refuse empty intervals and missing values")
+    void shouldRefuseInvalidIntervals() {
+        IntervalTree<String> tree = new IntervalTree<>();
+        assertThrows(IllegalArgumentException.class, () -> tree.add(100, 100, "empty"));
+        assertThrows(IllegalArgumentException.class, () -> tree.add(200, 100, "backwards"));
+        assertThrows(IllegalArgumentException.class, () -> tree.add(100, 200, null));
+    }
+}
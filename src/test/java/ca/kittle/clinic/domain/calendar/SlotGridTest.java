@@ -0,0 +1,101 @@
+package ca.kittle.clinic.domain.calendar;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SlotGridTest {
+
+    private static final SlotGrid GRID = SlotGrid.DEFAULT;
+    private static final SlotGrid TEN_MINUTES = SlotGrid.of(Duration.ofMinutes(10));
+
+    @Test
+    @DisplayName("Should map times to half hour slots counted from midnight")
+    void shouldMapTimesToSlots() {
+        assertEquals(48, GRID.getSlotsPerDay());
+        assertEquals(1, GRID.getWords());
+        assertEquals(0, GRID.slotOf(LocalTime.MIDNIGHT));
+        assertEquals(18, GRID.slotOf(LocalTime.of(9, 0)));
+        assertEquals(19, GRID.slotOf(LocalTime.of(9, 45)));
+        assertEquals(LocalTime.of(16, 30), GRID.startTimeOf(33));
+    }
+
+    @Test
+    @DisplayName("Should round partial slots up when sizing durations and masking time ranges")
+    void shouldCoverPartialSlots() {
+        assertEquals(3, GRID.slotsFor(Duration.ofMinutes(90)));
+        assertEquals(2, GRID.slotsFor(Duration.ofMinutes(45)));
+        assertArrayEquals(new long[]{0b11L << 18}, GRID.maskOf(LocalTime.of(9, 0), LocalTime.of(10, 0)));
+        assertArrayEquals(new long[]{0b111L << 18}, GRID.maskOf(LocalTime.of(9, 15), LocalTime.of(10, 15)));
+    }
+
+    @Test
+    @DisplayName("Should only report starts where the whole run of slots is free")
+    void shouldFindFreeRunStarts() {
+        long[] occupied = GRID.mask(20, 2);
+        long[] starts = GRID.freeRunStarts(occupied, 2);
+        SlotGrid.retain(starts, GRID.mask(18, 6));
+
+        // 9:00 fits, 9:30 would run into the 10:00 booking, 10:00 and 10:30 are booked, 11:00 and 11:30 fit
+        assertArrayEquals(new long[]{GRID.mask(18, 1)[0] | GRID.mask(22, 2)[0]}, starts);
+    }
+
+    @Test
+    @DisplayName("Should not report a run that would go past the end of the day")
+    void shouldNotRunPastEndOfDay() {
+        long[] starts = GRID.freeRunStarts(GRID.empty(), 3);
+
+        assertArrayEquals(GRID.mask(0, GRID.getSlotsPerDay() - 2), starts);
+        assertArrayEquals(TEN_MINUTES.mask(0, TEN_MINUTES.getSlotsPerDay() - 2),
+                TEN_MINUTES.freeRunStarts(TEN_MINUTES.empty(), 3));
+    }
+
+    @Test
+    @DisplayName("Should spread a finer grid's slots over several words")
+    void shouldSpreadSlotsOverWords() {
+        assertEquals(144, TEN_MINUTES.getSlotsPerDay());
+        assertEquals(3, TEN_MINUTES.getWords());
+        assertEquals(2, SlotGrid.of(Duration.ofMinutes(15)).getWords());
+        // 10:30 to 11:10 is slots 63 to 66, across the first and second words
+        long[] mask = TEN_MINUTES.maskOf(LocalTime.of(10, 30), LocalTime.of(11, 10));
+        assertArrayEquals(new long[]{1L << 63, 0b111L, 0L}, mask);
+        assertEquals(4, SlotGrid.count(mask));
+        assertEquals(63, SlotGrid.nextSlot(mask, 0));
+        assertEquals(64, SlotGrid.nextSlot(mask, 64));
+        assertEquals(-1, SlotGrid.nextSlot(mask, 67));
+        assertEquals(LocalTime.of(23, 50), TEN_MINUTES.startTimeOf(143));
+    }
+
+    @Test
+    @DisplayName("Should find free runs that cross from one word into the next")
+    void shouldFindRunsAcrossWords() {
+        // Everything booked but 10:20 to 11:20, slots 62 to 67
+        long[] occupied = TEN_MINUTES.mask(0, 62);
+        TEN_MINUTES.include(occupied, 68, TEN_MINUTES.getSlotsPerDay() - 68);
+
+        long[] starts = TEN_MINUTES.freeRunStarts(occupied, 4);
+        assertArrayEquals(TEN_MINUTES.mask(62, 3), starts);
+        assertEquals(6, TEN_MINUTES.longestFreeRun(occupied, TEN_MINUTES.mask(0, 144)));
+        assertEquals(3, TEN_MINUTES.longestFreeRun(occupied, TEN_MINUTES.mask(65, 1)));
+        assertEquals(144, TEN_MINUTES.longestFreeRun(TEN_MINUTES.empty(), TEN_MINUTES.mask(0, 1)));
+        assertEquals(0, TEN_MINUTES.longestFreeRun(occupied, TEN_MINUTES.mask(70, 10)));
+    }
+
+    @Test
+    @DisplayName("Should only accept slot lengths of whole minutes that divide the day")
+    void shouldRefuseInvalidSlotLengths() {
+        assertSame(SlotGrid.DEFAULT, SlotGrid.of(Duration.ofMinutes(30)));
+        assertEquals(TEN_MINUTES, SlotGrid.of(Duration.ofMinutes(10)));
+        assertThrows(IllegalArgumentException.class, () -> SlotGrid.of(null));
+        assertThrows(IllegalArgumentException.class, () -> SlotGrid.of(Duration.ofMinutes(1)));
+        assertThrows(IllegalArgumentException.class, () -> SlotGrid.of(Duration.ofMinutes(7)));
+        assertThrows(IllegalArgumentException.class, () -> SlotGrid.of(Duration.ofSeconds(600, 1)));
+    }
+}
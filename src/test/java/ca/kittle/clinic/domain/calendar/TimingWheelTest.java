@@ -0,0 +1,75 @@
+package ca.kittle.clinic.domain.calendar;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    @Test
+    @DisplayName("Should expire timeouts once their tick has passed and not before")
+    void shouldExpireTimeoutsWhenDue() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 8);
+        List<String> expired = new ArrayList<>();
+        wheel.advance(0, expired::add);
+        wheel.schedule("soon", 2_500);
+        wheel.schedule("later", 5_000);
+
+        wheel.advance(1_999, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(2_000, expired::add);
+        assertEquals(List.of("soon"), expired);
+        wheel.advance(5_000, expired::add);
+        assertEquals(List.of("soon", "later"), expired);
+    }
+
+    @Test
+    @DisplayName("Should keep timeouts more than one turn away until the wheel comes round to them")
+    void shouldExpireTimeoutsBeyondOneTurn() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 8);
+        List<String> expired = new ArrayList<>();
+        wheel.advance(0, expired::add);
+        wheel.schedule("three turns", 24_000);
+        wheel.schedule("one tick", 1_000);
+
+        for (long now = 1_000; now < 24_000; now += 1_000)
+            wheel.advance(now, expired::add);
+        assertEquals(List.of("one tick"), expired);
+        wheel.advance(24_000, expired::add);
+        assertEquals(List.of("one tick", "three turns"), expired);
+    }
+
+    @Test
+    @DisplayName("Should expire everything due when the wheel jumps more than a turn at once")
+    void shouldExpireEverythingDueAfterALongGap() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(1000, 8);
+        List<Integer> expired = new ArrayList<>();
+        wheel.advance(0, expired::add);
+        for (int i = 1; i <= 20; i++)
+            wheel.schedule(i, i * 1_000L);
+
+        wheel.advance(15_000, expired::add);
+        assertEquals(15, expired.size());
+        assertFalse(expired.contains(16));
+    }
+
+    @Test
+    @DisplayName("Should not expire a cancelled timeout")
+    void shouldNotExpireCancelledTimeout() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 8);
+        List<String> expired = new ArrayList<>();
+        TimingWheel.Timeout<String> timeout = wheel.schedule("cancelled", 1_000);
+        wheel.schedule("kept", 1_000);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        wheel.advance(2_000, expired::add);
+        assertEquals(List.of("kept"), expired);
+    }
+}
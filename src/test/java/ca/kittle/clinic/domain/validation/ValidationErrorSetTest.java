@@ -0,0 +1,51 @@
+package ca.kittle.clinic.domain.validation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ValidationErrorSetTest {
+
+    @Test
+    @DisplayName("Should list the errors in a bitset in the order the set was built with")
+    void shouldListErrorsInOrder() {
+        long errors = BookingValidationErrors.OUTSIDE_BUSINESS_HOURS | BookingValidationErrors.PATIENT_NULL |
+                BookingValidationErrors.EARLIEST_DATE_NULL;
+
+        assertEquals(List.of(new BookingValidationError.EarliestDateNullError(),
+                new BookingValidationError.PatientNullError(),
+                new BookingValidationError.OutsideBusinessHoursError()), BookingValidationErrors.toList(errors));
+        assertEquals(List.of(), BookingValidationErrors.toList(BookingValidationErrors.NONE));
+    }
+
+    @Test
+    @DisplayName("Should share the canonical instances and single error lists rather than allocating them")
+    void shouldShareCanonicalInstances() {
+        List<BookingValidationError> overlap = BookingValidationErrors.toList(BookingValidationErrors.OVERLAPS_ANOTHER);
+
+        assertSame(overlap, BookingValidationErrors.toList(BookingValidationErrors.OVERLAPS_ANOTHER));
+        assertSame(overlap.get(0), BookingValidationErrors.toList(
+                BookingValidationErrors.OVERLAPS_ANOTHER | BookingValidationErrors.TOO_SOON).get(1));
+        assertEquals(List.of(new AppointmentValidationError.TypeNullError()),
+                AppointmentValidationErrors.toList(AppointmentValidationErrors.TYPE_NULL));
+    }
+
+    @Test
+    @DisplayName("Should find the bit for any instance of a kind of error")
+    void shouldFindBitsForErrors() {
+        ValidationErrorSet<BookingValidationError> errors = BookingValidationErrors.ERRORS;
+
+        assertEquals(BookingValidationErrors.TOO_SOON, errors.bitOf(new BookingValidationError.TooSoonToAppointmentError()));
+        assertTrue(errors.contains(BookingValidationErrors.TOO_SOON | BookingValidationErrors.DATE_NULL,
+                new BookingValidationError.DateNullError()));
+        assertFalse(errors.contains(BookingValidationErrors.TOO_SOON, new BookingValidationError.DateNullError()));
+        assertThrows(IllegalArgumentException.class, () -> new ValidationErrorSet<>(new Object[65]));
+    }
+}
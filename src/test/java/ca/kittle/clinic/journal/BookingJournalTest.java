@@ -0,0 +1,237 @@
+package ca.kittle.clinic.journal;
+
+import ca.kittle.clinic.domain.Appointment;
+import ca.kittle.clinic.domain.Booking;
+import ca.kittle.clinic.domain.Clinic;
+import ca.kittle.clinic.domain.Patient;
+import ca.kittle.clinic.domain.Practitioner;
+import ca.kittle.clinic.domain.calendar.ReservationStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookingJournalTest {
+
+    private static final UUID PRACTITIONER_ID = UUID.randomUUID();
+    private static final LocalDate DATE = LocalDate.now().plusDays(1);
+
+    private final Patient alice = new Patient("Alice", "Smith", "416-555-0101", "alice.smith@email.com");
+    private final Patient bob = new Patient("Bob", "Jones", "416-555-0102", "bob.jones@email.com");
+    private final Map<UUID, Patient> patients = Map.of(alice.getId(), alice, bob.getId(), bob);
+    private Path path;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        path = Files.createTempFile("bookings", ".journal");
+        Files.delete(path);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    private static Clinic newClinic() {
+        Clinic clinic = new Clinic("Journal Clinic", "416-555-0100", "journal@clinic.com");
+        clinic.addPractitioner(new Practitioner(PRACTITIONER_ID, "Prac", "Titioner", "416-555-0103",
+                "prac@clinic.com", ReservationStrategy.LOCKING));
+        return clinic;
+    }
+
+    @Test
+    @DisplayName("Replaying a journal should rebuild bookings, cancellations and appointments")
+    void shouldReplayJournalIntoAFreshClinic() {
+        Clinic clinic = newClinic();
+        Practitioner practitioner = clinic.getPractitioners().get(0);
+        Booking kept;
+        Booking cancelled;
+        try (BookingJournal journal = BookingJournal.open(path, BookingJournal.SyncPolicy.GROUP_COMMIT)) {
+            clinic.setBookingEvents(journal);
+            kept = practitioner.addBooking(alice, clinic, Appointment.AppointmentType.STANDARD,
+                    DATE, LocalTime.of(9, 0)).getRight().orElseThrow();
+            cancelled = practitioner.addBooking(bob, clinic, Appointment.AppointmentType.CONSULTATION,
+                    DATE, LocalTime.of(11, 0)).getRight().orElseThrow();
+            assertTrue(practitioner.cancelBooking(cancelled));
+            assertTrue(practitioner.createAppointment(kept).isRight());
+        }
+
+        Clinic restored = newClinic();
+        JournalReplay replay = BookingJournal.replay(path, restored, patients::get);
+
+        assertEquals(new JournalReplay(4, 0, false), replay);
+        Practitioner restoredPractitioner = restored.getPractitioners().get(0);
+        List<Booking> bookings = restoredPractitioner.listBookings(DATE);
+        assertEquals(1, bookings.size());
+        assertEquals(alice, bookings.get(0).getPatient());
+        assertEquals(LocalTime.of(9, 0), bookings.get(0).getStartTime());
+        assertEquals(kept.getId(), bookings.get(0).getId());
+        assertEquals(1, restoredPractitioner.listBookings(DATE, Booking.BookingStatus.CANCELLED).size());
+        assertEquals(Booking.BookingStatus.CANCELLED,
+                restoredPractitioner.findBooking(cancelled.getId()).orElseThrow().getStatus());
+        assertEquals(1, restoredPractitioner.getAppointments().size());
+        assertFalse(restoredPractitioner.availabileTimes(DATE, Appointment.AppointmentType.STANDARD)
+                .contains(LocalTime.of(9, 0)));
+        assertTrue(restoredPractitioner.availabileTimes(DATE, Appointment.AppointmentType.STANDARD)
+                .contains(LocalTime.of(11, 0)));
+    }
+
+    @Test
+    @DisplayName("Replaying a journal should bring back no-shows and completed bookings in their status")
+    void shouldReplayStatusChanges() {
+        Clinic clinic = newClinic();
+        Practitioner practitioner = clinic.getPractitioners().get(0);
+        Booking missed;
+        Booking completed;
+        try (BookingJournal journal = BookingJournal.open(path, BookingJournal.SyncPolicy.ON_FLUSH)) {
+            clinic.setBookingEvents(journal);
+            missed = practitioner.addBooking(alice, clinic, Appointment.AppointmentType.STANDARD,
+                    DATE, LocalTime.of(9, 0)).getRight().orElseThrow();
+            completed = practitioner.addBooking(bob, clinic, Appointment.AppointmentType.CHECK_IN,
+                    DATE, LocalTime.of(11, 0)).getRight().orElseThrow();
+            assertTrue(practitioner.markNoShow(missed));
+            assertTrue(practitioner.markCompleted(completed));
+        }
+
+        Clinic restored = newClinic();
+        JournalReplay replay = BookingJournal.replay(path, restored, patients::get);
+
+        assertEquals(new JournalReplay(4, 0, false), replay);
+        Practitioner restoredPractitioner = restored.getPractitioners().get(0);
+        assertEquals(Booking.BookingStatus.NO_SHOW,
+                restoredPractitioner.findBooking(missed.getId()).orElseThrow().getStatus());
+        assertEquals(Booking.BookingStatus.COMPLETED,
+                restoredPractitioner.findBooking(completed.getId()).orElseThrow().getStatus());
+        assertEquals(2, restoredPractitioner.listBookings(DATE).size());
+        assertEquals(new JournalReplay(4, 4, false), BookingJournal.replay(path, restored, patients::get));
+    }
+
+    @Test
+    @DisplayName("A torn record at the end of the journal should be cut off and appends should follow the last good one")
+    void shouldTruncateATornTail() throws IOException {
+        Clinic clinic = newClinic();
+        Practitioner practitioner = clinic.getPractitioners().get(0);
+        try (BookingJournal journal = BookingJournal.open(path, BookingJournal.SyncPolicy.ON_FLUSH)) {
+            clinic.setBookingEvents(journal);
+            practitioner.addBooking(alice, clinic, Appointment.AppointmentType.STANDARD, DATE, LocalTime.of(9, 0));
+            practitioner.addBooking(bob, clinic, Appointment.AppointmentType.STANDARD, DATE, LocalTime.of(10, 0));
+        }
+        long goodLength = Files.size(path);
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(goodLength - BookingJournal.RECORD_BYTES / 2);
+        }
+
+        JournalReplay replay = BookingJournal.replay(path, newClinic(), patients::get);
+
+        assertEquals(new JournalReplay(1, 0, true), replay);
+        assertEquals(goodLength - BookingJournal.RECORD_BYTES, Files.size(path));
+    }
+
+    @Test
+    @DisplayName("Reopening a journal with a torn tail should cut it off so new records line up with the old ones")
+    void shouldCutATornTailWhenOpened() throws IOException {
+        Clinic clinic = newClinic();
+        Practitioner practitioner = clinic.getPractitioners().get(0);
+        try (BookingJournal journal = BookingJournal.open(path, BookingJournal.SyncPolicy.ON_FLUSH)) {
+            clinic.setBookingEvents(journal);
+            practitioner.addBooking(alice, clinic, Appointment.AppointmentType.STANDARD, DATE, LocalTime.of(9, 0));
+        }
+        long goodLength = Files.size(path);
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            // A whole record of garbage followed by part of another, as a crash mid-write might leave
+            file.seek(goodLength);
+            file.write(new byte[BookingJournal.RECORD_BYTES + BookingJournal.RECORD_BYTES / 2]);
+        }
+
+        try (BookingJournal journal = BookingJournal.open(path, BookingJournal.SyncPolicy.GROUP_COMMIT)) {
+            assertEquals(goodLength, Files.size(path));
+            assertEquals(goodLength, journal.position());
+            clinic.setBookingEvents(journal);
+            practitioner.addBooking(bob, clinic, Appointment.AppointmentType.STANDARD, DATE, LocalTime.of(10, 0));
+        }
+
+        assertEquals(new JournalReplay(2, 0, false), BookingJournal.replay(path, newClinic(), patients::get));
+    }
+
+    @Test
+    @DisplayName("A corrupt record should end the replay")
+    void shouldStopAtACorruptRecord() throws IOException {
+        Clinic clinic = newClinic();
+        Practitioner practitioner = clinic.getPractitioners().get(0);
+        try (BookingJournal journal = BookingJournal.open(path, BookingJournal.SyncPolicy.ON_FLUSH)) {
+            clinic.setBookingEvents(journal);
+            practitioner.addBooking(alice, clinic, Appointment.AppointmentType.STANDARD, DATE, LocalTime.of(9, 0));
+            practitioner.addBooking(bob, clinic, Appointment.AppointmentType.STANDARD, DATE, LocalTime.of(10, 0));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            long patientByte = BookingJournal.HEADER_BYTES + 30;
+            file.seek(patientByte);
+            int original = file.read();
+            file.seek(patientByte);
+            file.write(original ^ 0xFF);
+        }
+
+        Clinic restored = newClinic();
+        JournalReplay replay = BookingJournal.replay(path, restored, patients::get);
+
+        assertEquals(new JournalReplay(0, 0, true), replay);
+        assertTrue(restored.getPractitioners().get(0).listBookings(DATE).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Records for practitioners the clinic doesn't have should be skipped")
+    void shouldSkipRecordsForUnknownPractitioners() {
+        Clinic clinic = newClinic();
+        Practitioner stranger = new Practitioner("Other", "Practitioner", "416-555-0104", "other@clinic.com");
+        clinic.addPractitioner(stranger);
+        try (BookingJournal journal = BookingJournal.open(path, BookingJournal.SyncPolicy.ON_FLUSH)) {
+            clinic.setBookingEvents(journal);
+            stranger.addBooking(alice, clinic, Appointment.AppointmentType.STANDARD, DATE, LocalTime.of(9, 0));
+        }
+
+        assertEquals(new JournalReplay(1, 1, false), BookingJournal.replay(path, newClinic(), patients::get));
+    }
+
+    @Test
+    @DisplayName("Reopening a journal should append after its existing records")
+    void shouldAppendToAnExistingJournal() {
+        Clinic clinic = newClinic();
+        Practitioner practitioner = clinic.getPractitioners().get(0);
+        try (BookingJournal journal = BookingJournal.open(path, BookingJournal.SyncPolicy.GROUP_COMMIT)) {
+            clinic.setBookingEvents(journal);
+            practitioner.addBooking(alice, clinic, Appointment.AppointmentType.STANDARD, DATE, LocalTime.of(9, 0));
+        }
+        try (BookingJournal journal = BookingJournal.open(path, BookingJournal.SyncPolicy.GROUP_COMMIT)) {
+            clinic.setBookingEvents(journal);
+            practitioner.addBooking(bob, clinic, Appointment.AppointmentType.STANDARD, DATE, LocalTime.of(10, 0));
+        }
+
+        Clinic restored = newClinic();
+        assertEquals(new JournalReplay(2, 0, false), BookingJournal.replay(path, restored, patients::get));
+        assertEquals(2, restored.getPractitioners().get(0).listBookings(DATE).size());
+    }
+
+    @Test
+    @DisplayName("Should refuse to open a file that isn't a booking journal")
+    void shouldRefuseAFileThatIsNotAJournal() throws IOException {
+        Files.writeString(path, "not a journal");
+        assertThrows(UncheckedIOException.class,
+                () -> BookingJournal.open(path, BookingJournal.SyncPolicy.GROUP_COMMIT));
+    }
+}
@@ -0,0 +1,327 @@
+package ca.kittle.clinic.journal;
+
+import ca.kittle.clinic.domain.Appointment;
+import ca.kittle.clinic.domain.Booking;
+import ca.kittle.clinic.domain.Clinic;
+import ca.kittle.clinic.domain.Patient;
+import ca.kittle.clinic.domain.Practitioner;
+import ca.kittle.clinic.domain.calendar.ReservationStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CalendarSnapshotTest {
+
+    private static final UUID PRACTITIONER_ID = UUID.randomUUID();
+    private static final LocalDate DATE = LocalDate.now().plusDays(1);
+
+    private final Patient alice = new Patient("Alice", "Smith", "416-555-0101", "alice.smith@email.com");
+    private final Patient bob = new Patient("Bob", "Jones", "416-555-0102", "bob.jones@email.com");
+    private final Map<UUID, Patient> patients = Map.of(alice.getId(), alice, bob.getId(), bob);
+    private Path snapshotPath;
+    private Path journalPath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path directory = Files.createTempDirectory("snapshot");
+        snapshotPath = directory.resolve("calendar.snapshot");
+        journalPath = directory.resolve("bookings.journal");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotPath);
+        Files.deleteIfExists(journalPath);
+        Files.deleteIfExists(snapshotPath.getParent());
+    }
+
+    private static Clinic newClinic() {
+        Clinic clinic = new Clinic("Snapshot Clinic", "416-555-0100", "snapshot@clinic.com");
+        clinic.addPractitioner(new Practitioner(PRACTITIONER_ID, "Prac", "Titioner", "416-555-0103",
+                "prac@clinic.com", ReservationStrategy.LOCKING));
+        return clinic;
+    }
+
+    @Test
+    @DisplayName("Loading a snapshot and replaying the journal after it should restore every booking and appointment")
+    void shouldRestoreFromSnapshotAndJournalTail() {
+        Clinic clinic = newClinic();
+        Practitioner practitioner = clinic.getPractitioners().get(0);
+        try (BookingJournal journal = BookingJournal.open(journalPath, BookingJournal.SyncPolicy.GROUP_COMMIT)) {
+            clinic.setBookingEvents(journal);
+            Booking completed = practitioner.addBooking(alice, clinic, Appointment.AppointmentType.STANDARD,
+                    DATE, LocalTime.of(9, 0)).getRight().orElseThrow();
+            Booking cancelled = practitioner.addBooking(bob, clinic, Appointment.AppointmentType.CHECK_IN,
+                    DATE, LocalTime.of(11, 0)).getRight().orElseThrow();
+            practitioner.addBooking(bob, clinic, Appointment.AppointmentType.CONSULTATION,
+                    DATE.plusDays(7), LocalTime.of(13, 0));
+            assertTrue(practitioner.createAppointment(completed).isRight());
+            assertTrue(practitioner.markCompleted(completed));
+            assertTrue(practitioner.cancelBooking(cancelled));
+
+            CalendarSnapshot.write(snapshotPath, clinic, journal);
+            practitioner.addBooking(alice, clinic, Appointment.AppointmentType.CHECK_IN,
+                    DATE.plusDays(1), LocalTime.of(10, 0));
+        }
+
+        Clinic restored = newClinic();
+        SnapshotLoad load = CalendarSnapshot.load(snapshotPath, restored, patients::get);
+        assertEquals(1, load.practitioners());
+        assertEquals(3, load.bookings());
+        assertEquals(1, load.appointments());
+
+        Practitioner restoredPractitioner = restored.getPractitioners().get(0);
+        assertFalse(restoredPractitioner.availabileTimes(DATE, Appointment.AppointmentType.CHECK_IN)
+                .contains(LocalTime.of(9, 30)));
+        assertTrue(restoredPractitioner.availabileTimes(DATE, Appointment.AppointmentType.CHECK_IN)
+                .contains(LocalTime.of(11, 0)));
+
+        JournalReplay replay = BookingJournal.replay(journalPath, restored, patients::get, load.journalPosition());
+        assertEquals(new JournalReplay(1, 0, false), replay);
+
+        List<Booking> bookings = restoredPractitioner.listBookings(DATE);
+        assertEquals(1, bookings.size());
+        assertEquals(Booking.BookingStatus.COMPLETED, bookings.get(0).getStatus());
+        assertEquals(alice, bookings.get(0).getPatient());
+        assertEquals(1, restoredPractitioner.listBookings(DATE, Booking.BookingStatus.CANCELLED).size());
+        assertEquals(1, restoredPractitioner.listBookings(DATE.plusDays(1)).size());
+        assertEquals(Appointment.AppointmentType.CONSULTATION,
+                restoredPractitioner.listBookings(DATE.plusDays(7)).get(0).getAppointmentType());
+        assertEquals(1, restoredPractitioner.getAppointments().size());
+        assertEquals(3, restoredPractitioner.getBookings().size());
+    }
+
+    @Test
+    @DisplayName("Bookings loaded from a snapshot should be changed like any others")
+    void shouldChangeBookingsLoadedFromASnapshot() {
+        Clinic clinic = newClinic();
+        Practitioner practitioner = clinic.getPractitioners().get(0);
+        try (BookingJournal journal = BookingJournal.open(journalPath, BookingJournal.SyncPolicy.ON_FLUSH)) {
+            clinic.setBookingEvents(journal);
+            practitioner.addBooking(alice, clinic, Appointment.AppointmentType.STANDARD, DATE, LocalTime.of(9, 0));
+            CalendarSnapshot.write(snapshotPath, clinic, journal);
+        }
+
+        Clinic restored = newClinic();
+        CalendarSnapshot.load(snapshotPath, restored, patients::get);
+        Practitioner restoredPractitioner = restored.getPractitioners().get(0);
+
+        assertTrue(restoredPractitioner.addBooking(bob, restored, Appointment.AppointmentType.STANDARD,
+                DATE, LocalTime.of(9, 30)).isLeft());
+        Booking archived = restoredPractitioner.listBookings(DATE).get(0);
+        assertTrue(restoredPractitioner.cancelBooking(archived));
+        assertTrue(restoredPractitioner.addBooking(bob, restored, Appointment.AppointmentType.STANDARD,
+                DATE, LocalTime.of(9, 30)).isRight());
+    }
+
+    @Test
+    @DisplayName("A patient's bookings loaded from a snapshot should be found through the clinic")
+    void shouldFindAPatientsRestoredBookings() {
+        Clinic clinic = newClinic();
+        Practitioner practitioner = clinic.getPractitioners().get(0);
+        try (BookingJournal journal = BookingJournal.open(journalPath, BookingJournal.SyncPolicy.ON_FLUSH)) {
+            clinic.setBookingEvents(journal);
+            practitioner.addBooking(alice, clinic, Appointment.AppointmentType.STANDARD, DATE, LocalTime.of(9, 0));
+            practitioner.addBooking(alice, clinic, Appointment.AppointmentType.CHECK_IN,
+                    DATE.plusDays(7), LocalTime.of(13, 0));
+            Booking cancelled = practitioner.addBooking(bob, clinic, Appointment.AppointmentType.STANDARD,
+                    DATE, LocalTime.of(11, 0)).getRight().orElseThrow();
+            assertTrue(practitioner.cancelBooking(cancelled));
+            CalendarSnapshot.write(snapshotPath, clinic, journal);
+        }
+
+        Clinic restored = newClinic();
+        CalendarSnapshot.load(snapshotPath, restored, patients::get);
+
+        List<Booking> upcoming = restored.upcomingBookings(alice);
+        assertEquals(2, upcoming.size());
+        assertEquals(DATE, upcoming.get(0).getDate());
+        assertEquals(DATE.plusDays(7), upcoming.get(1).getDate());
+        assertTrue(restored.upcomingBookings(bob).isEmpty());
+        assertEquals(List.of(upcoming.get(1)), restored.listBookings(alice, DATE.plusDays(1), DATE.plusDays(7)));
+
+        assertTrue(restored.getPractitioners().get(0).cancelBooking(upcoming.get(0)));
+        assertEquals(List.of(upcoming.get(1)), restored.upcomingBookings(alice));
+    }
+
+    @Test
+    @DisplayName("Finding a patient's restored bookings should only read the days they are on")
+    void shouldOnlyReadAPatientsRestoredDays() {
+        Clinic clinic = newClinic();
+        Practitioner practitioner = clinic.getPractitioners().get(0);
+        try (BookingJournal journal = BookingJournal.open(journalPath, BookingJournal.SyncPolicy.ON_FLUSH)) {
+            practitioner.addBooking(alice, clinic, Appointment.AppointmentType.STANDARD, DATE, LocalTime.of(9, 0));
+            practitioner.addBooking(bob, clinic, Appointment.AppointmentType.STANDARD,
+                    DATE.plusDays(3), LocalTime.of(9, 0));
+            practitioner.addBooking(alice, clinic, Appointment.AppointmentType.CHECK_IN,
+                    DATE.plusDays(7), LocalTime.of(13, 0));
+            practitioner.addBooking(alice, clinic, Appointment.AppointmentType.CHECK_IN,
+                    DATE.plusDays(7), LocalTime.of(15, 0));
+            CalendarSnapshot.write(snapshotPath, clinic, journal);
+        }
+        Clinic restored = newClinic();
+        AtomicInteger lookups = new AtomicInteger();
+        CalendarSnapshot.load(snapshotPath, restored, id -> {
+            lookups.incrementAndGet();
+            return patients.get(id);
+        });
+
+        assertEquals(3, restored.upcomingBookings(alice).size());
+        assertEquals(3, lookups.get());
+        assertEquals(List.of(), restored.listBookings(bob, DATE.plusDays(4), DATE.plusDays(7)));
+        assertEquals(3, lookups.get());
+        assertEquals(1, restored.upcomingBookings(bob).size());
+        assertEquals(4, lookups.get());
+    }
+
+    @Test
+    @DisplayName("Bookings should keep their ids through a snapshot and the journal, so they can be cancelled by id")
+    void shouldCancelRestoredBookingsById() {
+        Clinic clinic = newClinic();
+        Practitioner practitioner = clinic.getPractitioners().get(0);
+        Booking archived;
+        Booking replayed;
+        List<Booking> later = new ArrayList<>();
+        try (BookingJournal journal = BookingJournal.open(journalPath, BookingJournal.SyncPolicy.ON_FLUSH)) {
+            clinic.setBookingEvents(journal);
+            archived = practitioner.addBooking(alice, clinic, Appointment.AppointmentType.STANDARD,
+                    DATE, LocalTime.of(9, 0)).getRight().orElseThrow();
+            for (int day = 2; day < 7; day++)
+                later.add(practitioner.addBooking(bob, clinic, Appointment.AppointmentType.CHECK_IN,
+                        DATE.plusDays(day), LocalTime.of(14, 0)).getRight().orElseThrow());
+            CalendarSnapshot.write(snapshotPath, clinic, journal);
+            replayed = practitioner.addBooking(bob, clinic, Appointment.AppointmentType.STANDARD,
+                    DATE.plusDays(1), LocalTime.of(10, 0)).getRight().orElseThrow();
+        }
+
+        Clinic restored = newClinic();
+        SnapshotLoad load = CalendarSnapshot.load(snapshotPath, restored, patients::get);
+        BookingJournal.replay(journalPath, restored, patients::get, load.journalPosition());
+
+        assertTrue(restored.cancelBooking(archived.getId()));
+        assertTrue(restored.cancelBooking(replayed.getId()));
+        assertFalse(restored.cancelBooking(archived.getId()));
+        Practitioner restoredPractitioner = restored.getPractitioners().get(0);
+        assertTrue(restoredPractitioner.listBookings(DATE).isEmpty());
+        assertEquals(Booking.BookingStatus.CANCELLED,
+                restored.findBooking(replayed.getId()).orElseThrow().getStatus());
+        assertEquals(Booking.BookingStatus.CANCELLED,
+                restored.findBooking(archived.getId()).orElseThrow().getStatus());
+        assertTrue(restored.findBooking(UUID.randomUUID()).isEmpty());
+        for (Booking booking : later)
+            assertEquals(booking.getDate(), restored.findBooking(booking.getId()).orElseThrow().getDate());
+    }
+
+    @Test
+    @DisplayName("Replaying the journal from before a snapshot shouldn't add its bookings or appointments twice")
+    void shouldNotDuplicateRecordsAlreadyInTheSnapshot() {
+        Clinic clinic = newClinic();
+        Practitioner practitioner = clinic.getPractitioners().get(0);
+        try (BookingJournal journal = BookingJournal.open(journalPath, BookingJournal.SyncPolicy.ON_FLUSH)) {
+            clinic.setBookingEvents(journal);
+            Booking booking = practitioner.addBooking(alice, clinic, Appointment.AppointmentType.STANDARD,
+                    DATE, LocalTime.of(9, 0)).getRight().orElseThrow();
+            practitioner.createAppointment(booking);
+            CalendarSnapshot.write(snapshotPath, clinic, journal);
+        }
+
+        Clinic restored = newClinic();
+        CalendarSnapshot.load(snapshotPath, restored, patients::get);
+
+        assertEquals(new JournalReplay(2, 2, false), BookingJournal.replay(journalPath, restored, patients::get));
+        Practitioner restoredPractitioner = restored.getPractitioners().get(0);
+        assertEquals(1, restoredPractitioner.listBookings(DATE).size());
+        assertEquals(1, restoredPractitioner.getAppointments().size());
+    }
+
+    @Test
+    @DisplayName("Should refuse to load a file that isn't a calendar snapshot")
+    void shouldRefuseAFileThatIsNotASnapshot() throws IOException {
+        Files.writeString(snapshotPath, "definitely not a calendar snapshot");
+        assertThrows(UncheckedIOException.class, () -> CalendarSnapshot.load(snapshotPath, newClinic(), patients::get));
+    }
+
+    @Test
+    @DisplayName("Should only load a snapshot into practitioners without bookings, changing none if any has some")
+    void shouldOnlyLoadIntoEmptyCalendars() {
+        Clinic clinic = newClinic();
+        Practitioner other = new Practitioner("Other", "Titioner", "416-555-0104", "other@clinic.com");
+        clinic.addPractitioner(other);
+        try (BookingJournal journal = BookingJournal.open(journalPath, BookingJournal.SyncPolicy.ON_FLUSH)) {
+            CalendarSnapshot.write(snapshotPath, clinic, journal);
+        }
+        other.addBooking(alice, clinic, Appointment.AppointmentType.STANDARD, DATE, LocalTime.of(9, 0));
+
+        assertThrows(IllegalStateException.class, () -> CalendarSnapshot.load(snapshotPath, clinic, patients::get));
+        assertTrue(clinic.getPractitioners().get(0).canRestoreCalendar());
+    }
+
+    @Test
+    @DisplayName("Should record a journal position that is already on disk")
+    void shouldRecordTheDurableJournalPosition() throws IOException {
+        Clinic clinic = newClinic();
+        Practitioner practitioner = clinic.getPractitioners().get(0);
+        try (BookingJournal journal = BookingJournal.open(journalPath, BookingJournal.SyncPolicy.ON_FLUSH)) {
+            clinic.setBookingEvents(journal);
+            long before = journal.position();
+            practitioner.addBooking(alice, clinic, Appointment.AppointmentType.STANDARD, DATE, LocalTime.of(9, 0));
+            assertEquals(before, journal.position());
+
+            CalendarSnapshot.write(snapshotPath, clinic, journal);
+            assertEquals(before + BookingJournal.RECORD_BYTES, journal.position());
+            assertEquals(Files.size(journalPath), journal.position());
+        }
+        assertEquals(Files.size(journalPath),
+                CalendarSnapshot.load(snapshotPath, newClinic(), patients::get).journalPosition());
+    }
+
+    @Test
+    @DisplayName("A snapshot of a restored clinic should keep the days it never read as well as its new bookings")
+    void shouldSnapshotARestoredClinic() throws IOException {
+        Clinic clinic = newClinic();
+        Practitioner practitioner = clinic.getPractitioners().get(0);
+        try (BookingJournal journal = BookingJournal.open(journalPath, BookingJournal.SyncPolicy.ON_FLUSH)) {
+            practitioner.addBooking(alice, clinic, Appointment.AppointmentType.STANDARD, DATE, LocalTime.of(9, 0));
+            Booking cancelled = practitioner.addBooking(bob, clinic, Appointment.AppointmentType.CHECK_IN,
+                    DATE.plusDays(2), LocalTime.of(10, 0)).getRight().orElseThrow();
+            practitioner.cancelBooking(cancelled);
+            CalendarSnapshot.write(snapshotPath, clinic, journal);
+        }
+        Clinic restored = newClinic();
+        CalendarSnapshot.load(snapshotPath, restored, patients::get);
+        Practitioner restoredPractitioner = restored.getPractitioners().get(0);
+        restoredPractitioner.addBooking(bob, restored, Appointment.AppointmentType.STANDARD,
+                DATE.plusDays(1), LocalTime.of(9, 0));
+        Path again = snapshotPath.resolveSibling("again.snapshot");
+        try (BookingJournal journal = BookingJournal.open(journalPath, BookingJournal.SyncPolicy.ON_FLUSH)) {
+            CalendarSnapshot.write(again, restored, journal);
+        }
+
+        Clinic reloaded = newClinic();
+        SnapshotLoad load = CalendarSnapshot.load(again, reloaded, patients::get);
+        Files.delete(again);
+        Practitioner reloadedPractitioner = reloaded.getPractitioners().get(0);
+        assertEquals(3, load.bookings());
+        assertEquals(alice, reloadedPractitioner.listBookings(DATE).get(0).getPatient());
+        assertEquals(bob, reloadedPractitioner.listBookings(DATE.plusDays(1)).get(0).getPatient());
+        assertEquals(1, reloadedPractitioner.listBookings(DATE.plusDays(2), Booking.BookingStatus.CANCELLED).size());
+    }
+}
@@ -4,7 +4,14 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import util.CustomValidator;
 
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class CustomValidatorTest {
     private static final String PHONE_NUMBER = "416-555-1111";
@@ -61,4 +68,43 @@ class CustomValidatorTest {
         assertFalse(CustomValidator.isValidEmail("clinic[at]email.com"));
         assertFalse(CustomValidator.isValidEmail("clinic [ at ] email.com"));
     }
+
+    @Test
+    @DisplayName("Test emails with misplaced @ signs and dots")
+    void testEmailShapes() {
+        assertFalse(CustomValidator.isValidEmail("@email.com"));
+        assertFalse(CustomValidator.isValidEmail("clinic@@email.com"));
+        assertFalse(CustomValidator.isValidEmail("clinic@.com"));
+        assertFalse(CustomValidator.isValidEmail("clinic@email."));
+        assertFalse(CustomValidator.isValidEmail("first.last@email"));
+        assertTrue(CustomValidator.isValidEmail("clinic@.email.com"));
+    }
+
+    @Test
+    @DisplayName("Test the scanners agree with the original regular expressions")
+    void testScannersMatchRegularExpressions() {
+        Pattern phonePattern = Pattern.compile("^\\d{3}-\\d{3}-\\d{4}$");
+        Pattern emailPattern = Pattern.compile("^[^@]+@[^@]+\\.[^@]+$");
+        String alphabet = "0123456789-@.a\u0663";
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            char[] chars = new char[1 + random.nextInt(13)];
+            for (int c = 0; c < chars.length; c++)
+                chars[c] = alphabet.charAt(random.nextInt(alphabet.length()));
+            String candidate = new String(chars);
+            assertEquals(phonePattern.matcher(candidate).matches(), CustomValidator.isValidPhoneNumber(candidate), candidate);
+            assertEquals(emailPattern.matcher(candidate).matches(), CustomValidator.isValidEmail(candidate), candidate);
+        }
+    }
+
+    @Test
+    @DisplayName("Test validating phone numbers and emails in bulk")
+    void testBulkValidation() {
+        assertArrayEquals(new boolean[]{true, false, false},
+                CustomValidator.validatePhoneNumbers(PHONE_NUMBER, "4165551111", null));
+        assertArrayEquals(new boolean[]{true, false},
+                CustomValidator.validateEmails("clinic@email.com", "clinicATemail.com"));
+        assertTrue(CustomValidator.allValidPhoneNumbers(Stream.of(PHONE_NUMBER, "647-555-8932")));
+        assertFalse(CustomValidator.allValidEmails(Stream.of("clinic@email.com", "clinic [ at ] email.com")));
+    }
 }